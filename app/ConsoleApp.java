@@ -1,10 +1,21 @@
 package app;
 
+import app.service.AccountService;
 import app.service.AdminService;
+import app.service.ClubReport;
 import app.service.DatabaseResetService;
+import app.service.GoalEvaluator;
+import app.service.HealthMetricColumns;
+import app.service.HealthMetricRetention;
 import app.service.HibernateUtil;
+import app.service.LocalRegionFactory;
+import app.service.MemberDashboard;
+import app.service.MemberDashboardService;
+import app.service.MemberStandingService;
 import app.service.MemberService;
 import app.service.PTSessionService;
+import app.service.Page;
+import app.service.ShardContext;
 import app.service.TrainerService;
 import models.*;
 
@@ -16,15 +27,23 @@ import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class ConsoleApp {
 
     private final Scanner scanner = new Scanner(System.in);
 
+    private final AccountService accountService = new AccountService();
     private final MemberService memberService = new MemberService();
+    private final MemberDashboardService dashboardService = new MemberDashboardService();
+    private final MemberStandingService standingService = new MemberStandingService();
     private final PTSessionService ptSessionService = new PTSessionService();
     private final TrainerService trainerService = new TrainerService();
     private final AdminService adminService = new AdminService();
+    private final HealthMetricRetention retention = new HealthMetricRetention();
+    private final GoalEvaluator goalEvaluator = new GoalEvaluator();
 
     private final DatabaseResetService resetService;
 
@@ -60,6 +79,37 @@ public class ConsoleApp {
         }
     }
 
+    /**
+     * Prints a keyset-paginated list as a table, one page at a time.
+     * loader gets the last row of the previous page (null for the first one).
+     * Returns false if there was nothing to print.
+     */
+    private <T> boolean printPaged(Function<T, Page<T>> loader,
+                                   String border,
+                                   String header,
+                                   Consumer<T> rowPrinter) {
+        Page<T> page = loader.apply(null);
+        if (page.isEmpty()) {
+            return false;
+        }
+        while (true) {
+            System.out.println(border);
+            System.out.println(header);
+            System.out.println(border);
+            page.getItems().forEach(rowPrinter);
+            System.out.println(border);
+
+            if (!page.hasNext()) {
+                return true;
+            }
+            System.out.print("Enter for next page, q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                return true;
+            }
+            page = loader.apply(page.last());
+        }
+    }
+
     private double readRequiredDoubleWithPercent(String prompt) {
         while (true) {
             System.out.print(prompt);
@@ -148,6 +198,26 @@ public class ConsoleApp {
         }
     }
 
+    /**
+     * Asks which club (location) to work in and makes it the current shard.
+     * With a single configured club nothing is asked.
+     */
+    private void chooseClub() {
+        List<Integer> clubIds = new ArrayList<>(HibernateUtil.getClubIds());
+        if (clubIds.size() == 1) {
+            ShardContext.set(clubIds.get(0));
+            return;
+        }
+        while (true) {
+            int clubId = readRequiredInt("Club id " + clubIds + ": ");
+            if (clubIds.contains(clubId)) {
+                ShardContext.set(clubId);
+                return;
+            }
+            System.out.println("Unknown club id.");
+        }
+    }
+
     // ========================== MAIN LOOP ==========================
 
     public void run() {
@@ -156,9 +226,7 @@ public class ConsoleApp {
             System.out.println();
             System.out.println("=== Main Menu ===");
             System.out.println("1) Register Member");
-            System.out.println("2) Member Login");
-            System.out.println("3) Trainer Login");
-            System.out.println("4) Admin Login");
+            System.out.println("2) Login (member, trainer or admin)");
             System.out.println("9) Reset database to base seed");
             System.out.println("0) Exit");
             System.out.print("Choice: ");
@@ -166,9 +234,7 @@ public class ConsoleApp {
             String choice = scanner.nextLine().trim();
             switch (choice) {
                 case "1" -> handleMemberRegistration();
-                case "2" -> handleMemberLogin();
-                case "3" -> handleTrainerLogin();
-                case "4" -> handleAdminLogin();
+                case "2" -> handleLogin();
                 case "9" -> {
                     System.out.println("--- Resetting database to base seed ---");
                     resetService.resetToBaseSeed();
@@ -184,6 +250,7 @@ public class ConsoleApp {
 
     private void handleMemberRegistration() {
         System.out.println("--- Member Registration (M1) ---");
+        chooseClub();
         String fullName = readRequired("Full name: ");
         String email = readValidEmail("Email: ");
         String password = readRequired("Password: ");
@@ -201,30 +268,64 @@ public class ConsoleApp {
         }
     }
 
-    private Member findMemberByCredentials(String email, String password) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            return session.createQuery(
-                            "from Member m where m.email = :email and m.passwordHash = :pw",
-                            Member.class)
-                    .setParameter("email", email)
-                    .setParameter("pw", password)
-                    .uniqueResult();
-        }
-    }
-
-    private void handleMemberLogin() {
-        System.out.println("--- Member Login ---");
+    /**
+     * One login for every role: the account found by email says whether the
+     * person is a member, trainer or admin.
+     */
+    private void handleLogin() {
+        System.out.println("--- Login ---");
+        chooseClub();
         String email = readValidEmail("Email: ");
         String password = readRequired("Password: ");
 
-        Member member = findMemberByCredentials(email, password);
-        if (member == null) {
-            System.out.println("Invalid credentials or member not found.");
+        Account account;
+        try {
+            account = accountService.authenticate(email, password);
+        } catch (RejectedExecutionException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        if (account == null) {
+            System.out.println("Invalid credentials.");
             return;
         }
 
+        switch (account.getRole()) {
+            case MEMBER -> {
+                Member member = loadPerson(Member.class, account.getPersonId());
+                if (member != null) {
+                    startMemberSession(member);
+                }
+            }
+            case TRAINER -> {
+                Trainer trainer = loadPerson(Trainer.class, account.getPersonId());
+                if (trainer != null) {
+                    startTrainerSession(trainer);
+                }
+            }
+            case ADMIN -> {
+                Admin admin = loadPerson(Admin.class, account.getPersonId());
+                if (admin != null) {
+                    startAdminSession(admin);
+                }
+            }
+        }
+    }
+
+    private <T> T loadPerson(Class<T> type, long id) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            T person = session.get(type, id);
+            if (person == null) {
+                System.out.println(type.getSimpleName() + " of this account not found: " + id);
+            }
+            return person;
+        }
+    }
+
+    private void startMemberSession(Member member) {
         System.out.println("Welcome, " + member.getFullName() +
                 " (id=" + member.getMemberId() + ")");
+        printDashboard(member);
         memberMenu(member);
     }
 
@@ -243,6 +344,10 @@ public class ConsoleApp {
             System.out.println("8) View fitness goals (M2)");
             System.out.println("9) Update/delete fitness goal (M2)");
             System.out.println("10) View PT sessions (M4)");
+            System.out.println("11) Dashboard");
+            System.out.println("12) Trends (M3)");
+            System.out.println("13) Where I stand (M3)");
+            System.out.println("14) Heart rate alerts (M3)");
             System.out.println("0) Logout");
             System.out.print("Choice: ");
 
@@ -259,6 +364,10 @@ public class ConsoleApp {
                 case "8" -> handleViewFitnessGoals(member);
                 case "9" -> handleUpdateFitnessGoal(member);
                 case "10" -> handleViewPTSessions(member);
+                case "11" -> printDashboard(member);
+                case "12" -> handleViewTrends(member);
+                case "13" -> handleViewStanding(member);
+                case "14" -> handleViewHeartRateAlerts(member);
                 case "0" -> loggedIn = false;
                 default -> System.out.println("Invalid choice.");
             }
@@ -266,6 +375,53 @@ public class ConsoleApp {
         }
     }
 
+    private void printDashboard(Member member) {
+        MemberDashboard d = dashboardService.getDashboard(member.getMemberId());
+
+        System.out.println("--- Dashboard ---");
+        System.out.println("Active goals:");
+        if (d.getActiveGoals().isEmpty()) {
+            System.out.println("  (none)");
+        }
+        for (MemberDashboard.Goal g : d.getActiveGoals()) {
+            String progress = (g.progressPct() != null ? String.format("%.0f%%", g.progressPct()) : "-");
+            String current = (g.currentValue() != null ? String.format("%.1f", g.currentValue()) : "-");
+            System.out.printf("  #%d %-15s target %-7.1f now %-7s progress %s%s%n",
+                    g.goalSeq(),
+                    g.goalType(),
+                    g.targetValue(),
+                    current,
+                    progress,
+                    (g.targetDate() != null ? " (by " + g.targetDate() + ")" : ""));
+        }
+
+        System.out.println("Latest metrics:");
+        if (d.getLatestMetrics().isEmpty()) {
+            System.out.println("  (none)");
+        }
+        for (MemberDashboard.Metric m : d.getLatestMetrics()) {
+            System.out.printf("  %s  weight %s  HR %s  body fat %s%n",
+                    m.recordedDate(),
+                    (m.weight() != null ? String.format("%.1f", m.weight()) : "-"),
+                    (m.heartRate() != null ? m.heartRate().toString() : "-"),
+                    (m.bodyFatPct() != null ? String.format("%.1f%%", m.bodyFatPct()) : "-"));
+        }
+
+        System.out.println("Upcoming sessions:");
+        if (d.getUpcomingSessions().isEmpty()) {
+            System.out.println("  (none)");
+        }
+        for (MemberDashboard.Session s : d.getUpcomingSessions()) {
+            System.out.printf("  #%d %s -> %s with %s, room %s (%s)%n",
+                    s.sessionId(),
+                    s.startTime(),
+                    s.endTime(),
+                    s.trainerName(),
+                    (s.roomId() != null ? s.roomId().toString() : "-"),
+                    s.status());
+        }
+    }
+
     private void handleUpdateProfile(Member member) {
         System.out.println("--- Update Profile (M2) ---");
         System.out.print("New full name (leave empty to keep): ");
@@ -327,7 +483,7 @@ public class ConsoleApp {
                 target,
                 start,
                 targetDate,
-                "ACTIVE"
+                GoalStatus.ACTIVE
         );
         if (goal != null) {
             System.out.println("Goal added for member " + member.getMemberId());
@@ -383,34 +539,100 @@ public class ConsoleApp {
     private void handleViewHealthLogs(Member member) {
         System.out.println("--- Health Logs (M3) ---");
 
-        List<HealthMetric> logs = memberService.getMetricsForMember(member.getMemberId());
-        if (logs.isEmpty()) {
+        long memberId = member.getMemberId();
+        boolean any = printPaged(
+                (HealthMetric after) -> memberService.getMetricsPage(memberId, after, Page.DEFAULT_SIZE),
+                "+---------------------------------------------------------------------+",
+                "| ID   | Date       | Weight | Height | HeartRate | BodyFat%         |",
+                m -> {
+                    String weightStr = (m.getWeight() != null) ? String.format("%.1f", m.getWeight()) : "-";
+                    String heightStr = (m.getHeight() != null) ? String.format("%.2f", m.getHeight()) : "-";
+                    String hrStr     = (m.getHeartRate() != null) ? m.getHeartRate().toString() : "-";
+                    String bfStr     = (m.getBodyFatPct() != null) ? String.format("%.1f", m.getBodyFatPct()) : "-";
+
+                    System.out.printf(
+                            "| %-4d | %-10s | %-6s | %-6s | %-9s | %-16s |%n",
+                            m.getMetricId(),
+                            m.getRecordedDate(),
+                            weightStr,
+                            heightStr,
+                            hrStr,
+                            bfStr
+                    );
+                });
+        if (!any) {
             System.out.println("No health logs found.");
+        }
+    }
+
+
+    private void handleViewTrends(Member member) {
+        System.out.println("--- Trends (M3) ---");
+        System.out.print("Weekly or monthly? (W/m): ");
+        boolean monthly = scanner.nextLine().trim().equalsIgnoreCase("m");
+
+        List<? extends MetricRollup> rows = (monthly
+                ? memberService.getMonthlyTrend(member.getMemberId(), 12)
+                : memberService.getWeeklyTrend(member.getMemberId(), 12));
+        if (rows.isEmpty()) {
+            System.out.println("No health logs in the last 12 " + (monthly ? "months." : "weeks."));
             return;
         }
 
-        System.out.println("+---------------------------------------------------------------------+");
-        System.out.println("| ID   | Date       | Weight | Height | HeartRate | BodyFat%         |");
-        System.out.println("+---------------------------------------------------------------------+");
-        for (HealthMetric m : logs) {
-            String weightStr = (m.getWeight() != null) ? String.format("%.1f", m.getWeight()) : "-";
-            String heightStr = (m.getHeight() != null) ? String.format("%.2f", m.getHeight()) : "-";
-            String hrStr     = (m.getHeartRate() != null) ? m.getHeartRate().toString() : "-";
-            String bfStr     = (m.getBodyFatPct() != null) ? String.format("%.1f", m.getBodyFatPct()) : "-";
+        System.out.println("+--------------------------------------------------------------------------------------+");
+        System.out.println("| " + (monthly ? "Month  " : "Week of") + "    | Logs | Weight min/avg/max   | Body fat min/avg/max | Heart rate min/avg/max |");
+        System.out.println("+--------------------------------------------------------------------------------------+");
+        for (MetricRollup r : rows) {
+            System.out.printf("| %-10s | %-4d | %-20s | %-20s | %-22s |%n",
+                    (monthly ? r.getPeriodStart().toString().substring(0, 7) : r.getPeriodStart()),
+                    r.getReadings(),
+                    formatRange(r.getWeightMin(), r.getWeightAvg(), r.getWeightMax()),
+                    formatRange(r.getBodyFatMin(), r.getBodyFatAvg(), r.getBodyFatMax()),
+                    formatRange(toDouble(r.getHeartRateMin()), r.getHeartRateAvg(), toDouble(r.getHeartRateMax())));
+        }
+        System.out.println("+--------------------------------------------------------------------------------------+");
+    }
 
-            System.out.printf(
-                    "| %-4d | %-10s | %-6s | %-6s | %-9s | %-16s |%n",
-                    m.getMetricId(),
-                    m.getRecordedDate(),
-                    weightStr,
-                    heightStr,
-                    hrStr,
-                    bfStr
-            );
+    private void handleViewStanding(Member member) {
+        System.out.println("--- Where I stand this quarter (M3) ---");
+        List<MemberStandingService.Standing> standings = standingService.getStanding(member.getMemberId());
+        if (standings.isEmpty()) {
+            System.out.println("No health logs this quarter.");
+            return;
+        }
+        for (MemberStandingService.Standing s : standings) {
+            boolean change = s.metric().endsWith("Change");
+            System.out.printf("%-17s %8.1f  at or below %5.1f%% of the club's %s (%d)%n",
+                    s.metric(), s.value(), s.percentAtOrBelow(),
+                    (change ? "members" : "readings"), s.population());
         }
-        System.out.println("+---------------------------------------------------------------------+");
+        System.out.println("(Approximate, within about 1%. Lower is ahead for weight loss and heart rate.)");
     }
 
+    private void handleViewHeartRateAlerts(Member member) {
+        System.out.println("--- Heart rate alerts (M3) ---");
+        List<HeartRateAlert> alerts = memberService.getHeartRateAlerts(member.getMemberId(), 20);
+        if (alerts.isEmpty()) {
+            System.out.println("No heart rate alerts.");
+            return;
+        }
+        for (HeartRateAlert a : alerts) {
+            System.out.printf("%s  %-5s  %3d bpm  usual %.0f +/- %.1f  (%+.1f sd)%n",
+                    a.getRecordedDate(), a.getKind(), a.getHeartRate(),
+                    a.getExpected(), a.getStdDev(), a.getZScore());
+        }
+    }
+
+    private static String formatRange(Double min, Double avg, Double max) {
+        if (avg == null) {
+            return "-";
+        }
+        return String.format("%.1f/%.1f/%.1f", min, avg, max);
+    }
+
+    private static Double toDouble(Integer value) {
+        return (value != null ? value.doubleValue() : null);
+    }
 
     private void handleViewFitnessGoals(Member member) {
         System.out.println("--- Your Fitness Goals (M2) ---");
@@ -447,9 +669,12 @@ public class ConsoleApp {
         // 3) Otherwise, proceed with update
         System.out.print("New status (e.g. ACTIVE, COMPLETED) (empty or '-' to keep): ");
         String statusInput = scanner.nextLine().trim();
-        String newStatus = null;
+        GoalStatus newStatus = null;
         if (!statusInput.isEmpty() && !statusInput.equals("-")) {
-            newStatus = statusInput;
+            newStatus = GoalStatus.parse(statusInput);
+            if (newStatus == null) {
+                System.out.println("Unknown status; keeping current status.");
+            }
         }
 
         Double newTarget = readOptionalDoubleWithPercent("New target value (empty to keep): ");
@@ -481,33 +706,16 @@ public class ConsoleApp {
         System.out.println("--- Request PT Session (M4) ---");
 
         // Show trainer availabilities as a table
-        List<TrainerAvailability> slots = trainerService.getAllActiveAvailabilities();
-        if (slots.isEmpty()) {
+        if (!printAvailabilities(null)) {
             System.out.println("No trainer availabilities at the moment.");
             return;
         }
 
-        System.out.println("+--------------------------------------------------------------------------------+");
-        System.out.println("| ID  | Trainer           | Start               | End                 | Status   |");
-        System.out.println("+--------------------------------------------------------------------------------+");
-        for (TrainerAvailability a : slots) {
-            System.out.printf("| %-3d | %-17s | %-19s | %-19s | %-8s |%n",
-                    a.getAvailabilityId(),
-                    a.getTrainer().getFullName(),
-                    a.getStartTime(),
-                    a.getEndTime(),
-                    a.getStatus());
-        }
-        System.out.println("+--------------------------------------------------------------------------------+");
-
         long availabilityId = readRequiredLong("Enter Availability ID to book: ");
 
-        TrainerAvailability chosen;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            chosen = session.get(TrainerAvailability.class, availabilityId);
-        }
+        TrainerAvailability chosen = trainerService.getAvailability(availabilityId);
 
-        if (chosen == null || !"ACTIVE".equalsIgnoreCase(chosen.getStatus())) {
+        if (chosen == null || chosen.getStatus() != AvailabilityStatus.ACTIVE) {
             System.out.println("Invalid or inactive availability slot.");
             return;
         }
@@ -540,10 +748,7 @@ public class ConsoleApp {
         long sid = readRequiredLong("Enter session id to reschedule: ");
 
         // Load the session to find its trainer and verify ownership
-        PTSession sessionEntity;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            sessionEntity = session.get(PTSession.class, sid);
-        }
+        PTSession sessionEntity = ptSessionService.getSessionForMember(member.getMemberId(), sid);
 
         if (sessionEntity == null) {
             System.out.println("Session not found.");
@@ -562,44 +767,20 @@ public class ConsoleApp {
         long trainerId = sessionEntity.getTrainer().getTrainerId();
 
         // Show only ACTIVE availability slots for this trainer
-        List<TrainerAvailability> allSlots = trainerService.getAllActiveAvailabilities();
-        List<TrainerAvailability> trainerSlots = new ArrayList<>();
-        for (TrainerAvailability a : allSlots) {
-            if (a.getTrainer() != null && a.getTrainer().getTrainerId() == trainerId) {
-                trainerSlots.add(a);
-            }
-        }
-
-        if (trainerSlots.isEmpty()) {
+        System.out.println("Available slots for trainer " + sessionEntity.getTrainer().getFullName() + ":");
+        if (!printAvailabilities(trainerId)) {
             System.out.println("This trainer has no ACTIVE availability slots to reschedule into.");
             return;
         }
 
-        System.out.println("Available slots for trainer " + sessionEntity.getTrainer().getFullName() + ":");
-        System.out.println("+--------------------------------------------------------------------------------+");
-        System.out.println("| ID  | Trainer           | Start               | End                 | Status   |");
-        System.out.println("+--------------------------------------------------------------------------------+");
-        for (TrainerAvailability a : trainerSlots) {
-            System.out.printf("| %-3d | %-17s | %-19s | %-19s | %-8s |%n",
-                    a.getAvailabilityId(),
-                    a.getTrainer().getFullName(),
-                    a.getStartTime(),
-                    a.getEndTime(),
-                    a.getStatus());
-        }
-        System.out.println("+--------------------------------------------------------------------------------+");
-
         long availabilityId = readRequiredLong("Enter Availability ID to move session to: ");
 
-        TrainerAvailability chosen;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            chosen = session.get(TrainerAvailability.class, availabilityId);
-        }
+        TrainerAvailability chosen = trainerService.getAvailability(availabilityId);
 
         if (chosen == null ||
                 chosen.getTrainer() == null ||
                 chosen.getTrainer().getTrainerId() != trainerId ||
-                !"ACTIVE".equalsIgnoreCase(chosen.getStatus())) {
+                chosen.getStatus() != AvailabilityStatus.ACTIVE) {
             System.out.println("Invalid availability selection.");
             return;
         }
@@ -638,53 +819,45 @@ public class ConsoleApp {
     }
 
     private void listMemberSessions(Member member) {
-        List<PTSession> sessions = memberService.getSessionsForMember(member.getMemberId());
-        if (sessions.isEmpty()) {
+        long memberId = member.getMemberId();
+        boolean any = printPaged(
+                (PTSession after) -> memberService.getSessionsPage(memberId, after, Page.DEFAULT_SIZE),
+                "+-------------------------------------------------------------------------------+",
+                "| ID  | Trainer           | Start               | End                 | Status  |",
+                s -> {
+                    String trainerName = (s.getTrainer() != null ? s.getTrainer().getFullName() : "-");
+                    System.out.printf(
+                            "| %-3d | %-17s | %-19s | %-19s | %-7s |%n",
+                            s.getSessionId(),
+                            trainerName,
+                            s.getStartTime(),
+                            s.getEndTime(),
+                            s.getStatus()
+                    );
+                });
+        if (!any) {
             System.out.println("No sessions for this member.");
-        } else {
-            System.out.println("+-------------------------------------------------------------------------------+");
-            System.out.println("| ID  | Trainer           | Start               | End                 | Status  |");
-            System.out.println("+-------------------------------------------------------------------------------+");
-            for (PTSession s : sessions) {
-                String trainerName = (s.getTrainer() != null ? s.getTrainer().getFullName() : "-");
-                System.out.printf(
-                        "| %-3d | %-17s | %-19s | %-19s | %-7s |%n",
-                        s.getSessionId(),
-                        trainerName,
-                        s.getStartTime(),
-                        s.getEndTime(),
-                        s.getStatus()
-                );
-            }
-            System.out.println("+-------------------------------------------------------------------------------+");
         }
     }
 
-
-    // ========================== TRAINER FLOW ==========================
-
-    private Trainer findTrainerByCredentials(String email, String password) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            return session.createQuery(
-                            "from Trainer t where t.email = :email and t.passwordHash = :pw",
-                            Trainer.class)
-                    .setParameter("email", email)
-                    .setParameter("pw", password)
-                    .uniqueResult();
-        }
+    /** ACTIVE availability slots, of one trainer or (trainerId == null) all of them. */
+    private boolean printAvailabilities(Long trainerId) {
+        return printPaged(
+                (TrainerAvailability after) -> trainerService.getActiveAvailabilitiesPage(trainerId, after, Page.DEFAULT_SIZE),
+                "+--------------------------------------------------------------------------------+",
+                "| ID  | Trainer           | Start               | End                 | Status   |",
+                a -> System.out.printf("| %-3d | %-17s | %-19s | %-19s | %-8s |%n",
+                        a.getAvailabilityId(),
+                        a.getTrainer().getFullName(),
+                        a.getStartTime(),
+                        a.getEndTime(),
+                        a.getStatus()));
     }
 
-    private void handleTrainerLogin() {
-        System.out.println("--- Trainer Login ---");
-        String email = readValidEmail("Email: ");
-        String password = readRequired("Password: ");
 
-        Trainer trainer = findTrainerByCredentials(email, password);
-        if (trainer == null) {
-            System.out.println("Invalid credentials or trainer not found.");
-            return;
-        }
+    // ========================== TRAINER FLOW ==========================
 
+    private void startTrainerSession(Trainer trainer) {
         System.out.println("Welcome, " + trainer.getFullName() +
                 " (id=" + trainer.getTrainerId() + ")");
         trainerMenu(trainer);
@@ -719,7 +892,7 @@ public class ConsoleApp {
                 trainer.getTrainerId(),
                 start,
                 end,
-                "ACTIVE"
+                AvailabilityStatus.ACTIVE
         );
         if (a != null) {
             System.out.println("Availability added with id: " + a.getAvailabilityId());
@@ -731,59 +904,34 @@ public class ConsoleApp {
     private void handleViewTrainerSchedule(Trainer trainer) {
         System.out.println("--- Trainer Schedule (T2) ---");
 
-        List<PTSession> sessions =
-                trainerService.getScheduleForTrainer(trainer.getTrainerId());
-
-        if (sessions.isEmpty()) {
+        long trainerId = trainer.getTrainerId();
+        boolean any = printPaged(
+                (PTSession after) -> trainerService.getSchedulePage(trainerId, after, Page.DEFAULT_SIZE),
+                "+--------------------------------------------------------------------------------------+",
+                "| ID  | Member              | Room | Start              | End                | Status  |",
+                s -> {
+                    String memberName = (s.getMember() != null ? s.getMember().getFullName() : "-");
+                    String roomStr = (s.getRoom() != null ? String.valueOf(s.getRoom().getRoomId()) : "-");
+
+                    System.out.printf(
+                            "| %-3d | %-18s | %-4s | %-18s | %-18s | %-7s |%n",
+                            s.getSessionId(),
+                            memberName,
+                            roomStr,
+                            s.getStartTime(),
+                            s.getEndTime(),
+                            s.getStatus()
+                    );
+                });
+        if (!any) {
             System.out.println("You have no scheduled sessions.");
-            return;
         }
-
-        System.out.println("+--------------------------------------------------------------------------------------+");
-        System.out.println("| ID  | Member              | Room | Start              | End                | Status  |");
-        System.out.println("+--------------------------------------------------------------------------------------+");
-        for (PTSession s : sessions) {
-            String memberName = (s.getMember() != null ? s.getMember().getFullName() : "-");
-            String roomStr = (s.getRoom() != null ? String.valueOf(s.getRoom().getRoomId()) : "-");
-
-            System.out.printf(
-                    "| %-3d | %-18s | %-4s | %-18s | %-18s | %-7s |%n",
-                    s.getSessionId(),
-                    memberName,
-                    roomStr,
-                    s.getStartTime(),
-                    s.getEndTime(),
-                    s.getStatus()
-            );
-        }
-        System.out.println("+--------------------------------------------------------------------------------------+");
     }
 
 
     // ============================ ADMIN FLOW ============================
 
-    private Admin findAdminByCredentials(String email, String password) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            return session.createQuery(
-                            "from Admin a where a.email = :email and a.passwordHash = :pw",
-                            Admin.class)
-                    .setParameter("email", email)
-                    .setParameter("pw", password)
-                    .uniqueResult();
-        }
-    }
-
-    private void handleAdminLogin() {
-        System.out.println("--- Admin Login ---");
-        String email = readValidEmail("Email: ");
-        String password = readRequired("Password: ");
-
-        Admin admin = findAdminByCredentials(email, password);
-        if (admin == null) {
-            System.out.println("Invalid credentials or admin not found.");
-            return;
-        }
-
+    private void startAdminSession(Admin admin) {
         System.out.println("Welcome, " + admin.getFullName() +
                 " (id=" + admin.getAdminId() + ")");
         adminMenu(admin);
@@ -796,6 +944,12 @@ public class ConsoleApp {
             System.out.println("=== Admin Menu ===");
             System.out.println("1) Assign room to PT session (A1)");
             System.out.println("2) Update equipment status (A2)");
+            System.out.println("3) Cross-club report (A3)");
+            System.out.println("4) Purge old raw health metrics");
+            System.out.println("5) Cohort analytics");
+            System.out.println("6) Evaluate fitness goals");
+            System.out.println("7) Find member");
+            System.out.println("8) Cache statistics");
             System.out.println("0) Logout");
             System.out.print("Choice: ");
 
@@ -803,81 +957,124 @@ public class ConsoleApp {
             switch (choice) {
                 case "1" -> handleAssignRoomToSession(admin);
                 case "2" -> handleUpdateEquipmentStatus(admin);
+                case "3" -> handleCrossClubReport();
+                case "4" -> handleHealthMetricRetention();
+                case "5" -> handleCohortAnalytics();
+                case "6" -> handleGoalEvaluation();
+                case "7" -> handleFindMember();
+                case "8" -> handleCacheStatistics();
                 case "0" -> loggedIn = false;
                 default -> System.out.println("Invalid choice.");
             }
         }
     }
 
-    private void handleAssignRoomToSession(Admin admin) {
-        System.out.println("--- Assign Room to PT Session (A1) ---");
-
-        // 1) Show all PENDING / RESCHEDULED sessions in a table
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            List<PTSession> sessions = session.createQuery(
-                            "from PTSession s " +
-                                    "where s.status in ('PENDING', 'RESCHEDULED') " +
-                                    "order by s.startTime",
-                            PTSession.class)
-                    .getResultList();
-
-            if (sessions.isEmpty()) {
-                System.out.println("No pending or rescheduled sessions.");
+    private void handleFindMember() {
+        System.out.println("--- Find member ---");
+        System.out.println("Type the start of a name or email for suggestions; end with '*' for a full");
+        System.out.println("(fuzzy) search, e.g. 'jon smit*'. Empty line to go back.");
+        while (true) {
+            System.out.print("Search: ");
+            String text = scanner.nextLine().trim();
+            if (text.isEmpty()) {
                 return;
             }
 
-            System.out.println("+----------------------------------------------------------------------------------------------+");
-            System.out.println("| ID  | Member              | Trainer             | Start              | End                | Status  |");
-            System.out.println("+----------------------------------------------------------------------------------------------+");
-            for (PTSession s : sessions) {
-                String memberName  = (s.getMember()  != null ? s.getMember().getFullName()  : "-");
-                String trainerName = (s.getTrainer() != null ? s.getTrainer().getFullName() : "-");
-
-                System.out.printf(
-                        "| %-3d | %-18s | %-18s | %-18s | %-18s | %-7s |%n",
-                        s.getSessionId(),
-                        memberName,
-                        trainerName,
-                        s.getStartTime(),
-                        s.getEndTime(),
-                        s.getStatus()
-                );
+            if (text.endsWith("*")) {
+                List<Member> members = adminService.searchMembers(text.substring(0, text.length() - 1), 20);
+                if (members.isEmpty()) {
+                    System.out.println("No members found.");
+                    continue;
+                }
+                System.out.println("+------------------------------------------------------------------------------+");
+                System.out.println("| ID     | Name                     | Email                          | Status   |");
+                System.out.println("+------------------------------------------------------------------------------+");
+                for (Member m : members) {
+                    System.out.printf("| %-6d | %-24s | %-30s | %-8s |%n",
+                            m.getMemberId(), m.getFullName(), m.getEmail(), m.getStatus());
+                }
+                System.out.println("+------------------------------------------------------------------------------+");
+            } else {
+                List<AdminService.MemberSuggestion> suggestions = adminService.suggestMembers(text, 10);
+                if (suggestions.isEmpty()) {
+                    System.out.println("No suggestions.");
+                    continue;
+                }
+                for (AdminService.MemberSuggestion x : suggestions) {
+                    System.out.printf("  %-6d %-24s %s%n", x.memberId(), x.fullName(), x.email());
+                }
             }
-            System.out.println("+----------------------------------------------------------------------------------------------+");
+        }
+    }
+
+    private void handleCacheStatistics() {
+        System.out.println("--- Cache statistics (club " + ShardContext.current() + ") ---");
+        List<LocalRegionFactory.RegionStats> regions = HibernateUtil.getCacheStatistics();
+        if (regions.isEmpty()) {
+            System.out.println("The second-level cache is not enabled.");
+            return;
+        }
+        System.out.println("+----------------------------------------------------------------------------------+");
+        System.out.println("| Region                 | Hits     | Misses   | Hit %  | Evicted  | Size/Max      |");
+        System.out.println("+----------------------------------------------------------------------------------+");
+        for (LocalRegionFactory.RegionStats r : regions) {
+            System.out.printf("| %-22s | %8d | %8d | %5.1f%% | %8d | %13s |%n",
+                    r.region(), r.hits(), r.misses(), 100 * r.hitRate(),
+                    r.evictions() + r.expirations(),
+                    r.size() + "/" + (r.maxEntries() == 0 ? "-" : r.maxEntries()));
+        }
+        System.out.println("+----------------------------------------------------------------------------------+");
+    }
+
+    private void handleAssignRoomToSession(Admin admin) {
+        System.out.println("--- Assign Room to PT Session (A1) ---");
+
+        // 1) Show all PENDING / RESCHEDULED sessions in a table
+        boolean any = printPaged(
+                (PTSession after) -> adminService.getPendingSessionsPage(after, Page.DEFAULT_SIZE),
+                "+----------------------------------------------------------------------------------------------+",
+                "| ID  | Member              | Trainer             | Start              | End                | Status  |",
+                s -> {
+                    String memberName  = (s.getMember()  != null ? s.getMember().getFullName()  : "-");
+                    String trainerName = (s.getTrainer() != null ? s.getTrainer().getFullName() : "-");
+
+                    System.out.printf(
+                            "| %-3d | %-18s | %-18s | %-18s | %-18s | %-7s |%n",
+                            s.getSessionId(),
+                            memberName,
+                            trainerName,
+                            s.getStartTime(),
+                            s.getEndTime(),
+                            s.getStatus()
+                    );
+                });
+        if (!any) {
+            System.out.println("No pending or rescheduled sessions.");
+            return;
         }
 
         long sid = readRequiredLong("Session id to assign room to: ");
 
         // 2) Show only rooms managed by this admin
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            List<Room> rooms = session.createQuery(
-                            "select m.room " +
-                                    "from Manage m " +
-                                    "where m.admin.adminId = :aid " +
-                                    "order by m.room.roomId",
-                            Room.class)
-                    .setParameter("aid", admin.getAdminId())
-                    .getResultList();
-
-            if (rooms.isEmpty()) {
-                System.out.println("You do not manage any rooms.");
-                return;
-            }
+        List<Room> rooms = adminService.getManagedRooms(admin.getAdminId());
+        if (rooms.isEmpty()) {
+            System.out.println("You do not manage any rooms.");
+            return;
+        }
 
-            System.out.println("Rooms you manage:");
-            System.out.println("+-------------------------------------------------+");
-            System.out.println("| RoomID | Type       | Status                    |");
-            System.out.println("+-------------------------------------------------+");
-            for (Room r : rooms) {
-                System.out.printf(
-                        "| %-6d | %-10s | %-24s |%n",
-                        r.getRoomId(),
-                        r.getRoomType(),
-                        r.getStatus()
-                );
-            }
-            System.out.println("+-------------------------------------------------+");
+        System.out.println("Rooms you manage:");
+        System.out.println("+-------------------------------------------------+");
+        System.out.println("| RoomID | Type       | Status                    |");
+        System.out.println("+-------------------------------------------------+");
+        for (Room r : rooms) {
+            System.out.printf(
+                    "| %-6d | %-10s | %-24s |%n",
+                    r.getRoomId(),
+                    r.getRoomType(),
+                    r.getStatus()
+            );
         }
+        System.out.println("+-------------------------------------------------+");
 
         long rid = readRequiredLong("Room id: ");
 
@@ -897,21 +1094,7 @@ public class ConsoleApp {
     private void handleUpdateEquipmentStatus(Admin admin) {
         System.out.println("--- Update Equipment Status (A2) ---");
 
-        List<Equipment> eqs;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            eqs = session.createQuery(
-                            "select e " +
-                                    "from Equipment e " +
-                                    "where e.room.roomId in (" +
-                                    "   select m.room.roomId " +
-                                    "   from Manage m " +
-                                    "   where m.admin.adminId = :aid" +
-                                    ") " +
-                                    "order by e.room.roomId, e.equipmentId",
-                            Equipment.class)
-                    .setParameter("aid", admin.getAdminId())
-                    .getResultList();
-        }
+        List<Equipment> eqs = adminService.getManagedEquipment(admin.getAdminId());
 
         if (eqs.isEmpty()) {
             System.out.println("You do not manage any rooms with equipment (or no equipment exists).");
@@ -923,7 +1106,11 @@ public class ConsoleApp {
 
         long eid = readRequiredLong("Equipment id to update: ");
         System.out.print("New status (e.g. OK, OUT_OF_SERVICE, UNDER_MAINTENANCE): ");
-        String newStatus = scanner.nextLine();
+        EquipmentStatus newStatus = EquipmentStatus.parse(scanner.nextLine());
+        if (newStatus == null) {
+            System.out.println("Unknown equipment status.");
+            return;
+        }
 
         Equipment e = adminService.updateEquipmentStatus(
                 admin.getAdminId(),
@@ -994,4 +1181,101 @@ public class ConsoleApp {
         System.out.println("+-------------------------------------------------------------------------------------------+");
     }
 
+    private void handleHealthMetricRetention() {
+        System.out.println("--- Purge old raw health metrics ---");
+        System.out.println("Raw readings older than " + HealthMetricRetention.RAW_MONTHS
+                + " months are deleted in this club; weekly / monthly trends are kept.");
+        System.out.print("Continue? (y/N): ");
+        String answer = scanner.nextLine().trim();
+        if (!answer.equalsIgnoreCase("y") && !answer.equalsIgnoreCase("yes")) {
+            System.out.println("Cancelled.");
+            return;
+        }
+
+        HealthMetricRetention.Result r = retention.run();
+        System.out.println((r.completed() ? "Done: " : "Not finished (run it again to resume): ") + r.message());
+    }
+
+    private void handleGoalEvaluation() {
+        System.out.println("--- Evaluate fitness goals ---");
+
+        GoalEvaluator.Result r = goalEvaluator.run();
+        System.out.println("Done: " + r.message());
+        if (r.averageProgress() != null) {
+            System.out.printf("Average progress of the %d measured goals: %.1f %%%n",
+                    r.measured(), r.averageProgress());
+        }
+    }
+
+    private void handleCohortAnalytics() {
+        System.out.println("--- Cohort analytics ---");
+
+        long start = System.nanoTime();
+        HealthMetricColumns columns = HealthMetricColumns.load();
+        long loadMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("Loaded %d readings of %d members in %d ms, %.1f MB in memory.%n",
+                columns.getRows(), columns.getMembers(), loadMs, columns.footprintBytes() / (1024.0 * 1024.0));
+
+        System.out.println("All readings:");
+        printGroupStats("Column", columns.columnSummary());
+
+        System.out.println("Weight change since goal start, by goal type:");
+        printGroupStats("Goal type", columns.weightChangeByGoalType());
+
+        System.out.println("Latest body fat % by age:");
+        System.out.println("+--------------------------------------------------------------+");
+        System.out.println("| Age      | Members | Mean   | 25th % | Median | 75th %        |");
+        System.out.println("+--------------------------------------------------------------+");
+        for (HealthMetricColumns.Distribution d : columns.bodyFatByAge(10)) {
+            System.out.printf("| %-8s | %-7d | %-6.1f | %-6.1f | %-6.1f | %-13.1f |%n",
+                    d.group(), d.n(), d.mean(), d.p25(), d.median(), d.p75());
+        }
+        System.out.println("+--------------------------------------------------------------+");
+    }
+
+    private void printGroupStats(String groupHeader, List<HealthMetricColumns.GroupStats> stats) {
+        System.out.println("+--------------------------------------------------------------+");
+        System.out.printf("| %-16s | %-8s | %-9s | %-9s | %-9s |%n", groupHeader, "N", "Mean", "Min", "Max");
+        System.out.println("+--------------------------------------------------------------+");
+        for (HealthMetricColumns.GroupStats g : stats) {
+            System.out.printf("| %-16s | %-8d | %-9.2f | %-9.2f | %-9.2f |%n",
+                    g.group(), g.n(), g.mean(), g.min(), g.max());
+        }
+        System.out.println("+--------------------------------------------------------------+");
+    }
+
+    private void handleCrossClubReport() {
+        System.out.println("--- Cross-club Report (A3) ---");
+
+        List<ClubReport> reports = adminService.getCrossClubReport();
+        if (reports.isEmpty()) {
+            System.out.println("No club answered.");
+            return;
+        }
+
+        System.out.println("+------------------------------------------------------------------------------------------+");
+        System.out.println("| Club  | Members | Trainers | Rooms | Pending | Validated | Completed | Cancelled | Eq. !OK |");
+        System.out.println("+------------------------------------------------------------------------------------------+");
+        for (ClubReport r : reports) {
+            printClubReportRow(String.valueOf(r.getClubId()), r);
+        }
+        System.out.println("+------------------------------------------------------------------------------------------+");
+        printClubReportRow("ALL", ClubReport.total(reports));
+        System.out.println("+------------------------------------------------------------------------------------------+");
+    }
+
+    private void printClubReportRow(String club, ClubReport r) {
+        System.out.printf(
+                "| %-5s | %-7d | %-8d | %-5d | %-7d | %-9d | %-9d | %-9d | %-7d |%n",
+                club,
+                r.getMembers(),
+                r.getTrainers(),
+                r.getRooms(),
+                r.getSessions(PTSessionStatus.PENDING) + r.getSessions(PTSessionStatus.RESCHEDULED),
+                r.getSessions(PTSessionStatus.VALIDATED),
+                r.getSessions(PTSessionStatus.COMPLETED),
+                r.getSessions(PTSessionStatus.CANCELLED),
+                r.getEquipmentNeedingAttention()
+        );
+    }
 }
@@ -1,10 +1,18 @@
 package app;
 
+import app.service.AccountService;
 import app.service.HibernateUtil;
+import app.service.ShardContext;
+import models.Account;
+import models.AccountRole;
+import models.AccountStatus;
 import models.Admin;
+import models.AvailabilityStatus;
 import models.Equipment;
+import models.EquipmentStatus;
 import models.Manage;
 import models.Room;
+import models.RoomStatus;
 import models.Trainer;
 
 import models.TrainerAvailability;
@@ -27,6 +35,7 @@ public class DataSeeder {
      * - Trainer availability slots (>= 2 per trainer)
      *
      * Safe to call multiple times: if admins already exist, it skips seeding.
+     * Seeds the current club (ShardContext); see seedAllClubs().
      */
     public void seedBaseData() {
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
@@ -43,20 +52,21 @@ public class DataSeeder {
                 return;
             }
 
-            System.out.println("Seeding base data...");
+            int clubId = ShardContext.current();
+            System.out.println("Seeding base data for club " + clubId + "...");
 
             // Admins
             Admin admin1 = new Admin();
             admin1.setFullName("Alice Admin");
             admin1.setEmail("alice.admin@example.com");
-            admin1.setPasswordHash("admin123");   // plain for demo
-            admin1.setStatus("ACTIVE");
+            admin1.setStatus(AccountStatus.ACTIVE);
+            admin1.setClubId(clubId);
 
             Admin admin2 = new Admin();
             admin2.setFullName("Bob Admin");
             admin2.setEmail("bob.admin@example.com");
-            admin2.setPasswordHash("admin123");
-            admin2.setStatus("ACTIVE");
+            admin2.setStatus(AccountStatus.ACTIVE);
+            admin2.setClubId(clubId);
 
             session.persist(admin1);
             session.persist(admin2);
@@ -65,39 +75,51 @@ public class DataSeeder {
             Trainer trainer1 = new Trainer();
             trainer1.setFullName("Tom Trainer");
             trainer1.setEmail("tom.trainer@example.com");
-            trainer1.setPasswordHash("trainer123");
             trainer1.setHireDate(LocalDate.now().minusYears(1));
-            trainer1.setStatus("ACTIVE");
+            trainer1.setStatus(AccountStatus.ACTIVE);
+            trainer1.setClubId(clubId);
 
             Trainer trainer2 = new Trainer();
             trainer2.setFullName("Tina Trainer");
             trainer2.setEmail("tina.trainer@example.com");
-            trainer2.setPasswordHash("trainer123");
             trainer2.setHireDate(LocalDate.now().minusMonths(6));
-            trainer2.setStatus("ACTIVE");
+            trainer2.setStatus(AccountStatus.ACTIVE);
+            trainer2.setClubId(clubId);
 
 
             Trainer trainer3 = new Trainer();
             trainer3.setFullName("Tony Trainer");
             trainer3.setEmail("tony.trainer@example.com");
-            trainer3.setPasswordHash("trainer123");
             trainer3.setHireDate(LocalDate.now().minusMonths(3));
-            trainer3.setStatus("ACTIVE");
+            trainer3.setStatus(AccountStatus.ACTIVE);
+            trainer3.setClubId(clubId);
 
             session.persist(trainer1);
             session.persist(trainer2);
             session.persist(trainer3);
 
+            // Login accounts (demo passwords, stored hashed)
+            for (Admin admin : new Admin[]{admin1, admin2}) {
+                session.persist(new Account(admin.getEmail(), AccountRole.ADMIN, admin.getAdminId(),
+                        AccountService.hashPassword("admin123")));
+            }
+            for (Trainer trainer : new Trainer[]{trainer1, trainer2, trainer3}) {
+                session.persist(new Account(trainer.getEmail(), AccountRole.TRAINER, trainer.getTrainerId(),
+                        AccountService.hashPassword("trainer123")));
+            }
+
             // Rooms
             Room room1 = new Room();
             room1.setRoomType("PT_ROOM");
             room1.setCapacity(1);
-            room1.setStatus("AVAILABLE");
+            room1.setStatus(RoomStatus.AVAILABLE);
+            room1.setClubId(clubId);
 
             Room room2 = new Room();
             room2.setRoomType("PT_ROOM");
             room2.setCapacity(1);
-            room2.setStatus("AVAILABLE");
+            room2.setStatus(RoomStatus.AVAILABLE);
+            room2.setClubId(clubId);
 
             session.persist(room1);
             session.persist(room2);
@@ -106,19 +128,19 @@ public class DataSeeder {
             Equipment eq1 = new Equipment();
             eq1.setName("Treadmill A");
             eq1.setCategory("CARDIO");
-            eq1.setStatus("OK");
+            eq1.setStatus(EquipmentStatus.OK);
             eq1.setRoom(room1);
 
             Equipment eq2 = new Equipment();
             eq2.setName("Bench Press");
             eq2.setCategory("STRENGTH");
-            eq2.setStatus("OK");
+            eq2.setStatus(EquipmentStatus.OK);
             eq2.setRoom(room1);
 
             Equipment eq3 = new Equipment();
             eq3.setName("Elliptical X");
             eq3.setCategory("CARDIO");
-            eq3.setStatus("OK");
+            eq3.setStatus(EquipmentStatus.OK);
             eq3.setRoom(room2);
 
             session.persist(eq1);
@@ -142,7 +164,7 @@ public class DataSeeder {
             // - Trainer trainer
             // - LocalDateTime startTime
             // - LocalDateTime endTime
-            // - String status ("ACTIVE" for usable slots)
+            // - AvailabilityStatus status (ACTIVE for usable slots)
             // Adjust field names if your model is different.
 
             LocalDateTime base = LocalDateTime.now()
@@ -157,13 +179,13 @@ public class DataSeeder {
             t1Slot1.setTrainer(trainer1);
             t1Slot1.setStartTime(base);
             t1Slot1.setEndTime(base.plusHours(1));
-            t1Slot1.setStatus("ACTIVE");
+            t1Slot1.setStatus(AvailabilityStatus.ACTIVE);
 
             TrainerAvailability t1Slot2 = new TrainerAvailability();
             t1Slot2.setTrainer(trainer1);
             t1Slot2.setStartTime(base.plusHours(2));
             t1Slot2.setEndTime(base.plusHours(3));
-            t1Slot2.setStatus("ACTIVE");
+            t1Slot2.setStatus(AvailabilityStatus.ACTIVE);
 
             session.persist(t1Slot1);
             session.persist(t1Slot2);
@@ -173,13 +195,13 @@ public class DataSeeder {
             t2Slot1.setTrainer(trainer2);
             t2Slot1.setStartTime(base.plusDays(1)); // next day
             t2Slot1.setEndTime(base.plusDays(1).plusHours(1));
-            t2Slot1.setStatus("ACTIVE");
+            t2Slot1.setStatus(AvailabilityStatus.ACTIVE);
 
             TrainerAvailability t2Slot2 = new TrainerAvailability();
             t2Slot2.setTrainer(trainer2);
             t2Slot2.setStartTime(base.plusDays(1).plusHours(2));
             t2Slot2.setEndTime(base.plusDays(1).plusHours(3));
-            t2Slot2.setStatus("ACTIVE");
+            t2Slot2.setStatus(AvailabilityStatus.ACTIVE);
 
             session.persist(t2Slot1);
             session.persist(t2Slot2);
@@ -188,13 +210,13 @@ public class DataSeeder {
             t3Slot1.setTrainer(trainer3);
             t3Slot1.setStartTime(base.plusDays(2));
             t3Slot1.setEndTime(base.plusDays(2).plusHours(1));
-            t3Slot1.setStatus("ACTIVE");
+            t3Slot1.setStatus(AvailabilityStatus.ACTIVE);
 
             TrainerAvailability t3Slot2 = new TrainerAvailability();
             t3Slot2.setTrainer(trainer3);
             t3Slot2.setStartTime(base.plusDays(2).plusHours(2));
             t3Slot2.setEndTime(base.plusDays(2).plusHours(3));
-            t3Slot2.setStatus("ACTIVE");
+            t3Slot2.setStatus(AvailabilityStatus.ACTIVE);
 
             session.persist(t3Slot1);
             session.persist(t3Slot2);
@@ -206,4 +228,11 @@ public class DataSeeder {
             e.printStackTrace();
         }
     }
+
+    /** Seeds every configured club (one shard database each). */
+    public void seedAllClubs() {
+        for (int clubId : HibernateUtil.getClubIds()) {
+            ShardContext.run(clubId, this::seedBaseData);
+        }
+    }
 }
@@ -1,27 +1,38 @@
 package app;
 
 import app.service.DatabaseResetService;
+import app.service.EmailFilter;
+import app.service.HealthMetricPartitions;
+import app.service.HeartRateMonitor;
 import app.service.HibernateUtil;
+import app.service.MemberSearch;
 
 public class Main {
 
     public static void main(String[] args) {
         System.out.println("Starting Health and Fitness Club Management demo...");
 
-        // 1) Make sure SessionFactory is initialized
+        // 1) Make sure the SessionFactory of every club is initialized
         HibernateUtil.getSessionFactory();
 
-        // 2) Seed base data (admins, trainers, rooms, equipment, manage)
+        // 2) Seed base data (admins, trainers, rooms, equipment, manage) in each club
+        //    then create the upcoming health_metric partitions and load the email filters
+        //    and heart rate states
+        //    (the member search index builds in the background)
         DataSeeder seeder = new DataSeeder();
-        seeder.seedBaseData();
+        seeder.seedAllClubs();
+        HealthMetricPartitions.ensureFuturePartitions();
+        EmailFilter.loadAll();
+        MemberSearch.loadAll();
+        HeartRateMonitor.loadAll();
 
         // 3) Create reset service and start the main console app
         DatabaseResetService resetService = new DatabaseResetService();
         ConsoleApp consoleApp = new ConsoleApp(resetService);
         consoleApp.run();
 
-        // 4) Close SessionFactory on exit
-        HibernateUtil.getSessionFactory().close();
+        // 4) Close the SessionFactories on exit
+        HibernateUtil.shutdown();
         System.out.println("Application finished.");
     }
 }
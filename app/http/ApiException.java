@@ -0,0 +1,20 @@
+package app.http;
+
+/**
+ * Ends a request with the given HTTP status and a {"error": message} body.
+ */
+class ApiException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    int getStatus() {
+        return status;
+    }
+}
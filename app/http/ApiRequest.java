@@ -0,0 +1,369 @@
+package app.http;
+
+import app.service.Page;
+import app.service.SessionTokens;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+
+/**
+ * One HTTP call: path parameters, JSON body fields and response helpers.
+ *
+ * Responses are either a single JSON document with a Content-Length
+ * (sendJson) or a chunked JSON array written element by element
+ * (streamArray), so long lists start arriving before they are fully
+ * serialized and never sit in memory as one big string.
+ */
+final class ApiRequest {
+
+    /** Request bodies larger than this are rejected with 413. */
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    // flush the chunked stream every this many array elements
+    private static final int STREAM_FLUSH_EVERY = 256;
+
+    private final HttpExchange exchange;
+    private final Matcher path;
+    private Map<String, Object> body;
+    private SessionTokens.Principal principal;
+    private boolean responseStarted;
+
+    ApiRequest(HttpExchange exchange, Matcher path) {
+        this.exchange = exchange;
+        this.path = path;
+    }
+
+    boolean isResponseStarted() {
+        return responseStarted;
+    }
+
+    /** GET: the call changes nothing. */
+    boolean isRead() {
+        return "GET".equals(exchange.getRequestMethod());
+    }
+
+    // ---------- path ----------
+
+    /** Numeric path parameter, 1-based in the order of the {placeholders}. */
+    long pathId(int index) {
+        try {
+            return Long.parseLong(path.group(index));
+        } catch (NumberFormatException e) {
+            throw new ApiException(404, "Not found");
+        }
+    }
+
+    /** Like pathId, for ids stored as int (e.g. a goal's seq); larger values are a 400. */
+    int pathIntId(int index) {
+        long id = pathId(index);
+        if (id > Integer.MAX_VALUE) {
+            throw new ApiException(400, "Path id out of range: " + id);
+        }
+        return (int) id;
+    }
+
+    // ---------- query string ----------
+
+    /** Query string parameter (first occurrence, URL-decoded), or null. */
+    String query(String name) {
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return null;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            if (key.equals(name)) {
+                return (eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return null;
+    }
+
+    String requiredQuery(String name) {
+        String value = query(name);
+        if (value == null || value.isBlank()) {
+            throw new ApiException(400, "Query parameter '" + name + "' is required");
+        }
+        return value;
+    }
+
+    /** Integer query parameter in 1..max, defaultValue when absent. */
+    int queryLimit(String name, int defaultValue, int max) {
+        String value = query(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            int n = Integer.parseInt(value.trim());
+            if (n >= 1 && n <= max) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new ApiException(400, "Query parameter '" + name + "' must be an integer in 1.." + max);
+    }
+
+    // ---------- authentication ----------
+
+    /** Token of an "Authorization: Bearer ..." header, or null. */
+    String bearerToken() {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        String token = header.substring(7).trim();
+        return (token.isEmpty() ? null : token);
+    }
+
+    /** Caller behind the bearer token, once ApiRoutes has checked it; null without a token. */
+    SessionTokens.Principal principal() {
+        return principal;
+    }
+
+    void setPrincipal(SessionTokens.Principal principal) {
+        this.principal = principal;
+    }
+
+    // ---------- body ----------
+
+    Map<String, Object> body() throws IOException {
+        if (body == null) {
+            byte[] bytes;
+            try (InputStream in = exchange.getRequestBody()) {
+                bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            }
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Request body too large");
+            }
+            body = Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return body;
+    }
+
+    String string(String name) throws IOException {
+        Object value = body().get(name);
+        if (value == null) {
+            return null;
+        }
+        if (!(value instanceof String s)) {
+            throw new ApiException(400, "'" + name + "' must be a string");
+        }
+        return s;
+    }
+
+    String requiredString(String name) throws IOException {
+        String value = string(name);
+        if (value == null || value.isBlank()) {
+            throw new ApiException(400, "'" + name + "' is required");
+        }
+        return value;
+    }
+
+    Double number(String name) throws IOException {
+        Object value = body().get(name);
+        if (value == null) {
+            return null;
+        }
+        if (!(value instanceof Number n)) {
+            throw new ApiException(400, "'" + name + "' must be a number");
+        }
+        return n.doubleValue();
+    }
+
+    double requiredNumber(String name) throws IOException {
+        Double value = number(name);
+        if (value == null) {
+            throw new ApiException(400, "'" + name + "' is required");
+        }
+        return value;
+    }
+
+    Integer integer(String name) throws IOException {
+        Object value = body().get(name);
+        if (value == null) {
+            return null;
+        }
+        if (!(value instanceof Long n) || n < Integer.MIN_VALUE || n > Integer.MAX_VALUE) {
+            throw new ApiException(400, "'" + name + "' must be an integer");
+        }
+        return n.intValue();
+    }
+
+    long requiredId(String name) throws IOException {
+        Object value = body().get(name);
+        if (!(value instanceof Long n)) {
+            throw new ApiException(400, "'" + name + "' is required and must be an integer id");
+        }
+        return n;
+    }
+
+    LocalDate date(String name) throws IOException {
+        String value = string(name);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "'" + name + "' must be a date (YYYY-MM-DD)");
+        }
+    }
+
+    LocalDateTime requiredDateTime(String name) throws IOException {
+        String value = requiredString(name);
+        try {
+            return LocalDateTime.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "'" + name + "' must be a date-time (YYYY-MM-DDTHH:MM)");
+        }
+    }
+
+    /** Optional enum field parsed with the enum's own parse(); unknown names are a 400. */
+    <E extends Enum<E>> E enumValue(String name, Function<String, E> parse) throws IOException {
+        String value = string(name);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        E e = parse.apply(value);
+        if (e == null) {
+            throw new ApiException(400, "Unknown value for '" + name + "': " + value);
+        }
+        return e;
+    }
+
+    // ---------- responses ----------
+
+    void sendJson(int status, Object value) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        Json.write(sb, value);
+        send(status, sb.toString());
+    }
+
+    void sendNoContent() throws IOException {
+        responseStarted = true;
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    void sendError(int status, String message) throws IOException {
+        send(status, Json.object().put("error", message).toString());
+    }
+
+    private void send(int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        responseStarted = true;
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Writes items as a JSON array using chunked transfer encoding. view maps
+     * each item to a JSON value (usually a Json.Obj).
+     */
+    <T> void streamArray(List<T> items, Function<T, Object> view) throws IOException {
+        ArrayStream array = new ArrayStream();
+        for (T item : items) {
+            array.add(view.apply(item));
+        }
+        array.finish();
+    }
+
+    /**
+     * Like streamArray, for a list read from the database a keyset page at a
+     * time: page(after) fetches the page following after (null for the
+     * first), and each page is written out before the next is asked for, so
+     * no connection is held while the client reads. Headers go out with the
+     * first row, so a query that fails before it still gets an error
+     * response; one that fails later leaves the array unterminated.
+     */
+    <T> void streamPages(Function<T, CompletableFuture<Page<T>>> page,
+                         Function<T, Object> view) throws IOException {
+        ArrayStream array = new ArrayStream();
+        T after = null;
+        Page<T> current;
+        do {
+            current = page.apply(after).join();
+            for (T item : current.getItems()) {
+                array.add(view.apply(item));
+            }
+            array.flush();
+            after = current.last();
+        } while (current.hasNext());
+        array.finish();
+    }
+
+    // chunked JSON array, started on the first element
+    private final class ArrayStream {
+        private final StringBuilder sb = new StringBuilder(256);
+        private Writer out;
+        private int n;
+
+        void add(Object value) {
+            try {
+                if (out == null) {
+                    out = start();
+                }
+                sb.setLength(0);
+                if (n > 0) {
+                    sb.append(',');
+                }
+                Json.write(sb, value);
+                out.append(sb);
+                if (++n % STREAM_FLUSH_EVERY == 0) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void flush() {
+            try {
+                if (out != null) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // only once every element is written: a failed stream must not look complete
+        void finish() throws IOException {
+            if (out == null) {
+                out = start();
+            }
+            out.write(']');
+            out.close();
+        }
+
+        private Writer start() throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            responseStarted = true;
+            exchange.sendResponseHeaders(200, 0);   // 0 = chunked
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 8192);
+            writer.write('[');
+            return writer;
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package app.http;
+
+import app.service.AsyncServices;
+import app.service.HealthMetricPartitions;
+import app.service.HibernateUtil;
+import app.service.MetricIngestor;
+import app.service.SessionTokens;
+import app.service.ShardContext;
+import models.AvailabilityStatus;
+import models.Equipment;
+import models.EquipmentStatus;
+import models.FitnessGoal;
+import models.GoalStatus;
+import models.HealthMetric;
+import models.Member;
+import models.PTSession;
+import models.TrainerAvailability;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * HTTP endpoints for the member (M1–M4), trainer (T1–T2) and admin (A1–A3)
+ * operations. Each handler does what the matching ConsoleApp screen does,
+ * through AsyncServices so database concurrency stays bounded per club.
+ *
+ * Services report rejected operations by returning null (the reason is
+ * printed on the server console); those become 409 responses here.
+ *
+ * Callers log in once (POST /login) and send the token they get back as
+ * "Authorization: Bearer <token>". The guards below (member, trainer,
+ * admin, anyAdmin, signedIn) check it against the path from the token's
+ * in-memory principal (SessionTokens), without a database round trip: a
+ * member only reaches their own /members/{memberId} paths, and an admin
+ * only assigns rooms they manage. Every guarded endpoint answers 401
+ * without a valid token. Older clients can be kept running with
+ * -Dhfc.http.requireAuth=false, which lets anonymous callers read the
+ * availabilities and trainer schedules only: writes, /members/{memberId}
+ * and admin paths still need a token.
+ *
+ *       POST   /login                                        {email, password}
+ *       GET    /me
+ *       POST   /logout
+ *   M1  POST   /members
+ *   M2  PUT    /members/{memberId}
+ *       GET    /members/{memberId}/goals
+ *       POST   /members/{memberId}/goals
+ *       PUT    /members/{memberId}/goals/{goalSeq}
+ *       DELETE /members/{memberId}/goals/{goalSeq}
+ *       GET    /members/{memberId}/dashboard
+ *   M3  GET    /members/{memberId}/metrics
+ *       POST   /members/{memberId}/metrics
+ *       POST   /members/{memberId}/readings                  device readings, 202 (MetricIngestor)
+ *       GET    /members/{memberId}/trends/weekly             last 12 weeks
+ *       GET    /members/{memberId}/trends/monthly            last 12 months
+ *       GET    /members/{memberId}/standing                  percentiles this quarter
+ *       GET    /members/{memberId}/heart-rate-alerts         last 20
+ *   M4  GET    /availabilities
+ *       GET    /members/{memberId}/sessions
+ *       POST   /members/{memberId}/sessions                  {availabilityId}
+ *       PUT    /members/{memberId}/sessions/{sessionId}      {availabilityId}
+ *       DELETE /members/{memberId}/sessions/{sessionId}
+ *   T1  POST   /trainers/{trainerId}/availabilities          {start, end}
+ *   T2  GET    /trainers/{trainerId}/schedule
+ *   A1  GET    /sessions/pending
+ *       GET    /admins/{adminId}/rooms
+ *       PUT    /admins/{adminId}/sessions/{sessionId}/room   {roomId}
+ *   A2  GET    /admins/{adminId}/equipment
+ *       PUT    /admins/{adminId}/equipment/{equipmentId}     {status}
+ *       GET    /admins/{adminId}/members?q=&limit=           member search
+ *       GET    /admins/{adminId}/members/suggest?q=&limit=   autocomplete
+ *       GET    /admins/{adminId}/cache                       cache hit rates
+ *   A3  GET    /reports/clubs
+ */
+final class ApiRoutes {
+
+    private static final int TREND_PERIODS = 12;
+    private static final int ALERT_LIMIT = 20;
+    private static final int SEARCH_LIMIT = 20;
+    private static final int SUGGEST_LIMIT = 10;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    // rows per database round trip of a streamed list; no connection is held between pages
+    private static final int STREAM_PAGE_SIZE = 500;
+    private static final boolean REQUIRE_AUTH =
+            Boolean.parseBoolean(System.getProperty("hfc.http.requireAuth", "true"));
+
+    private final AsyncServices services;
+    private final MetricIngestor ingestor;
+    private final SessionTokens sessionTokens;
+
+    ApiRoutes(AsyncServices services, MetricIngestor ingestor, SessionTokens sessionTokens) {
+        this.services = services;
+        this.ingestor = ingestor;
+        this.sessionTokens = sessionTokens;
+    }
+
+    Router router() {
+        return new Router()
+                // sessions
+                .post("/login", this::login)
+                .get("/me", this::me)
+                .post("/logout", this::logout)
+                // M1 / M2
+                .post("/members", this::registerMember)
+                .put("/members/{memberId}", member(this::updateProfile))
+                .get("/members/{memberId}/goals", member(this::listGoals))
+                .post("/members/{memberId}/goals", member(this::addGoal))
+                .put("/members/{memberId}/goals/{goalSeq}", member(this::updateGoal))
+                .delete("/members/{memberId}/goals/{goalSeq}", member(this::deleteGoal))
+                .get("/members/{memberId}/dashboard", member(this::dashboard))
+                // M3
+                .get("/members/{memberId}/metrics", member(this::listMetrics))
+                .post("/members/{memberId}/metrics", member(this::logMetric))
+                .post("/members/{memberId}/readings", member(this::ingestReading))
+                .get("/members/{memberId}/trends/weekly", member(this::weeklyTrend))
+                .get("/members/{memberId}/trends/monthly", member(this::monthlyTrend))
+                .get("/members/{memberId}/standing", member(this::standing))
+                .get("/members/{memberId}/heart-rate-alerts", member(this::heartRateAlerts))
+                // M4
+                .get("/availabilities", signedIn(this::listAvailabilities))
+                .get("/members/{memberId}/sessions", member(this::listMemberSessions))
+                .post("/members/{memberId}/sessions", member(this::requestSession))
+                .put("/members/{memberId}/sessions/{sessionId}", member(this::rescheduleSession))
+                .delete("/members/{memberId}/sessions/{sessionId}", member(this::cancelSession))
+                // T1 / T2
+                .post("/trainers/{trainerId}/availabilities", trainer(this::addAvailability))
+                .get("/trainers/{trainerId}/schedule", trainer(this::trainerSchedule))
+                // A1 / A2 / A3
+                .get("/sessions/pending", anyAdmin(this::pendingSessions))
+                .get("/admins/{adminId}/rooms", admin(this::managedRooms))
+                .put("/admins/{adminId}/sessions/{sessionId}/room", admin(this::assignRoom))
+                .get("/admins/{adminId}/equipment", admin(this::managedEquipment))
+                .put("/admins/{adminId}/equipment/{equipmentId}", admin(this::updateEquipmentStatus))
+                .get("/admins/{adminId}/members", admin(this::searchMembers))
+                .get("/admins/{adminId}/members/suggest", admin(this::suggestMembers))
+                .get("/admins/{adminId}/cache", admin(this::cacheStatistics))
+                .get("/reports/clubs", anyAdmin(this::clubReport));
+    }
+
+    // ===================== SESSIONS =====================
+
+    private void login(ApiRequest req) throws IOException {
+        SessionTokens.Login login;
+        try {
+            login = sessionTokens.login(req.requiredString("email"), req.requiredString("password"));
+        } catch (RejectedExecutionException e) {
+            throw new ApiException(503, e.getMessage());
+        }
+        if (login == null) {
+            throw new ApiException(401, "Invalid email or password");
+        }
+        req.sendJson(201, Json.object()
+                .put("token", login.token())
+                .put("expiresAt", login.expiresAt())
+                .put("principal", Views.principal(login.principal())));
+    }
+
+    private void me(ApiRequest req) throws IOException {
+        req.sendJson(200, Views.principal(requirePrincipal(req)));
+    }
+
+    private void logout(ApiRequest req) throws IOException {
+        if (!sessionTokens.logout(req.bearerToken())) {
+            throw new ApiException(401, "Not logged in");
+        }
+        req.sendNoContent();
+    }
+
+    // ===================== MEMBER (M1–M4) =====================
+
+    private void registerMember(ApiRequest req) throws IOException {
+        Member m = services.registerMember(
+                req.requiredString("fullName"),
+                req.requiredString("email"),
+                req.requiredString("password"),
+                req.date("dateOfBirth"),
+                req.string("gender")).join();
+        req.sendJson(201, Views.member(rejectIfNull(m, "Registration failed (email may already be in use)")));
+    }
+
+    private void updateProfile(ApiRequest req) throws IOException {
+        Member m = services.updateProfile(
+                req.pathId(1),
+                req.string("fullName"),
+                req.string("email"),
+                req.string("gender"),
+                req.date("dateOfBirth"),
+                req.string("password")).join();
+        req.sendJson(200, Views.member(rejectIfNull(m, "Profile update failed")));
+    }
+
+    private void listGoals(ApiRequest req) throws IOException {
+        req.streamArray(services.getFitnessGoals(req.pathId(1)).join(), Views::goal);
+    }
+
+    private void addGoal(ApiRequest req) throws IOException {
+        FitnessGoal g = services.addFitnessGoal(
+                req.pathId(1),
+                req.requiredString("goalType"),
+                req.requiredNumber("targetValue"),
+                req.date("startDate"),
+                req.date("targetDate"),
+                req.enumValue("status", GoalStatus::parse)).join();
+        req.sendJson(201, Views.goal(rejectIfNull(g, "Could not add goal")));
+    }
+
+    private void updateGoal(ApiRequest req) throws IOException {
+        FitnessGoal g = services.updateFitnessGoal(
+                req.pathId(1),
+                req.pathIntId(2),
+                req.enumValue("status", GoalStatus::parse),
+                req.number("targetValue")).join();
+        req.sendJson(200, Views.goal(notFoundIfNull(g, "Goal not found")));
+    }
+
+    private void deleteGoal(ApiRequest req) throws IOException {
+        boolean deleted = services.deleteFitnessGoal(req.pathId(1), req.pathIntId(2)).join();
+        if (!deleted) {
+            throw new ApiException(404, "Goal not found");
+        }
+        req.sendNoContent();
+    }
+
+    private void dashboard(ApiRequest req) throws IOException {
+        req.sendJson(200, Views.dashboard(services.getDashboard(req.pathId(1)).join()));
+    }
+
+    private void listMetrics(ApiRequest req) throws IOException {
+        long memberId = req.pathId(1);
+        req.streamPages(after -> services.getMetricsPage(memberId, after, STREAM_PAGE_SIZE), Views::metric);
+    }
+
+    private void logMetric(ApiRequest req) throws IOException {
+        HealthMetric h = services.logHealthMetric(
+                req.pathId(1),
+                req.number("weight"),
+                req.number("height"),
+                req.integer("heartRate"),
+                req.number("bodyFatPct"),
+                recordedDate(req)).join();
+        req.sendJson(201, Views.metric(rejectIfNull(h, "Could not log health metric")));
+    }
+
+    private void weeklyTrend(ApiRequest req) throws IOException {
+        req.streamArray(services.getWeeklyTrend(req.pathId(1), TREND_PERIODS).join(), Views::rollup);
+    }
+
+    private void monthlyTrend(ApiRequest req) throws IOException {
+        req.streamArray(services.getMonthlyTrend(req.pathId(1), TREND_PERIODS).join(), Views::rollup);
+    }
+
+    private void standing(ApiRequest req) throws IOException {
+        req.streamArray(services.getStanding(req.pathId(1)).join(), Views::standing);
+    }
+
+    private void heartRateAlerts(ApiRequest req) throws IOException {
+        req.streamArray(services.getHeartRateAlerts(req.pathId(1), ALERT_LIMIT).join(), Views::heartRateAlert);
+    }
+
+    // answered once the reading is journaled; it reaches the database shortly after
+    private void ingestReading(ApiRequest req) throws IOException {
+        long memberId = req.pathId(1);
+        try {
+            ingestor.submit(
+                    memberId,
+                    req.number("weight"),
+                    req.number("height"),
+                    req.integer("heartRate"),
+                    req.number("bodyFatPct"),
+                    recordedDate(req)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RejectedExecutionException rejected) {
+                throw new ApiException(503, rejected.getMessage());
+            }
+            throw e;
+        }
+        req.sendJson(202, Json.object().put("memberId", memberId).put("accepted", true));
+    }
+
+    private void listAvailabilities(ApiRequest req) throws IOException {
+        req.streamPages(after -> services.getActiveAvailabilitiesPage(after, STREAM_PAGE_SIZE), Views::availability);
+    }
+
+    private void listMemberSessions(ApiRequest req) throws IOException {
+        long memberId = req.pathId(1);
+        req.streamPages(after -> services.getSessionsPage(memberId, after, STREAM_PAGE_SIZE), Views::session);
+    }
+
+    private void requestSession(ApiRequest req) throws IOException {
+        long memberId = req.pathId(1);
+        TrainerAvailability chosen = services.getAvailability(req.requiredId("availabilityId")).join();
+        if (chosen == null || chosen.getStatus() != AvailabilityStatus.ACTIVE) {
+            throw new ApiException(409, "Invalid or inactive availability slot");
+        }
+
+        PTSession s = services.requestSession(
+                memberId,
+                chosen.getTrainer().getTrainerId(),
+                chosen.getStartTime(),
+                chosen.getEndTime()).join();
+        req.sendJson(201, Views.session(rejectIfNull(s, "Failed to request session")));
+    }
+
+    private void rescheduleSession(ApiRequest req) throws IOException {
+        long memberId = req.pathId(1);
+        long sessionId = req.pathId(2);
+        long availabilityId = req.requiredId("availabilityId");
+
+        PTSession existing = services.getSessionForMember(memberId, sessionId).join();
+        if (existing == null
+                || existing.getMember() == null
+                || existing.getMember().getMemberId() != memberId) {
+            throw new ApiException(404, "Session not found");
+        }
+        if (existing.getTrainer() == null) {
+            throw new ApiException(409, "Session has no trainer assigned; cannot reschedule");
+        }
+
+        TrainerAvailability chosen = services.getAvailability(availabilityId).join();
+        if (chosen == null
+                || chosen.getTrainer() == null
+                || !chosen.getTrainer().getTrainerId().equals(existing.getTrainer().getTrainerId())
+                || chosen.getStatus() != AvailabilityStatus.ACTIVE) {
+            throw new ApiException(409, "Invalid availability selection");
+        }
+
+        PTSession s = services.rescheduleSession(
+                sessionId,
+                availabilityId,
+                chosen.getStartTime(),
+                chosen.getEndTime()).join();
+        req.sendJson(200, Views.session(rejectIfNull(s, "Reschedule failed")));
+    }
+
+    private void cancelSession(ApiRequest req) throws IOException {
+        PTSession s = services.cancelSessionAsMember(req.pathId(1), req.pathId(2)).join();
+        req.sendJson(200, Views.session(notFoundIfNull(s, "Session not found")));
+    }
+
+    // ===================== TRAINER (T1–T2) =====================
+
+    private void addAvailability(ApiRequest req) throws IOException {
+        TrainerAvailability a = services.addAvailability(
+                req.pathId(1),
+                req.requiredDateTime("start"),
+                req.requiredDateTime("end"),
+                AvailabilityStatus.ACTIVE).join();
+        req.sendJson(201, Views.availability(rejectIfNull(a, "Failed to add availability")));
+    }
+
+    private void trainerSchedule(ApiRequest req) throws IOException {
+        long trainerId = req.pathId(1);
+        req.streamPages(after -> services.getSchedulePage(trainerId, after, STREAM_PAGE_SIZE), Views::session);
+    }
+
+    // ===================== ADMIN (A1–A3) =====================
+
+    private void pendingSessions(ApiRequest req) throws IOException {
+        req.streamPages(after -> services.getPendingSessionsPage(after, STREAM_PAGE_SIZE), Views::session);
+    }
+
+    private void managedRooms(ApiRequest req) throws IOException {
+        req.streamArray(services.getManagedRooms(req.pathId(1)).join(), Views::room);
+    }
+
+    private void assignRoom(ApiRequest req) throws IOException {
+        long roomId = req.requiredId("roomId");
+        if (req.principal() != null && !req.principal().managesRoom(roomId)) {
+            throw new ApiException(403, "Room " + roomId + " is not managed by this admin");
+        }
+        PTSession s = services.assignRoomToSession(
+                req.pathId(1),
+                req.pathId(2),
+                roomId).join();
+        req.sendJson(200, Views.session(rejectIfNull(s, "Room assignment failed")));
+    }
+
+    private void managedEquipment(ApiRequest req) throws IOException {
+        req.streamArray(services.getManagedEquipment(req.pathId(1)).join(), Views::equipment);
+    }
+
+    private void updateEquipmentStatus(ApiRequest req) throws IOException {
+        EquipmentStatus status = req.enumValue("status", EquipmentStatus::parse);
+        if (status == null) {
+            throw new ApiException(400, "'status' is required");
+        }
+        Equipment e = services.updateEquipmentStatus(req.pathId(1), req.pathId(2), status).join();
+        req.sendJson(200, Views.equipment(rejectIfNull(e, "Equipment update failed")));
+    }
+
+    private void searchMembers(ApiRequest req) throws IOException {
+        req.streamArray(services.searchMembers(
+                req.requiredQuery("q"),
+                req.queryLimit("limit", SEARCH_LIMIT, MAX_SEARCH_LIMIT)).join(), Views::member);
+    }
+
+    private void suggestMembers(ApiRequest req) throws IOException {
+        req.streamArray(services.suggestMembers(
+                req.requiredQuery("q"),
+                req.queryLimit("limit", SUGGEST_LIMIT, MAX_SEARCH_LIMIT)).join(), Views::memberSuggestion);
+    }
+
+    // in-memory counters only: answered on the HTTP thread
+    private void cacheStatistics(ApiRequest req) throws IOException {
+        req.streamArray(HibernateUtil.getCacheStatistics(), Views::cacheRegion);
+    }
+
+    private void clubReport(ApiRequest req) throws IOException {
+        req.streamArray(services.getCrossClubReport().join(), Views::clubReport);
+    }
+
+    // ---------- access guards ----------
+
+    private interface Check {
+        boolean allows(SessionTokens.Principal principal, ApiRequest req);
+    }
+
+    /** /members/{memberId}/...: that member only. */
+    private Router.Handler member(Router.Handler handler) {
+        return guarded(handler, true, (p, req) -> p.isMember(req.pathId(1)));
+    }
+
+    /** /trainers/{trainerId}/...: that trainer only. */
+    private Router.Handler trainer(Router.Handler handler) {
+        return guarded(handler, false, (p, req) -> p.isTrainer(req.pathId(1)));
+    }
+
+    /** /admins/{adminId}/...: that admin only. */
+    private Router.Handler admin(Router.Handler handler) {
+        return guarded(handler, true, (p, req) -> p.isAdmin(req.pathId(1)));
+    }
+
+    /** Club-wide admin views. */
+    private Router.Handler anyAdmin(Router.Handler handler) {
+        return guarded(handler, true, (p, req) -> p.isAdmin());
+    }
+
+    /** Anyone logged in to the club. */
+    private Router.Handler signedIn(Router.Handler handler) {
+        return guarded(handler, false, (p, req) -> true);
+    }
+
+    /**
+     * always: a token is required even with -Dhfc.http.requireAuth=false
+     * (which otherwise lets anonymous GETs through).
+     */
+    private Router.Handler guarded(Router.Handler handler, boolean always, Check check) {
+        return req -> {
+            if (REQUIRE_AUTH || always || !req.isRead() || req.bearerToken() != null) {
+                SessionTokens.Principal principal = requirePrincipal(req);
+                if (!check.allows(principal, req)) {
+                    throw new ApiException(403, "Not allowed for this login");
+                }
+                req.setPrincipal(principal);
+            }
+            handler.handle(req);
+        };
+    }
+
+    private SessionTokens.Principal requirePrincipal(ApiRequest req) {
+        SessionTokens.Principal principal = sessionTokens.resolve(req.bearerToken());
+        if (principal == null) {
+            throw new ApiException(401, "Missing, invalid or expired token");
+        }
+        if (principal.clubId() != ShardContext.current()) {
+            throw new ApiException(403, "Token belongs to another club");
+        }
+        return principal;
+    }
+
+    // ---------- helper methods ----------
+
+    // a reading's date; out of range it would create (or re-attach) a health_metric partition
+    private static LocalDate recordedDate(ApiRequest req) throws IOException {
+        LocalDate date = req.date("recordedDate");
+        if (date != null && !HealthMetricPartitions.isLoggable(date)) {
+            throw new ApiException(400, "'recordedDate' must be between "
+                    + HealthMetricPartitions.earliestLoggable() + " and "
+                    + HealthMetricPartitions.latestLoggable());
+        }
+        return date;
+    }
+
+    private static <T> T rejectIfNull(T result, String message) {
+        if (result == null) {
+            throw new ApiException(409, message);
+        }
+        return result;
+    }
+
+    private static <T> T notFoundIfNull(T result, String message) {
+        if (result == null) {
+            throw new ApiException(404, message);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+package app.http;
+
+import app.DataSeeder;
+import app.service.AsyncServices;
+import app.service.EmailFilter;
+import app.service.HealthMetricPartitions;
+import app.service.HeartRateMonitor;
+import app.service.HibernateUtil;
+import app.service.MemberSearch;
+import app.service.MetricIngestor;
+import app.service.SessionTokens;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * JSON HTTP front end for kiosks, trainer tablets and the front desk.
+ *
+ * Runs on the JDK's com.sun.net.httpserver with one virtual thread per
+ * request, so a request blocked on the database costs no platform thread;
+ * database concurrency is bounded per club by AsyncServices. HTTP/1.1
+ * keep-alive is on (the JDK server keeps the connection when the request
+ * body is consumed and the exchange is closed, which Router always does).
+ *
+ * Settings (system properties):
+ *   hfc.http.port     listen port, default 8080
+ *   hfc.http.backlog  TCP accept backlog, default 1024
+ *   hfc.http.requireAuth  refuse requests without a bearer token, default true
+ *                         (false: anonymous GET /availabilities and trainer schedules only)
+ *   hfc.session.*     login token lifetime, see SessionTokens
+ *   hfc.ingest.*      device reading ingestion, see MetricIngestor
+ *
+ * For load, start with -Dhibernate.show_sql=false: printing every SQL
+ * statement to the console costs more than the statement itself.
+ */
+public class ApiServer {
+
+    private static final int PORT = Integer.getInteger("hfc.http.port", 8080);
+    private static final int BACKLOG = Integer.getInteger("hfc.http.backlog", 1024);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AsyncServices services;
+    private final MetricIngestor ingestor;
+
+    public ApiServer(int port) throws IOException {
+        // keep many idle keep-alive connections around (JDK default is 200)
+        System.setProperty("sun.net.httpserver.maxIdleConnections",
+                System.getProperty("sun.net.httpserver.maxIdleConnections", "1000"));
+        // small JSON responses: do not wait for Nagle's algorithm
+        System.setProperty("sun.net.httpserver.nodelay",
+                System.getProperty("sun.net.httpserver.nodelay", "true"));
+
+        this.services = new AsyncServices();
+        this.ingestor = new MetricIngestor();
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.server.createContext("/", new ApiRoutes(services, ingestor, new SessionTokens()).router());
+        this.server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("HTTP API listening on port " + server.getAddress().getPort());
+    }
+
+    /** Stops accepting connections, lets running requests finish for up to 5 s. */
+    public void stop() {
+        server.stop(5);
+        executor.close();
+        ingestor.close();
+        services.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("Starting Health and Fitness Club HTTP API...");
+
+        // 1) Make sure the SessionFactory of every club is initialized
+        HibernateUtil.getSessionFactory();
+
+        // 2) Seed base data in each club (skipped when already present)
+        //    then create the upcoming health_metric partitions and load the email filters
+        //    and heart rate states
+        //    (the member search index builds in the background)
+        new DataSeeder().seedAllClubs();
+        HealthMetricPartitions.ensureFuturePartitions();
+        EmailFilter.loadAll();
+        MemberSearch.loadAll();
+        HeartRateMonitor.loadAll();
+
+        // 3) Serve until the process is stopped
+        ApiServer api = new ApiServer(PORT);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            api.stop();
+            HibernateUtil.shutdown();
+            System.out.println("HTTP API stopped.");
+        }));
+        api.start();
+    }
+}
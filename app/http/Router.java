@@ -0,0 +1,146 @@
+package app.http;
+
+import app.service.HibernateUtil;
+import app.service.ShardContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Dispatches requests by method + path template ("/members/{id}/goals")
+ * and turns failures into JSON error responses: an ApiException with its
+ * status (request parsing in ApiRequest throws 400s), anything else as a
+ * 500.
+ *
+ * The club (shard) is taken from the X-Club-Id header, default club when
+ * absent, and set as the ShardContext for the handler.
+ */
+final class Router implements HttpHandler {
+
+    static final String CLUB_HEADER = "X-Club-Id";
+
+    interface Handler {
+        void handle(ApiRequest request) throws IOException;
+    }
+
+    private record Route(String method, Pattern pattern, Handler handler) {
+    }
+
+    private final List<Route> routes = new ArrayList<>();
+
+    Router get(String template, Handler handler) {
+        return add("GET", template, handler);
+    }
+
+    Router post(String template, Handler handler) {
+        return add("POST", template, handler);
+    }
+
+    Router put(String template, Handler handler) {
+        return add("PUT", template, handler);
+    }
+
+    Router delete(String template, Handler handler) {
+        return add("DELETE", template, handler);
+    }
+
+    private Router add(String method, String template, Handler handler) {
+        // every {placeholder} is a numeric id
+        String regex = "^" + template.replaceAll("\\{[^/]+}", "(\\\\d+)") + "/?$";
+        routes.add(new Route(method, Pattern.compile(regex), handler));
+        return this;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+
+            Route match = null;
+            Matcher matcher = null;
+            boolean pathKnown = false;
+            for (Route route : routes) {
+                Matcher m = route.pattern.matcher(path);
+                if (m.matches()) {
+                    pathKnown = true;
+                    if (route.method.equals(method)) {
+                        match = route;
+                        matcher = m;
+                        break;
+                    }
+                }
+            }
+
+            ApiRequest request = new ApiRequest(exchange, matcher);
+            if (match == null) {
+                request.sendError(pathKnown ? 405 : 404, pathKnown ? "Method not allowed" : "Not found");
+                return;
+            }
+            dispatch(match.handler, request, exchange);
+        }
+    }
+
+    private void dispatch(Handler handler, ApiRequest request, HttpExchange exchange) throws IOException {
+        try {
+            ShardContext.run(clubId(exchange), () -> {
+                try {
+                    handler.handle(request);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof UncheckedIOException io && request.isResponseStarted()) {
+                // client went away mid-response; nothing left to send
+                System.out.println("HTTP I/O error on " + exchange.getRequestURI() + ": " + io.getCause().getMessage());
+                return;
+            }
+            if (request.isResponseStarted()) {
+                System.out.println("HTTP error after response started on " + exchange.getRequestURI() + ": " + cause);
+                return;
+            }
+            if (cause instanceof ApiException api) {
+                request.sendError(api.getStatus(), api.getMessage());
+            } else {
+                // not the client's mistake, whatever the exception type
+                System.out.println("HTTP 500 on " + exchange.getRequestMethod() + " "
+                        + exchange.getRequestURI() + ": " + cause);
+                cause.printStackTrace();
+                request.sendError(500, "Internal error");
+            }
+        }
+    }
+
+    private static int clubId(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst(CLUB_HEADER);
+        if (header == null || header.isBlank()) {
+            return HibernateUtil.DEFAULT_CLUB_ID;
+        }
+        int clubId;
+        try {
+            clubId = Integer.parseInt(header.trim());
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, CLUB_HEADER + " must be a club id");
+        }
+        if (!HibernateUtil.getClubIds().contains(clubId)) {
+            throw new ApiException(404, "Unknown club id: " + clubId);
+        }
+        return clubId;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+}
@@ -0,0 +1,211 @@
+package app.http;
+
+import app.service.AdminService;
+import app.service.ClubReport;
+import app.service.LocalRegionFactory;
+import app.service.MemberDashboard;
+import app.service.MemberStandingService;
+import app.service.SessionTokens;
+import models.Equipment;
+import models.FitnessGoal;
+import models.HealthMetric;
+import models.HeartRateAlert;
+import models.Member;
+import models.MetricRollup;
+import models.PTSession;
+import models.PTSessionStatus;
+import models.Room;
+import models.Trainer;
+import models.TrainerAvailability;
+
+/**
+ * Entity -> JSON mappings for the HTTP API.
+ * Only ids and names of related entities are included, never password hashes.
+ */
+final class Views {
+
+    private Views() {
+    }
+
+    static Json.Obj principal(SessionTokens.Principal p) {
+        return Json.object()
+                .put("clubId", p.clubId())
+                .put("accountId", p.accountId())
+                .put("role", p.role())
+                .put("personId", p.personId())
+                .put("managedRoomIds", p.managedRoomIds().stream().sorted().toList())
+                .put("issuedAt", p.issuedAt());
+    }
+
+    static Json.Obj member(Member m) {
+        return Json.object()
+                .put("memberId", m.getMemberId())
+                .put("clubId", m.getClubId())
+                .put("fullName", m.getFullName())
+                .put("email", m.getEmail())
+                .put("dateOfBirth", m.getDateOfBirth())
+                .put("gender", m.getGender())
+                .put("joinDate", m.getJoinDate())
+                .put("status", m.getStatus());
+    }
+
+    static Json.Obj memberSuggestion(AdminService.MemberSuggestion s) {
+        return Json.object()
+                .put("memberId", s.memberId())
+                .put("fullName", s.fullName())
+                .put("email", s.email());
+    }
+
+    static Json.Obj goal(FitnessGoal g) {
+        return Json.object()
+                .put("memberId", g.getMemberId())
+                .put("goalSeq", g.getGoalSeq())
+                .put("goalType", g.getGoalType())
+                .put("targetValue", g.getTargetValue())
+                .put("startDate", g.getStartDate())
+                .put("targetDate", g.getTargetDate())
+                .put("status", g.getStatus());
+    }
+
+    static Json.Obj metric(HealthMetric h) {
+        return Json.object()
+                .put("metricId", h.getMetricId())
+                .put("recordedDate", h.getRecordedDate())
+                .put("weight", h.getWeight())
+                .put("height", h.getHeight())
+                .put("heartRate", h.getHeartRate())
+                .put("bodyFatPct", h.getBodyFatPct());
+    }
+
+    static Json.Obj rollup(MetricRollup r) {
+        return Json.object()
+                .put("periodStart", r.getPeriodStart())
+                .put("readings", r.getReadings())
+                .put("weightMin", r.getWeightMin())
+                .put("weightAvg", r.getWeightAvg())
+                .put("weightMax", r.getWeightMax())
+                .put("bodyFatMin", r.getBodyFatMin())
+                .put("bodyFatAvg", r.getBodyFatAvg())
+                .put("bodyFatMax", r.getBodyFatMax())
+                .put("heartRateMin", r.getHeartRateMin())
+                .put("heartRateAvg", r.getHeartRateAvg())
+                .put("heartRateMax", r.getHeartRateMax());
+    }
+
+    static Json.Obj standing(MemberStandingService.Standing s) {
+        return Json.object()
+                .put("metric", s.metric())
+                .put("value", s.value())
+                .put("population", s.population())
+                .put("percentAtOrBelow", s.percentAtOrBelow());
+    }
+
+    static Json.Obj heartRateAlert(HeartRateAlert a) {
+        return Json.object()
+                .put("alertId", a.getAlertId())
+                .put("kind", a.getKind())
+                .put("recordedDate", a.getRecordedDate())
+                .put("heartRate", a.getHeartRate())
+                .put("expected", a.getExpected())
+                .put("stdDev", a.getStdDev())
+                .put("zScore", a.getZScore())
+                .put("createdAt", a.getCreatedAt());
+    }
+
+    static Json.Obj session(PTSession s) {
+        return Json.object()
+                .put("sessionId", s.getSessionId())
+                .put("memberId", s.getMember() != null ? s.getMember().getMemberId() : null)
+                .put("memberName", s.getMember() != null ? s.getMember().getFullName() : null)
+                .put("trainerId", s.getTrainer() != null ? s.getTrainer().getTrainerId() : null)
+                .put("trainerName", s.getTrainer() != null ? s.getTrainer().getFullName() : null)
+                .put("roomId", s.getRoom() != null ? s.getRoom().getRoomId() : null)
+                .put("startTime", s.getStartTime())
+                .put("endTime", s.getEndTime())
+                .put("status", s.getStatus());
+    }
+
+    static Json.Obj availability(TrainerAvailability a) {
+        Trainer t = a.getTrainer();
+        return Json.object()
+                .put("availabilityId", a.getAvailabilityId())
+                .put("trainerId", t != null ? t.getTrainerId() : null)
+                .put("trainerName", t != null ? t.getFullName() : null)
+                .put("startTime", a.getStartTime())
+                .put("endTime", a.getEndTime())
+                .put("status", a.getStatus());
+    }
+
+    static Json.Obj room(Room r) {
+        return Json.object()
+                .put("roomId", r.getRoomId())
+                .put("roomType", r.getRoomType())
+                .put("capacity", r.getCapacity())
+                .put("status", r.getStatus());
+    }
+
+    static Json.Obj equipment(Equipment e) {
+        return Json.object()
+                .put("equipmentId", e.getEquipmentId())
+                .put("name", e.getName())
+                .put("category", e.getCategory())
+                .put("roomId", e.getRoom() != null ? e.getRoom().getRoomId() : null)
+                .put("status", e.getStatus());
+    }
+
+    static Json.Obj cacheRegion(LocalRegionFactory.RegionStats r) {
+        return Json.object()
+                .put("region", r.region())
+                .put("hits", r.hits())
+                .put("misses", r.misses())
+                .put("hitRate", r.hitRate())
+                .put("puts", r.puts())
+                .put("evictions", r.evictions())
+                .put("expirations", r.expirations())
+                .put("size", r.size())
+                .put("maxEntries", r.maxEntries());
+    }
+
+    static Json.Obj clubReport(ClubReport r) {
+        Json.Obj sessions = Json.object();
+        for (PTSessionStatus status : PTSessionStatus.values()) {
+            sessions.put(status.name(), r.getSessions(status));
+        }
+        return Json.object()
+                .put("clubId", r.getClubId())
+                .put("members", r.getMembers())
+                .put("trainers", r.getTrainers())
+                .put("rooms", r.getRooms())
+                .put("equipmentNeedingAttention", r.getEquipmentNeedingAttention())
+                .put("sessionsByStatus", sessions);
+    }
+
+    static Json.Obj dashboard(MemberDashboard d) {
+        return Json.object()
+                .put("memberId", d.getMemberId())
+                .put("generatedAt", d.getGeneratedAt())
+                .put("activeGoals", d.getActiveGoals().stream().map(g -> Json.object()
+                        .put("goalSeq", g.goalSeq())
+                        .put("goalType", g.goalType())
+                        .put("targetValue", g.targetValue())
+                        .put("startDate", g.startDate())
+                        .put("targetDate", g.targetDate())
+                        .put("baselineValue", g.baselineValue())
+                        .put("currentValue", g.currentValue())
+                        .put("progressPct", g.progressPct())).toList())
+                .put("latestMetrics", d.getLatestMetrics().stream().map(m -> Json.object()
+                        .put("metricId", m.metricId())
+                        .put("recordedDate", m.recordedDate())
+                        .put("weight", m.weight())
+                        .put("height", m.height())
+                        .put("heartRate", m.heartRate())
+                        .put("bodyFatPct", m.bodyFatPct())).toList())
+                .put("upcomingSessions", d.getUpcomingSessions().stream().map(x -> Json.object()
+                        .put("sessionId", x.sessionId())
+                        .put("trainerName", x.trainerName())
+                        .put("roomId", x.roomId())
+                        .put("startTime", x.startTime())
+                        .put("endTime", x.endTime())
+                        .put("status", x.status())).toList());
+    }
+}
@@ -0,0 +1,89 @@
+package app.service;
+
+import models.Account;
+import models.AccountRole;
+import org.hibernate.Session;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Logins of members, trainers and admins against the account table.
+ *
+ * authenticate() finds the account with ONE query on lower(email) (unique
+ * index of migration 012), which also tells the role, then checks the
+ * password on PasswordHasher's pool with no database connection held.
+ * Unknown emails cost the same hashing time as wrong passwords, so the two
+ * cannot be told apart by timing. Hashes in an older format (or with fewer
+ * iterations than configured) are replaced after a successful login.
+ */
+public class AccountService {
+
+    private static final TransactionTemplate TX =
+            TransactionTemplate.readWrite().withTimeout(Duration.ofSeconds(10));
+    // credentials are read from the primary: a password just changed must work at once
+    private static final TransactionTemplate READ =
+            TransactionTemplate.readOnly().withTimeout(Duration.ofSeconds(5));
+
+    /**
+     * Account of the current club with this email and password, or null.
+     * Throws RejectedExecutionException when too many logins are being
+     * checked at the moment.
+     */
+    public Account authenticate(String email, String password) {
+        Account account = READ.execute(session -> findByEmail(session, email));
+        if (account == null) {
+            PasswordHasher.verifyNothing(password);
+            return null;
+        }
+
+        String stored = account.getPasswordHash();
+        if (!PasswordHasher.verify(password, stored)) {
+            return null;
+        }
+        if (PasswordHasher.needsRehash(stored)) {
+            upgradeHash(account, password);
+        }
+        return account;
+    }
+
+    private void upgradeHash(Account account, String password) {
+        String fresh = PasswordHasher.hash(password);
+        TX.execute(session -> session.createMutationQuery(
+                        "update Account a set a.passwordHash = :fresh, a.updatedAt = :now " +
+                                "where a.accountId = :id and a.passwordHash = :old")
+                .setParameter("fresh", fresh)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("id", account.getAccountId())
+                // unless the password was changed in the meantime
+                .setParameter("old", account.getPasswordHash())
+                .executeUpdate());
+        account.setPasswordHash(fresh);
+    }
+
+    /**
+     * Salted hash for a new or changed password. Runs on the hashing pool
+     * and takes a while: call it before opening the transaction it is
+     * stored in when possible.
+     */
+    public static String hashPassword(String plainPassword) {
+        return PasswordHasher.hash(plainPassword);
+    }
+
+    /** The account with this email (any case, any role), or null. */
+    static Account findByEmail(Session session, String email) {
+        return session.createQuery(
+                        "from Account a where lower(a.email) = lower(:email)", Account.class)
+                .setParameter("email", email)
+                .uniqueResult();
+    }
+
+    /** The account of a member / trainer / admin, or null. */
+    static Account findByPerson(Session session, AccountRole role, long personId) {
+        return session.createQuery(
+                        "from Account a where a.role = :role and a.personId = :pid", Account.class)
+                .setParameter("role", role)
+                .setParameter("pid", personId)
+                .uniqueResult();
+    }
+}
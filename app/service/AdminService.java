@@ -1,17 +1,44 @@
 package app.service;
 
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
 import models.Admin;
 import models.Equipment;
+import models.EquipmentStatus;
 import models.Manage;
+import models.ManageId;
+import models.Member;
 import models.PTSession;
+import models.PTSessionStatus;
 import models.Room;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public class AdminService {
 
+    // room conflict check + assignment must not interleave with another assignment
+    private static final TransactionTemplate BOOKING =
+            TransactionTemplate.readWrite()
+                    .withIsolation(TransactionTemplate.Isolation.SERIALIZABLE)
+                    .withTimeout(Duration.ofSeconds(10))
+                    .withMaxAttempts(5);
+    private static final TransactionTemplate TX =
+            TransactionTemplate.readWrite().withTimeout(Duration.ofSeconds(10));
+    private static final TransactionTemplate READ =
+            TransactionTemplate.replicaRead().withTimeout(Duration.ofSeconds(5));
+
+    // shortest search text with a trigram in it
+    private static final int FUZZY_MIN_LENGTH = 3;
+
     /**
      * A1 - Room Booking Management:
      *
@@ -20,38 +47,26 @@ public class AdminService {
      *  - checking that the admin manages the room
      *  - checking room conflicts
      *  - linking the room and admin
-     *  - setting status to "VALIDATED"
+     *  - setting status to VALIDATED
      */
     public PTSession assignRoomToSession(long adminId,
                                          long sessionId,
                                          long roomId) {
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-
+        return BOOKING.execute(session -> {
             Admin admin = session.get(Admin.class, adminId);
             PTSession pt = session.get(PTSession.class, sessionId);
             Room room = session.get(Room.class, roomId);
 
             if (admin == null || pt == null || room == null) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Invalid admin, session, or room id.");
                 return null;
             }
 
             // NEW: ensure this admin actually manages this room
-            Long manageCount = session.createQuery(
-                            "select count(m) " +
-                                    "from Manage m " +
-                                    "where m.admin.adminId = :aid " +
-                                    "and m.room.roomId = :rid",
-                            Long.class)
-                    .setParameter("aid", adminId)
-                    .setParameter("rid", roomId)
-                    .uniqueResult();
-
-            if (manageCount == null || manageCount == 0) {
-                tx.rollback();
+            if (!manages(session, adminId, roomId)) {
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Admin does not manage this room; cannot assign it.");
                 return null;
             }
@@ -63,12 +78,13 @@ public class AdminService {
             Long conflicts = session.createQuery(
                             "select count(s) " +
                                     "from PTSession s " +
-                                    "where s.status <> 'CANCELLED' " +
+                                    "where s.status <> :cancelled " +
                                     "and s.room.roomId = :rid " +
                                     "and s.sessionId <> :sid " +
                                     "and :start < s.endTime " +
                                     "and :end > s.startTime",
                             Long.class)
+                    .setParameter("cancelled", PTSessionStatus.CANCELLED)
                     .setParameter("rid", roomId)
                     .setParameter("sid", sessionId)
                     .setParameter("start", start)
@@ -76,19 +92,19 @@ public class AdminService {
                     .uniqueResult();
 
             if (conflicts != null && conflicts > 0) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Room already booked for this time.");
                 return null;
             }
 
             pt.setRoom(room);
             pt.setAdmin(admin);
-            pt.setStatus("VALIDATED");
+            pt.setStatus(PTSessionStatus.VALIDATED);
 
             session.merge(pt);
-            tx.commit();
+            MemberWrites.afterCommit(session, pt.getMember().getMemberId());
             return pt;
-        }
+        });
     }
 
     /**
@@ -98,42 +114,232 @@ public class AdminService {
      */
     public Equipment updateEquipmentStatus(long adminId,
                                            long equipmentId,
-                                           String newStatus) {
-
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
+                                           EquipmentStatus newStatus) {
 
+        return TX.execute(session -> {
             Admin admin = session.get(Admin.class, adminId);
             Equipment eq = session.get(Equipment.class, equipmentId);
 
             if (admin == null || eq == null) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Invalid admin or equipment id.");
                 return null;
             }
 
             // check that this admin manages the room of this equipment
-            Long manageCount = session.createQuery(
-                            "select count(m) " +
-                                    "from Manage m " +
-                                    "where m.admin.adminId = :aid " +
-                                    "and m.room.roomId = :rid",
-                            Long.class)
-                    .setParameter("aid", adminId)
-                    .setParameter("rid", eq.getRoom().getRoomId())
-                    .uniqueResult();
-
-            if (manageCount == null || manageCount == 0) {
-                tx.rollback();
+            long roomId = eq.getRoom().getRoomId();
+            if (!manages(session, adminId, roomId)) {
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Admin does not manage this room; cannot update equipment.");
                 return null;
             }
 
             eq.setStatus(newStatus);
             session.merge(eq);
+            // trg_equipment_room_status updates the room's status behind Hibernate's back
+            evictRoomAfterCommit(session, roomId);
 
-            tx.commit();
             return eq;
+        });
+    }
+
+    // by primary key, so the answer usually comes from the second-level cache
+    private static boolean manages(Session session, long adminId, long roomId) {
+        return session.get(Manage.class, new ManageId(adminId, roomId)) != null;
+    }
+
+    private static void evictRoomAfterCommit(Session session, long roomId) {
+        SessionFactory factory = session.getSessionFactory();
+        session.getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    factory.getCache().evictEntityData(Room.class, roomId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Helper for A1 – sessions still waiting for a room (PENDING / RESCHEDULED).
+     */
+    public List<PTSession> getPendingSessions() {
+        return READ.execute(session -> session.createQuery(
+                        "from PTSession s " +
+                                "where s.status in (:pending, :rescheduled) " +
+                                "order by s.startTime",
+                        PTSession.class)
+                .setParameter("pending", PTSessionStatus.PENDING)
+                .setParameter("rescheduled", PTSessionStatus.RESCHEDULED)
+                .getResultList());
+    }
+
+    /**
+     * Helper for A1 – rooms managed by this admin (via Manage).
+     */
+    public List<Room> getManagedRooms(long adminId) {
+        return READ.execute(session -> session.createQuery(
+                        "select m.room " +
+                                "from Manage m " +
+                                "where m.admin.adminId = :aid " +
+                                "order by m.room.roomId",
+                        Room.class)
+                .setParameter("aid", adminId)
+                .getResultList());
+    }
+
+    /**
+     * Helper for A2 – equipment located in the rooms this admin manages.
+     */
+    public List<Equipment> getManagedEquipment(long adminId) {
+        return READ.execute(session -> session.createQuery(
+                        "select e " +
+                                "from Equipment e " +
+                                "where e.room.roomId in (" +
+                                "   select m.room.roomId " +
+                                "   from Manage m " +
+                                "   where m.admin.adminId = :aid" +
+                                ") " +
+                                "order by e.room.roomId, e.equipmentId",
+                        Equipment.class)
+                .setParameter("aid", adminId)
+                .getResultList());
+    }
+
+    /** One autocomplete entry of the member search. */
+    public record MemberSuggestion(long memberId, String fullName, String email) {
+    }
+
+    /**
+     * Member search – members of the current club whose name or email
+     * contains query (any case) or resembles it (pg_trgm word similarity,
+     * which forgives a typo or two), best match first. Both conditions use
+     * the trigram GIN indexes of migration 013. Queries shorter than
+     * FUZZY_MIN_LENGTH have no trigram to look up; they match name, name
+     * word or email prefixes instead, in id order, so the scan stops after
+     * limit rows.
+     */
+    public List<Member> searchMembers(String query, int limit) {
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String escaped = q.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+
+        if (q.length() < FUZZY_MIN_LENGTH) {
+            return READ.execute(session -> session.createNativeQuery(
+                            "select * from member " +
+                                    "where lower(full_name) like :prefix escape '!' " +
+                                    "   or lower(full_name) like :wordPrefix escape '!' " +
+                                    "   or lower(email) like :prefix escape '!' " +
+                                    "order by member_id " +
+                                    "limit :limit",
+                            Member.class)
+                    .setParameter("prefix", escaped + "%")
+                    .setParameter("wordPrefix", "% " + escaped + "%")
+                    .setParameter("limit", limit)
+                    .getResultList());
+        }
+        return READ.execute(session -> session.createNativeQuery(
+                        "select * from member " +
+                                "where lower(full_name) like :contains escape '!' " +
+                                "   or lower(email) like :contains escape '!' " +
+                                "   or :q <% lower(full_name) " +
+                                "   or :q <% lower(email) " +
+                                "order by greatest(word_similarity(:q, lower(full_name)), " +
+                                "                  word_similarity(:q, lower(email))) desc, member_id " +
+                                "limit :limit",
+                        Member.class)
+                .setParameter("contains", "%" + escaped + "%")
+                .setParameter("q", q)
+                .setParameter("limit", limit)
+                .getResultList());
+    }
+
+    /**
+     * Member search autocomplete – called on every keystroke. Once the club's
+     * in-memory index (MemberSearch) is built, prefix matches come from it
+     * with no query; the database is only asked, with the fuzzy
+     * searchMembers() that also finds misspellings, when a prefix of at
+     * least FUZZY_MIN_LENGTH characters matches nobody. Shorter prefixes
+     * have no trigram to search by. While the index is still being built,
+     * everything comes from searchMembers().
+     */
+    public List<MemberSuggestion> suggestMembers(String prefix, int limit) {
+        List<MemberSuggestion> suggestions = new ArrayList<>();
+        List<MemberSearch.Hit> hits = MemberSearch.suggest(prefix, limit);
+        if (hits != null) {
+            for (MemberSearch.Hit h : hits) {
+                suggestions.add(new MemberSuggestion(h.memberId(), h.fullName(), h.email()));
+            }
+            if (!hits.isEmpty() || prefix.trim().length() < FUZZY_MIN_LENGTH) {
+                return suggestions;
+            }
+        }
+        for (Member m : searchMembers(prefix, limit)) {
+            suggestions.add(new MemberSuggestion(m.getMemberId(), m.getFullName(), m.getEmail()));
         }
+        return suggestions;
+    }
+
+    /**
+     * A3 - Cross-club report (scatter-gather).
+     * Runs the same read-only counts on every club's database in parallel and
+     * returns one row per club that answered, in configuration order.
+     */
+    public List<ClubReport> getCrossClubReport() {
+        return List.copyOf(ShardScatter.onAllClubs(() -> READ.execute(session -> {
+            long members = session.createQuery("select count(m) from Member m", Long.class)
+                    .uniqueResult();
+            long trainers = session.createQuery("select count(t) from Trainer t", Long.class)
+                    .uniqueResult();
+            long rooms = session.createQuery("select count(r) from Room r", Long.class)
+                    .uniqueResult();
+            long equipment = session.createQuery(
+                            "select count(e) from Equipment e where e.status <> :ok", Long.class)
+                    .setParameter("ok", EquipmentStatus.OK)
+                    .uniqueResult();
+
+            Map<PTSessionStatus, Long> sessions = new EnumMap<>(PTSessionStatus.class);
+            for (Object[] row : session.createQuery(
+                            "select s.status, count(s) from PTSession s group by s.status",
+                            Object[].class)
+                    .getResultList()) {
+                sessions.put((PTSessionStatus) row[0], (Long) row[1]);
+            }
+
+            return new ClubReport(ShardContext.current(), members, trainers, rooms, equipment, sessions);
+        })).values());
+    }
+
+    // ---------- keyset pages (A1) ----------
+
+    /**
+     * A1 helper – one page of PENDING / RESCHEDULED sessions, oldest first.
+     * after = last session of the previous page, null for the first page.
+     */
+    public Page<PTSession> getPendingSessionsPage(PTSession after, int pageSize) {
+        Page.checkSize(pageSize);
+        return READ.execute(session -> {
+            Query<PTSession> q = session.createQuery(
+                            PTSessionService.SESSION_SELECT +
+                                    "where s.status in (:pending, :rescheduled) " +
+                                    (after != null ? "and (s.startTime, s.sessionId) > (:afterStart, :afterId) " : "") +
+                                    "order by s.startTime, s.sessionId",
+                            PTSession.class)
+                    .setParameter("pending", PTSessionStatus.PENDING)
+                    .setParameter("rescheduled", PTSessionStatus.RESCHEDULED)
+                    .setMaxResults(pageSize + 1);
+            if (after != null) {
+                q.setParameter("afterStart", after.getStartTime())
+                        .setParameter("afterId", after.getSessionId());
+            }
+            return Page.of(q.getResultList(), pageSize);
+        });
     }
+
 }
@@ -0,0 +1,280 @@
+package app.service;
+
+import models.AvailabilityStatus;
+import models.Equipment;
+import models.EquipmentStatus;
+import models.FitnessGoal;
+import models.GoalStatus;
+import models.HealthMetric;
+import models.HeartRateAlert;
+import models.Member;
+import models.MonthlyMetricRollup;
+import models.PTSession;
+import models.Room;
+import models.TrainerAvailability;
+import models.WeeklyMetricRollup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous façade over MemberService, PTSessionService, TrainerService
+ * and AdminService.
+ *
+ * Every call runs on its own virtual thread and returns a CompletableFuture,
+ * so a front end can start independent reads together and join them:
+ *
+ *   CompletableFuture<List<FitnessGoal>> goals = async.getFitnessGoals(id);
+ *   CompletableFuture<List<WeeklyMetricRollup>> weeks = async.getWeeklyTrend(id, 12);
+ *   CompletableFuture<List<HeartRateAlert>> alerts = async.getHeartRateAlerts(id, 20);
+ *   CompletableFuture.allOf(goals, weeks, alerts).join();
+ *
+ * Lists that can grow without bound (metrics, sessions, availabilities) are
+ * read a keyset page at a time (get*Page()), each page its own call: the
+ * permit and connection are released between pages, however long the
+ * caller takes with one.
+ *
+ * Concurrency per club is bounded by a semaphore sized to that club's
+ * connection pool: extra calls wait (cheaply, on a virtual thread) for a
+ * permit instead of queueing inside the pool. The caller's club
+ * (ShardContext) is captured when the call is made and set on the virtual
+ * thread, so results come from the same shard as a blocking call would.
+ */
+public class AsyncServices implements AutoCloseable {
+
+    private final MemberService memberService;
+    private final PTSessionService ptSessionService;
+    private final TrainerService trainerService;
+    private final AdminService adminService;
+    private final MemberDashboardService dashboardService = new MemberDashboardService();
+    private final MemberStandingService standingService = new MemberStandingService();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Integer, Semaphore> permitsByClub;
+
+    public AsyncServices() {
+        this(new MemberService(), new PTSessionService(), new TrainerService(), new AdminService());
+    }
+
+    public AsyncServices(MemberService memberService,
+                         PTSessionService ptSessionService,
+                         TrainerService trainerService,
+                         AdminService adminService) {
+        this.memberService = memberService;
+        this.ptSessionService = ptSessionService;
+        this.trainerService = trainerService;
+        this.adminService = adminService;
+
+        Map<Integer, Semaphore> permits = new LinkedHashMap<>();
+        for (int clubId : HibernateUtil.getClubIds()) {
+            permits.put(clubId, new Semaphore(HibernateUtil.getPoolSize(clubId), true));
+        }
+        this.permitsByClub = Collections.unmodifiableMap(permits);
+    }
+
+    // ---------- MemberService (M1–M4) ----------
+
+    public CompletableFuture<Member> registerMember(String fullName,
+                                                    String email,
+                                                    String plainPassword,
+                                                    LocalDate dateOfBirth,
+                                                    String gender) {
+        return submit(() -> memberService.registerMember(fullName, email, plainPassword, dateOfBirth, gender));
+    }
+
+    public CompletableFuture<Member> updateProfile(long memberId,
+                                                   String newFullName,
+                                                   String newEmail,
+                                                   String newGender,
+                                                   LocalDate newDateOfBirth,
+                                                   String newPasswordPlain) {
+        return submit(() -> memberService.updateProfile(
+                memberId, newFullName, newEmail, newGender, newDateOfBirth, newPasswordPlain));
+    }
+
+    public CompletableFuture<FitnessGoal> addFitnessGoal(long memberId,
+                                                         String goalType,
+                                                         double targetValue,
+                                                         LocalDate startDate,
+                                                         LocalDate targetDate,
+                                                         GoalStatus status) {
+        return submit(() -> memberService.addFitnessGoal(
+                memberId, goalType, targetValue, startDate, targetDate, status));
+    }
+
+    public CompletableFuture<FitnessGoal> updateFitnessGoal(long memberId,
+                                                            int goalSeq,
+                                                            GoalStatus newStatus,
+                                                            Double newTargetValue) {
+        return submit(() -> memberService.updateFitnessGoal(memberId, goalSeq, newStatus, newTargetValue));
+    }
+
+    public CompletableFuture<Boolean> deleteFitnessGoal(long memberId, int goalSeq) {
+        return submit(() -> memberService.deleteFitnessGoal(memberId, goalSeq));
+    }
+
+    public CompletableFuture<HealthMetric> logHealthMetric(long memberId,
+                                                           Double weight,
+                                                           Double height,
+                                                           Integer heartRate,
+                                                           Double bodyFatPct,
+                                                           LocalDate recordedDate) {
+        return submit(() -> memberService.logHealthMetric(
+                memberId, weight, height, heartRate, bodyFatPct, recordedDate));
+    }
+
+    /** Streams the member's metrics, newest first, to action (on the call's thread); completes with the count. */
+    public CompletableFuture<Page<HealthMetric>> getMetricsPage(long memberId, HealthMetric after, int pageSize) {
+        return submit(() -> memberService.getMetricsPage(memberId, after, pageSize));
+    }
+
+    public CompletableFuture<List<HeartRateAlert>> getHeartRateAlerts(long memberId, int limit) {
+        return submit(() -> memberService.getHeartRateAlerts(memberId, limit));
+    }
+
+    public CompletableFuture<List<WeeklyMetricRollup>> getWeeklyTrend(long memberId, int weeks) {
+        return submit(() -> memberService.getWeeklyTrend(memberId, weeks));
+    }
+
+    public CompletableFuture<List<MonthlyMetricRollup>> getMonthlyTrend(long memberId, int months) {
+        return submit(() -> memberService.getMonthlyTrend(memberId, months));
+    }
+
+    public CompletableFuture<List<FitnessGoal>> getFitnessGoals(long memberId) {
+        return submit(() -> memberService.getFitnessGoals(memberId));
+    }
+
+    public CompletableFuture<Page<PTSession>> getSessionsPage(long memberId, PTSession after, int pageSize) {
+        return submit(() -> memberService.getSessionsPage(memberId, after, pageSize));
+    }
+
+    public CompletableFuture<MemberDashboard> getDashboard(long memberId) {
+        return submit(() -> dashboardService.getDashboard(memberId));
+    }
+
+    public CompletableFuture<List<MemberStandingService.Standing>> getStanding(long memberId) {
+        return submit(() -> standingService.getStanding(memberId));
+    }
+
+    // ---------- PTSessionService (M4) ----------
+
+    public CompletableFuture<PTSession> requestSession(long memberId,
+                                                       long trainerId,
+                                                       LocalDateTime start,
+                                                       LocalDateTime end) {
+        return submit(() -> ptSessionService.requestSession(memberId, trainerId, start, end));
+    }
+
+    public CompletableFuture<PTSession> rescheduleSession(long sessionId,
+                                                          long availabilityId,
+                                                          LocalDateTime newStart,
+                                                          LocalDateTime newEnd) {
+        return submit(() -> ptSessionService.rescheduleSession(sessionId, availabilityId, newStart, newEnd));
+    }
+
+    public CompletableFuture<PTSession> cancelSessionAsMember(long memberId, long sessionId) {
+        return submit(() -> ptSessionService.cancelSessionAsMember(memberId, sessionId));
+    }
+
+    public CompletableFuture<PTSession> getSessionForMember(long memberId, long sessionId) {
+        return submit(() -> ptSessionService.getSessionForMember(memberId, sessionId));
+    }
+
+    // ---------- TrainerService (T1–T2) ----------
+
+    public CompletableFuture<TrainerAvailability> addAvailability(long trainerId,
+                                                                  LocalDateTime start,
+                                                                  LocalDateTime end,
+                                                                  AvailabilityStatus status) {
+        return submit(() -> trainerService.addAvailability(trainerId, start, end, status));
+    }
+
+    public CompletableFuture<Page<PTSession>> getSchedulePage(long trainerId, PTSession after, int pageSize) {
+        return submit(() -> trainerService.getSchedulePage(trainerId, after, pageSize));
+    }
+
+    public CompletableFuture<Page<TrainerAvailability>> getActiveAvailabilitiesPage(TrainerAvailability after,
+                                                                                    int pageSize) {
+        return submit(() -> trainerService.getActiveAvailabilitiesPage(null, after, pageSize));
+    }
+
+    public CompletableFuture<TrainerAvailability> getAvailability(long availabilityId) {
+        return submit(() -> trainerService.getAvailability(availabilityId));
+    }
+
+    // ---------- AdminService (A1–A3) ----------
+
+    public CompletableFuture<PTSession> assignRoomToSession(long adminId, long sessionId, long roomId) {
+        return submit(() -> adminService.assignRoomToSession(adminId, sessionId, roomId));
+    }
+
+    public CompletableFuture<Equipment> updateEquipmentStatus(long adminId,
+                                                              long equipmentId,
+                                                              EquipmentStatus newStatus) {
+        return submit(() -> adminService.updateEquipmentStatus(adminId, equipmentId, newStatus));
+    }
+
+    public CompletableFuture<Page<PTSession>> getPendingSessionsPage(PTSession after, int pageSize) {
+        return submit(() -> adminService.getPendingSessionsPage(after, pageSize));
+    }
+
+    public CompletableFuture<List<Room>> getManagedRooms(long adminId) {
+        return submit(() -> adminService.getManagedRooms(adminId));
+    }
+
+    public CompletableFuture<List<Equipment>> getManagedEquipment(long adminId) {
+        return submit(() -> adminService.getManagedEquipment(adminId));
+    }
+
+    public CompletableFuture<List<Member>> searchMembers(String query, int limit) {
+        return submit(() -> adminService.searchMembers(query, limit));
+    }
+
+    public CompletableFuture<List<AdminService.MemberSuggestion>> suggestMembers(String prefix, int limit) {
+        return submit(() -> adminService.suggestMembers(prefix, limit));
+    }
+
+    /**
+     * Not bounded by the caller's club permits: the scatter-gather already
+     * holds one connection per club on its own threads.
+     */
+    public CompletableFuture<List<ClubReport>> getCrossClubReport() {
+        return CompletableFuture.supplyAsync(adminService::getCrossClubReport, executor);
+    }
+
+    // ---------- helper methods ----------
+
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        int clubId = ShardContext.current();
+        Semaphore permits = permitsByClub.get(clubId);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return ShardContext.call(clubId, call);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    /** Stops accepting calls and waits for the running ones to finish. */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
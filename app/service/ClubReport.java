@@ -0,0 +1,74 @@
+package app.service;
+
+import models.PTSessionStatus;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Per-club activity counts for the cross-club admin report.
+ * clubId is null for the all-clubs total (see total()).
+ */
+public class ClubReport {
+
+    private final Integer clubId;
+    private final long members;
+    private final long trainers;
+    private final long rooms;
+    private final long equipmentNeedingAttention;   // status other than OK
+    private final Map<PTSessionStatus, Long> sessionsByStatus;
+
+    public ClubReport(Integer clubId,
+                      long members,
+                      long trainers,
+                      long rooms,
+                      long equipmentNeedingAttention,
+                      Map<PTSessionStatus, Long> sessionsByStatus) {
+        this.clubId = clubId;
+        this.members = members;
+        this.trainers = trainers;
+        this.rooms = rooms;
+        this.equipmentNeedingAttention = equipmentNeedingAttention;
+        this.sessionsByStatus = new EnumMap<>(PTSessionStatus.class);
+        this.sessionsByStatus.putAll(sessionsByStatus);
+    }
+
+    /** Sums the given club reports into one all-clubs row. */
+    public static ClubReport total(Collection<ClubReport> reports) {
+        long members = 0, trainers = 0, rooms = 0, equipment = 0;
+        Map<PTSessionStatus, Long> sessions = new EnumMap<>(PTSessionStatus.class);
+        for (ClubReport r : reports) {
+            members += r.members;
+            trainers += r.trainers;
+            rooms += r.rooms;
+            equipment += r.equipmentNeedingAttention;
+            r.sessionsByStatus.forEach((status, count) -> sessions.merge(status, count, Long::sum));
+        }
+        return new ClubReport(null, members, trainers, rooms, equipment, sessions);
+    }
+
+    public Integer getClubId() {
+        return clubId;
+    }
+
+    public long getMembers() {
+        return members;
+    }
+
+    public long getTrainers() {
+        return trainers;
+    }
+
+    public long getRooms() {
+        return rooms;
+    }
+
+    public long getEquipmentNeedingAttention() {
+        return equipmentNeedingAttention;
+    }
+
+    public long getSessions(PTSessionStatus status) {
+        return sessionsByStatus.getOrDefault(status, 0L);
+    }
+}
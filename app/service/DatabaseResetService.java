@@ -7,7 +7,7 @@ import org.hibernate.Transaction;
 /**
  * Utility service to reset the database back to the base seed state.
  *
- * Steps:
+ * Steps (for every club / shard database):
  *  1) TRUNCATE all tables managed by Hibernate (CASCADE + restart identity)
  *  2) Call DataSeeder.seedBaseData() to recreate admins, trainers, rooms, equipment, manage
  *
@@ -17,6 +17,12 @@ import org.hibernate.Transaction;
 public class DatabaseResetService {
 
     public void resetToBaseSeed() {
+        for (int clubId : HibernateUtil.getClubIds()) {
+            ShardContext.run(clubId, this::resetCurrentClub);
+        }
+    }
+
+    private void resetCurrentClub() {
         // 1) Wipe all data using a native TRUNCATE
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Transaction tx = session.beginTransaction();
@@ -27,8 +33,14 @@ public class DatabaseResetService {
                     """
                     TRUNCATE TABLE 
                         pt_session,
+                        account,
                         health_metric,
+                        health_metric_weekly,
+                        health_metric_monthly,
+                        metric_sketch,
                         fitness_goal,
+                        heart_rate_alert,
+                        heart_rate_state,
                         trainer_availability,
                         manage,
                         equipment,
@@ -41,7 +53,11 @@ public class DatabaseResetService {
             ).executeUpdate();
 
             tx.commit();
-            System.out.println("All data truncated. Identities reset.");
+            // cached rooms, trainers, ... would otherwise outlive their rows
+            HibernateUtil.getSessionFactory().getCache().evictAllRegions();
+            HeartRateMonitor.forgetClub();
+            SessionTokens.forgetClub();
+            System.out.println("Club " + ShardContext.current() + ": all data truncated. Identities reset.");
         } catch (Exception e) {
             System.out.println("Error while truncating tables: " + e.getMessage());
             e.printStackTrace();
@@ -51,7 +67,10 @@ public class DatabaseResetService {
         // 2) Reseed base data in a clean DB
         DataSeeder seeder = new DataSeeder();
         seeder.seedBaseData();
+        // rebuilt from the seeded rows on next use
+        EmailFilter.forgetClub();
+        MemberSearch.forgetClub();
 
-        System.out.println("Database reset to base seed state.");
+        System.out.println("Club " + ShardContext.current() + ": database reset to base seed state.");
     }
 }
@@ -0,0 +1,251 @@
+package app.service;
+
+import org.hibernate.JDBCException;
+import org.hibernate.Session;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory Bloom filter of the login emails (account.email, lower-cased)
+ * of each club, so registration and email changes can skip the uniqueness
+ * query for addresses that are certainly new, which during a sign-up
+ * campaign is nearly all of them.
+ *
+ * mightExist() never answers false for an email that was in the table
+ * when the filter was built or was added through add() since; it answers
+ * true for about 1 % of new emails (BITS_PER_EMAIL bits, HASHES probes),
+ * and those take the query as before. The unique index on lower(email)
+ * remains the final authority: an account inserted behind the filter's
+ * back (another process, a migration) is caught by it, and
+ * isDuplicateEmail() lets the caller report that like a failed pre-check.
+ *
+ * A club's filter is built by one streaming scan of account (loadAll() at
+ * startup, or on first use), sized for twice the accounts it finds, and
+ * built again, bigger, once it holds more than that. Until it is built,
+ * and while it is being rebuilt, every email "might exist".
+ *
+ * Settings (system properties):
+ *   hfc.emailFilter.enabled    default true
+ */
+public final class EmailFilter {
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("hfc.emailFilter.enabled", "true"));
+
+    private static final int BITS_PER_EMAIL = 10;
+    private static final int HASHES = 7;
+    private static final int MIN_CAPACITY = 1 << 14;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE / BITS_PER_EMAIL;
+
+    private static final TransactionTemplate SCAN =
+            TransactionTemplate.readOnly().withTimeout(Duration.ofMinutes(5));
+
+    // both guarded by filters
+    private static final Map<Integer, Bloom> filters = new HashMap<>();
+    private static final Set<Integer> building = new HashSet<>();
+
+    private EmailFilter() {
+    }
+
+    private static final class Bloom {
+        final AtomicLongArray words;
+        final long bits;
+        final int capacity;
+        final AtomicInteger count = new AtomicInteger();
+        volatile boolean ready;
+
+        Bloom(int capacity) {
+            this.capacity = capacity;
+            long wordCount = ((long) capacity * BITS_PER_EMAIL + 63) / 64;
+            this.words = new AtomicLongArray((int) wordCount);
+            this.bits = wordCount * 64;
+        }
+
+        void add(long hash) {
+            long h1 = hash;
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                if ((words.get(word) & mask) == 0) {
+                    words.getAndAccumulate(word, mask, (w, m) -> w | m);
+                }
+            }
+            count.incrementAndGet();
+        }
+
+        boolean mightContain(long hash) {
+            long h1 = hash;
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** Builds the filter of every configured club; called once at startup, after seeding. */
+    public static void loadAll() {
+        if (!ENABLED) {
+            return;
+        }
+        for (int clubId : HibernateUtil.getClubIds()) {
+            ShardContext.run(clubId, EmailFilter::build);
+        }
+    }
+
+    /**
+     * false when no account of the current club has this email (any case);
+     * true when one may have. Builds the club's filter when it has none, so
+     * call it before opening the transaction that uses the answer.
+     */
+    static boolean mightExist(String email) {
+        if (!ENABLED) {
+            return true;
+        }
+        Bloom bloom = peek();
+        if (bloom == null) {
+            bloom = build();
+        }
+        return bloom == null || !bloom.ready || bloom.mightContain(hash(email));
+    }
+
+    /**
+     * Records an email about to be stored in the current club. Call it
+     * before the insert commits; a rolled-back insert only leaves a false
+     * positive behind.
+     */
+    static void add(String email) {
+        if (!ENABLED) {
+            return;
+        }
+        Bloom bloom = peek();
+        if (bloom == null) {
+            return;
+        }
+        bloom.add(hash(email));
+        if (bloom.count.get() > bloom.capacity) {
+            // too full to stay selective: the next mightExist() builds it again, bigger
+            synchronized (filters) {
+                filters.remove(ShardContext.current(), bloom);
+            }
+        }
+    }
+
+    /** Drops the current club's filter (its tables were emptied, e.g. by DatabaseResetService). */
+    static void forgetClub() {
+        synchronized (filters) {
+            filters.remove(ShardContext.current());
+        }
+    }
+
+    /** Whether e (from a failed insert or update) is a unique index violation, i.e. the email was taken. */
+    static boolean isDuplicateEmail(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            String sqlState = null;
+            if (t instanceof JDBCException jdbc) {
+                sqlState = jdbc.getSQLState();
+            } else if (t instanceof SQLException sqlEx) {
+                sqlState = sqlEx.getSQLState();
+            }
+            // 23505 unique_violation
+            if ("23505".equals(sqlState)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---------- helper methods ----------
+
+    private static Bloom peek() {
+        synchronized (filters) {
+            return filters.get(ShardContext.current());
+        }
+    }
+
+    // null when another thread is building this club's filter right now
+    private static Bloom build() {
+        int clubId = ShardContext.current();
+        synchronized (filters) {
+            if (!building.add(clubId)) {
+                return null;
+            }
+        }
+        try {
+            long rows = SCAN.execute(EmailFilter::countAccounts);
+            Bloom bloom = new Bloom((int) Math.min(MAX_CAPACITY, Math.max(MIN_CAPACITY, 2 * rows)));
+            // published before the scan, so emails added meanwhile land in it too
+            synchronized (filters) {
+                filters.put(clubId, bloom);
+            }
+            SCAN.execute(session -> {
+                scan(session, bloom);
+                return null;
+            });
+            bloom.ready = true;
+            return bloom;
+        } catch (RuntimeException e) {
+            System.out.println("Email filter of club " + clubId + " not built: " + e.getMessage());
+            synchronized (filters) {
+                filters.remove(clubId);
+            }
+            return null;
+        } finally {
+            synchronized (filters) {
+                building.remove(clubId);
+            }
+        }
+    }
+
+    private static long countAccounts(Session session) {
+        return session.createQuery("select count(a) from Account a", Long.class).getSingleResult();
+    }
+
+    private static void scan(Session session, Bloom bloom) {
+        session.doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("select lower(email) from account")) {
+                ps.setFetchSize(Page.STREAM_FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        bloom.add(hashLowered(rs.getString(1)));
+                    }
+                }
+            }
+        });
+    }
+
+    private static long hash(String email) {
+        return hashLowered(email.toLowerCase(Locale.ROOT));
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes, then a murmur3 finalizer to spread the bits
+    private static long hashLowered(String lowered) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : lowered.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe2a88d53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
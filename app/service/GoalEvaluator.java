@@ -0,0 +1,297 @@
+package app.service;
+
+import models.GoalStatus;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batch evaluation of ACTIVE fitness goals against the members' health metrics.
+ *
+ * For every ACTIVE goal the progress (GoalProgress.percent) is computed from
+ * its stored baseline and latest measurement, which GoalTracker keeps
+ * current on every health_metric insert. A goal at 100 % is set to
+ * COMPLETED; one that is not and whose target date has passed is set to
+ * EXPIRED. Goals GoalTracker never saw (last_evaluated null, e.g. created
+ * before migration 009) get their baseline and latest measurement read from
+ * health_metric once, by LATERAL index lookups, and stored.
+ *
+ * Goals are evaluated set-based, CHUNK_SIZE goals per statement: one
+ * UPDATE ... FROM over a (member_id, goal_seq) key range instead of one
+ * updateFitnessGoal() transaction per goal; only goals whose status or
+ * stored progress changes are written. The calling thread walks the active
+ * goals (idx_fitness_goal_active, migration 008) to cut the key ranges and
+ * hands them to THREADS workers, each chunk in its own short transaction;
+ * when the workers fall behind, the calling thread runs a chunk itself. A
+ * goal a member changes concurrently is only updated if it is still ACTIVE.
+ *
+ * Settings (system properties):
+ *   hfc.goals.chunkSize  goals per transaction, default 5000
+ *   hfc.goals.threads    parallel transactions per club, default 4
+ *                        (each holds a pooled connection while it runs)
+ */
+public class GoalEvaluator {
+
+    private static final int CHUNK_SIZE = Integer.getInteger("hfc.goals.chunkSize", 5000);
+    private static final int THREADS = Integer.getInteger("hfc.goals.threads", 4);
+
+    private static final TransactionTemplate TX =
+            TransactionTemplate.readWrite().withTimeout(Duration.ofSeconds(60));
+    private static final TransactionTemplate READ =
+            TransactionTemplate.readOnly().withTimeout(Duration.ofSeconds(30));
+
+    private static final String TRACKED_VALUE = GoalProgress.Metric.sqlValue("g.goal_type", "h");
+    private static final String PROGRESS =
+            GoalProgress.sqlPercent("s.base_v", "s.cur_v", "s.target_value");
+
+    // in the UPDATE, g is the row as it is now: GoalTracker may have moved it since the chunk was read
+    private static final String LIVE_PROGRESS = GoalProgress.sqlPercent(
+            live("e.base_v", "g.baseline_value"), live("e.cur_v", "g.latest_value"), "g.target_value");
+
+    private static final String EVALUATE_TO_END_SQL = evaluateSql("");
+    private static final String EVALUATE_RANGE_SQL =
+            evaluateSql("and (g.member_id, g.goal_seq) <= (:toMember, :toSeq) ");
+
+    /** What one run did in one club. */
+    public record Result(int clubId,
+                         long evaluated,
+                         long measured,
+                         Double averageProgress,   // over the measured goals, null if none
+                         long completed,
+                         long expired,
+                         long elapsedMs,
+                         String message) {
+    }
+
+    // key range (from, to] of active goals; to == null means to the end
+    private record Range(long fromMember, int fromSeq, Long toMember, Integer toSeq) {
+    }
+
+    private record ChunkResult(long evaluated, long measured, double progressSum,
+                               long completed, long expired) {
+    }
+
+    /** Evaluates every club, one after the other. */
+    public List<Result> runAllClubs() {
+        List<Result> results = new ArrayList<>();
+        for (int clubId : HibernateUtil.getClubIds()) {
+            results.add(ShardContext.call(clubId, this::run));
+        }
+        return results;
+    }
+
+    /** Evaluates the current club's ACTIVE goals as of today. */
+    public Result run() {
+        return run(LocalDate.now());
+    }
+
+    /** Evaluates the current club's ACTIVE goals; target dates before today have passed. */
+    public Result run(LocalDate today) {
+        int clubId = ShardContext.current();
+        long start = System.nanoTime();
+
+        ThreadPoolExecutor workers = newWorkers(clubId);
+        List<Future<ChunkResult>> chunks = new ArrayList<>();
+        String failure = null;
+        try {
+            long fromMember = 0;   // identity ids start at 1
+            int fromSeq = 0;
+            while (true) {
+                Object[] boundary = nextBoundary(fromMember, fromSeq);
+                Range range = (boundary == null
+                        ? new Range(fromMember, fromSeq, null, null)
+                        : new Range(fromMember, fromSeq, (Long) boundary[0], (Integer) boundary[1]));
+                chunks.add(workers.submit(() -> ShardContext.call(clubId, () -> evaluate(range, today))));
+                if (boundary == null) {
+                    break;
+                }
+                fromMember = range.toMember();
+                fromSeq = range.toSeq();
+            }
+        } catch (RuntimeException e) {
+            failure = e.getMessage();
+        } finally {
+            workers.shutdown();
+        }
+
+        long evaluated = 0, measured = 0, completed = 0, expired = 0;
+        double progressSum = 0;
+        for (Future<ChunkResult> f : chunks) {
+            try {
+                ChunkResult c = f.get();
+                evaluated += c.evaluated();
+                measured += c.measured();
+                progressSum += c.progressSum();
+                completed += c.completed();
+                expired += c.expired();
+            } catch (ExecutionException e) {
+                // later chunks still ran; a new run picks up what this one missed
+                if (failure == null) {
+                    failure = e.getCause().getMessage();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted during goal evaluation", e);
+            }
+        }
+
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        String message = "evaluated " + evaluated + " active goals in " + elapsedMs + " ms: "
+                + completed + " completed, " + expired + " expired"
+                + (failure != null ? "; some chunks failed: " + failure : "");
+        System.out.println("Goal evaluation (club " + clubId + "): " + message);
+        return new Result(clubId, evaluated, measured,
+                (measured > 0 ? progressSum / measured : null),
+                completed, expired, elapsedMs, message);
+    }
+
+    /** Key of the CHUNK_SIZE-th active goal after (fromMember, fromSeq), or null if there are fewer. */
+    private Object[] nextBoundary(long fromMember, int fromSeq) {
+        return READ.execute(session -> {
+            NativeQuery<Object[]> q = session.createNativeQuery(
+                    "select member_id, goal_seq from fitness_goal " +
+                            "where status = :active and (member_id, goal_seq) > (:fromMember, :fromSeq) " +
+                            "order by member_id, goal_seq offset :skip limit 1",
+                    Object[].class);
+            q.addScalar("member_id", StandardBasicTypes.LONG)
+                    .addScalar("goal_seq", StandardBasicTypes.INTEGER);
+            return q.setParameter("active", GoalStatus.ACTIVE.getCode())
+                    .setParameter("fromMember", fromMember)
+                    .setParameter("fromSeq", fromSeq)
+                    .setParameter("skip", CHUNK_SIZE - 1)
+                    .uniqueResult();
+        });
+    }
+
+    private ChunkResult evaluate(Range range, LocalDate today) {
+        Set<Long> changedMembers = new LinkedHashSet<>();
+        ChunkResult result = TX.execute(session -> {
+            boolean bounded = (range.toMember() != null);
+            NativeQuery<Object[]> q = session.createNativeQuery(
+                    (bounded ? EVALUATE_RANGE_SQL : EVALUATE_TO_END_SQL), Object[].class);
+            q.addScalar("kind", StandardBasicTypes.STRING)
+                    .addScalar("n", StandardBasicTypes.LONG)
+                    .addScalar("measured", StandardBasicTypes.LONG)
+                    .addScalar("progress_sum", StandardBasicTypes.DOUBLE)
+                    .addScalar("member_id", StandardBasicTypes.LONG)
+                    .addScalar("status", StandardBasicTypes.SHORT)
+                    .setParameter("active", GoalStatus.ACTIVE.getCode())
+                    .setParameter("completed", GoalStatus.COMPLETED.getCode())
+                    .setParameter("expired", GoalStatus.EXPIRED.getCode())
+                    .setParameter("today", today)
+                    .setParameter("now", LocalDateTime.now())
+                    .setParameter("fromMember", range.fromMember())
+                    .setParameter("fromSeq", range.fromSeq());
+            if (bounded) {
+                q.setParameter("toMember", range.toMember())
+                        .setParameter("toSeq", range.toSeq());
+            }
+
+            long evaluated = 0, measured = 0, completed = 0, expired = 0;
+            double progressSum = 0;
+            changedMembers.clear();   // a retried attempt starts over
+            for (Object[] r : q.getResultList()) {
+                if ("E".equals(r[0])) {
+                    evaluated = (Long) r[1];
+                    measured = (Long) r[2];
+                    progressSum = (Double) r[3];
+                } else {
+                    changedMembers.add((Long) r[4]);
+                    short status = (Short) r[5];
+                    if (status == GoalStatus.COMPLETED.getCode()) {
+                        completed++;
+                    } else if (status == GoalStatus.EXPIRED.getCode()) {
+                        expired++;
+                    }
+                }
+            }
+            return new ChunkResult(evaluated, measured, progressSum, completed, expired);
+        });
+
+        for (long memberId : changedMembers) {
+            MemberWrites.committed(memberId);
+        }
+        return result;
+    }
+
+    // 'E' row: counts of the chunk; 'U' rows: goals that were updated (status in its new state)
+    private static String evaluateSql(String upperBound) {
+        return "with state as ( " +
+                "    select g.member_id, g.goal_seq, g.target_value, g.target_date, g.progress, " +
+                "           (g.last_evaluated is null) as fresh, " +
+                "           case when g.last_evaluated is null then base.v else g.baseline_value end as base_v, " +
+                "           case when g.last_evaluated is null then base.d else g.baseline_date end as base_d, " +
+                "           case when g.last_evaluated is null then cur.v else g.latest_value end as cur_v, " +
+                "           case when g.last_evaluated is null then cur.d else g.latest_date end as cur_d " +
+                "    from fitness_goal g " +
+                // history is only read for goals GoalTracker never saw
+                "    left join lateral ( " +
+                "        select " + TRACKED_VALUE + " as v, h.recorded_date as d from health_metric h " +
+                "        where g.last_evaluated is null and h.member_id = g.member_id " +
+                "          and (g.start_date is null or h.recorded_date >= g.start_date) " +
+                "          and " + TRACKED_VALUE + " is not null " +
+                "        order by h.recorded_date, h.metric_id limit 1) base on true " +
+                "    left join lateral ( " +
+                "        select " + TRACKED_VALUE + " as v, h.recorded_date as d from health_metric h " +
+                "        where g.last_evaluated is null and h.member_id = g.member_id " +
+                "          and " + TRACKED_VALUE + " is not null " +
+                "        order by h.recorded_date desc, h.metric_id desc limit 1) cur on true " +
+                "    where g.status = :active " +
+                "      and (g.member_id, g.goal_seq) > (:fromMember, :fromSeq) " +
+                "      " + upperBound + "), " +
+                "eval as ( " +
+                "    select s.*, " + PROGRESS + " as new_progress from state s), " +
+                "done as ( " +
+                "    update fitness_goal g " +
+                "    set status = case when " + LIVE_PROGRESS + " = 100.0 then :completed " +
+                "                      when e.target_date < :today then :expired " +
+                "                      else g.status end, " +
+                "        baseline_value = " + live("e.base_v", "g.baseline_value") + ", " +
+                "        baseline_date = " + live("e.base_d", "g.baseline_date") + ", " +
+                "        latest_value = " + live("e.cur_v", "g.latest_value") + ", " +
+                "        latest_date = " + live("e.cur_d", "g.latest_date") + ", " +
+                "        progress = " + LIVE_PROGRESS + ", last_evaluated = :now " +
+                "    from eval e " +
+                "    where g.member_id = e.member_id and g.goal_seq = e.goal_seq " +
+                "      and g.status = :active " +
+                "      and (e.fresh or e.new_progress = 100.0 or e.target_date < :today " +
+                "           or e.progress is distinct from e.new_progress) " +
+                "    returning g.member_id, g.status) " +
+                "select 'E' as kind, count(*) as n, count(new_progress) as measured, " +
+                "       coalesce(sum(new_progress), 0) as progress_sum, " +
+                "       null::bigint as member_id, null::smallint as status from eval " +
+                "union all " +
+                "select 'U', null, null, null, member_id, status from done";
+    }
+
+    // the value read from history for a goal GoalTracker has not seen yet, else the stored one
+    private static String live(String fromHistory, String stored) {
+        return "(case when g.last_evaluated is null then " + fromHistory + " else " + stored + " end)";
+    }
+
+    // bounded queue + caller-runs: the boundary walk never gets far ahead of the workers
+    private static ThreadPoolExecutor newWorkers(int clubId) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(THREADS),
+                r -> {
+                    Thread t = new Thread(r, "goal-evaluator-" + clubId + "-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
@@ -0,0 +1,97 @@
+package app.service;
+
+/**
+ * How far a fitness goal has come, from the health metrics it is measured by.
+ *
+ * A goal is tracked against one HealthMetric column, chosen from its free-text
+ * goal type (see Metric). Progress is the share of the way from the baseline
+ * value (first measurement on/after the goal's start date) to the target that
+ * the latest measurement has covered, clamped to 0..100 %; it works for goals
+ * that go down (weight loss) and up (weight gain) alike.
+ */
+public final class GoalProgress {
+
+    /** HealthMetric column a goal type is measured by, matched in declaration order. */
+    public enum Metric {
+        BODY_FAT("FAT", "body_fat_pct"),
+        HEART_RATE("HEART", "heart_rate"),
+        WEIGHT("WEIGHT", "weight");
+
+        private final String keyword;
+        private final String column;
+
+        Metric(String keyword, String column) {
+            this.keyword = keyword;
+            this.column = column;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        /** This metric's value in one reading (null if the reading does not have it). */
+        public Double valueOf(Double weight, Integer heartRate, Double bodyFatPct) {
+            return switch (this) {
+                case BODY_FAT -> bodyFatPct;
+                case HEART_RATE -> (heartRate != null ? heartRate.doubleValue() : null);
+                case WEIGHT -> weight;
+            };
+        }
+
+        /** Metric for a goal type like "WEIGHT_LOSS", or null if it is not tracked. */
+        public static Metric forGoalType(String goalType) {
+            if (goalType == null) {
+                return null;
+            }
+            String upper = goalType.toUpperCase();
+            for (Metric m : values()) {
+                if (upper.contains(m.keyword)) {
+                    return m;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * SQL expression giving the tracked value of a health_metric row, for a
+         * goal_type expression: same rules as forGoalType(), so SQL and Java agree.
+         */
+        static String sqlValue(String goalTypeExpr, String metricAlias) {
+            StringBuilder sql = new StringBuilder("case");
+            for (Metric m : values()) {
+                sql.append(" when upper(").append(goalTypeExpr).append(") like '%")
+                        .append(m.keyword).append("%' then ")
+                        .append(metricAlias).append('.').append(m.column).append("::float8");
+            }
+            return sql.append(" end").toString();
+        }
+    }
+
+    private GoalProgress() {
+    }
+
+    /** SQL expression computing percent() from three float8 expressions (null when it is). */
+    static String sqlPercent(String baselineExpr, String currentExpr, String targetExpr) {
+        return "case when " + baselineExpr + " is null or " + currentExpr + " is null then null" +
+                " when " + targetExpr + " = " + baselineExpr +
+                " then case when " + currentExpr + " = " + targetExpr + " then 100.0 else 0.0 end" +
+                " else greatest(0.0, least(100.0, (" + currentExpr + " - " + baselineExpr + ") / (" +
+                targetExpr + " - " + baselineExpr + ") * 100.0)) end";
+    }
+
+    /**
+     * Progress in percent (0..100), or null when it cannot be computed
+     * (untracked goal type or no measurement yet).
+     */
+    public static Double percent(Double baseline, Double current, double target) {
+        if (baseline == null || current == null) {
+            return null;
+        }
+        double distance = target - baseline;
+        if (distance == 0) {
+            return (current == target ? 100.0 : 0.0);
+        }
+        double pct = (current - baseline) / distance * 100.0;
+        return Math.max(0.0, Math.min(100.0, pct));
+    }
+}
@@ -0,0 +1,200 @@
+package app.service;
+
+import models.FitnessGoal;
+import models.GoalStatus;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Incremental upkeep of the stored progress of ACTIVE fitness goals
+ * (FitnessGoal baseline / latest / progress / last_evaluated).
+ *
+ * Every code path that inserts health_metric rows adds them here and calls
+ * flush(session) in the same transaction, next to MetricRollups. A goal's
+ * state only depends on two readings: the baseline (first on/after its
+ * start date) and the latest one, so a new reading is folded in by comparing
+ * its date with the two stored dates; no history is read. The dashboard and
+ * GoalEvaluator then use the stored progress directly.
+ *
+ * Goals never initialized (last_evaluated null, created before migration
+ * 009) are skipped: their baseline is in the history, which GoalEvaluator
+ * reads for them once. Folding a new reading in first would make it their
+ * baseline and mark them evaluated.
+ *
+ * Ties on the date go the way the history queries order them (by metric_id):
+ * an older reading stays the baseline, a newer one becomes the latest.
+ *
+ * The member's ACTIVE goals are locked (FOR UPDATE, in key order) while they
+ * are read, so concurrent inserts for the same member cannot lose an update.
+ */
+final class GoalTracker {
+
+    private static final String SELECT_SQL =
+            "select member_id, goal_seq, goal_type, target_value, start_date, " +
+                    "baseline_value, baseline_date, latest_value, latest_date " +
+                    "from fitness_goal " +
+                    "where member_id = any(?) and status = ? and last_evaluated is not null " +
+                    "order by member_id, goal_seq " +
+                    "for update";
+
+    private static final String UPDATE_SQL =
+            "update fitness_goal set baseline_value = ?, baseline_date = ?, " +
+                    "latest_value = ?, latest_date = ?, progress = ?, last_evaluated = ? " +
+                    "where member_id = ? and goal_seq = ?";
+
+    private record Reading(LocalDate date, Double weight, Integer heartRate, Double bodyFatPct) {
+    }
+
+    /** Baseline and latest measurement of one goal. */
+    private static final class State {
+        Double baselineValue;
+        LocalDate baselineDate;
+        Double latestValue;
+        LocalDate latestDate;
+
+        /** Folds in one measurement; true if the state changed. */
+        boolean apply(LocalDate startDate, LocalDate date, double value) {
+            boolean changed = false;
+            if ((startDate == null || !date.isBefore(startDate))
+                    && (baselineDate == null || date.isBefore(baselineDate))) {
+                baselineValue = value;
+                baselineDate = date;
+                changed = true;
+            }
+            if (latestDate == null || !date.isBefore(latestDate)) {
+                latestValue = value;
+                latestDate = date;
+                changed = true;
+            }
+            return changed;
+        }
+    }
+
+    // by member id: the goals are locked in that order
+    private final Map<Long, List<Reading>> pending = new TreeMap<>();
+
+    /** Adds one health_metric row, in insert order. */
+    void add(long memberId, LocalDate recordedDate, Double weight, Integer heartRate, Double bodyFatPct) {
+        pending.computeIfAbsent(memberId, k -> new ArrayList<>())
+                .add(new Reading(recordedDate, weight, heartRate, bodyFatPct));
+    }
+
+    /** Updates the added members' ACTIVE goals in the session's transaction. */
+    void flush(Session session) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        session.doWork(connection -> {
+            try (PreparedStatement select = connection.prepareStatement(SELECT_SQL);
+                 PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+                Array memberIds = connection.createArrayOf("bigint", pending.keySet().toArray());
+                select.setArray(1, memberIds);
+                select.setShort(2, GoalStatus.ACTIVE.getCode());
+
+                boolean any = false;
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        GoalProgress.Metric metric = GoalProgress.Metric.forGoalType(rs.getString("goal_type"));
+                        if (metric == null) {
+                            continue;
+                        }
+                        long memberId = rs.getLong("member_id");
+                        LocalDate startDate = rs.getObject("start_date", LocalDate.class);
+                        State state = new State();
+                        state.baselineValue = (Double) rs.getObject("baseline_value");
+                        state.baselineDate = rs.getObject("baseline_date", LocalDate.class);
+                        state.latestValue = (Double) rs.getObject("latest_value");
+                        state.latestDate = rs.getObject("latest_date", LocalDate.class);
+
+                        boolean changed = false;
+                        for (Reading r : pending.get(memberId)) {
+                            Double value = metric.valueOf(r.weight(), r.heartRate(), r.bodyFatPct());
+                            if (value != null) {
+                                changed = state.apply(startDate, r.date(), value) || changed;
+                            }
+                        }
+                        if (!changed) {
+                            continue;
+                        }
+
+                        Double progress = GoalProgress.percent(
+                                state.baselineValue, state.latestValue, rs.getDouble("target_value"));
+                        update.setObject(1, state.baselineValue, Types.DOUBLE);
+                        update.setObject(2, state.baselineDate);
+                        update.setObject(3, state.latestValue, Types.DOUBLE);
+                        update.setObject(4, state.latestDate);
+                        update.setObject(5, progress, Types.DOUBLE);
+                        update.setTimestamp(6, now);
+                        update.setLong(7, memberId);
+                        update.setInt(8, rs.getInt("goal_seq"));
+                        update.addBatch();
+                        any = true;
+                    }
+                }
+                if (any) {
+                    update.executeBatch();
+                }
+            }
+        });
+        pending.clear();
+    }
+
+    /**
+     * Sets a goal's baseline / latest / progress from the member's history;
+     * for a goal that is being created (no readings were folded into it yet).
+     */
+    static void initialize(Session session, FitnessGoal goal) {
+        goal.setLastEvaluated(LocalDateTime.now());
+        GoalProgress.Metric metric = GoalProgress.Metric.forGoalType(goal.getGoalType());
+        if (metric == null) {
+            return;
+        }
+        Object[] baseline = firstOrLast(session, goal, metric, true);
+        Object[] latest = firstOrLast(session, goal, metric, false);
+        if (baseline != null) {
+            goal.setBaselineDate((LocalDate) baseline[0]);
+            goal.setBaselineValue((Double) baseline[1]);
+        }
+        if (latest != null) {
+            goal.setLatestDate((LocalDate) latest[0]);
+            goal.setLatestValue((Double) latest[1]);
+        }
+        goal.setProgress(GoalProgress.percent(goal.getBaselineValue(), goal.getLatestValue(), goal.getTargetValue()));
+    }
+
+    /** (recorded_date, value) of the goal's baseline or latest measurement, or null. */
+    private static Object[] firstOrLast(Session session, FitnessGoal goal, GoalProgress.Metric metric, boolean first) {
+        // column comes from the Metric enum, safe to inline
+        String column = metric.getColumn();
+        boolean fromStart = (first && goal.getStartDate() != null);
+        NativeQuery<Object[]> q = session.createNativeQuery(
+                "select recorded_date, " + column + "::float8 as v from health_metric " +
+                        "where member_id = :mid and " + column + " is not null " +
+                        (fromStart ? "and recorded_date >= :start " : "") +
+                        (first ? "order by recorded_date, metric_id "
+                                : "order by recorded_date desc, metric_id desc ") +
+                        "limit 1",
+                Object[].class);
+        q.addScalar("recorded_date", StandardBasicTypes.LOCAL_DATE)
+                .addScalar("v", StandardBasicTypes.DOUBLE)
+                .setParameter("mid", goal.getMemberId());
+        if (fromStart) {
+            q.setParameter("start", goal.getStartDate());
+        }
+        return q.uniqueResult();
+    }
+}
@@ -0,0 +1,598 @@
+package app.service;
+
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar, in-memory copy of a club's health_metric table for cohort
+ * analytics (weight change by goal type, body fat by age band).
+ *
+ * Loading HealthMetric entities for this is far too heavy: one object per
+ * reading plus boxed Doubles, scattered over the heap. Here every column is
+ * one primitive array (member ids long[], recorded dates as epoch days int[],
+ * measurements double[] / int[]) and nullable columns carry a bitmap with one
+ * bit per row. Rows are sorted by (member_id, recorded_date), so each member's
+ * readings are one contiguous run found by binary search.
+ *
+ * Queries are plain loops over the arrays, split into chunks that run in
+ * parallel on the common ForkJoinPool; each chunk fills its own accumulator
+ * and the accumulators are merged at the end, so no locking and no boxing.
+ * The members' birth dates and the fitness goals are loaded the same way.
+ *
+ * The copy is a snapshot (REPEATABLE READ, read replica when configured);
+ * load() again to refresh it. footprintBytes() tells how much heap it holds.
+ */
+public final class HealthMetricColumns {
+
+    private static final TransactionTemplate LOAD = TransactionTemplate.replicaRead()
+            .withIsolation(TransactionTemplate.Isolation.REPEATABLE_READ)
+            .withTimeout(Duration.ofMinutes(10));
+
+    // several chunks per core, so one slow chunk does not hold back the others
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final int MAX_AGE_YEARS = 120;
+    private static final int BODY_FAT_BINS = 100;   // 1 % wide, 0..100 %
+    private static final double DAYS_PER_YEAR = 365.2425;
+
+    /** Count, mean and range of one group. */
+    public record GroupStats(String group, long n, double mean, double min, double max) {
+    }
+
+    /** Count, mean and quartiles (1 % resolution) of one group. */
+    public record Distribution(String group, long n, double mean, double p25, double median, double p75) {
+    }
+
+    // ---- health_metric, sorted by (member_id, recorded_date) ----
+    private final int rows;
+    private final long[] memberId;
+    private final int[] recordedDay;
+    private final double[] weight;
+    private final double[] height;
+    private final int[] heartRate;
+    private final double[] bodyFat;
+    private final long[] weightPresent;
+    private final long[] heightPresent;
+    private final long[] heartRatePresent;
+    private final long[] bodyFatPresent;
+
+    // one run of rows per member: rows runStart[r] .. runStart[r + 1] - 1
+    private final long[] runMember;
+    private final int[] runStart;
+
+    // ---- member, sorted by member_id ----
+    private final long[] members;
+    private final int[] birthDay;
+    private final long[] birthPresent;
+
+    // ---- fitness_goal; goal types dictionary-encoded ----
+    private final long[] goalMember;
+    private final int[] goalType;
+    private final int[] goalStartDay;
+    private final long[] goalStartPresent;
+    private final String[] goalTypes;
+
+    private HealthMetricColumns(MetricColumns m, MemberColumns mem, GoalColumns g) {
+        this.rows = m.size;
+        this.memberId = m.memberId;
+        this.recordedDay = m.recordedDay;
+        this.weight = m.weight;
+        this.height = m.height;
+        this.heartRate = m.heartRate;
+        this.bodyFat = m.bodyFat;
+        this.weightPresent = m.weightPresent;
+        this.heightPresent = m.heightPresent;
+        this.heartRatePresent = m.heartRatePresent;
+        this.bodyFatPresent = m.bodyFatPresent;
+
+        int runs = 0;
+        for (int i = 0; i < rows; i++) {
+            if (i == 0 || memberId[i] != memberId[i - 1]) {
+                runs++;
+            }
+        }
+        this.runMember = new long[runs];
+        this.runStart = new int[runs + 1];
+        int r = 0;
+        for (int i = 0; i < rows; i++) {
+            if (i == 0 || memberId[i] != memberId[i - 1]) {
+                runMember[r] = memberId[i];
+                runStart[r++] = i;
+            }
+        }
+        runStart[runs] = rows;
+
+        this.members = mem.memberId;
+        this.birthDay = mem.birthDay;
+        this.birthPresent = mem.birthPresent;
+
+        this.goalMember = g.memberId;
+        this.goalType = g.type;
+        this.goalStartDay = g.startDay;
+        this.goalStartPresent = g.startPresent;
+        this.goalTypes = g.types;
+    }
+
+    /** Loads the current club's health metrics, members and goals. */
+    public static HealthMetricColumns load() {
+        return LOAD.execute(session -> {
+            MetricColumns metrics = new MetricColumns(count(session, "health_metric"));
+            MemberColumns members = new MemberColumns(count(session, "member"));
+            GoalColumns goals = new GoalColumns(count(session, "fitness_goal"));
+
+            session.doWork(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "select member_id, recorded_date - date '1970-01-01', " +
+                                "weight, height, heart_rate, body_fat_pct " +
+                                "from health_metric order by member_id, recorded_date, metric_id")) {
+                    ps.setFetchSize(Page.STREAM_FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            metrics.add(rs);
+                        }
+                    }
+                }
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "select member_id, date_of_birth - date '1970-01-01' from member order by member_id")) {
+                    ps.setFetchSize(Page.STREAM_FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            members.add(rs);
+                        }
+                    }
+                }
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "select member_id, upper(goal_type), start_date - date '1970-01-01' " +
+                                "from fitness_goal order by member_id, goal_seq")) {
+                    ps.setFetchSize(Page.STREAM_FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            goals.add(rs);
+                        }
+                    }
+                }
+            });
+            return new HealthMetricColumns(metrics.trim(), members.trim(), goals.trim());
+        });
+    }
+
+    private static int count(Session session, String table) {
+        // table is one of the literals in load()
+        long n = session.createNativeQuery("select count(*) from " + table, Long.class).getSingleResult();
+        return Math.toIntExact(n);
+    }
+
+    // ===================== QUERIES =====================
+
+    /** Count, mean and range of every measurement column over all rows. */
+    public List<GroupStats> columnSummary() {
+        List<GroupStats> result = new ArrayList<>();
+        result.add(summarize("weight", weightPresent, i -> weight[i]));
+        result.add(summarize("height", heightPresent, i -> height[i]));
+        result.add(summarize("heart_rate", heartRatePresent, i -> heartRate[i]));
+        result.add(summarize("body_fat_pct", bodyFatPresent, i -> bodyFat[i]));
+        return result;
+    }
+
+    private GroupStats summarize(String column, long[] present, IntToDoubleFunction value) {
+        Stats s = parallelScan(rows, () -> new Stats(1), (lo, hi, acc) -> {
+            for (int i = lo; i < hi; i++) {
+                if (isSet(present, i)) {
+                    acc.add(0, value.applyAsDouble(i));
+                }
+            }
+        }, Stats::merge);
+        return s.toGroupStats(0, column);
+    }
+
+    /**
+     * Weight change per goal type: for every goal, last minus first weight
+     * recorded on or after the goal's start date (goals with fewer than two
+     * weights are left out). Sorted by goal type.
+     */
+    public List<GroupStats> weightChangeByGoalType() {
+        Stats s = parallelScan(goalMember.length, () -> new Stats(goalTypes.length), (lo, hi, acc) -> {
+            for (int g = lo; g < hi; g++) {
+                int r = Arrays.binarySearch(runMember, goalMember[g]);
+                if (r < 0) {
+                    continue;
+                }
+                int from = runStart[r];
+                int to = runStart[r + 1];
+                if (isSet(goalStartPresent, g)) {
+                    from = firstDayAtLeast(from, to, goalStartDay[g]);
+                }
+                int first = from;
+                while (first < to && !isSet(weightPresent, first)) {
+                    first++;
+                }
+                int last = to - 1;
+                while (last > first && !isSet(weightPresent, last)) {
+                    last--;
+                }
+                if (last > first) {
+                    acc.add(goalType[g], weight[last] - weight[first]);
+                }
+            }
+        }, Stats::merge);
+
+        List<GroupStats> result = new ArrayList<>();
+        for (int t = 0; t < goalTypes.length; t++) {
+            if (s.n[t] > 0) {
+                result.add(s.toGroupStats(t, goalTypes[t]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Body fat distribution per age band of bandYears years: each member's
+     * latest body fat reading, in the band of their age on that day. Members
+     * without a date of birth are left out. Youngest band first.
+     */
+    public List<Distribution> bodyFatByAge(int bandYears) {
+        if (bandYears < 1) {
+            throw new IllegalArgumentException("bandYears must be >= 1");
+        }
+        int bands = MAX_AGE_YEARS / bandYears + 1;
+        Histograms h = parallelScan(runMember.length, () -> new Histograms(bands), (lo, hi, acc) -> {
+            for (int r = lo; r < hi; r++) {
+                int last = runStart[r + 1] - 1;
+                while (last >= runStart[r] && !isSet(bodyFatPresent, last)) {
+                    last--;
+                }
+                if (last < runStart[r]) {
+                    continue;
+                }
+                int m = Arrays.binarySearch(members, runMember[r]);
+                if (m < 0 || !isSet(birthPresent, m)) {
+                    continue;
+                }
+                int age = (int) ((recordedDay[last] - birthDay[m]) / DAYS_PER_YEAR);
+                int band = Math.max(0, Math.min(bands - 1, age / bandYears));
+                acc.add(band, bodyFat[last]);
+            }
+        }, Histograms::merge);
+
+        List<Distribution> result = new ArrayList<>();
+        for (int b = 0; b < bands; b++) {
+            if (h.n[b] > 0) {
+                String label = (b == bands - 1 ? (b * bandYears) + "+"
+                        : (b * bandYears) + "-" + ((b + 1) * bandYears - 1));
+                result.add(h.toDistribution(b, label));
+            }
+        }
+        return result;
+    }
+
+    // ===================== FOOTPRINT =====================
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getMembers() {
+        return runMember.length;
+    }
+
+    /** Heap held by the column arrays (array headers and goal type strings not counted). */
+    public long footprintBytes() {
+        long bytes = 0;
+        bytes += 8L * (memberId.length + runMember.length + members.length + goalMember.length);
+        bytes += 8L * (weight.length + height.length + bodyFat.length);
+        bytes += 4L * (recordedDay.length + heartRate.length + runStart.length);
+        bytes += 4L * (birthDay.length + goalType.length + goalStartDay.length);
+        bytes += 8L * (weightPresent.length + heightPresent.length + heartRatePresent.length
+                + bodyFatPresent.length + birthPresent.length + goalStartPresent.length);
+        return bytes;
+    }
+
+    // ===================== SCANNING =====================
+
+    @FunctionalInterface
+    private interface ChunkScan<A> {
+        void scan(int from, int to, A acc);
+    }
+
+    /** Splits 0..n into chunks, scans them in parallel, one accumulator per chunk, and merges. */
+    private static <A> A parallelScan(int n,
+                                      Supplier<A> newAcc,
+                                      ChunkScan<A> scan,
+                                      BinaryOperator<A> merge) {
+        int chunks = Math.max(1, Math.min(n, ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD));
+        return IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(c -> {
+                    A acc = newAcc.get();
+                    scan.scan((int) ((long) n * c / chunks), (int) ((long) n * (c + 1) / chunks), acc);
+                    return acc;
+                })
+                .reduce(merge)
+                .orElseGet(newAcc);
+    }
+
+    /** First row in from..to-1 (one member's run) recorded on or after day, or to. */
+    private int firstDayAtLeast(int from, int to, int day) {
+        int lo = from, hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (recordedDay[mid] < day) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static boolean isSet(long[] bitmap, int i) {
+        return (bitmap[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] bitmap, int i) {
+        bitmap[i >>> 6] |= 1L << i;
+    }
+
+    private static long[] bitmap(int rows) {
+        return new long[(rows + 63) >>> 6];
+    }
+
+    // ===================== ACCUMULATORS =====================
+
+    private static final class Stats {
+        final long[] n;
+        final double[] sum;
+        final double[] min;
+        final double[] max;
+
+        Stats(int groups) {
+            n = new long[groups];
+            sum = new double[groups];
+            min = new double[groups];
+            max = new double[groups];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        }
+
+        void add(int group, double value) {
+            n[group]++;
+            sum[group] += value;
+            min[group] = Math.min(min[group], value);
+            max[group] = Math.max(max[group], value);
+        }
+
+        Stats merge(Stats other) {
+            for (int g = 0; g < n.length; g++) {
+                n[g] += other.n[g];
+                sum[g] += other.sum[g];
+                min[g] = Math.min(min[g], other.min[g]);
+                max[g] = Math.max(max[g], other.max[g]);
+            }
+            return this;
+        }
+
+        GroupStats toGroupStats(int group, String label) {
+            long count = n[group];
+            return (count == 0 ? new GroupStats(label, 0, Double.NaN, Double.NaN, Double.NaN)
+                    : new GroupStats(label, count, sum[group] / count, min[group], max[group]));
+        }
+    }
+
+    private static final class Histograms {
+        final long[] n;
+        final double[] sum;
+        final long[][] bins;
+
+        Histograms(int groups) {
+            n = new long[groups];
+            sum = new double[groups];
+            bins = new long[groups][BODY_FAT_BINS];
+        }
+
+        void add(int group, double pct) {
+            n[group]++;
+            sum[group] += pct;
+            bins[group][Math.max(0, Math.min(BODY_FAT_BINS - 1, (int) pct))]++;
+        }
+
+        Histograms merge(Histograms other) {
+            for (int g = 0; g < n.length; g++) {
+                n[g] += other.n[g];
+                sum[g] += other.sum[g];
+                for (int b = 0; b < BODY_FAT_BINS; b++) {
+                    bins[g][b] += other.bins[g][b];
+                }
+            }
+            return this;
+        }
+
+        Distribution toDistribution(int group, String label) {
+            return new Distribution(label, n[group], sum[group] / n[group],
+                    quantile(group, 0.25), quantile(group, 0.50), quantile(group, 0.75));
+        }
+
+        // middle of the 1 %-wide bin holding the q-quantile
+        private double quantile(int group, double q) {
+            long rank = (long) Math.ceil(q * n[group]);
+            long seen = 0;
+            for (int b = 0; b < BODY_FAT_BINS; b++) {
+                seen += bins[group][b];
+                if (seen >= rank) {
+                    return b + 0.5;
+                }
+            }
+            return BODY_FAT_BINS - 0.5;
+        }
+    }
+
+    // ===================== LOADING =====================
+
+    private static final class MetricColumns {
+        int size;
+        long[] memberId;
+        int[] recordedDay;
+        double[] weight;
+        double[] height;
+        int[] heartRate;
+        double[] bodyFat;
+        long[] weightPresent;
+        long[] heightPresent;
+        long[] heartRatePresent;
+        long[] bodyFatPresent;
+
+        MetricColumns(int capacity) {
+            allocate(Math.max(capacity, 16));
+        }
+
+        private void allocate(int capacity) {
+            memberId = (memberId == null ? new long[capacity] : Arrays.copyOf(memberId, capacity));
+            recordedDay = (recordedDay == null ? new int[capacity] : Arrays.copyOf(recordedDay, capacity));
+            weight = (weight == null ? new double[capacity] : Arrays.copyOf(weight, capacity));
+            height = (height == null ? new double[capacity] : Arrays.copyOf(height, capacity));
+            heartRate = (heartRate == null ? new int[capacity] : Arrays.copyOf(heartRate, capacity));
+            bodyFat = (bodyFat == null ? new double[capacity] : Arrays.copyOf(bodyFat, capacity));
+            weightPresent = resize(weightPresent, capacity);
+            heightPresent = resize(heightPresent, capacity);
+            heartRatePresent = resize(heartRatePresent, capacity);
+            bodyFatPresent = resize(bodyFatPresent, capacity);
+        }
+
+        void add(ResultSet rs) throws SQLException {
+            if (size == memberId.length) {
+                allocate(size + (size >> 1));   // count and scan share a snapshot; just in case
+            }
+            int i = size++;
+            memberId[i] = rs.getLong(1);
+            recordedDay[i] = rs.getInt(2);
+            weight[i] = rs.getDouble(3);
+            if (!rs.wasNull()) {
+                set(weightPresent, i);
+            }
+            height[i] = rs.getDouble(4);
+            if (!rs.wasNull()) {
+                set(heightPresent, i);
+            }
+            heartRate[i] = rs.getInt(5);
+            if (!rs.wasNull()) {
+                set(heartRatePresent, i);
+            }
+            bodyFat[i] = rs.getDouble(6);
+            if (!rs.wasNull()) {
+                set(bodyFatPresent, i);
+            }
+        }
+
+        MetricColumns trim() {
+            if (size != memberId.length) {
+                allocate(size);
+            }
+            return this;
+        }
+    }
+
+    private static final class MemberColumns {
+        int size;
+        long[] memberId;
+        int[] birthDay;
+        long[] birthPresent;
+
+        MemberColumns(int capacity) {
+            allocate(Math.max(capacity, 16));
+        }
+
+        private void allocate(int capacity) {
+            memberId = (memberId == null ? new long[capacity] : Arrays.copyOf(memberId, capacity));
+            birthDay = (birthDay == null ? new int[capacity] : Arrays.copyOf(birthDay, capacity));
+            birthPresent = resize(birthPresent, capacity);
+        }
+
+        void add(ResultSet rs) throws SQLException {
+            if (size == memberId.length) {
+                allocate(size + (size >> 1));
+            }
+            int i = size++;
+            memberId[i] = rs.getLong(1);
+            birthDay[i] = rs.getInt(2);
+            if (!rs.wasNull()) {
+                set(birthPresent, i);
+            }
+        }
+
+        MemberColumns trim() {
+            if (size != memberId.length) {
+                allocate(size);
+            }
+            return this;
+        }
+    }
+
+    private static final class GoalColumns {
+        int size;
+        long[] memberId;
+        int[] type;
+        int[] startDay;
+        long[] startPresent;
+        String[] types;
+        final Map<String, Integer> dictionary = new LinkedHashMap<>();
+
+        GoalColumns(int capacity) {
+            allocate(Math.max(capacity, 16));
+        }
+
+        private void allocate(int capacity) {
+            memberId = (memberId == null ? new long[capacity] : Arrays.copyOf(memberId, capacity));
+            type = (type == null ? new int[capacity] : Arrays.copyOf(type, capacity));
+            startDay = (startDay == null ? new int[capacity] : Arrays.copyOf(startDay, capacity));
+            startPresent = resize(startPresent, capacity);
+        }
+
+        void add(ResultSet rs) throws SQLException {
+            if (size == memberId.length) {
+                allocate(size + (size >> 1));
+            }
+            int i = size++;
+            memberId[i] = rs.getLong(1);
+            type[i] = dictionary.computeIfAbsent(rs.getString(2), t -> dictionary.size());
+            startDay[i] = rs.getInt(3);
+            if (!rs.wasNull()) {
+                set(startPresent, i);
+            }
+        }
+
+        GoalColumns trim() {
+            if (size != memberId.length) {
+                allocate(size);
+            }
+            // codes follow first appearance; renumber so types come out sorted
+            String[] sorted = dictionary.keySet().toArray(new String[0]);
+            Arrays.sort(sorted);
+            int[] recode = new int[sorted.length];
+            for (int t = 0; t < sorted.length; t++) {
+                recode[dictionary.get(sorted[t])] = t;
+            }
+            for (int i = 0; i < size; i++) {
+                type[i] = recode[type[i]];
+            }
+            types = sorted;
+            return this;
+        }
+    }
+
+    private static long[] resize(long[] bitmap, int rows) {
+        return (bitmap == null ? bitmap(rows) : Arrays.copyOf(bitmap, (rows + 63) >>> 6));
+    }
+}
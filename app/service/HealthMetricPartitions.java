@@ -0,0 +1,230 @@
+package app.service;
+
+import org.hibernate.Session;
+
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Monthly partitions of health_metric (migration 005).
+ *
+ * health_metric is partitioned by recorded_date, one table per month named
+ * health_metric_YYYY_MM. A row can only be inserted once its month exists:
+ *  - ensureFuturePartitions() creates the next MONTHS_AHEAD months of every
+ *    club at startup;
+ *  - ensureMonth(date) is called before each insert and creates the month of
+ *    a back-dated reading on demand. Months already seen are remembered, so
+ *    this costs one round trip per month per process.
+ *
+ * Readings may only be dated from the retention cutoff (the oldest month
+ * HealthMetricRetention keeps) to the last month created ahead
+ * (isLoggable); callers reject other dates before ensureMonth, so clients
+ * can neither create arbitrary months nor bring back detached ones.
+ *
+ * Old months are taken out with detachPartitionsBefore(cutoff), which uses
+ * DETACH PARTITION ... CONCURRENTLY: the detached tables can then be dumped
+ * and dropped without locking the live months.
+ *
+ * On a database where migration 005 has not been run, every method is a no-op.
+ */
+public final class HealthMetricPartitions {
+
+    /** Months created ahead of the current one. -Dhfc.metrics.partitionsAhead, default 3. */
+    public static final int MONTHS_AHEAD = Integer.getInteger("hfc.metrics.partitionsAhead", 3);
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("health_metric_(\\d{4})_(\\d{2})");
+
+    private static final TransactionTemplate TX =
+            TransactionTemplate.readWrite().withTimeout(Duration.ofSeconds(10));
+
+    private record ClubMonth(int clubId, YearMonth month) {
+    }
+
+    private static final Set<ClubMonth> knownMonths = ConcurrentHashMap.newKeySet();
+    private static final Map<Integer, Boolean> partitioned = new ConcurrentHashMap<>();
+
+    private HealthMetricPartitions() {
+    }
+
+    /** True if health_metric of the current club is a partitioned table (cached). */
+    public static boolean isPartitioned() {
+        return partitioned.computeIfAbsent(ShardContext.current(), clubId -> TX.execute(session ->
+                Boolean.TRUE.equals(session.createNativeQuery(
+                                "select c.relkind = 'p' from pg_class c " +
+                                        "where c.oid = to_regclass('health_metric')",
+                                Boolean.class)
+                        .uniqueResult())));
+    }
+
+    /** First date a reading may have: the first day of the oldest month retention keeps. */
+    public static LocalDate earliestLoggable() {
+        return LocalDate.now().withDayOfMonth(1).minusMonths(HealthMetricRetention.RAW_MONTHS);
+    }
+
+    /** Last date a reading may have: the end of the last month created ahead. */
+    public static LocalDate latestLoggable() {
+        return YearMonth.now().plusMonths(MONTHS_AHEAD).atEndOfMonth();
+    }
+
+    /** True if a reading may be dated on date (earliestLoggable .. latestLoggable). */
+    public static boolean isLoggable(LocalDate date) {
+        return !date.isBefore(earliestLoggable()) && !date.isAfter(latestLoggable());
+    }
+
+    /** Makes sure the partition for date's month exists in the current club; date must be isLoggable. */
+    public static void ensureMonth(LocalDate date) {
+        if (!isLoggable(date)) {
+            throw new IllegalArgumentException("Reading date out of range: " + date);
+        }
+        ClubMonth key = new ClubMonth(ShardContext.current(), YearMonth.from(date));
+        if (knownMonths.contains(key) || !isPartitioned()) {
+            return;
+        }
+        TX.execute(session -> session.createNativeQuery(
+                        "select health_metric_ensure_partition(:day)", String.class)
+                .setParameter("day", date)
+                .getSingleResult());
+        knownMonths.add(key);
+    }
+
+    /** Creates the current and next MONTHS_AHEAD partitions in every club. */
+    public static void ensureFuturePartitions() {
+        ShardScatter.onAllClubs(() -> {
+            if (!isPartitioned()) {
+                return 0;
+            }
+            return TX.execute(session -> session.createNativeQuery(
+                            "select health_metric_ensure_partitions(:ahead)", Integer.class)
+                    .setParameter("ahead", MONTHS_AHEAD)
+                    .getSingleResult());
+        });
+    }
+
+    /**
+     * Detaches every month of the current club that ends before cutoff and
+     * returns the names of the detached tables (now plain tables, ready to be
+     * archived with pg_dump and dropped). Stops at the first failure.
+     *
+     * Readings dated in a detached month can no longer be logged.
+     */
+    public static List<String> detachPartitionsBefore(LocalDate cutoff) {
+        List<String> detached = new ArrayList<>();
+        if (!isPartitioned()) {
+            return detached;
+        }
+
+        List<String> names = TX.execute(session -> session.createNativeQuery(
+                        "select c.relname from pg_inherits i " +
+                                "join pg_class c on c.oid = i.inhrelid " +
+                                "where i.inhparent = 'health_metric'::regclass " +
+                                "order by c.relname",
+                        String.class)
+                .getResultList());
+
+        for (String name : names) {
+            YearMonth month = monthEndingBy(name, cutoff);
+            if (month != null) {
+                try {
+                    detach(name);
+                } catch (Exception e) {
+                    System.out.println("Could not detach " + name + ": " + e.getMessage());
+                    break;
+                }
+                knownMonths.remove(new ClubMonth(ShardContext.current(), month));
+                detached.add(name);
+            }
+        }
+        return detached;
+    }
+
+    /**
+     * Month tables of the current club that end before cutoff and are no
+     * longer partitions of health_metric: detached by an earlier run whose
+     * drop failed, or kept for archiving (hfc.retention.keepDetached).
+     */
+    public static List<String> detachedBefore(LocalDate cutoff) {
+        List<String> leftover = new ArrayList<>();
+        if (!isPartitioned()) {
+            return leftover;
+        }
+
+        List<String> names = TX.execute(session -> session.createNativeQuery(
+                        "select c.relname from pg_class c " +
+                                "where c.relkind = 'r' " +
+                                "and c.relnamespace = current_schema()::regnamespace " +
+                                "and c.relname ~ '^health_metric_[0-9]{4}_[0-9]{2}$' " +
+                                "and not exists (select 1 from pg_inherits i where i.inhrelid = c.oid) " +
+                                "order by c.relname",
+                        String.class)
+                .getResultList());
+
+        for (String name : names) {
+            if (monthEndingBy(name, cutoff) != null) {
+                leftover.add(name);
+            }
+        }
+        return leftover;
+    }
+
+    /**
+     * Drops a partition that detachPartitionsBefore() has detached, waiting
+     * at most 2 s for its lock. Returns false (and prints why) if it could not.
+     */
+    static boolean dropDetached(String partition) {
+        if (!PARTITION_NAME.matcher(partition).matches()) {
+            throw new IllegalArgumentException("Not a health_metric partition: " + partition);
+        }
+        try {
+            TX.execute(session -> {
+                // plain JDBC, so Hibernate does not clear the whole second-level cache
+                session.doWork(connection -> {
+                    try (Statement st = connection.createStatement()) {
+                        st.execute("set local lock_timeout = '2s'");
+                        // partition matched PARTITION_NAME, safe to inline
+                        st.execute("drop table if exists " + partition);
+                    }
+                });
+                return null;
+            });
+            return true;
+        } catch (RuntimeException e) {
+            System.out.println("Could not drop " + partition + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // month of a health_metric_YYYY_MM table when that month ends by cutoff, else null
+    private static YearMonth monthEndingBy(String name, LocalDate cutoff) {
+        Matcher m = PARTITION_NAME.matcher(name);
+        if (!m.matches()) {
+            return null;
+        }
+        YearMonth month = YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+        return (month.plusMonths(1).atDay(1).isAfter(cutoff) ? null : month);
+    }
+
+    // DETACH ... CONCURRENTLY refuses to run inside a transaction block
+    private static void detach(String partition) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            session.doWork(connection -> {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(true);
+                try (Statement st = connection.createStatement()) {
+                    // partition matched PARTITION_NAME, safe to inline
+                    st.execute("ALTER TABLE health_metric DETACH PARTITION " + partition + " CONCURRENTLY");
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package app.service;
+
+import models.RetentionCheckpoint;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retention of raw health_metric rows.
+ *
+ * Raw readings older than RAW_MONTHS months (cutoff = first day of that
+ * month) are removed; their weekly / monthly rollups are kept, so trends
+ * stay available for the whole history. Before removing anything the run
+ * checks that the monthly rollups account for every raw row before the
+ * cutoff (migration 006 backfills databases that predate the rollups).
+ *
+ * How rows go away, without long locks or WAL bursts:
+ *  - partitioned health_metric (migration 005): whole months before the
+ *    cutoff are detached CONCURRENTLY and dropped (or kept for archiving
+ *    with KEEP_DETACHED). A month whose drop failed is dropped by the next
+ *    run, as are months kept earlier once KEEP_DETACHED is off;
+ *  - otherwise: deleted in (recorded_date, metric_id) order, CHUNK_SIZE rows
+ *    per transaction with a short lock_timeout. After each chunk the run
+ *    sleeps PAUSE_MS, longer if the chunk produced more WAL than
+ *    MAX_WAL_BYTES_PER_SEC allows, so replicas and backups keep up.
+ *
+ * The sort key of the last deleted row is committed with every chunk
+ * (RetentionCheckpoint), so a run that is stopped resumes where it left off
+ * instead of rescanning what it already deleted.
+ *
+ * Settings (system properties):
+ *   hfc.retention.rawMonths          months of raw rows to keep, default 24
+ *   hfc.retention.chunkSize          rows per delete transaction, default 5000
+ *   hfc.retention.pauseMs            minimum pause between chunks, default 50
+ *   hfc.retention.maxWalBytesPerSec  WAL budget, default 16 MB/s
+ *   hfc.retention.keepDetached       keep detached partitions for archiving, default false
+ */
+public class HealthMetricRetention {
+
+    public static final int RAW_MONTHS = Integer.getInteger("hfc.retention.rawMonths", 24);
+    private static final int CHUNK_SIZE = Integer.getInteger("hfc.retention.chunkSize", 5000);
+    private static final long PAUSE_MS = Long.getLong("hfc.retention.pauseMs", 50L);
+    private static final long MAX_WAL_BYTES_PER_SEC =
+            Long.getLong("hfc.retention.maxWalBytesPerSec", 16L * 1024 * 1024);
+    private static final boolean KEEP_DETACHED = Boolean.getBoolean("hfc.retention.keepDetached");
+
+    private static final String JOB_NAME = "health_metric_raw";
+
+    private static final TransactionTemplate TX =
+            TransactionTemplate.readWrite().withTimeout(Duration.ofSeconds(30));
+    // the rollup check counts the raw rows of every month before the cutoff (few once a run completed)
+    private static final TransactionTemplate CHECK =
+            TransactionTemplate.readOnly().withTimeout(Duration.ofMinutes(5));
+
+    /** What one run did in one club. */
+    public record Result(int clubId,
+                         LocalDate cutoff,
+                         List<String> removedPartitions,
+                         long deletedRows,
+                         boolean completed,
+                         String message) {
+    }
+
+    private record Chunk(int deleted, LocalDate lastDate, Long lastId) {
+    }
+
+    /** Runs retention in every club, one club after the other. */
+    public List<Result> runAllClubs() {
+        List<Result> results = new ArrayList<>();
+        for (int clubId : HibernateUtil.getClubIds()) {
+            results.add(ShardContext.call(clubId, this::run));
+        }
+        return results;
+    }
+
+    /** Runs retention in the current club with the configured window. */
+    public Result run() {
+        return run(LocalDate.now().withDayOfMonth(1).minusMonths(RAW_MONTHS));
+    }
+
+    /** Removes the current club's raw rows recorded before cutoff (a month start). */
+    public Result run(LocalDate cutoff) {
+        int clubId = ShardContext.current();
+        if (cutoff.getDayOfMonth() != 1) {
+            throw new IllegalArgumentException("cutoff must be the first day of a month");
+        }
+
+        String problem = checkRolledUp(cutoff);
+        if (problem != null) {
+            System.out.println("Retention (club " + clubId + "): " + problem);
+            return new Result(clubId, cutoff, List.of(), 0, false, problem);
+        }
+
+        // 1) partitioned: whole months go at once. Month tables an earlier run
+        //    detached but could not drop are no longer partitions, so they
+        //    are looked up separately and dropped now
+        List<String> removed = new ArrayList<>();
+        List<String> toDrop = new ArrayList<>();
+        if (!KEEP_DETACHED) {
+            toDrop.addAll(HealthMetricPartitions.detachedBefore(cutoff));
+        }
+        for (String partition : HealthMetricPartitions.detachPartitionsBefore(cutoff)) {
+            if (KEEP_DETACHED) {
+                removed.add(partition);
+            } else {
+                toDrop.add(partition);
+            }
+        }
+        List<String> notDropped = new ArrayList<>();
+        for (String partition : toDrop) {
+            if (HealthMetricPartitions.dropDetached(partition)) {
+                removed.add(partition);
+            } else {
+                notDropped.add(partition);
+            }
+        }
+
+        // 2) row by row for whatever is left (everything, when not partitioned)
+        RetentionCheckpoint start = TX.execute(session -> {
+            RetentionCheckpoint cp = session.get(RetentionCheckpoint.class, JOB_NAME);
+            if (cp == null) {
+                cp = new RetentionCheckpoint(JOB_NAME, cutoff);
+                session.persist(cp);
+            } else if (!cp.getCutoff().equals(cutoff)) {
+                // new window: rows before the old position may now be due
+                cp.setCutoff(cutoff);
+                cp.setLastRecordedDate(null);
+                cp.setLastMetricId(null);
+                cp.setDeletedRows(0);
+                cp.setUpdatedAt(LocalDateTime.now());
+            }
+            return cp;
+        });
+
+        LocalDate lastDate = start.getLastRecordedDate();
+        Long lastId = start.getLastMetricId();
+        long deleted = 0;
+        while (true) {
+            long startNanos = System.nanoTime();
+            long walBefore = currentWalLsn();
+
+            Chunk chunk;
+            try {
+                chunk = deleteChunk(cutoff, lastDate, lastId);
+            } catch (RuntimeException e) {
+                String message = "stopped after " + deleted + " rows: " + e.getMessage();
+                System.out.println("Retention (club " + clubId + "): " + message);
+                return new Result(clubId, cutoff, removed, deleted, false, message);
+            }
+            if (chunk.deleted() == 0) {
+                break;
+            }
+            deleted += chunk.deleted();
+            lastDate = chunk.lastDate();
+            lastId = chunk.lastId();
+
+            throttle(startNanos, currentWalLsn() - walBefore);
+        }
+
+        String message = "removed " + removed.size() + " partitions and " + deleted
+                + " rows recorded before " + cutoff;
+        if (!notDropped.isEmpty()) {
+            message += "; detached but not dropped (retried on the next run): " + String.join(", ", notDropped);
+        }
+        System.out.println("Retention (club " + clubId + "): " + message);
+        return new Result(clubId, cutoff, removed, deleted, notDropped.isEmpty(), message);
+    }
+
+    /**
+     * Refuses to delete raw rows the monthly rollups do not account for:
+     * every month before the cutoff must have at least as many readings in
+     * health_metric_monthly as it has raw rows (more once earlier runs
+     * deleted some of them). Returns the problem, or null when it is safe
+     * to go on.
+     */
+    private String checkRolledUp(LocalDate cutoff) {
+        List<Object[]> shortMonths = CHECK.execute(session -> session.createNativeQuery(
+                        "select to_char(r.month, 'YYYY-MM'), r.raw, coalesce(m.readings, 0) " +
+                                "from (select date_trunc('month', recorded_date)::date as month, count(*) as raw " +
+                                "      from health_metric where recorded_date < :cutoff group by 1) r " +
+                                "left join (select period_start, sum(readings) as readings " +
+                                "           from health_metric_monthly where period_start < :cutoff " +
+                                "           group by period_start) m on m.period_start = r.month " +
+                                "where coalesce(m.readings, 0) < r.raw " +
+                                "order by r.month",
+                        Object[].class)
+                .setParameter("cutoff", cutoff)
+                .getResultList());
+        if (shortMonths.isEmpty()) {
+            return null;
+        }
+        StringBuilder problem = new StringBuilder("monthly rollups are missing readings of ")
+                .append(shortMonths.size()).append(" month(s) before ").append(cutoff).append(":");
+        for (Object[] row : shortMonths.subList(0, Math.min(3, shortMonths.size()))) {
+            problem.append(' ').append(row[0]).append(" (").append(row[2]).append(" of ")
+                    .append(row[1]).append(" raw rows)");
+        }
+        return problem.append("; nothing was deleted").toString();
+    }
+
+    private Chunk deleteChunk(LocalDate cutoff, LocalDate lastDate, Long lastId) {
+        return TX.execute(session -> {
+            // never queue behind (or in front of) a long lock; plain JDBC, so
+            // Hibernate does not clear the whole second-level cache for it
+            session.doWork(connection -> {
+                try (Statement st = connection.createStatement()) {
+                    st.execute("set local lock_timeout = '2s'");
+                }
+            });
+
+            boolean resume = (lastDate != null && lastId != null);
+            NativeQuery<Object[]> q = session.createNativeQuery(
+                            "with doomed as ( " +
+                                    "    select metric_id, recorded_date from health_metric " +
+                                    "    where recorded_date < :cutoff " +
+                                    (resume ? "  and (recorded_date, metric_id) > (:lastDate, :lastId) " : "") +
+                                    "    order by recorded_date, metric_id " +
+                                    "    limit :chunk) " +
+                                    "delete from health_metric h using doomed d " +
+                                    "where h.metric_id = d.metric_id and h.recorded_date = d.recorded_date " +
+                                    "returning h.recorded_date, h.metric_id",
+                            Object[].class);
+            q.addScalar("recorded_date", StandardBasicTypes.LOCAL_DATE)
+                    .addScalar("metric_id", StandardBasicTypes.LONG)
+                    .setParameter("cutoff", cutoff)
+                    .setParameter("chunk", CHUNK_SIZE);
+            if (resume) {
+                q.setParameter("lastDate", lastDate)
+                        .setParameter("lastId", lastId);
+            }
+            List<Object[]> gone = q.getResultList();
+
+            if (gone.isEmpty()) {
+                return new Chunk(0, lastDate, lastId);
+            }
+
+            LocalDate maxDate = null;
+            long maxId = 0;
+            for (Object[] row : gone) {
+                LocalDate d = (LocalDate) row[0];
+                long id = (Long) row[1];
+                if (maxDate == null || d.isAfter(maxDate) || (d.equals(maxDate) && id > maxId)) {
+                    maxDate = d;
+                    maxId = id;
+                }
+            }
+
+            RetentionCheckpoint cp = session.get(RetentionCheckpoint.class, JOB_NAME);
+            cp.setLastRecordedDate(maxDate);
+            cp.setLastMetricId(maxId);
+            cp.setDeletedRows(cp.getDeletedRows() + gone.size());
+            cp.setUpdatedAt(LocalDateTime.now());
+            return new Chunk(gone.size(), maxDate, maxId);
+        });
+    }
+
+    /** Sleeps at least PAUSE_MS, and long enough to keep WAL under MAX_WAL_BYTES_PER_SEC. */
+    private static void throttle(long chunkStartNanos, long walBytes) {
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - chunkStartNanos).toMillis();
+        long walBudgetMs = (walBytes > 0 ? walBytes * 1000 / MAX_WAL_BYTES_PER_SEC : 0);
+        long sleepMs = Math.max(PAUSE_MS, walBudgetMs - elapsedMs);
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during retention", e);
+        }
+    }
+
+    /** Current WAL position in bytes (0 if it cannot be read, which disables the WAL budget). */
+    private static long currentWalLsn() {
+        try {
+            BigDecimal lsn = TX.execute(session -> session.createNativeQuery(
+                            "select pg_current_wal_lsn() - '0/0'::pg_lsn", BigDecimal.class)
+                    .getSingleResult());
+            return lsn.longValue();
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /** Last checkpoint of the current club, or null if retention never ran there. */
+    public RetentionCheckpoint getCheckpoint() {
+        return TX.execute(session -> session.get(RetentionCheckpoint.class, JOB_NAME));
+    }
+}
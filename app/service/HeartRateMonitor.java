@@ -0,0 +1,519 @@
+package app.service;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import models.HeartRateAlertKind;
+import org.hibernate.Session;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Online detection of abnormal resting heart rates (HeartRateAlert).
+ *
+ * Per member it keeps an exponentially weighted mean and variance of the
+ * heart rate (the usual level, weight ALPHA per reading) and a faster
+ * recent mean (RECENT_ALPHA). Once a member has WARMUP readings:
+ *  - SPIKE: a reading SPIKE_Z standard deviations or more from the mean;
+ *  - TREND: the recent mean TREND_Z of its own standard deviations or more
+ *    from the mean; flagged once, again only after it came back within
+ *    half that.
+ * The standard deviation is at least MIN_STD_DEV bpm so members with very
+ * steady readings are not flagged for a beat or two. Readings dated before
+ * the member's last one (back-dated logs) are neither checked nor folded in.
+ *
+ * Every code path that inserts health_metric rows adds them here and calls
+ * flush(session) in the same transaction, next to MetricRollups: alerts are
+ * inserted with the readings, and the readings are folded into the state
+ * once the transaction commits. Nothing is read from health_metric.
+ *
+ * The state of all members of a club lives in one open-addressing table of
+ * primitive arrays (under 100 bytes per member). Changed entries are
+ * snapshotted to heart_rate_state every SNAPSHOT_MS and on shutdown
+ * (HibernateUtil.shutdown), and loaded from there for every club at
+ * startup (loadAll()). A club that was not loaded then is loaded by the
+ * first flush() for it, through that caller's own connection, while only
+ * flushes of that club wait. A crash loses at most the last interval's updates, which the
+ * next readings make up for. Each process keeps its own state: with
+ * several app instances writing, the last snapshot wins.
+ *
+ * Settings (system properties):
+ *   hfc.heartRate.alpha         weight of a reading in the usual level, default 0.02
+ *   hfc.heartRate.recentAlpha   weight of a reading in the recent level, default 0.3
+ *   hfc.heartRate.spikeZ        default 3.5
+ *   hfc.heartRate.trendZ        default 3.5
+ *   hfc.heartRate.warmup        readings before anything is flagged, default 20
+ *   hfc.heartRate.snapshotMs    snapshot interval, default 30000
+ */
+public final class HeartRateMonitor {
+
+    private static final double ALPHA = doubleProperty("hfc.heartRate.alpha", 0.02);
+    private static final double RECENT_ALPHA = doubleProperty("hfc.heartRate.recentAlpha", 0.3);
+    private static final double SPIKE_Z = doubleProperty("hfc.heartRate.spikeZ", 3.5);
+    private static final double TREND_Z = doubleProperty("hfc.heartRate.trendZ", 3.5);
+    private static final int WARMUP = Integer.getInteger("hfc.heartRate.warmup", 20);
+    private static final long SNAPSHOT_MS = Long.getLong("hfc.heartRate.snapshotMs", 30_000L);
+    private static final double MIN_STD_DEV = 2.0;
+    // standard deviation of an EWMA with weight RECENT_ALPHA, relative to that of the readings
+    private static final double RECENT_NOISE = Math.sqrt(RECENT_ALPHA / (2 - RECENT_ALPHA));
+
+    private static final TransactionTemplate TX =
+            TransactionTemplate.readWrite().withTimeout(Duration.ofMinutes(1));
+
+    private static final String INSERT_ALERT_SQL =
+            "insert into heart_rate_alert (member_id, kind, recorded_date, heart_rate, " +
+                    "expected, std_dev, z_score, created_at) values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_STATE_SQL =
+            "insert into heart_rate_state (member_id, mean, variance, recent_mean, readings, " +
+                    "last_date, trending, updated_at) values (?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "on conflict (member_id) do update set mean = excluded.mean, " +
+                    "variance = excluded.variance, recent_mean = excluded.recent_mean, " +
+                    "readings = excluded.readings, last_date = excluded.last_date, " +
+                    "trending = excluded.trending, updated_at = excluded.updated_at";
+
+    private static final String LOAD_STATE_SQL =
+            "select member_id, mean, variance, recent_mean, readings, last_date, trending " +
+                    "from heart_rate_state";
+
+    private record Reading(long memberId, LocalDate date, int heartRate) {
+    }
+
+    private record Alert(long memberId, HeartRateAlertKind kind, LocalDate date, int heartRate,
+                         double expected, double stdDev, double zScore) {
+    }
+
+    /** The detector state of one member, while it is being worked on. */
+    private static final class Tracker {
+        double mean;
+        double variance;
+        double recent;
+        int readings;
+        long lastDay;
+        boolean trending;
+
+        /** Checks and folds in one reading; the alert it raises, or null. */
+        Alert step(long memberId, LocalDate date, int heartRate) {
+            long day = date.toEpochDay();
+            if (readings > 0 && day < lastDay) {
+                return null;
+            }
+            Alert alert = null;
+            if (readings >= WARMUP) {
+                double sd = stdDev();
+                double z = (heartRate - mean) / sd;
+                if (Math.abs(z) >= SPIKE_Z) {
+                    alert = new Alert(memberId, HeartRateAlertKind.SPIKE, date, heartRate, mean, sd, z);
+                }
+            }
+
+            // plain running mean / variance until the weights reach ALPHA (no start-up bias)
+            double weight = Math.max(ALPHA, 1.0 / (readings + 1.0));
+            double diff = heartRate - mean;
+            double increment = weight * diff;
+            mean += increment;
+            variance = (1 - weight) * (variance + diff * increment);
+            recent += Math.max(RECENT_ALPHA, 1.0 / (readings + 1.0)) * (heartRate - recent);
+            if (readings < Integer.MAX_VALUE) {
+                readings++;
+            }
+            lastDay = day;
+
+            if (readings >= WARMUP) {
+                double sd = stdDev();
+                // in spreads of the recent mean, which averages out much of a single reading's noise
+                double z = (recent - mean) / (sd * RECENT_NOISE);
+                if (!trending && Math.abs(z) >= TREND_Z) {
+                    trending = true;
+                    if (alert == null) {
+                        alert = new Alert(memberId, HeartRateAlertKind.TREND, date, heartRate, mean, sd, z);
+                    }
+                } else if (trending && Math.abs(z) < TREND_Z / 2) {
+                    trending = false;
+                }
+            }
+            return alert;
+        }
+
+        private double stdDev() {
+            return Math.max(MIN_STD_DEV, Math.sqrt(variance));
+        }
+    }
+
+    /**
+     * Tracker state of all members of one club: open addressing (linear
+     * probing) on the member id, one primitive array per field. Member id 0
+     * marks a free slot (ids start at 1). Guarded by its own monitor.
+     */
+    private static final class MemberStates {
+        private static final byte TRENDING = 1;
+        private static final byte DIRTY = 2;
+
+        private long[] keys = new long[1024];
+        private double[] mean = new double[1024];
+        private double[] variance = new double[1024];
+        private double[] recent = new double[1024];
+        private int[] readings = new int[1024];
+        private int[] lastDay = new int[1024];
+        private byte[] flags = new byte[1024];
+        private int size;
+
+        /** Copies the member's state into t (fresh state if unknown). */
+        void read(long memberId, Tracker t) {
+            int slot = find(memberId);
+            if (slot < 0) {
+                t.mean = t.variance = t.recent = 0;
+                t.readings = 0;
+                t.lastDay = 0;
+                t.trending = false;
+                return;
+            }
+            t.mean = mean[slot];
+            t.variance = variance[slot];
+            t.recent = recent[slot];
+            t.readings = readings[slot];
+            t.lastDay = lastDay[slot];
+            t.trending = (flags[slot] & TRENDING) != 0;
+        }
+
+        void write(long memberId, Tracker t, boolean dirty) {
+            int slot = findOrInsert(memberId);
+            mean[slot] = t.mean;
+            variance[slot] = t.variance;
+            recent[slot] = t.recent;
+            readings[slot] = t.readings;
+            lastDay[slot] = (int) t.lastDay;
+            flags[slot] = (byte) ((t.trending ? TRENDING : 0) | (dirty ? DIRTY : 0));
+        }
+
+        void markDirty(long memberId) {
+            int slot = find(memberId);
+            if (slot >= 0) {
+                flags[slot] |= DIRTY;
+            }
+        }
+
+        /** Member ids with changes not snapshotted yet; clears their dirty flag. */
+        List<Long> takeDirty() {
+            List<Long> dirty = new ArrayList<>();
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != 0 && (flags[slot] & DIRTY) != 0) {
+                    dirty.add(keys[slot]);
+                    flags[slot] &= ~DIRTY;
+                }
+            }
+            return dirty;
+        }
+
+        private int find(long memberId) {
+            int mask = keys.length - 1;
+            for (int slot = hash(memberId) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == memberId) {
+                    return slot;
+                }
+                if (keys[slot] == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        private int findOrInsert(long memberId) {
+            int slot = find(memberId);
+            if (slot >= 0) {
+                return slot;
+            }
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            slot = hash(memberId) & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = memberId;
+            size++;
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            double[] oldMean = mean;
+            double[] oldVariance = variance;
+            double[] oldRecent = recent;
+            int[] oldReadings = readings;
+            int[] oldLastDay = lastDay;
+            byte[] oldFlags = flags;
+
+            int capacity = oldKeys.length * 2;
+            keys = new long[capacity];
+            mean = new double[capacity];
+            variance = new double[capacity];
+            recent = new double[capacity];
+            readings = new int[capacity];
+            lastDay = new int[capacity];
+            flags = new byte[capacity];
+
+            int mask = capacity - 1;
+            for (int old = 0; old < oldKeys.length; old++) {
+                if (oldKeys[old] == 0) {
+                    continue;
+                }
+                int slot = hash(oldKeys[old]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[old];
+                mean[slot] = oldMean[old];
+                variance[slot] = oldVariance[old];
+                recent[slot] = oldRecent[old];
+                readings[slot] = oldReadings[old];
+                lastDay[slot] = oldLastDay[old];
+                flags[slot] = oldFlags[old];
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    // by club id, done once loaded from heart_rate_state
+    private static final Map<Integer, CompletableFuture<MemberStates>> clubs = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService snapshotter;
+
+    private final List<Reading> pending = new ArrayList<>();
+
+    /** Adds one health_metric row, in insert order. */
+    void add(long memberId, LocalDate recordedDate, Integer heartRate) {
+        if (heartRate != null) {
+            pending.add(new Reading(memberId, recordedDate, heartRate));
+        }
+    }
+
+    /**
+     * Inserts the alerts the added readings raise in the session's
+     * transaction; the readings update the detector once it commits.
+     */
+    void flush(Session session) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        int clubId = ShardContext.current();
+        MemberStates states = states(clubId, session);
+        List<Reading> readings = new ArrayList<>(pending);
+        pending.clear();
+
+        // checked against copies: the shared state only moves on commit
+        List<Alert> alerts = new ArrayList<>();
+        synchronized (states) {
+            Map<Long, Tracker> working = new HashMap<>();
+            for (Reading r : readings) {
+                Tracker t = working.computeIfAbsent(r.memberId(), id -> {
+                    Tracker copy = new Tracker();
+                    states.read(id, copy);
+                    return copy;
+                });
+                Alert alert = t.step(r.memberId(), r.date(), r.heartRate());
+                if (alert != null) {
+                    alerts.add(alert);
+                }
+            }
+        }
+        if (!alerts.isEmpty()) {
+            insertAlerts(session, alerts);
+        }
+
+        session.getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    fold(states, readings);
+                }
+            }
+        });
+    }
+
+    private static void insertAlerts(Session session, List<Alert> alerts) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        session.doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_ALERT_SQL)) {
+                for (Alert a : alerts) {
+                    ps.setLong(1, a.memberId());
+                    ps.setShort(2, a.kind().getCode());
+                    ps.setObject(3, a.date());
+                    ps.setInt(4, a.heartRate());
+                    ps.setDouble(5, a.expected());
+                    ps.setDouble(6, a.stdDev());
+                    ps.setDouble(7, a.zScore());
+                    ps.setTimestamp(8, now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+
+    // re-applies the readings to the shared state, so concurrent commits add up
+    private static void fold(MemberStates states, List<Reading> readings) {
+        synchronized (states) {
+            Tracker t = new Tracker();
+            for (Reading r : readings) {
+                states.read(r.memberId(), t);
+                t.step(r.memberId(), r.date(), r.heartRate());
+                states.write(r.memberId(), t, true);
+            }
+        }
+    }
+
+    /** Loads the state of every configured club; called once at startup, after seeding. */
+    public static void loadAll() {
+        for (int clubId : HibernateUtil.getClubIds()) {
+            try {
+                ShardContext.run(clubId, () -> TX.execute(session -> states(clubId, session)));
+            } catch (RuntimeException e) {
+                // loaded by the club's first flush() instead
+                System.out.println("Heart rate state (club " + clubId + "): " + e.getMessage());
+            }
+        }
+    }
+
+    // loads the club's state through session the first time; other callers for the club wait for it
+    private static MemberStates states(int clubId, Session session) {
+        CompletableFuture<MemberStates> loaded = clubs.get(clubId);
+        if (loaded == null) {
+            CompletableFuture<MemberStates> loading = new CompletableFuture<>();
+            loaded = clubs.putIfAbsent(clubId, loading);
+            if (loaded == null) {
+                try {
+                    loading.complete(loadSnapshot(session));
+                } catch (RuntimeException e) {
+                    clubs.remove(clubId, loading);
+                    loading.completeExceptionally(e);
+                    throw e;
+                }
+                startSnapshots();
+                return loading.join();
+            }
+        }
+        return loaded.join();
+    }
+
+    private static MemberStates loadSnapshot(Session session) {
+        MemberStates states = new MemberStates();
+        session.doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(LOAD_STATE_SQL)) {
+                ps.setFetchSize(10_000);
+                try (ResultSet rs = ps.executeQuery()) {
+                    Tracker t = new Tracker();
+                    while (rs.next()) {
+                        t.mean = rs.getDouble("mean");
+                        t.variance = rs.getDouble("variance");
+                        t.recent = rs.getDouble("recent_mean");
+                        t.readings = rs.getInt("readings");
+                        t.lastDay = rs.getObject("last_date", LocalDate.class).toEpochDay();
+                        t.trending = rs.getBoolean("trending");
+                        states.write(rs.getLong("member_id"), t, false);
+                    }
+                }
+            }
+        });
+        return states;
+    }
+
+    private static synchronized void startSnapshots() {
+        if (snapshotter != null) {
+            return;
+        }
+        snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "heart-rate-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotter.scheduleWithFixedDelay(HeartRateMonitor::snapshotAll,
+                SNAPSHOT_MS, SNAPSHOT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Writes every club's changed member states to heart_rate_state. */
+    static void snapshotAll() {
+        clubs.forEach((clubId, loaded) -> {
+            if (loaded.isDone() && !loaded.isCompletedExceptionally()) {
+                ShardContext.run(clubId, () -> snapshot(loaded.join()));
+            }
+        });
+    }
+
+    private static void snapshot(MemberStates states) {
+        List<Long> memberIds;
+        List<Tracker> rows = new ArrayList<>();
+        synchronized (states) {
+            memberIds = states.takeDirty();
+            for (long memberId : memberIds) {
+                Tracker t = new Tracker();
+                states.read(memberId, t);
+                rows.add(t);
+            }
+        }
+        if (memberIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            TX.execute(session -> {
+                session.doWork(connection -> {
+                    try (PreparedStatement ps = connection.prepareStatement(UPSERT_STATE_SQL)) {
+                        for (int i = 0; i < memberIds.size(); i++) {
+                            Tracker t = rows.get(i);
+                            ps.setLong(1, memberIds.get(i));
+                            ps.setDouble(2, t.mean);
+                            ps.setDouble(3, t.variance);
+                            ps.setDouble(4, t.recent);
+                            ps.setInt(5, t.readings);
+                            ps.setDate(6, Date.valueOf(LocalDate.ofEpochDay(t.lastDay)));
+                            ps.setBoolean(7, t.trending);
+                            ps.setTimestamp(8, now);
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                });
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // retried with the next snapshot
+            synchronized (states) {
+                memberIds.forEach(states::markDirty);
+            }
+            System.out.println("Heart rate snapshot (club " + ShardContext.current() + "): " + e.getMessage());
+        }
+    }
+
+    /** Drops the current club's state (its tables were emptied, e.g. by DatabaseResetService). */
+    static void forgetClub() {
+        // heart_rate_state is empty as well, nothing to load
+        clubs.put(ShardContext.current(), CompletableFuture.completedFuture(new MemberStates()));
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return (value != null ? Double.parseDouble(value) : defaultValue);
+    }
+}
@@ -1,28 +1,221 @@
 package app.service;
 
 import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.RegionFactory;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One SessionFactory per club (shard), plus optional read replicas.
+ *
+ * Shards are listed with -Dhfc.shards (or the HFC_SHARDS environment variable):
+ *
+ *   -Dhfc.shards=1=jdbc:postgresql://localhost:5432/hfc_club1,2=jdbc:postgresql://localhost:5432/hfc_club2
+ *
+ * Every shard uses hibernate.cfg.xml with its own JDBC URL, so the same
+ * schema is created in each database. Without hfc.shards there is a single
+ * club (DEFAULT_CLUB_ID) on the URL from hibernate.cfg.xml.
+ *
+ * getSessionFactory() returns the factory of ShardContext.current().
+ */
 public class HibernateUtil {
 
-    private static final SessionFactory sessionFactory = buildSessionFactory();
+    public static final int DEFAULT_CLUB_ID = 1;
+
+    private static final String CONFIG_FILE = "ressources/hibernate.cfg.xml";
+
+    // Hibernate's built-in connection pool size when hibernate.connection.pool_size is not set
+    private static final int DEFAULT_POOL_SIZE = 20;
+
+    /**
+     * JDBC URL of an optional read replica (streaming standby) per club, same
+     * format as hfc.shards: -Dhfc.replicas=1=jdbc:...,2=jdbc:...
+     * -Dhfc.replica.url (or HFC_REPLICA_URL) is a shorthand for the default club.
+     * Credentials are the ones from hibernate.cfg.xml unless
+     * hfc.replica.username / hfc.replica.password are set.
+     */
+    private static final Map<Integer, String> SHARD_URLS =
+            parseUrls(setting("hfc.shards", "HFC_SHARDS"), "hfc.shards");
+    private static final Map<Integer, String> REPLICA_URLS = replicaUrls();
+
+    private static final Map<Integer, SessionFactory> sessionFactories = buildSessionFactories();
+    private static final Map<Integer, SessionFactory> replicaSessionFactories = buildReplicaSessionFactories();
 
-    private static SessionFactory buildSessionFactory() {
+    private static Map<Integer, SessionFactory> buildSessionFactories() {
+        Map<Integer, SessionFactory> factories = new LinkedHashMap<>();
         try {
-            // Looks for hibernate.cfg.xml on the classpath / working dir
-            return new Configuration()
-                    .configure("ressources/hibernate.cfg.xml")
-                    .buildSessionFactory();
+            if (SHARD_URLS.isEmpty()) {
+                // Looks for hibernate.cfg.xml on the classpath / working dir
+                factories.put(DEFAULT_CLUB_ID, newConfiguration()
+                        .buildSessionFactory());
+            } else {
+                for (Map.Entry<Integer, String> shard : SHARD_URLS.entrySet()) {
+                    factories.put(shard.getKey(), newConfiguration()
+                            .setProperty("hibernate.connection.url", shard.getValue())
+                            .buildSessionFactory());
+                }
+            }
         } catch (Throwable ex) {
+            factories.values().forEach(SessionFactory::close);
             throw new ExceptionInInitializerError("SessionFactory init failed: " + ex);
         }
+        return Collections.unmodifiableMap(factories);
+    }
+
+    private static Map<Integer, SessionFactory> buildReplicaSessionFactories() {
+        Map<Integer, SessionFactory> factories = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Integer, String> replica : REPLICA_URLS.entrySet()) {
+                if (!sessionFactories.containsKey(replica.getKey())) {
+                    throw new IllegalArgumentException(
+                            "Replica configured for unknown club id: " + replica.getKey());
+                }
+                Configuration cfg = newConfiguration()
+                        .setProperty("hibernate.connection.url", replica.getValue())
+                        // the replica is read-only: never let Hibernate touch its schema
+                        .setProperty("hibernate.hbm2ddl.auto", "none")
+                        // it would never see the primary's writes, so its entries could only go stale
+                        .setProperty("hibernate.cache.use_second_level_cache", "false");
+                String user = System.getProperty("hfc.replica.username");
+                String password = System.getProperty("hfc.replica.password");
+                if (user != null) {
+                    cfg.setProperty("hibernate.connection.username", user);
+                }
+                if (password != null) {
+                    cfg.setProperty("hibernate.connection.password", password);
+                }
+                factories.put(replica.getKey(), cfg.buildSessionFactory());
+            }
+        } catch (Throwable ex) {
+            factories.values().forEach(SessionFactory::close);
+            throw new ExceptionInInitializerError("Replica SessionFactory init failed: " + ex);
+        }
+        return Collections.unmodifiableMap(factories);
     }
 
+    /**
+     * hibernate.cfg.xml, with any -Dhibernate.* system property taking
+     * precedence (e.g. -Dhibernate.show_sql=false for load tests).
+     */
+    private static Configuration newConfiguration() {
+        Configuration cfg = new Configuration().configure(CONFIG_FILE);
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("hibernate.")) {
+                cfg.setProperty(name, System.getProperty(name));
+            }
+        }
+        return cfg;
+    }
+
+    private static Map<Integer, String> replicaUrls() {
+        Map<Integer, String> urls = new LinkedHashMap<>(
+                parseUrls(setting("hfc.replicas", "HFC_REPLICAS"), "hfc.replicas"));
+        String defaultReplica = setting("hfc.replica.url", "HFC_REPLICA_URL");
+        if (defaultReplica != null) {
+            urls.putIfAbsent(DEFAULT_CLUB_ID, defaultReplica);
+        }
+        return urls;
+    }
+
+    /** Parses "1=jdbc:...,2=jdbc:..." into clubId -> URL, keeping the given order. */
+    private static Map<Integer, String> parseUrls(String value, String name) {
+        Map<Integer, String> urls = new LinkedHashMap<>();
+        if (value == null) {
+            return urls;
+        }
+        for (String entry : value.split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0 || eq == entry.length() - 1) {
+                throw new IllegalArgumentException(name + ": expected clubId=jdbcUrl but got '" + entry + "'");
+            }
+            int clubId;
+            try {
+                clubId = Integer.parseInt(entry.substring(0, eq).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + ": invalid club id in '" + entry + "'");
+            }
+            if (urls.put(clubId, entry.substring(eq + 1).trim()) != null) {
+                throw new IllegalArgumentException(name + ": club id " + clubId + " listed twice");
+            }
+        }
+        return urls;
+    }
+
+    private static String setting(String property, String env) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(env);
+        }
+        return (value == null || value.isBlank() ? null : value.trim());
+    }
+
+    /** SessionFactory of the current club (see ShardContext). */
     public static SessionFactory getSessionFactory() {
-        return sessionFactory;
+        return getSessionFactory(ShardContext.current());
+    }
+
+    public static SessionFactory getSessionFactory(int clubId) {
+        SessionFactory factory = sessionFactories.get(clubId);
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown club id: " + clubId);
+        }
+        return factory;
+    }
+
+    /**
+     * Size of a club's JDBC connection pool (hibernate.connection.pool_size,
+     * Hibernate's default of 20 when not set).
+     */
+    public static int getPoolSize(int clubId) {
+        Object size = getSessionFactory(clubId).getProperties().get("hibernate.connection.pool_size");
+        if (size == null) {
+            return DEFAULT_POOL_SIZE;
+        }
+        try {
+            return Integer.parseInt(size.toString().trim());
+        } catch (NumberFormatException e) {
+            return DEFAULT_POOL_SIZE;
+        }
+    }
+
+    /** Configured club ids, in configuration order. */
+    public static Set<Integer> getClubIds() {
+        return sessionFactories.keySet();
+    }
+
+    /**
+     * Replica SessionFactory of the current club, or null when that club has
+     * no replica. Services should not use this directly: go through
+     * ReplicaRouter, which falls back to the primary when the replica lags.
+     */
+    public static SessionFactory getReplicaSessionFactory() {
+        return replicaSessionFactories.get(ShardContext.current());
+    }
+
+    /**
+     * Second-level cache counters of the current club, one per region (empty
+     * when the cache is switched off or not a LocalRegionFactory).
+     */
+    public static List<LocalRegionFactory.RegionStats> getCacheStatistics() {
+        RegionFactory regionFactory = getSessionFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getCache()
+                .getRegionFactory();
+        return (regionFactory instanceof LocalRegionFactory local ? local.statistics() : List.of());
     }
 
     public static void shutdown() {
-        getSessionFactory().close();
+        // committed readings still waiting to be merged into metric_sketch
+        MetricSketches.flushPending();
+        // detector state changed since the last snapshot
+        HeartRateMonitor.snapshotAll();
+        replicaSessionFactories.values().forEach(SessionFactory::close);
+        sessionFactories.values().forEach(SessionFactory::close);
     }
 }
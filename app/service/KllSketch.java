@@ -0,0 +1,245 @@
+package app.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * KLL quantile sketch (Karnin, Lang, Liberty): a few KB summarising any
+ * number of values, answering rank / quantile questions within about
+ * 1.7 / K of the exact answer (K = 200: under 1 % rank error).
+ *
+ * Values go into level 0. Once the sketch holds as many items as all its
+ * levels' capacities together, the lowest full level is compacted: sorted,
+ * and every other item (random start) moves one level up, where each item
+ * stands for twice as many values. Capacities shrink by 2/3 per level down
+ * from the top, so the sketch keeps at most about 3 * K items (about 2 KB
+ * serialized for K = 200) however many values it has seen. Two sketches merge by concatenating their levels
+ * and compacting again, so partial sketches built in different transactions
+ * or processes can be combined.
+ *
+ * Items are stored as floats (health measurements do not need more), and
+ * toBytes() / fromBytes() give the compact form kept in metric_sketch.
+ * Not thread-safe.
+ */
+public final class KllSketch {
+
+    public static final int DEFAULT_K = 200;
+
+    private static final double CAPACITY_RATIO = 2.0 / 3.0;
+    private static final byte FORMAT = 1;
+
+    private final int k;
+    private long n;
+    private float[][] levels = new float[1][];
+    private int[] sizes = new int[1];
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    public KllSketch(int k) {
+        if (k < 8 || k > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("k must be in 8.." + Short.MAX_VALUE);
+        }
+        this.k = k;
+        this.levels[0] = new float[k];
+    }
+
+    /** Number of values added (including those of merged sketches). */
+    public long getN() {
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        append(0, (float) value);
+        n++;
+        compress();
+    }
+
+    /** Adds other's values to this sketch; other is unchanged. */
+    public void merge(KllSketch other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge sketches with different k");
+        }
+        for (int h = 0; h < other.sizes.length; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        n += other.n;
+        compress();
+    }
+
+    /** Estimated share (0..1) of the values that are <= value; 0 when empty. */
+    public double rank(double value) {
+        if (n == 0) {
+            return 0;
+        }
+        long weightBelow = 0;
+        for (int h = 0; h < sizes.length; h++) {
+            long count = 0;
+            for (int i = 0; i < sizes[h]; i++) {
+                if (levels[h][i] <= value) {
+                    count++;
+                }
+            }
+            weightBelow += count << h;
+        }
+        return Math.min(1.0, (double) weightBelow / n);
+    }
+
+    /** Estimated q-quantile (0 <= q <= 1); NaN when empty. */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("q must be in 0..1");
+        }
+        if (n == 0) {
+            return Double.NaN;
+        }
+        int retained = retained();
+        // (value, weight) pairs sorted by value, weights 2^level
+        long[] packed = new long[retained];
+        int p = 0;
+        for (int h = 0; h < sizes.length; h++) {
+            for (int i = 0; i < sizes[h]; i++) {
+                packed[p++] = ((long) sortableBits(levels[h][i]) << 8) | h;
+            }
+        }
+        Arrays.sort(packed);
+        long target = (long) Math.ceil(q * n);
+        long seen = 0;
+        for (long item : packed) {
+            seen += 1L << (int) (item & 0xFF);
+            if (seen >= target) {
+                return fromSortableBits((int) (item >> 8));
+            }
+        }
+        return fromSortableBits((int) (packed[packed.length - 1] >> 8));
+    }
+
+    // ===================== SERIALIZATION =====================
+
+    /** format, k, n, level count, then per level its size and items. */
+    public byte[] toBytes() {
+        int items = retained();
+        ByteBuffer buf = ByteBuffer.allocate(1 + 2 + 8 + 1 + 2 * sizes.length + 4 * items);
+        buf.put(FORMAT).putShort((short) k).putLong(n).put((byte) sizes.length);
+        for (int h = 0; h < sizes.length; h++) {
+            buf.putShort((short) sizes[h]);
+            for (int i = 0; i < sizes[h]; i++) {
+                buf.putFloat(levels[h][i]);
+            }
+        }
+        return buf.array();
+    }
+
+    public static KllSketch fromBytes(byte[] bytes) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        byte format = buf.get();
+        if (format != FORMAT) {
+            throw new IllegalArgumentException("Unknown sketch format " + format);
+        }
+        KllSketch sketch = new KllSketch(buf.getShort());
+        sketch.n = buf.getLong();
+        int levelCount = buf.get();
+        sketch.levels = new float[levelCount][];
+        sketch.sizes = new int[levelCount];
+        for (int h = 0; h < levelCount; h++) {
+            int size = buf.getShort();
+            sketch.levels[h] = new float[Math.max(size, sketch.capacity(h))];
+            for (int i = 0; i < size; i++) {
+                sketch.levels[h][i] = buf.getFloat();
+            }
+            sketch.sizes[h] = size;
+        }
+        return sketch;
+    }
+
+    // ===================== COMPACTION =====================
+
+    private int capacity(int level) {
+        int depth = sizes.length - 1 - level;
+        return Math.max(2, (int) Math.ceil(k * Math.pow(CAPACITY_RATIO, depth)));
+    }
+
+    private void append(int level, float value) {
+        while (level >= sizes.length) {
+            levels = Arrays.copyOf(levels, sizes.length + 1);
+            sizes = Arrays.copyOf(sizes, sizes.length + 1);
+            levels[sizes.length - 1] = new float[2];
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], Math.max(4, levels[level].length * 2));
+        }
+        levels[level][sizes[level]++] = value;
+    }
+
+    // lazy: only when the sketch as a whole is full, then the lowest full level
+    private void compress() {
+        while (retained() >= totalCapacity()) {
+            for (int h = 0; h < sizes.length; h++) {
+                if (sizes[h] >= capacity(h)) {
+                    compact(h);
+                    break;
+                }
+            }
+        }
+    }
+
+    private int retained() {
+        int total = 0;
+        for (int size : sizes) {
+            total += size;
+        }
+        return total;
+    }
+
+    private int totalCapacity() {
+        int total = 0;
+        for (int h = 0; h < sizes.length; h++) {
+            total += capacity(h);
+        }
+        return total;
+    }
+
+    /** Halves a level: every other sorted item moves up, an odd one out stays. */
+    private void compact(int level) {
+        float[] items = levels[level];
+        int size = sizes[level];
+        Arrays.sort(items, 0, size);
+        int leftover = size % 2;
+        int offset = ThreadLocalRandom.current().nextInt(2);
+        sizes[level] = 0;
+        if (leftover == 1) {
+            // keep the largest item here; pairs below it are compacted
+            float kept = items[size - 1];
+            for (int i = offset; i < size - 1; i += 2) {
+                append(level + 1, items[i]);
+            }
+            levels[level][0] = kept;
+            sizes[level] = 1;
+        } else {
+            for (int i = offset; i < size; i += 2) {
+                append(level + 1, items[i]);
+            }
+        }
+    }
+
+    // floats ordered as ints (negative values included)
+    private static int sortableBits(float f) {
+        int bits = Float.floatToIntBits(f);
+        return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+    }
+
+    private static float fromSortableBits(int bits) {
+        return Float.intBitsToFloat(bits ^ ((bits >> 31) & 0x7FFFFFFF));
+    }
+}
@@ -0,0 +1,200 @@
+package app.service;
+
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Storage of one cache region of LocalRegionFactory: at most maxEntries
+ * entries, least recently used evicted first, each entry dropped ttl
+ * after it was stored.
+ *
+ * The map is split in STRIPES access-ordered LinkedHashMaps, each behind
+ * its own lock and holding its share of maxEntries, so lookups of
+ * different keys rarely wait on each other. Expired entries are removed
+ * when next read, or evicted as least recently used.
+ *
+ * Soft locks (written by read-write regions while an entity is being
+ * updated) neither expire nor are evicted while unlocked entries remain:
+ * Hibernate times them out itself.
+ */
+final class LocalCacheStorage implements DomainDataStorageAccess {
+
+    private static final int STRIPES = 16;
+
+    private final String regionName;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private record Entry(Object value, long expiresAt) {
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<Object, Entry> map = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @param maxEntries 0 for no bound
+     * @param ttlNanos   0 for no expiry
+     */
+    LocalCacheStorage(String regionName, int maxEntries, long ttlNanos) {
+        this.regionName = regionName;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+        Stripe stripe = stripeOf(key);
+        Object value = null;
+        stripe.lock.lock();
+        try {
+            Entry entry = stripe.map.get(key);
+            if (entry != null) {
+                if (isExpired(entry, System.nanoTime())) {
+                    stripe.map.remove(key);
+                    expirations.increment();
+                } else {
+                    value = entry.value();
+                }
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        // a soft lock means "being updated": Hibernate goes to the database
+        if (value == null || value instanceof SoftLock) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    @Override
+    public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+        Stripe stripe = stripeOf(key);
+        long expiresAt = (ttlNanos > 0 && !(value instanceof SoftLock) ? System.nanoTime() + ttlNanos : 0);
+        stripe.lock.lock();
+        try {
+            stripe.map.put(key, new Entry(value, expiresAt));
+            if (maxEntries > 0 && stripe.map.size() > stripeCapacity()) {
+                evictOne(stripe);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        puts.increment();
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        Stripe stripe = stripeOf(key);
+        stripe.lock.lock();
+        try {
+            Entry entry = stripe.map.get(key);
+            return entry != null && !isExpired(entry, System.nanoTime());
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public void evictData() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.map.clear();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void evictData(Object key) {
+        Stripe stripe = stripeOf(key);
+        stripe.lock.lock();
+        try {
+            stripe.map.remove(key);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public void release() {
+        evictData();
+    }
+
+    /** Counters since the region was built, and the current size. */
+    LocalRegionFactory.RegionStats stats() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.map.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return new LocalRegionFactory.RegionStats(regionName, hits.sum(), misses.sum(), puts.sum(),
+                evictions.sum(), expirations.sum(), size, maxEntries);
+    }
+
+    // ---------- helper methods ----------
+
+    private Stripe stripeOf(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (STRIPES - 1)];
+    }
+
+    private int stripeCapacity() {
+        return Math.max(1, (maxEntries + STRIPES - 1) / STRIPES);
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return entry.expiresAt() != 0 && now - entry.expiresAt() >= 0;
+    }
+
+    // called with the stripe's lock held; drops an expired entry if it meets one first
+    private void evictOne(Stripe stripe) {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Object, Entry>> it = stripe.map.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next().getValue();
+            if (isExpired(entry, now)) {
+                it.remove();
+                expirations.increment();
+                return;
+            }
+            if (!(entry.value() instanceof SoftLock)) {
+                it.remove();
+                evictions.increment();
+                return;
+            }
+        }
+        // nothing but soft locks: drop the oldest of them anyway
+        it = stripe.map.entrySet().iterator();
+        it.next();
+        it.remove();
+        evictions.increment();
+    }
+}
@@ -0,0 +1,135 @@
+package app.service;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Second-level cache regions held in this process, one LocalCacheStorage
+ * per region: bounded, least recently used entries evicted first, and
+ * every entry dropped a fixed time after it was stored.
+ *
+ * Configured in hibernate.cfg.xml (hibernate.cache.region.factory_class);
+ * each club's SessionFactory gets its own instance, so clubs never share
+ * entries. Which entities are cached, and how, is the <class-cache>
+ * list of that file.
+ *
+ * Writes made through Hibernate keep the cache right. Changes it cannot
+ * see (another process, psql, a trigger) are picked up at the latest
+ * after the TTL, which is why only slowly changing reference data is
+ * cached.
+ *
+ * Settings (hibernate.cfg.xml properties, or system properties, which win):
+ *   hfc.cache.maxEntries    default 10000 (per region)
+ *   hfc.cache.ttlSeconds    default 300
+ */
+public class LocalRegionFactory extends RegionFactoryTemplate {
+
+    private static final String MAX_ENTRIES = "hfc.cache.maxEntries";
+    private static final String TTL_SECONDS = "hfc.cache.ttlSeconds";
+
+    /** Counters of one region since it was built. */
+    public record RegionStats(String region,
+                              long hits,
+                              long misses,
+                              long puts,
+                              long evictions,
+                              long expirations,
+                              int size,
+                              int maxEntries) {
+
+        /** hits / lookups, 0 before the first lookup. */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return (lookups == 0 ? 0 : (double) hits / lookups);
+        }
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    // live storages, never serialized with the factory
+    private final transient Map<String, LocalCacheStorage> regions = new ConcurrentSkipListMap<>();
+    private int maxEntries;
+    private long ttlNanos;
+
+    public LocalRegionFactory() {
+        // instantiated by Hibernate
+    }
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+        maxEntries = (int) setting(configValues, MAX_ENTRIES, 10_000);
+        ttlNanos = Duration.ofSeconds(setting(configValues, TTL_SECONDS, 300)).toNanos();
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        regions.values().forEach(LocalCacheStorage::release);
+        regions.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        return register(regionConfig.getRegionName(), new LocalCacheStorage(regionConfig.getRegionName(),
+                maxEntries, ttlNanos));
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+                                                                  SessionFactoryImplementor sessionFactory) {
+        return register(regionName, new LocalCacheStorage(regionName, maxEntries, ttlNanos));
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+                                                                SessionFactoryImplementor sessionFactory) {
+        // one entry per table, and losing one would serve stale query results
+        return register(regionName, new LocalCacheStorage(regionName, 0, 0));
+    }
+
+    /** Counters of every region, by region name. */
+    public List<RegionStats> statistics() {
+        List<RegionStats> stats = new ArrayList<>();
+        for (LocalCacheStorage storage : regions.values()) {
+            stats.add(storage.stats());
+        }
+        return stats;
+    }
+
+    // ---------- helper methods ----------
+
+    private LocalCacheStorage register(String regionName, LocalCacheStorage storage) {
+        regions.put(regionName, storage);
+        return storage;
+    }
+
+    private static long setting(Map<String, Object> configValues, String name, long defaultValue) {
+        Object value = System.getProperty(name);
+        if (value == null) {
+            value = configValues.get(name);
+        }
+        if (value == null || value.toString().isBlank()) {
+            return defaultValue;
+        }
+        try {
+            long parsed = Long.parseLong(value.toString().trim());
+            if (parsed < 0) {
+                throw new IllegalArgumentException(name + " must not be negative: " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + ": not a number: " + value);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package app.service;
+
+import models.GoalStatus;
+import models.PTSessionStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read-only snapshot shown after a member logs in: active goals with their
+ * progress, the latest health metrics and the upcoming PT sessions.
+ * Built by MemberDashboardService from one SQL statement (DTO projections,
+ * no entities), so it is safe to cache and share.
+ */
+public class MemberDashboard {
+
+    public record Goal(int goalSeq,
+                       String goalType,
+                       double targetValue,
+                       LocalDate startDate,
+                       LocalDate targetDate,
+                       GoalStatus status,
+                       Double baselineValue,
+                       Double currentValue,
+                       Double progressPct) {
+    }
+
+    public record Metric(long metricId,
+                         LocalDate recordedDate,
+                         Double weight,
+                         Double height,
+                         Integer heartRate,
+                         Double bodyFatPct) {
+    }
+
+    public record Session(long sessionId,
+                          String trainerName,
+                          Long roomId,
+                          LocalDateTime startTime,
+                          LocalDateTime endTime,
+                          PTSessionStatus status) {
+    }
+
+    private final long memberId;
+    private final LocalDateTime generatedAt;
+    private final List<Goal> activeGoals;
+    private final List<Metric> latestMetrics;
+    private final List<Session> upcomingSessions;
+
+    public MemberDashboard(long memberId,
+                           LocalDateTime generatedAt,
+                           List<Goal> activeGoals,
+                           List<Metric> latestMetrics,
+                           List<Session> upcomingSessions) {
+        this.memberId = memberId;
+        this.generatedAt = generatedAt;
+        this.activeGoals = List.copyOf(activeGoals);
+        this.latestMetrics = List.copyOf(latestMetrics);
+        this.upcomingSessions = List.copyOf(upcomingSessions);
+    }
+
+    public long getMemberId() {
+        return memberId;
+    }
+
+    public LocalDateTime getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public List<Goal> getActiveGoals() {
+        return activeGoals;
+    }
+
+    /** Most recent first. */
+    public List<Metric> getLatestMetrics() {
+        return latestMetrics;
+    }
+
+    /** Soonest first. */
+    public List<Session> getUpcomingSessions() {
+        return upcomingSessions;
+    }
+}
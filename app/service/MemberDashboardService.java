@@ -0,0 +1,176 @@
+package app.service;
+
+import models.GoalStatus;
+import models.PTSessionStatus;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Member dashboard: active goals with progress, latest metrics and upcoming
+ * sessions, read in ONE SQL round trip.
+ *
+ * The three parts are UNION ALL branches of one native statement sharing a
+ * column layout (kind tells them apart). Goal baseline, current value and
+ * progress are read as stored on fitness_goal, where GoalTracker keeps them
+ * current on every health_metric insert; nothing is recomputed from history.
+ *
+ * Dashboards are cached per (club, member) for CACHE_TTL_MS and dropped as
+ * soon as that member's data changes (MemberWrites.committed). A load that
+ * started before an invalidation is not cached, so a write is never hidden
+ * by a slow concurrent read.
+ */
+public class MemberDashboardService {
+
+    public static final int DEFAULT_METRIC_LIMIT = 5;
+    public static final int DEFAULT_SESSION_LIMIT = 5;
+
+    /** -Dhfc.dashboard.cacheTtlMs, default 30000; 0 disables the cache. */
+    private static final long CACHE_TTL_MS = Long.getLong("hfc.dashboard.cacheTtlMs", 30_000L);
+    private static final int CACHE_MAX_ENTRIES = 10_000;
+
+    private static final TransactionTemplate READ =
+            TransactionTemplate.replicaRead().withTimeout(Duration.ofSeconds(5));
+
+    // native rows carry the smallint codes; decode them the way the entities do
+    private static final GoalStatus.JpaConverter GOAL_STATUS = new GoalStatus.JpaConverter();
+    private static final PTSessionStatus.JpaConverter SESSION_STATUS = new PTSessionStatus.JpaConverter();
+
+    // one column layout for all three branches:
+    // kind, id, seq, label, n1..n4, i1, d1, d2, ts1, ts2, status, ref_id
+    private static final String SQL =
+            "select 'G' as kind, null::bigint as id, g.goal_seq as seq, g.goal_type as label, " +
+                    "       g.target_value as n1, g.baseline_value as n2, g.latest_value as n3, g.progress as n4, " +
+                    "       null::int as i1, g.start_date as d1, g.target_date as d2, " +
+                    "       null::timestamp as ts1, null::timestamp as ts2, g.status as status, null::bigint as ref_id " +
+                    "from fitness_goal g " +
+                    "where g.member_id = :mid and g.status = :activeGoal " +
+                    "union all " +
+                    "select 'M', h.metric_id, null, null, " +
+                    "       h.weight, h.height, h.body_fat_pct, null, " +
+                    "       h.heart_rate, h.recorded_date, null, " +
+                    "       null, null, null, null " +
+                    "from (select * from health_metric " +
+                    "      where member_id = :mid " +
+                    "      order by recorded_date desc, metric_id desc limit :metricLimit) h " +
+                    "union all " +
+                    "select 'S', s.session_id, null, t.full_name, " +
+                    "       null, null, null, null, " +
+                    "       null, null, null, " +
+                    "       s.start_time, s.end_time, s.status, s.room_id " +
+                    "from (select * from pt_session " +
+                    "      where member_id = :mid and start_time >= :now and status <> :cancelled " +
+                    "      order by start_time limit :sessionLimit) s " +
+                    "join trainer t on t.trainer_id = s.trainer_id";
+
+    private record CacheKey(int clubId, long memberId) {
+    }
+
+    // dashboard == null marks an invalidation (tombstone) at loadedAtNanos
+    private record CacheEntry(MemberDashboard dashboard, long loadedAtNanos) {
+    }
+
+    private static final ConcurrentHashMap<CacheKey, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    /** Dashboard with the default number of metrics and sessions (cached). */
+    public MemberDashboard getDashboard(long memberId) {
+        CacheKey key = new CacheKey(ShardContext.current(), memberId);
+        long now = System.nanoTime();
+        CacheEntry cached = cache.get(key);
+        if (cached != null && cached.dashboard() != null
+                && now - cached.loadedAtNanos() < Duration.ofMillis(CACHE_TTL_MS).toNanos()) {
+            return cached.dashboard();
+        }
+
+        MemberDashboard dashboard = loadDashboard(memberId, DEFAULT_METRIC_LIMIT, DEFAULT_SESSION_LIMIT);
+        if (CACHE_TTL_MS > 0) {
+            if (cache.size() >= CACHE_MAX_ENTRIES) {
+                evictExpired();
+            }
+            // keep a newer entry or an invalidation that happened while we were loading
+            cache.compute(key, (k, old) ->
+                    (old != null && old.loadedAtNanos() > now ? old : new CacheEntry(dashboard, now)));
+        }
+        return dashboard;
+    }
+
+    /** Uncached dashboard with explicit limits. */
+    public MemberDashboard loadDashboard(long memberId, int metricLimit, int sessionLimit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = READ.executeForMember(memberId, session -> {
+            NativeQuery<Object[]> q = session.createNativeQuery(SQL, Object[].class);
+            q.addScalar("kind", StandardBasicTypes.STRING)
+                    .addScalar("id", StandardBasicTypes.LONG)
+                    .addScalar("seq", StandardBasicTypes.INTEGER)
+                    .addScalar("label", StandardBasicTypes.STRING)
+                    .addScalar("n1", StandardBasicTypes.DOUBLE)
+                    .addScalar("n2", StandardBasicTypes.DOUBLE)
+                    .addScalar("n3", StandardBasicTypes.DOUBLE)
+                    .addScalar("n4", StandardBasicTypes.DOUBLE)
+                    .addScalar("i1", StandardBasicTypes.INTEGER)
+                    .addScalar("d1", StandardBasicTypes.LOCAL_DATE)
+                    .addScalar("d2", StandardBasicTypes.LOCAL_DATE)
+                    .addScalar("ts1", StandardBasicTypes.LOCAL_DATE_TIME)
+                    .addScalar("ts2", StandardBasicTypes.LOCAL_DATE_TIME)
+                    .addScalar("status", StandardBasicTypes.SHORT)
+                    .addScalar("ref_id", StandardBasicTypes.LONG);
+            return q.setParameter("mid", memberId)
+                    .setParameter("activeGoal", GoalStatus.ACTIVE.getCode())
+                    .setParameter("cancelled", PTSessionStatus.CANCELLED.getCode())
+                    .setParameter("now", now)
+                    .setParameter("metricLimit", metricLimit)
+                    .setParameter("sessionLimit", sessionLimit)
+                    .getResultList();
+        });
+
+        List<MemberDashboard.Goal> goals = new ArrayList<>();
+        List<MemberDashboard.Metric> metrics = new ArrayList<>();
+        List<MemberDashboard.Session> sessions = new ArrayList<>();
+        for (Object[] r : rows) {
+            switch ((String) r[0]) {
+                case "G" -> goals.add(new MemberDashboard.Goal(
+                        (Integer) r[2], (String) r[3], (Double) r[4],
+                        (LocalDate) r[9], (LocalDate) r[10],
+                        GOAL_STATUS.convertToEntityAttribute((Short) r[13]),
+                        (Double) r[5], (Double) r[6], (Double) r[7]));
+                case "M" -> metrics.add(new MemberDashboard.Metric(
+                        (Long) r[1], (LocalDate) r[9],
+                        (Double) r[4], (Double) r[5], (Integer) r[8], (Double) r[6]));
+                case "S" -> sessions.add(new MemberDashboard.Session(
+                        (Long) r[1], (String) r[3], (Long) r[14],
+                        (LocalDateTime) r[11], (LocalDateTime) r[12],
+                        SESSION_STATUS.convertToEntityAttribute((Short) r[13])));
+                default -> throw new IllegalStateException("Unexpected dashboard row kind: " + r[0]);
+            }
+        }
+        // UNION ALL does not keep the branches' ORDER BY
+        goals.sort(Comparator.comparingInt(MemberDashboard.Goal::goalSeq));
+        metrics.sort(Comparator.comparing(MemberDashboard.Metric::recordedDate)
+                .thenComparingLong(MemberDashboard.Metric::metricId).reversed());
+        sessions.sort(Comparator.comparing(MemberDashboard.Session::startTime));
+
+        return new MemberDashboard(memberId, now, goals, metrics, sessions);
+    }
+
+    /** Drops the cached dashboard of a member of the current club. */
+    static void invalidate(long memberId) {
+        if (CACHE_TTL_MS > 0) {
+            cache.put(new CacheKey(ShardContext.current(), memberId), new CacheEntry(null, System.nanoTime()));
+        }
+    }
+
+    private static void evictExpired() {
+        long cutoff = System.nanoTime() - Duration.ofMillis(CACHE_TTL_MS).toNanos();
+        cache.values().removeIf(e -> e.loadedAtNanos() < cutoff);
+        if (cache.size() >= CACHE_MAX_ENTRIES) {
+            cache.clear();
+        }
+    }
+}
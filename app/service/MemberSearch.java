@@ -0,0 +1,438 @@
+package app.service;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import models.Member;
+import org.hibernate.Session;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory prefix index of member names and emails per club, answering
+ * the admin autocomplete (AdminService.suggestMembers) without a query.
+ *
+ * Keys are the lower-cased full name, each later word of it (so "smi"
+ * finds "Anna Smith") and the email. A trie of node objects for a million
+ * members would take several hundred MB, so the index keeps the same
+ * thing flattened: every key, sorted by bytes, in one UTF-8 byte array
+ * with an offset array. The keys under a prefix are then one contiguous
+ * range, found by a binary search and read in order, like the leaves
+ * below a trie node. Each key points to a member slot holding the id,
+ * name and email. That comes to about 100 bytes per member.
+ *
+ * The sorted keys come from the database (ORDER BY ... COLLATE "C", which
+ * is UTF-8 byte order) as a stream, in the same snapshot as the members,
+ * so a build never holds the keys as Java strings. Members registered or
+ * renamed afterwards go into a small concurrent delta once their
+ * transaction commits (changed()), and their older keys in the packed
+ * index are skipped. Once the delta holds REBUILD_AT entries, the index
+ * is rebuilt in the background.
+ *
+ * Until a club's index has been built (loadAll() at startup, or the first
+ * suggest()), suggest() returns null and the caller asks the database.
+ *
+ * Settings (system properties):
+ *   hfc.search.rebuildAt    delta size that triggers a rebuild, default 50000
+ */
+public final class MemberSearch {
+
+    private static final int REBUILD_AT = Integer.getInteger("hfc.search.rebuildAt", 50_000);
+
+    private static final TransactionTemplate SCAN = TransactionTemplate.readOnly()
+            .withIsolation(TransactionTemplate.Isolation.REPEATABLE_READ)
+            .withTimeout(Duration.ofMinutes(10));
+
+    private static final String MEMBERS_SQL =
+            "select member_id, full_name, email from member order by member_id";
+    private static final String KEYS_SQL =
+            "select k, member_id from (" +
+                    "select lower(trim(full_name)) as k, member_id from member " +
+                    "union all select lower(email), member_id from member " +
+                    "union all select w, member_id from member, " +
+                    "unnest((regexp_split_to_array(lower(trim(full_name)), '\\s+'))[2:]) as w" +
+                    ") t where k <> '' order by k collate \"C\", member_id";
+
+    // both guarded by indexes
+    private static final Map<Integer, ClubIndex> indexes = new HashMap<>();
+    private static final Set<Integer> building = new HashSet<>();
+    private static ExecutorService builder;
+
+    private MemberSearch() {
+    }
+
+    /** One autocomplete hit; key is the lower-cased name, word or email that matched. */
+    record Hit(String key, long memberId, String fullName, String email) {
+    }
+
+    private record DeltaEntry(long memberId, String fullName, String email, long seq) {
+    }
+
+    private record DeltaKeys(List<String> keys, long seq) {
+    }
+
+    private static final class ClubIndex {
+        volatile Packed packed;  // null until the first build is done
+        // "key\0memberId" -> entry; a member's entries all carry the seq of its latest change
+        final ConcurrentSkipListMap<String, DeltaEntry> delta = new ConcurrentSkipListMap<>();
+        final Map<Long, DeltaKeys> deltaKeys = new ConcurrentHashMap<>();
+        // members whose packed keys are out of date -> seq of the change
+        final Map<Long, Long> stale = new ConcurrentHashMap<>();
+        final AtomicLong seq = new AtomicLong();
+    }
+
+    /** Keys and member slots of one build, immutable. */
+    private static final class Packed {
+        final byte[] keys;
+        final int[] keyStart;    // key i is keys[keyStart[i] .. keyStart[i + 1])
+        final int[] keySlot;
+        final long[] memberIds;  // slot -> member id, ascending
+        final byte[] text;
+        final int[] textStart;   // slot s is "full name\nemail" in text[textStart[s] .. textStart[s + 1])
+
+        Packed(Bytes keys, Ints keyStart, Ints keySlot, Longs memberIds, Bytes text, Ints textStart) {
+            this.keys = keys.toArray();
+            this.keyStart = keyStart.toArray();
+            this.keySlot = keySlot.toArray();
+            this.memberIds = memberIds.toArray();
+            this.text = text.toArray();
+            this.textStart = textStart.toArray();
+        }
+
+        int size() {
+            return keySlot.length;
+        }
+
+        // first key >= prefix
+        int lowerBound(byte[] prefix) {
+            int lo = 0;
+            int hi = size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (Arrays.compareUnsigned(keys, keyStart[mid], keyStart[mid + 1], prefix, 0, prefix.length) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        boolean startsWith(int key, byte[] prefix) {
+            int from = keyStart[key];
+            return keyStart[key + 1] - from >= prefix.length
+                    && Arrays.equals(keys, from, from + prefix.length, prefix, 0, prefix.length);
+        }
+
+        Hit hit(int key) {
+            int slot = keySlot[key];
+            String nameAndEmail = new String(text, textStart[slot], textStart[slot + 1] - textStart[slot],
+                    StandardCharsets.UTF_8);
+            int nl = nameAndEmail.indexOf('\n');
+            String k = new String(keys, keyStart[key], keyStart[key + 1] - keyStart[key], StandardCharsets.UTF_8);
+            return new Hit(k, memberIds[slot], nameAndEmail.substring(0, nl), nameAndEmail.substring(nl + 1));
+        }
+    }
+
+    /** Starts building the index of every configured club in the background. */
+    public static void loadAll() {
+        for (int clubId : HibernateUtil.getClubIds()) {
+            ShardContext.run(clubId, MemberSearch::buildLater);
+        }
+    }
+
+    /**
+     * Members of the current club whose name, a word of their name, or email
+     * starts with prefix (any case), at most limit, ordered by the matching
+     * key; null when the club's index is not built yet.
+     */
+    static List<Hit> suggest(String prefix, int limit) {
+        ClubIndex index = peek();
+        if (index == null) {
+            buildLater();
+            return null;
+        }
+        Packed packed = index.packed;
+        if (packed == null) {
+            buildLater();   // still building, or the first build failed
+            return null;
+        }
+        String lowered = prefix.trim().toLowerCase(Locale.ROOT);
+        List<Hit> hits = new ArrayList<>();
+        if (lowered.isEmpty() || limit <= 0) {
+            return hits;
+        }
+
+        Set<Long> seen = new HashSet<>();
+        byte[] p = lowered.getBytes(StandardCharsets.UTF_8);
+        for (int i = packed.lowerBound(p); i < packed.size() && hits.size() < limit && packed.startsWith(i, p); i++) {
+            long memberId = packed.memberIds[packed.keySlot[i]];
+            if (!index.stale.containsKey(memberId) && seen.add(memberId)) {
+                hits.add(packed.hit(i));
+            }
+        }
+
+        // members changed since the build; merged by key with the packed hits
+        List<Hit> fresh = new ArrayList<>();
+        for (Map.Entry<String, DeltaEntry> e : index.delta.tailMap(lowered).entrySet()) {
+            if (!e.getKey().startsWith(lowered) || fresh.size() >= limit) {
+                break;
+            }
+            DeltaEntry d = e.getValue();
+            fresh.add(new Hit(e.getKey().substring(0, e.getKey().lastIndexOf('\0')), d.memberId(),
+                    d.fullName(), d.email()));
+        }
+        if (!fresh.isEmpty()) {
+            hits.addAll(fresh);
+            hits.sort(Comparator.comparing(Hit::key));
+            Set<Long> unique = new HashSet<>();
+            hits.removeIf(h -> !unique.add(h.memberId()));
+            if (hits.size() > limit) {
+                hits.subList(limit, hits.size()).clear();
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Puts member's current name and email into the index once the
+     * session's transaction commits; call after registering or renaming a
+     * member, or changing their email.
+     */
+    static void changed(Session session, Member member) {
+        int clubId = ShardContext.current();
+        long memberId = member.getMemberId();
+        String fullName = member.getFullName();
+        String email = member.getEmail();
+        session.getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    ShardContext.run(clubId, () -> record(memberId, fullName, email));
+                }
+            }
+        });
+    }
+
+    /** Drops the current club's index (its tables were emptied, e.g. by DatabaseResetService). */
+    static void forgetClub() {
+        synchronized (indexes) {
+            indexes.remove(ShardContext.current());
+        }
+    }
+
+    // ---------- helper methods ----------
+
+    private static ClubIndex peek() {
+        synchronized (indexes) {
+            return indexes.get(ShardContext.current());
+        }
+    }
+
+    private static void record(long memberId, String fullName, String email) {
+        ClubIndex index = peek();
+        if (index == null) {
+            return;   // no build started yet: the first one reads the committed row
+        }
+        boolean full;
+        synchronized (index) {
+            long seq = index.seq.incrementAndGet();
+            DeltaKeys old = index.deltaKeys.remove(memberId);
+            if (old != null) {
+                old.keys().forEach(index.delta::remove);
+            }
+            index.stale.put(memberId, seq);
+            DeltaEntry entry = new DeltaEntry(memberId, fullName, email, seq);
+            List<String> keys = new ArrayList<>();
+            for (String key : keysOf(fullName, email)) {
+                String deltaKey = key + '\0' + memberId;
+                index.delta.put(deltaKey, entry);
+                keys.add(deltaKey);
+            }
+            index.deltaKeys.put(memberId, new DeltaKeys(keys, seq));
+            full = index.delta.size() >= REBUILD_AT;
+        }
+        if (full) {
+            buildLater();
+        }
+    }
+
+    // the same keys KEYS_SQL reads
+    private static List<String> keysOf(String fullName, String email) {
+        List<String> keys = new ArrayList<>();
+        String name = fullName.trim().toLowerCase(Locale.ROOT);
+        if (!name.isEmpty()) {
+            keys.add(name);
+            String[] words = name.split("\\s+");
+            keys.addAll(Arrays.asList(words).subList(1, words.length));
+        }
+        if (!email.isEmpty()) {
+            keys.add(email.toLowerCase(Locale.ROOT));
+        }
+        return keys;
+    }
+
+    private static void buildLater() {
+        int clubId = ShardContext.current();
+        synchronized (indexes) {
+            if (!building.add(clubId)) {
+                return;
+            }
+            if (builder == null) {
+                builder = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "member-search-indexer");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+        }
+        builder.execute(() -> {
+            try {
+                ShardContext.run(clubId, MemberSearch::build);
+            } catch (RuntimeException e) {
+                System.out.println("Member search index of club " + clubId + " not built: " + e.getMessage());
+            } finally {
+                synchronized (indexes) {
+                    building.remove(clubId);
+                }
+            }
+        });
+    }
+
+    private static void build() {
+        ClubIndex index;
+        synchronized (indexes) {
+            // registered before the scan, so changes committed meanwhile are kept in its delta
+            index = indexes.computeIfAbsent(ShardContext.current(), id -> new ClubIndex());
+        }
+        // changes up to here are committed, so the scan below sees them
+        long built = index.seq.get();
+        long started = System.nanoTime();
+        Packed packed = SCAN.execute(MemberSearch::load);
+
+        synchronized (index) {
+            index.packed = packed;
+            index.delta.values().removeIf(d -> d.seq() <= built);
+            index.deltaKeys.values().removeIf(d -> d.seq() <= built);
+            index.stale.values().removeIf(seq -> seq <= built);
+        }
+        System.out.printf("Member search index of club %d: %d keys, %d members (%d ms)%n",
+                ShardContext.current(), packed.size(), packed.memberIds.length,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static Packed load(Session session) {
+        Longs memberIds = new Longs();
+        Bytes text = new Bytes();
+        Ints textStart = new Ints();
+        Bytes keys = new Bytes();
+        Ints keyStart = new Ints();
+        Ints keySlot = new Ints();
+
+        session.doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(MEMBERS_SQL)) {
+                ps.setFetchSize(10_000);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        memberIds.add(rs.getLong(1));
+                        textStart.add(text.size());
+                        text.add((rs.getString(2) + '\n' + rs.getString(3)).getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+            }
+            textStart.add(text.size());
+
+            long[] ids = memberIds.toArray();
+            try (PreparedStatement ps = connection.prepareStatement(KEYS_SQL)) {
+                ps.setFetchSize(10_000);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int slot = Arrays.binarySearch(ids, rs.getLong(2));
+                        if (slot >= 0) {
+                            keyStart.add(keys.size());
+                            keys.add(rs.getString(1).getBytes(StandardCharsets.UTF_8));
+                            keySlot.add(slot);
+                        }
+                    }
+                }
+            }
+            keyStart.add(keys.size());
+        });
+        return new Packed(keys, keyStart, keySlot, memberIds, text, textStart);
+    }
+
+    // growable primitive arrays for the build
+
+    private static final class Bytes {
+        private byte[] a = new byte[1 << 16];
+        private int n;
+
+        void add(byte[] b) {
+            if (n + b.length > a.length) {
+                a = Arrays.copyOf(a, Math.max(n + b.length, a.length * 2));
+            }
+            System.arraycopy(b, 0, a, n, b.length);
+            n += b.length;
+        }
+
+        int size() {
+            return n;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(a, n);
+        }
+    }
+
+    private static final class Ints {
+        private int[] a = new int[1 << 12];
+        private int n;
+
+        void add(int v) {
+            if (n == a.length) {
+                a = Arrays.copyOf(a, a.length * 2);
+            }
+            a[n++] = v;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(a, n);
+        }
+    }
+
+    private static final class Longs {
+        private long[] a = new long[1 << 12];
+        private int n;
+
+        void add(long v) {
+            if (n == a.length) {
+                a = Arrays.copyOf(a, a.length * 2);
+            }
+            a[n++] = v;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(a, n);
+        }
+    }
+}
@@ -1,21 +1,37 @@
 package app.service;
 
+import models.Account;
+import models.AccountRole;
+import models.AccountStatus;
 import models.FitnessGoal;
 import models.FitnessGoalId;
+import models.GoalStatus;
 import models.HealthMetric;
+import models.HeartRateAlert;
 import models.Member;
-import org.hibernate.Session;
-import org.hibernate.Transaction;
+import models.MetricRollup;
+import models.MonthlyMetricRollup;
 import models.PTSession;
+import models.WeeklyMetricRollup;
+import org.hibernate.query.Query;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public class MemberService {
 
+    private static final TransactionTemplate TX =
+            TransactionTemplate.readWrite().withTimeout(Duration.ofSeconds(10));
+    private static final TransactionTemplate READ =
+            TransactionTemplate.replicaRead().withTimeout(Duration.ofSeconds(5));
+
     /**
      * M1 - User Registration
-     * Creates a new member with a unique email.
-     * joinDate is set to today, status is set to "ACTIVE".
+     * Creates a new member with a unique email, and its login Account
+     * (the password is stored as a PBKDF2 hash, see PasswordHasher).
+     * joinDate is set to today, status is set to ACTIVE.
+     * The member joins the current club (ShardContext) and is stored in its database.
      */
     public Member registerMember(String fullName,
                                  String email,
@@ -23,42 +39,50 @@ public class MemberService {
                                  LocalDate dateOfBirth,
                                  String gender) {
 
-        String passwordHash = plainPassword; // can later be replaced by real hashing
-
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-
-            // enforce unique email at the application level (in addition to DB constraint)
-            List<Member> existing = session.createQuery(
-                            "from Member m where m.email = :email", Member.class)
-                    .setParameter("email", email)
-                    .getResultList();
+        // hashed before the transaction: no connection is held while it runs
+        String passwordHash = AccountService.hashPassword(plainPassword);
+        // certainly-new emails (most of them during a sign-up drive) skip the lookup
+        boolean mayBeTaken = EmailFilter.mightExist(email);
+
+        try {
+            return TX.execute(session -> {
+                // email is the login: unique across members, trainers and admins, in any case
+                // (application check; the unique index on lower(email) backs it up)
+                if (mayBeTaken && AccountService.findByEmail(session, email) != null) {
+                    session.getTransaction().setRollbackOnly();
+                    System.out.println("Registration failed: email already in use.");
+                    return null;
+                }
 
-            if (!existing.isEmpty()) {
-                tx.rollback();
-                System.out.println("Registration failed: email already in use.");
-                return null;
+                Member member = new Member();
+                member.setFullName(fullName);
+                member.setEmail(email);
+                member.setDateOfBirth(dateOfBirth);
+                member.setGender(gender);
+                member.setJoinDate(LocalDate.now());
+                member.setStatus(AccountStatus.ACTIVE);
+                member.setClubId(ShardContext.current());
+
+                session.persist(member);
+                session.persist(new Account(email, AccountRole.MEMBER, member.getMemberId(), passwordHash));
+                EmailFilter.add(email);
+                MemberSearch.changed(session, member);
+
+                return member;
+            });
+        } catch (RuntimeException e) {
+            if (!EmailFilter.isDuplicateEmail(e)) {
+                throw e;
             }
-
-            Member member = new Member();
-            member.setFullName(fullName);
-            member.setEmail(email);
-            member.setPasswordHash(passwordHash);
-            member.setDateOfBirth(dateOfBirth);
-            member.setGender(gender);
-            member.setJoinDate(LocalDate.now());
-            member.setStatus("ACTIVE");
-
-            session.persist(member);
-            tx.commit();
-
-            return member;
+            System.out.println("Registration failed: email already in use.");
+            return null;
         }
     }
 
     /**
      * M2 - Profile Management (update personal details).
-     * Only non-null parameters are updated.
+     * Only non-null parameters are updated; email and password also change
+     * the member's Account.
      */
     public Member updateProfile(long memberId,
                                 String newFullName,
@@ -67,81 +91,103 @@ public class MemberService {
                                 LocalDate newDateOfBirth,
                                 String newPasswordPlain) {
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
+        String newPasswordHash = (newPasswordPlain != null ? AccountService.hashPassword(newPasswordPlain) : null);
+        boolean emailMayBeTaken = (newEmail != null && EmailFilter.mightExist(newEmail));
 
-            Member member = session.get(Member.class, memberId);
-            if (member == null) {
-                tx.rollback();
-                System.out.println("Member not found: " + memberId);
-                return null;
-            }
+        Member updated;
+        try {
+            updated = TX.executeForMember(memberId, session -> {
+                Member member = session.get(Member.class, memberId);
+                if (member == null) {
+                    session.getTransaction().setRollbackOnly();
+                    System.out.println("Member not found: " + memberId);
+                    return null;
+                }
 
-            if (newEmail != null && !newEmail.equals(member.getEmail())) {
-                // check email uniqueness
-                Long count = session.createQuery(
-                                "select count(m) from Member m " +
-                                        "where m.email = :email and m.memberId <> :id",
-                                Long.class)
-                        .setParameter("email", newEmail)
-                        .setParameter("id", memberId)
-                        .uniqueResult();
-                if (count != null && count > 0) {
-                    tx.rollback();
-                    System.out.println("Update failed: email already in use.");
+                Account account = AccountService.findByPerson(session, AccountRole.MEMBER, memberId);
+                if (account == null) {
+                    session.getTransaction().setRollbackOnly();
+                    System.out.println("No account for member: " + memberId);
                     return null;
                 }
-                member.setEmail(newEmail);
-            }
 
-            if (newFullName != null) {
-                member.setFullName(newFullName);
-            }
-            if (newGender != null) {
-                member.setGender(newGender);
-            }
-            if (newDateOfBirth != null) {
-                member.setDateOfBirth(newDateOfBirth);
-            }
-            if (newPasswordPlain != null) {
-                member.setPasswordHash(newPasswordPlain);
+                if (newEmail != null && !newEmail.equals(member.getEmail())) {
+                    // check email uniqueness (any role, any case; the member's own account aside)
+                    Account owner = (emailMayBeTaken ? AccountService.findByEmail(session, newEmail) : null);
+                    if (owner != null && !owner.getAccountId().equals(account.getAccountId())) {
+                        session.getTransaction().setRollbackOnly();
+                        System.out.println("Update failed: email already in use.");
+                        return null;
+                    }
+                    member.setEmail(newEmail);
+                    account.setEmail(newEmail);
+                    EmailFilter.add(newEmail);
+                    account.setUpdatedAt(LocalDateTime.now());
+                }
+
+                if (newFullName != null) {
+                    member.setFullName(newFullName);
+                }
+                if (newGender != null) {
+                    member.setGender(newGender);
+                }
+                if (newDateOfBirth != null) {
+                    member.setDateOfBirth(newDateOfBirth);
+                }
+                if (newPasswordHash != null) {
+                    account.setPasswordHash(newPasswordHash);
+                    account.setUpdatedAt(LocalDateTime.now());
+                }
+
+                session.merge(member);
+                if (newFullName != null || newEmail != null) {
+                    MemberSearch.changed(session, member);
+                }
+                return member;
+            });
+        } catch (RuntimeException e) {
+            if (!EmailFilter.isDuplicateEmail(e)) {
+                throw e;
             }
+            System.out.println("Update failed: email already in use.");
+            return null;
+        }
 
-            session.merge(member);
-            tx.commit();
-            return member;
+        if (updated != null && newPasswordHash != null) {
+            // API tokens issued under the old password stop working
+            SessionTokens.revoke(AccountRole.MEMBER, memberId);
         }
+        return updated;
     }
 
     /**
      * M2 - Profile Management (add a new fitness goal).
      * FitnessGoal is a weak entity identified by (member_id, goal_seq).
-     * This method chooses the next goal_seq for this member.
+     * The next goal_seq comes from the member's next_goal_seq counter, bumped
+     * with UPDATE ... RETURNING: one statement, and the row lock it takes
+     * makes concurrent adds for the same member wait for each other instead
+     * of picking the same seq.
      */
     public FitnessGoal addFitnessGoal(long memberId,
                                       String goalType,
                                       double targetValue,
                                       LocalDate startDate,
                                       LocalDate targetDate,
-                                      String status) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-
-            Member member = session.get(Member.class, memberId);
-            if (member == null) {
-                tx.rollback();
-                System.out.println("Member not found: " + memberId);
-                return null;
-            }
-
-            // compute next goal_seq
-            Integer maxSeq = session.createQuery(
-                            "select max(g.id.goalSeq) from FitnessGoal g " +
-                                    "where g.id.memberId = :mid",
+                                      GoalStatus status) {
+        return TX.executeForMember(memberId, session -> {
+            Integer nextSeq = session.createNativeQuery(
+                            "update member set next_goal_seq = next_goal_seq + 1 " +
+                                    "where member_id = :mid " +
+                                    "returning next_goal_seq",
                             Integer.class)
                     .setParameter("mid", memberId)
                     .uniqueResult();
-            int nextSeq = (maxSeq == null ? 1 : maxSeq + 1);
+            if (nextSeq == null) {
+                session.getTransaction().setRollbackOnly();
+                System.out.println("Member not found: " + memberId);
+                return null;
+            }
+            Member member = session.getReference(Member.class, memberId);
 
             FitnessGoalId id = new FitnessGoalId(memberId, nextSeq);
             FitnessGoal goal = new FitnessGoal();
@@ -150,13 +196,14 @@ public class MemberService {
             goal.setTargetValue(targetValue);
             goal.setStartDate(startDate);
             goal.setTargetDate(targetDate);
-            goal.setStatus(status != null ? status : "ACTIVE");
+            goal.setStatus(status != null ? status : GoalStatus.ACTIVE);
             goal.setMember(member);
+            // later readings only update it incrementally (GoalTracker)
+            GoalTracker.initialize(session, goal);
 
             session.persist(goal);
-            tx.commit();
             return goal;
-        }
+        });
     }
 
     /**
@@ -164,16 +211,14 @@ public class MemberService {
      */
     public FitnessGoal updateFitnessGoal(long memberId,
                                          int goalSeq,
-                                         String newStatus,
+                                         GoalStatus newStatus,
                                          Double newTargetValue) {
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-
+        return TX.executeForMember(memberId, session -> {
             FitnessGoalId id = new FitnessGoalId(memberId, goalSeq);
             FitnessGoal goal = session.get(FitnessGoal.class, id);
             if (goal == null) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Goal not found for member " + memberId + " seq " + goalSeq);
                 return null;
             }
@@ -183,12 +228,14 @@ public class MemberService {
             }
             if (newTargetValue != null) {
                 goal.setTargetValue(newTargetValue);
+                goal.setProgress(GoalProgress.percent(
+                        goal.getBaselineValue(), goal.getLatestValue(), newTargetValue));
+                goal.setLastEvaluated(LocalDateTime.now());
             }
 
             session.merge(goal);
-            tx.commit();
             return goal;
-        }
+        });
     }
 
     /**
@@ -202,97 +249,214 @@ public class MemberService {
                                         Double bodyFatPct,
                                         LocalDate recordedDate) {
 
-        if (recordedDate == null) {
-            recordedDate = LocalDate.now();
+        LocalDate date = (recordedDate != null ? recordedDate : LocalDate.now());
+        if (!HealthMetricPartitions.isLoggable(date)) {
+            System.out.println("Recorded date must be between " + HealthMetricPartitions.earliestLoggable()
+                    + " and " + HealthMetricPartitions.latestLoggable() + ": " + date);
+            return null;
         }
+        // health_metric is partitioned by month; back-dated readings may need theirs created
+        HealthMetricPartitions.ensureMonth(date);
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-
+        return TX.executeForMember(memberId, session -> {
             Member member = session.get(Member.class, memberId);
             if (member == null) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Member not found: " + memberId);
                 return null;
             }
 
             HealthMetric metric = new HealthMetric();
             metric.setMember(member);
-            metric.setRecordedDate(recordedDate);
+            metric.setRecordedDate(date);
             metric.setWeight(weight);
             metric.setHeight(height);
             metric.setHeartRate(heartRate);
             metric.setBodyFatPct(bodyFatPct);
 
             session.persist(metric);
-            tx.commit();
+
+            MetricRollups rollups = new MetricRollups();
+            rollups.add(memberId, date, weight, bodyFatPct, heartRate);
+            rollups.flush(session);
+            GoalTracker goals = new GoalTracker();
+            goals.add(memberId, date, weight, heartRate, bodyFatPct);
+            goals.flush(session);
+            MetricSketches sketches = new MetricSketches();
+            sketches.add(date, weight, bodyFatPct, heartRate);
+            sketches.flush(session);
+            HeartRateMonitor heartRates = new HeartRateMonitor();
+            heartRates.add(memberId, date, heartRate);
+            heartRates.flush(session);
             return metric;
-        }
+        });
     }
 
     /**
      * Helper: fetch recent health metrics for a member (for the dashboard or tests).
      */
     public List<HealthMetric> getMetricsForMember(long memberId) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            return session.createQuery(
+        return getMetricsForMember(memberId, null, null);
+    }
+
+    /**
+     * M3 – a member's health metrics recorded between from and to (inclusive,
+     * either may be null for open-ended), newest first. The date bounds let
+     * PostgreSQL skip the monthly health_metric partitions outside the range.
+     */
+    public List<HealthMetric> getMetricsForMember(long memberId, LocalDate from, LocalDate to) {
+        return READ.executeForMember(memberId, session -> {
+            Query<HealthMetric> q = session.createQuery(
                             "from HealthMetric m " +
                                     "where m.member.memberId = :mid " +
-                                    "order by m.recordedDate desc",
+                                    (from != null ? "and m.recordedDate >= :from " : "") +
+                                    (to != null ? "and m.recordedDate <= :to " : "") +
+                                    "order by m.recordedDate desc, m.metricId desc",
                             HealthMetric.class)
-                    .setParameter("mid", memberId)
-                    .getResultList();
-        }
+                    .setParameter("mid", memberId);
+            if (from != null) {
+                q.setParameter("from", from);
+            }
+            if (to != null) {
+                q.setParameter("to", to);
+            }
+            return q.getResultList();
+        });
+    }
+
+    /**
+     * M3 – a member's most recent heart rate alerts (HeartRateMonitor), newest first.
+     */
+    public List<HeartRateAlert> getHeartRateAlerts(long memberId, int limit) {
+        return READ.executeForMember(memberId, session -> session.createQuery(
+                        "from HeartRateAlert a where a.memberId = :mid order by a.alertId desc",
+                        HeartRateAlert.class)
+                .setParameter("mid", memberId)
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    /**
+     * M3 – weekly trend of a member's metrics over the last `weeks` weeks
+     * (current week included), newest first. Reads the rollups, not the raw rows.
+     */
+    public List<WeeklyMetricRollup> getWeeklyTrend(long memberId, int weeks) {
+        return getTrend(WeeklyMetricRollup.class, memberId,
+                MetricRollups.Period.WEEK.start(LocalDate.now()).minusWeeks(weeks - 1));
+    }
+
+    /**
+     * M3 – monthly trend of a member's metrics over the last `months` months
+     * (current month included), newest first. Reads the rollups, not the raw rows.
+     */
+    public List<MonthlyMetricRollup> getMonthlyTrend(long memberId, int months) {
+        return getTrend(MonthlyMetricRollup.class, memberId,
+                MetricRollups.Period.MONTH.start(LocalDate.now()).minusMonths(months - 1));
+    }
+
+    private <R extends MetricRollup> List<R> getTrend(Class<R> type, long memberId, LocalDate from) {
+        return READ.executeForMember(memberId, session -> session.createQuery(
+                        "from " + type.getSimpleName() + " r " +
+                                "where r.id.memberId = :mid and r.id.periodStart >= :from " +
+                                "order by r.id.periodStart desc",
+                        type)
+                .setParameter("mid", memberId)
+                .setParameter("from", from)
+                .getResultList());
     }
 
     /**
      * NEW (M2) – View all fitness goals for a member.
      */
     public List<FitnessGoal> getFitnessGoals(long memberId) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            return session.createQuery(
-                            "from FitnessGoal g " +
-                                    "where g.member.memberId = :mid " +
-                                    "order by g.id.goalSeq",
-                            FitnessGoal.class)
-                    .setParameter("mid", memberId)
-                    .getResultList();
-        }
+        return READ.executeForMember(memberId, session -> session.createQuery(
+                        "from FitnessGoal g " +
+                                "where g.member.memberId = :mid " +
+                                "order by g.id.goalSeq",
+                        FitnessGoal.class)
+                .setParameter("mid", memberId)
+                .getResultList());
 
     }
     /**
      * M2 – Delete a fitness goal for a member.
      */
     public boolean deleteFitnessGoal(long memberId, int goalSeq) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-
+        return TX.executeForMember(memberId, session -> {
             FitnessGoalId id = new FitnessGoalId(memberId, goalSeq);
             FitnessGoal goal = session.get(FitnessGoal.class, id);
             if (goal == null) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Goal not found for member " + memberId + " seq " + goalSeq);
                 return false;
             }
 
             session.remove(goal);
-            tx.commit();
             return true;
-        }
+        });
     }
     /**
      * M4 – Fetch all PT sessions for a member.
      */
     public List<PTSession> getSessionsForMember(long memberId) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            return session.createQuery(
-                            "from PTSession s " +
+        return READ.executeForMember(memberId, session -> session.createQuery(
+                        "from PTSession s " +
+                                "where s.member.memberId = :mid " +
+                                "order by s.startTime",
+                        PTSession.class)
+                .setParameter("mid", memberId)
+                .getResultList());
+    }
+
+    // ---------- keyset pages (M3, M4) ----------
+
+    /**
+     * M3 – one page of a member's health metrics, newest first.
+     * after = last metric of the previous page, null for the first page.
+     */
+    public Page<HealthMetric> getMetricsPage(long memberId, HealthMetric after, int pageSize) {
+        Page.checkSize(pageSize);
+        return READ.executeForMember(memberId, session -> {
+            Query<HealthMetric> q = session.createQuery(
+                            "from HealthMetric m " +
+                                    "where m.member.memberId = :mid " +
+                                    // the plain bound prunes newer partitions, the row comparison breaks ties
+                                    (after != null
+                                            ? "and m.recordedDate <= :afterDate and (m.recordedDate, m.metricId) < (:afterDate, :afterId) "
+                                            : "") +
+                                    "order by m.recordedDate desc, m.metricId desc",
+                            HealthMetric.class)
+                    .setParameter("mid", memberId)
+                    .setMaxResults(pageSize + 1);
+            if (after != null) {
+                q.setParameter("afterDate", after.getRecordedDate())
+                        .setParameter("afterId", after.getMetricId());
+            }
+            return Page.of(q.getResultList(), pageSize);
+        });
+    }
+
+    /**
+     * M4 – one page of a member's PT sessions, by start time.
+     * after = last session of the previous page, null for the first page.
+     */
+    public Page<PTSession> getSessionsPage(long memberId, PTSession after, int pageSize) {
+        Page.checkSize(pageSize);
+        return READ.executeForMember(memberId, session -> {
+            Query<PTSession> q = session.createQuery(
+                            PTSessionService.SESSION_SELECT +
                                     "where s.member.memberId = :mid " +
-                                    "order by s.startTime",
+                                    (after != null ? "and (s.startTime, s.sessionId) > (:afterStart, :afterId) " : "") +
+                                    "order by s.startTime, s.sessionId",
                             PTSession.class)
                     .setParameter("mid", memberId)
-                    .getResultList();
-        }
+                    .setMaxResults(pageSize + 1);
+            if (after != null) {
+                q.setParameter("afterStart", after.getStartTime())
+                        .setParameter("afterId", after.getSessionId());
+            }
+            return Page.of(q.getResultList(), pageSize);
+        });
     }
 
 }
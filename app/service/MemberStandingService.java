@@ -0,0 +1,138 @@
+package app.service;
+
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * "Where I stand": a member's latest readings and change over the current
+ * quarter, placed among the whole club's (e.g. "your weight change is at or
+ * below 15 % of members'", i.e. in the top 15 % for weight loss).
+ *
+ * Nothing is ranked with SQL: the club's distribution of each metric comes
+ * from the quarter's quantile sketches (MetricSketches, a few KB each), so a
+ * standing costs the member's own readings of the quarter (one query) and a
+ * rank lookup per metric. Percentages are approximate, within about 1 %.
+ *
+ * The sketches of a (club, quarter) are cached for CACHE_TTL_MS; they only
+ * move by the readings merged in since, which hardly changes a percentage.
+ */
+public class MemberStandingService {
+
+    /** -Dhfc.standing.cacheTtlMs, default 60000. */
+    private static final long CACHE_TTL_MS = Long.getLong("hfc.standing.cacheTtlMs", 60_000L);
+
+    private static final TransactionTemplate READ =
+            TransactionTemplate.replicaRead().withTimeout(Duration.ofSeconds(5));
+    private static final TransactionTemplate PRIMARY =
+            TransactionTemplate.readOnly().withTimeout(Duration.ofSeconds(5));
+
+    // the member's first / last / count per metric over the quarter
+    private static final String SQL =
+            "select " +
+                    "  (array_agg(weight order by recorded_date, metric_id) filter (where weight is not null))[1] as w_first, " +
+                    "  (array_agg(weight order by recorded_date desc, metric_id desc) filter (where weight is not null))[1] as w_last, " +
+                    "  count(weight) as w_n, " +
+                    "  (array_agg(body_fat_pct order by recorded_date, metric_id) filter (where body_fat_pct is not null))[1] as bf_first, " +
+                    "  (array_agg(body_fat_pct order by recorded_date desc, metric_id desc) filter (where body_fat_pct is not null))[1] as bf_last, " +
+                    "  count(body_fat_pct) as bf_n, " +
+                    "  (array_agg(heart_rate order by recorded_date desc, metric_id desc) filter (where heart_rate is not null))[1] as hr_last " +
+                    "from health_metric " +
+                    "where member_id = :mid and recorded_date >= :from and recorded_date < :to";
+
+    /**
+     * One metric: the member's value, how many values the club's sketch
+     * holds (readings, or members for a change) and the approximate share of
+     * them that are at or below the member's value.
+     */
+    public record Standing(String metric, double value, long population, double percentAtOrBelow) {
+    }
+
+    private record CacheKey(int clubId, LocalDate quarter) {
+    }
+
+    private record CacheEntry(Map<MetricSketches.Kind, KllSketch> sketches, long loadedAtNanos) {
+    }
+
+    private static final ConcurrentHashMap<CacheKey, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    /** The member's standings for the current quarter; metrics without data are left out. */
+    public List<Standing> getStanding(long memberId) {
+        LocalDate quarter = MetricSketches.quarterStart(LocalDate.now());
+        Object[] own = READ.executeForMember(memberId, session -> {
+            NativeQuery<Object[]> q = session.createNativeQuery(SQL, Object[].class);
+            q.addScalar("w_first", StandardBasicTypes.DOUBLE)
+                    .addScalar("w_last", StandardBasicTypes.DOUBLE)
+                    .addScalar("w_n", StandardBasicTypes.LONG)
+                    .addScalar("bf_first", StandardBasicTypes.DOUBLE)
+                    .addScalar("bf_last", StandardBasicTypes.DOUBLE)
+                    .addScalar("bf_n", StandardBasicTypes.LONG)
+                    .addScalar("hr_last", StandardBasicTypes.INTEGER);
+            return q.setParameter("mid", memberId)
+                    .setParameter("from", quarter)
+                    .setParameter("to", quarter.plusMonths(3))
+                    .getSingleResult();
+        });
+
+        Map<MetricSketches.Kind, KllSketch> sketches = sketches(quarter);
+        List<Standing> standings = new ArrayList<>();
+        add(standings, sketches, MetricSketches.Kind.WEIGHT, (Double) own[1]);
+        add(standings, sketches, MetricSketches.Kind.BODY_FAT, (Double) own[4]);
+        add(standings, sketches, MetricSketches.Kind.HEART_RATE,
+                own[6] != null ? ((Integer) own[6]).doubleValue() : null);
+        // a change needs two readings, like in the club's change sketches
+        if ((Long) own[2] > 1) {
+            add(standings, sketches, MetricSketches.Kind.WEIGHT_CHANGE, (Double) own[1] - (Double) own[0]);
+        }
+        if ((Long) own[5] > 1) {
+            add(standings, sketches, MetricSketches.Kind.BODY_FAT_CHANGE, (Double) own[4] - (Double) own[3]);
+        }
+        return standings;
+    }
+
+    private static void add(List<Standing> standings,
+                            Map<MetricSketches.Kind, KllSketch> sketches,
+                            MetricSketches.Kind kind,
+                            Double value) {
+        KllSketch sketch = sketches.get(kind);
+        if (value == null || sketch == null || sketch.isEmpty()) {
+            return;
+        }
+        double percent = Math.round(sketch.rank(value) * 1000) / 10.0;
+        standings.add(new Standing(kind.getLabel(), value, sketch.getN(), percent));
+    }
+
+    /** The current club's sketches of quarter, cached. */
+    private static Map<MetricSketches.Kind, KllSketch> sketches(LocalDate quarter) {
+        CacheKey key = new CacheKey(ShardContext.current(), quarter);
+        long now = System.nanoTime();
+        CacheEntry cached = cache.get(key);
+        if (cached != null && now - cached.loadedAtNanos() < Duration.ofMillis(CACHE_TTL_MS).toNanos()) {
+            return cached.sketches();
+        }
+
+        // change sketches are built in the background; the first standing of a quarter builds them
+        MetricSketches.start();
+        Map<MetricSketches.Kind, KllSketch> sketches = READ.execute(session -> MetricSketches.load(session, quarter));
+        boolean built = false;
+        for (MetricSketches.Kind kind : MetricSketches.Kind.values()) {
+            if (kind.isChange() && !sketches.containsKey(kind)) {
+                MetricSketches.refreshChanges(kind, false);
+                built = true;
+            }
+        }
+        if (built) {
+            // the replica may not have the new rows yet
+            sketches = PRIMARY.execute(session -> MetricSketches.load(session, quarter));
+        }
+        // one entry per club and quarter; cached sketches are only read (rank), safe to share
+        cache.put(key, new CacheEntry(sketches, now));
+        return sketches;
+    }
+}
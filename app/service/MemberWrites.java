@@ -0,0 +1,42 @@
+package app.service;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import org.hibernate.Session;
+
+/**
+ * Post-commit bookkeeping for a write that changed one member's data
+ * (profile, goals, metrics or PT sessions), in the current club.
+ */
+final class MemberWrites {
+
+    private MemberWrites() {
+    }
+
+    static void committed(long memberId) {
+        // keep the member's next reads on the primary (read-your-writes)
+        ReplicaRouter.recordWrite(memberId);
+        MemberDashboardService.invalidate(memberId);
+    }
+
+    /**
+     * For work that only learns the member inside the transaction (e.g. by
+     * loading a session): runs committed(memberId) once the current
+     * transaction has committed, nothing on rollback.
+     */
+    static void afterCommit(Session session, long memberId) {
+        int clubId = ShardContext.current();
+        session.getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    ShardContext.run(clubId, () -> committed(memberId));
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,680 @@
+package app.service;
+
+import models.IngestCheckpoint;
+import org.hibernate.JDBCException;
+import org.hibernate.Session;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind ingestion of health readings pushed by wearables and gym
+ * machines, instead of one lookup + insert + commit per reading
+ * (MemberService.logHealthMetric, still used for readings typed in by hand).
+ *
+ * submit() puts a reading on a bounded lock-free queue and returns a future.
+ * One writer thread takes up to BATCH_SIZE readings (waiting at most
+ * MAX_LATENCY_MS for a batch to fill), appends them to a local journal file
+ * and fsyncs it once for the whole batch, then completes their futures: a
+ * completed future means the reading survives a crash. Each club's part of
+ * the batch is then handed to that club's store thread, which inserts it
+ * with one JDBC batch, together with the rollup and goal progress updates
+ * (MetricRollups, GoalTracker), the club's quantile sketches
+ * (MetricSketches) and heart rate alerts (HeartRateMonitor).
+ *
+ * Each club database keeps, in the same transaction as the readings, the
+ * last journal sequence number it stored (IngestCheckpoint), and every
+ * store skips readings at or below it: a batch retried after its commit
+ * went through (but the acknowledgement was lost), and the journal replayed
+ * on startup, are never stored twice. Sequence numbers start above every
+ * club's checkpoint, so nothing acknowledged is skipped either.
+ *
+ * Backpressure: when CAPACITY readings are waiting the future fails at once
+ * with RejectedExecutionException; callers should retry later. While a club
+ * database is unreachable its store thread retries with backoff and that
+ * club's readings wait in the journal (and in memory, up to CAPACITY, after
+ * which its new readings are rejected); the other clubs are not held up.
+ *
+ * The member id is not checked on submit: readings for unknown members are
+ * dropped (and printed) when their batch is stored.
+ *
+ * Settings (system properties):
+ *   hfc.ingest.batchSize     readings per batch, default 500
+ *   hfc.ingest.maxLatencyMs  longest wait for a batch to fill, default 50
+ *   hfc.ingest.capacity      readings waiting before submit() rejects, default 20000
+ *   hfc.ingest.journal       journal file, default data/metric-ingest.journal
+ *
+ * Checkpoints are kept per journal, under a random id created with it and
+ * stored next to it (<journal>.id), so instances that run with the same
+ * journal path against one club database never share a checkpoint.
+ * Only one running instance may use a given journal file, and its .id
+ * file must not be copied to another instance.
+ */
+public final class MetricIngestor implements AutoCloseable {
+
+    public static final int BATCH_SIZE = Integer.getInteger("hfc.ingest.batchSize", 500);
+    public static final long MAX_LATENCY_MS = Long.getLong("hfc.ingest.maxLatencyMs", 50L);
+    public static final int CAPACITY = Integer.getInteger("hfc.ingest.capacity", 20_000);
+    private static final String JOURNAL_PATH =
+            System.getProperty("hfc.ingest.journal", "data/metric-ingest.journal");
+
+    // the journal is emptied once it is this big and everything in it is stored
+    private static final long JOURNAL_ROTATE_BYTES = 16L << 20;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long MAX_RETRY_BACKOFF_MS = 5_000;
+    // how long close() waits for the clubs' store threads
+    private static final long CLOSE_WAIT_SECONDS = 60;
+
+    private static final String INSERT_SQL =
+            "insert into health_metric (member_id, recorded_date, height, weight, heart_rate, body_fat_pct) " +
+                    "values (?, ?, ?, ?, ?, ?)";
+
+    private static final TransactionTemplate TX =
+            TransactionTemplate.readWrite().withTimeout(Duration.ofSeconds(30));
+    private static final TransactionTemplate READ =
+            TransactionTemplate.readOnly().withTimeout(Duration.ofSeconds(5));
+
+    /** One reading; seq is assigned by the writer in journal order (0 until then). */
+    record Reading(long seq,
+                   int clubId,
+                   long memberId,
+                   LocalDate recordedDate,
+                   Double height,
+                   Double weight,
+                   Integer heartRate,
+                   Double bodyFatPct) {
+
+        Reading withSeq(long newSeq) {
+            return new Reading(newSeq, clubId, memberId, recordedDate, height, weight, heartRate, bodyFatPct);
+        }
+    }
+
+    private record Pending(Reading reading, CompletableFuture<Void> ack) {
+    }
+
+    /** Stores one club's journaled readings, in journal order, on a thread of its own. */
+    private final class ClubStore {
+        final int clubId;
+        final ExecutorService thread;
+        final AtomicInteger backlog = new AtomicInteger();
+        volatile boolean gaveUp;                // closing while unreachable: the rest stays journaled
+
+        ClubStore(int clubId) {
+            this.clubId = clubId;
+            this.thread = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "metric-ingest-club-" + clubId);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        void enqueue(List<Reading> rows) {
+            backlog.addAndGet(rows.size());
+            thread.execute(() -> {
+                try {
+                    // never store a later batch after an earlier one was given up
+                    if (!gaveUp && ShardContext.call(clubId, () -> storeWithRetry(rows))) {
+                        unstored.addAndGet(-rows.size());
+                    } else {
+                        gaveUp = true;
+                    }
+                } finally {
+                    backlog.addAndGet(-rows.size());
+                }
+            });
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Map<Integer, ClubStore> clubs = new ConcurrentHashMap<>();
+    // journaled readings not yet stored (or dropped) by their club
+    private final AtomicLong unstored = new AtomicLong();
+    private final Journal journal;
+    private final String journalId;
+    private final Thread writer;
+    private long nextSeq;                       // writer thread only
+    private volatile boolean running = true;
+
+    public MetricIngestor() {
+        Path path = Path.of(JOURNAL_PATH).toAbsolutePath().normalize();
+        try {
+            this.journal = new Journal(path);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open metric ingest journal " + path, e);
+        }
+        List<Reading> journaled = journal.recover();
+        this.journalId = journalId(path, journaled.isEmpty());
+        long lastSeq = lastStoredSeq();
+        for (Reading r : journaled) {
+            lastSeq = Math.max(lastSeq, r.seq());
+        }
+        // the journal is emptied over time: keep sequence numbers growing across
+        // restarts so they stay above every club's checkpoint, even if the clock
+        // was set back
+        this.nextSeq = Math.max(lastSeq, System.currentTimeMillis() * 1000) + 1;
+        if (!journaled.isEmpty()) {
+            System.out.println("Metric ingest: replaying " + journaled.size() + " journaled readings.");
+        }
+
+        this.writer = new Thread(() -> runWriter(journaled), "metric-ingest-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues one reading for the member in the current club. The future
+     * completes once the reading is durable (journaled) and fails with
+     * RejectedExecutionException when the queue is full or the ingestor closed,
+     * and with IllegalArgumentException when recordedDate is not
+     * HealthMetricPartitions.isLoggable.
+     */
+    public CompletableFuture<Void> submit(long memberId,
+                                         Double weight,
+                                         Double height,
+                                         Integer heartRate,
+                                         Double bodyFatPct,
+                                         LocalDate recordedDate) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Metric ingestor is closed"));
+        }
+        LocalDate date = (recordedDate != null ? recordedDate : LocalDate.now());
+        if (!HealthMetricPartitions.isLoggable(date)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    "Recorded date must be between " + HealthMetricPartitions.earliestLoggable()
+                            + " and " + HealthMetricPartitions.latestLoggable() + ": " + date));
+        }
+        int clubId = ShardContext.current();
+        ClubStore club = clubs.get(clubId);
+        if (club != null && club.backlog.get() >= CAPACITY) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Club " + clubId + " is not storing readings at the moment"));
+        }
+        int waiting = queued.incrementAndGet();
+        if (waiting > CAPACITY) {
+            queued.decrementAndGet();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Metric ingest queue is full"));
+        }
+
+        Pending pending = new Pending(
+                new Reading(0, clubId, memberId, date, height, weight, heartRate, bodyFatPct),
+                new CompletableFuture<>());
+        queue.offer(pending);
+        if (waiting == 1 || waiting >= BATCH_SIZE) {
+            LockSupport.unpark(writer);
+        }
+        return pending.ack();
+    }
+
+    /** Readings accepted but not yet journaled. */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * Stops accepting readings, journals and stores what is queued, and
+     * stops the writer and store threads. Readings a club could not store
+     * stay in the journal for the next start.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // raced with close() in submit(): never journaled, so never acknowledged
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            p.ack().completeExceptionally(new RejectedExecutionException("Metric ingestor is closed"));
+        }
+        journal.close();
+    }
+
+    // ---------- writer thread ----------
+
+    private void runWriter(List<Reading> journaled) {
+        handOff(journaled);
+        while (true) {
+            // every journaled reading is in its club's database: start the file over
+            if (unstored.get() == 0 && journal.size() >= JOURNAL_ROTATE_BYTES) {
+                journal.truncate();
+            }
+
+            List<Pending> batch = nextBatch();
+            if (batch.isEmpty()) {
+                if (!running) {
+                    break;
+                }
+                continue;
+            }
+
+            List<Reading> readings = new ArrayList<>(batch.size());
+            for (Pending p : batch) {
+                readings.add(p.reading().withSeq(nextSeq++));
+            }
+            try {
+                journal.append(readings);
+            } catch (IOException e) {
+                System.out.println("Metric ingest: journal write failed, rejecting "
+                        + batch.size() + " readings: " + e.getMessage());
+                for (Pending p : batch) {
+                    p.ack().completeExceptionally(e);
+                }
+                continue;
+            }
+            for (Pending p : batch) {
+                p.ack().complete(null);
+            }
+            handOff(readings);
+        }
+
+        for (ClubStore club : clubs.values()) {
+            club.thread.shutdown();
+        }
+        for (ClubStore club : clubs.values()) {
+            try {
+                if (!club.thread.awaitTermination(CLOSE_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                    System.out.println("Metric ingest: club " + club.clubId + " still storing at shutdown");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (unstored.get() == 0) {
+            journal.truncate();
+        }
+    }
+
+    /** Journaled readings to their clubs' store threads, in journal order per club. */
+    private void handOff(List<Reading> readings) {
+        Map<Integer, List<Reading>> byClub = new LinkedHashMap<>();
+        for (Reading r : readings) {
+            byClub.computeIfAbsent(r.clubId(), k -> new ArrayList<>()).add(r);
+        }
+        unstored.addAndGet(readings.size());
+        for (Map.Entry<Integer, List<Reading>> e : byClub.entrySet()) {
+            clubs.computeIfAbsent(e.getKey(), ClubStore::new).enqueue(e.getValue());
+        }
+    }
+
+    /** Up to BATCH_SIZE readings, waiting at most MAX_LATENCY_MS after the first one. */
+    private List<Pending> nextBatch() {
+        List<Pending> batch = new ArrayList<>();
+        long deadline = 0;
+        while (batch.size() < BATCH_SIZE) {
+            Pending p = queue.poll();
+            if (p != null) {
+                queued.decrementAndGet();
+                if (batch.isEmpty()) {
+                    deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_LATENCY_MS);
+                }
+                batch.add(p);
+                continue;
+            }
+            if (!running) {
+                break;
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            } else {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    break;
+                }
+                LockSupport.parkNanos(this, left);
+            }
+        }
+        return batch;
+    }
+
+    /** Stores rows in the current club, retrying while it is unreachable; false if it gave up (closing). */
+    private boolean storeWithRetry(List<Reading> rows) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                storeBatch(rows);
+                return true;
+            } catch (RuntimeException e) {
+                if (isDataError(e)) {
+                    if (rows.size() == 1) {
+                        System.out.println("Metric ingest: dropped reading " + rows.get(0) + ": " + e.getMessage());
+                        return true;
+                    }
+                    // find the offending reading(s), store the rest
+                    boolean stored = true;
+                    for (Reading r : rows) {
+                        stored = storeWithRetry(List.of(r)) && stored;
+                    }
+                    return stored;
+                }
+                if (!running) {
+                    System.out.println("Metric ingest: club " + ShardContext.current() + " unavailable, "
+                            + rows.size() + " readings stay in the journal: " + e.getMessage());
+                    return false;
+                }
+                System.out.println("Metric ingest: club " + ShardContext.current()
+                        + " unavailable (attempt " + attempt + "): " + e.getMessage());
+                sleepQuietly(Math.min(MAX_RETRY_BACKOFF_MS, 100L << Math.min(attempt, 6)));
+            }
+        }
+    }
+
+    /**
+     * One transaction: JDBC batch insert + checkpoint. Readings at or below
+     * the checkpoint are skipped: they were stored by an earlier attempt
+     * whose commit went through, or before a restart.
+     */
+    private void storeBatch(List<Reading> rows) {
+        Set<LocalDate> months = new LinkedHashSet<>();
+        for (Reading r : rows) {
+            months.add(r.recordedDate().withDayOfMonth(1));
+        }
+        months.forEach(HealthMetricPartitions::ensureMonth);
+
+        List<Reading> stored = TX.execute(session -> {
+            IngestCheckpoint checkpoint = session.get(IngestCheckpoint.class, journalId);
+            long done = (checkpoint != null ? checkpoint.getLastSeq() : 0);
+
+            List<Reading> todo = new ArrayList<>(rows.size());
+            long maxSeq = done;
+            for (Reading r : rows) {
+                if (r.seq() > done) {
+                    todo.add(r);
+                    maxSeq = Math.max(maxSeq, r.seq());
+                }
+            }
+            if (todo.isEmpty()) {
+                return todo;
+            }
+
+            insert(session, todo);
+            MetricRollups rollups = new MetricRollups();
+            GoalTracker goals = new GoalTracker();
+            MetricSketches sketches = new MetricSketches();
+            HeartRateMonitor heartRates = new HeartRateMonitor();
+            for (Reading r : todo) {
+                rollups.add(r.memberId(), r.recordedDate(), r.weight(), r.bodyFatPct(), r.heartRate());
+                goals.add(r.memberId(), r.recordedDate(), r.weight(), r.heartRate(), r.bodyFatPct());
+                sketches.add(r.recordedDate(), r.weight(), r.bodyFatPct(), r.heartRate());
+                heartRates.add(r.memberId(), r.recordedDate(), r.heartRate());
+            }
+            rollups.flush(session);
+            goals.flush(session);
+            sketches.flush(session);
+            heartRates.flush(session);
+            if (checkpoint == null) {
+                session.persist(new IngestCheckpoint(journalId, maxSeq));
+            } else {
+                checkpoint.setLastSeq(maxSeq);
+            }
+            return todo;
+        });
+
+        Set<Long> members = new LinkedHashSet<>();
+        for (Reading r : stored) {
+            members.add(r.memberId());
+        }
+        members.forEach(MemberWrites::committed);
+    }
+
+    /**
+     * The id of the journal at path, read from its .id file or created there.
+     * A journal that already holds readings but has no .id file was written
+     * by a version that keyed the checkpoints by the path: it keeps that key
+     * until it has been emptied.
+     */
+    private static String journalId(Path path, boolean journalEmpty) {
+        Path idFile = path.resolveSibling(path.getFileName() + ".id");
+        try {
+            if (Files.exists(idFile)) {
+                String id = Files.readString(idFile, StandardCharsets.UTF_8).trim();
+                if (!id.isEmpty()) {
+                    return id;
+                }
+            }
+            if (!journalEmpty) {
+                return path.toString();
+            }
+            String id = UUID.randomUUID().toString();
+            Path tmp = path.resolveSibling(path.getFileName() + ".id.tmp");
+            Files.writeString(tmp, id + "\n", StandardCharsets.UTF_8);
+            Files.move(tmp, idFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return id;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read or create metric ingest journal id " + idFile, e);
+        }
+    }
+
+    /** Highest sequence number stored by any club from this journal (0 for clubs that cannot be reached). */
+    private long lastStoredSeq() {
+        long last = 0;
+        for (int clubId : HibernateUtil.getClubIds()) {
+            try {
+                last = Math.max(last, ShardContext.call(clubId, () -> READ.execute(session -> {
+                    IngestCheckpoint checkpoint = session.get(IngestCheckpoint.class, journalId);
+                    return (checkpoint != null ? checkpoint.getLastSeq() : 0L);
+                })));
+            } catch (RuntimeException e) {
+                System.out.println("Metric ingest: could not read the checkpoint of club " + clubId
+                        + ": " + e.getMessage());
+            }
+        }
+        return last;
+    }
+
+    private static void insert(Session session, List<Reading> rows) {
+        session.doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+                for (Reading r : rows) {
+                    ps.setLong(1, r.memberId());
+                    ps.setObject(2, r.recordedDate());
+                    ps.setObject(3, r.height(), Types.DOUBLE);
+                    ps.setObject(4, r.weight(), Types.DOUBLE);
+                    ps.setObject(5, r.heartRate(), Types.INTEGER);
+                    ps.setObject(6, r.bodyFatPct(), Types.DOUBLE);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+
+    // SQLSTATE class 22 (data exception) / 23 (constraint violation, e.g. unknown member):
+    // retrying the same rows cannot help
+    private static boolean isDataError(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            String sqlState = null;
+            if (t instanceof JDBCException jdbc) {
+                sqlState = jdbc.getSQLState();
+            } else if (t instanceof SQLException sqlEx) {
+                sqlState = sqlEx.getSQLState();
+            }
+            if (sqlState != null && (sqlState.startsWith("22") || sqlState.startsWith("23"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------- journal ----------
+
+    /**
+     * Append-only file of fixed-size records, each with a CRC32 so a record
+     * torn by a crash is recognised and cut off on recovery.
+     */
+    private static final class Journal {
+
+        // seq, club, member, epoch day, null flags, height, weight, heart rate, body fat, crc
+        private static final int RECORD_SIZE = 8 + 4 + 8 + 8 + 1 + 8 + 8 + 4 + 8 + 4;
+
+        private static final int HAS_HEIGHT = 1;
+        private static final int HAS_WEIGHT = 2;
+        private static final int HAS_HEART_RATE = 4;
+        private static final int HAS_BODY_FAT = 8;
+
+        private final FileChannel channel;
+
+        Journal(Path path) throws IOException {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        /** Reads every intact record and positions the file after the last one. */
+        List<Reading> recover() {
+            List<Reading> readings = new ArrayList<>();
+            ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE);
+            long pos = 0;
+            try {
+                while (true) {
+                    buf.clear();
+                    while (buf.hasRemaining() && channel.read(buf, pos + buf.position()) > 0) {
+                        // keep reading
+                    }
+                    if (buf.hasRemaining()) {
+                        break;
+                    }
+                    buf.flip();
+                    Reading r = decode(buf);
+                    if (r == null) {
+                        break;
+                    }
+                    readings.add(r);
+                    pos += RECORD_SIZE;
+                }
+                if (pos < channel.size()) {
+                    System.out.println("Metric ingest: cutting torn journal tail at byte " + pos);
+                    channel.truncate(pos);
+                    channel.force(true);
+                }
+                channel.position(pos);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read metric ingest journal", e);
+            }
+            return readings;
+        }
+
+        /** Appends the batch and waits until it is on disk (one fsync per batch). */
+        void append(List<Reading> readings) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE * readings.size());
+            for (Reading r : readings) {
+                encode(r, buf);
+            }
+            buf.flip();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            channel.force(false);
+        }
+
+        long size() {
+            try {
+                return channel.size();
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        void truncate() {
+            try {
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(true);
+            } catch (IOException e) {
+                System.out.println("Metric ingest: could not truncate journal: " + e.getMessage());
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.out.println("Metric ingest: could not close journal: " + e.getMessage());
+            }
+        }
+
+        private static void encode(Reading r, ByteBuffer buf) {
+            int start = buf.position();
+            int flags = (r.height() != null ? HAS_HEIGHT : 0)
+                    | (r.weight() != null ? HAS_WEIGHT : 0)
+                    | (r.heartRate() != null ? HAS_HEART_RATE : 0)
+                    | (r.bodyFatPct() != null ? HAS_BODY_FAT : 0);
+            buf.putLong(r.seq())
+                    .putInt(r.clubId())
+                    .putLong(r.memberId())
+                    .putLong(r.recordedDate().toEpochDay())
+                    .put((byte) flags)
+                    .putDouble(r.height() != null ? r.height() : 0)
+                    .putDouble(r.weight() != null ? r.weight() : 0)
+                    .putInt(r.heartRate() != null ? r.heartRate() : 0)
+                    .putDouble(r.bodyFatPct() != null ? r.bodyFatPct() : 0);
+            CRC32 crc = new CRC32();
+            crc.update(buf.array(), start, RECORD_SIZE - 4);
+            buf.putInt((int) crc.getValue());
+        }
+
+        private static Reading decode(ByteBuffer buf) {
+            CRC32 crc = new CRC32();
+            crc.update(buf.array(), 0, RECORD_SIZE - 4);
+            if (buf.getInt(RECORD_SIZE - 4) != (int) crc.getValue()) {
+                return null;
+            }
+            long seq = buf.getLong();
+            int clubId = buf.getInt();
+            long memberId = buf.getLong();
+            LocalDate date = LocalDate.ofEpochDay(buf.getLong());
+            int flags = buf.get();
+            double height = buf.getDouble();
+            double weight = buf.getDouble();
+            int heartRate = buf.getInt();
+            double bodyFat = buf.getDouble();
+            return new Reading(seq, clubId, memberId, date,
+                    (flags & HAS_HEIGHT) != 0 ? height : null,
+                    (flags & HAS_WEIGHT) != 0 ? weight : null,
+                    (flags & HAS_HEART_RATE) != 0 ? heartRate : null,
+                    (flags & HAS_BODY_FAT) != 0 ? bodyFat : null);
+        }
+    }
+}
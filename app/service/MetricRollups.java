@@ -0,0 +1,169 @@
+package app.service;
+
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Incremental maintenance of the weekly / monthly health metric rollups
+ * (WeeklyMetricRollup, MonthlyMetricRollup).
+ *
+ * Every code path that inserts health_metric rows adds them here and calls
+ * flush(session) in the same transaction, so rollups and raw rows commit
+ * together. Readings are first summed per (period, member, period start)
+ * in memory, then each touched rollup row gets one upsert that adds the
+ * counts and sums and widens min / max: a batch of 500 readings of one
+ * member costs two upserts, not 1000.
+ *
+ * Upserts run in a fixed key order so two transactions updating the same
+ * rollups cannot deadlock.
+ */
+final class MetricRollups {
+
+    enum Period {
+        WEEK("health_metric_weekly"),
+        MONTH("health_metric_monthly");
+
+        private final String table;
+        private final String upsertSql;
+
+        Period(String table) {
+            this.table = table;
+            this.upsertSql = upsertSql(table);
+        }
+
+        String getTable() {
+            return table;
+        }
+
+        /** First day of the period containing date (ISO weeks start on Monday). */
+        LocalDate start(LocalDate date) {
+            return (this == WEEK ? date.with(DayOfWeek.MONDAY) : date.withDayOfMonth(1));
+        }
+    }
+
+    private record Key(Period period, long memberId, LocalDate periodStart) {
+    }
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::period)
+            .thenComparingLong(Key::memberId)
+            .thenComparing(Key::periodStart);
+
+    private static final class Totals {
+        int readings;
+        int weightCount;
+        Double weightMin;
+        Double weightMax;
+        double weightSum;
+        int bodyFatCount;
+        Double bodyFatMin;
+        Double bodyFatMax;
+        double bodyFatSum;
+        int heartRateCount;
+        Integer heartRateMin;
+        Integer heartRateMax;
+        long heartRateSum;
+
+        void add(Double weight, Double bodyFatPct, Integer heartRate) {
+            readings++;
+            if (weight != null) {
+                weightCount++;
+                weightSum += weight;
+                weightMin = (weightMin == null ? weight : Math.min(weightMin, weight));
+                weightMax = (weightMax == null ? weight : Math.max(weightMax, weight));
+            }
+            if (bodyFatPct != null) {
+                bodyFatCount++;
+                bodyFatSum += bodyFatPct;
+                bodyFatMin = (bodyFatMin == null ? bodyFatPct : Math.min(bodyFatMin, bodyFatPct));
+                bodyFatMax = (bodyFatMax == null ? bodyFatPct : Math.max(bodyFatMax, bodyFatPct));
+            }
+            if (heartRate != null) {
+                heartRateCount++;
+                heartRateSum += heartRate;
+                heartRateMin = (heartRateMin == null ? heartRate : Math.min(heartRateMin, heartRate));
+                heartRateMax = (heartRateMax == null ? heartRate : Math.max(heartRateMax, heartRate));
+            }
+        }
+    }
+
+    private final Map<Key, Totals> pending = new TreeMap<>(KEY_ORDER);
+
+    /** Adds one health_metric row to the week and month it falls in. */
+    void add(long memberId, LocalDate recordedDate, Double weight, Double bodyFatPct, Integer heartRate) {
+        for (Period period : Period.values()) {
+            pending.computeIfAbsent(new Key(period, memberId, period.start(recordedDate)), k -> new Totals())
+                    .add(weight, bodyFatPct, heartRate);
+        }
+    }
+
+    /** Writes the added rows into the rollup tables in the session's transaction. */
+    void flush(Session session) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        session.doWork(connection -> {
+            for (Period period : Period.values()) {
+                try (PreparedStatement ps = connection.prepareStatement(period.upsertSql)) {
+                    boolean any = false;
+                    for (Map.Entry<Key, Totals> e : pending.entrySet()) {
+                        if (e.getKey().period() != period) {
+                            continue;
+                        }
+                        Totals t = e.getValue();
+                        ps.setLong(1, e.getKey().memberId());
+                        ps.setObject(2, e.getKey().periodStart());
+                        ps.setInt(3, t.readings);
+                        ps.setInt(4, t.weightCount);
+                        ps.setObject(5, t.weightMin, Types.DOUBLE);
+                        ps.setObject(6, t.weightMax, Types.DOUBLE);
+                        ps.setDouble(7, t.weightSum);
+                        ps.setInt(8, t.bodyFatCount);
+                        ps.setObject(9, t.bodyFatMin, Types.DOUBLE);
+                        ps.setObject(10, t.bodyFatMax, Types.DOUBLE);
+                        ps.setDouble(11, t.bodyFatSum);
+                        ps.setInt(12, t.heartRateCount);
+                        ps.setObject(13, t.heartRateMin, Types.INTEGER);
+                        ps.setObject(14, t.heartRateMax, Types.INTEGER);
+                        ps.setLong(15, t.heartRateSum);
+                        ps.addBatch();
+                        any = true;
+                    }
+                    if (any) {
+                        ps.executeBatch();
+                    }
+                }
+            }
+        });
+        pending.clear();
+    }
+
+    // least / greatest ignore NULLs, so a period's first weight simply becomes its min and max
+    private static String upsertSql(String table) {
+        return "insert into " + table + " as r (member_id, period_start, readings, " +
+                "weight_n, weight_min, weight_max, weight_sum, " +
+                "body_fat_n, body_fat_min, body_fat_max, body_fat_sum, " +
+                "heart_rate_n, heart_rate_min, heart_rate_max, heart_rate_sum) " +
+                "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                "on conflict (member_id, period_start) do update set " +
+                "readings = r.readings + excluded.readings, " +
+                "weight_n = r.weight_n + excluded.weight_n, " +
+                "weight_min = least(r.weight_min, excluded.weight_min), " +
+                "weight_max = greatest(r.weight_max, excluded.weight_max), " +
+                "weight_sum = r.weight_sum + excluded.weight_sum, " +
+                "body_fat_n = r.body_fat_n + excluded.body_fat_n, " +
+                "body_fat_min = least(r.body_fat_min, excluded.body_fat_min), " +
+                "body_fat_max = greatest(r.body_fat_max, excluded.body_fat_max), " +
+                "body_fat_sum = r.body_fat_sum + excluded.body_fat_sum, " +
+                "heart_rate_n = r.heart_rate_n + excluded.heart_rate_n, " +
+                "heart_rate_min = least(r.heart_rate_min, excluded.heart_rate_min), " +
+                "heart_rate_max = greatest(r.heart_rate_max, excluded.heart_rate_max), " +
+                "heart_rate_sum = r.heart_rate_sum + excluded.heart_rate_sum";
+    }
+}
@@ -0,0 +1,319 @@
+package app.service;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import models.MetricSketch;
+import models.MetricSketchId;
+import org.hibernate.LockMode;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Club-wide quantile sketches (KllSketch) of health metrics per quarter,
+ * kept in metric_sketch and read by MemberStandingService.
+ *
+ * Two kinds of sketch:
+ *  - reading levels (weight, body fat, heart rate): every health_metric
+ *    value recorded in the quarter. Every code path that inserts
+ *    health_metric rows adds them here and calls flush(session) in the same
+ *    transaction, next to MetricRollups. The readings are sketched in memory
+ *    and, once the transaction has committed, merged into a process-wide
+ *    delta; a background task merges the deltas into metric_sketch every
+ *    FLUSH_MS, so inserts never wait on the (hot) sketch rows.
+ *  - per-member changes over the quarter (weight, body fat): last reading
+ *    minus first, for members with at least two. A sketch cannot take back
+ *    a member's previous change when a new reading moves it, so these are
+ *    rebuilt from health_metric by one aggregate query when older than
+ *    CHANGE_REFRESH_MINUTES (checked by the same background task).
+ *
+ * A reading-level row that does not exist yet is built from the quarter's
+ * health_metric rows, which covers databases that predate the sketches.
+ * Readings committed while that scan runs may be counted twice; the
+ * sketches are approximate anyway.
+ *
+ * Settings (system properties):
+ *   hfc.sketch.flushMs                 delta merge interval, default 10000
+ *   hfc.sketch.changeRefreshMinutes    change sketch rebuild age, default 60
+ */
+final class MetricSketches {
+
+    private static final long FLUSH_MS = Long.getLong("hfc.sketch.flushMs", 10_000L);
+    private static final long CHANGE_REFRESH_MINUTES = Long.getLong("hfc.sketch.changeRefreshMinutes", 60L);
+
+    private static final TransactionTemplate TX =
+            TransactionTemplate.readWrite().withTimeout(Duration.ofMinutes(5));
+
+    enum Kind {
+        WEIGHT("weight", "weight", false),
+        BODY_FAT("bodyFatPct", "body_fat_pct", false),
+        HEART_RATE("heartRate", "heart_rate", false),
+        WEIGHT_CHANGE("weightChange", "weight", true),
+        BODY_FAT_CHANGE("bodyFatPctChange", "body_fat_pct", true);
+
+        private final String label;
+        private final String column;
+        private final boolean change;
+
+        Kind(String label, String column, boolean change) {
+            this.label = label;
+            this.column = column;
+            this.change = change;
+        }
+
+        /** Name shown to members and in the API. */
+        String getLabel() {
+            return label;
+        }
+
+        /** health_metric column the sketch is built from. */
+        String getColumn() {
+            return column;
+        }
+
+        /** true: one value per member (change over the quarter), false: every reading. */
+        boolean isChange() {
+            return change;
+        }
+    }
+
+    /** First day of the quarter containing date. */
+    static LocalDate quarterStart(LocalDate date) {
+        return date.withDayOfMonth(1).withMonth((date.getMonthValue() - 1) / 3 * 3 + 1);
+    }
+
+    private record Key(Kind kind, LocalDate quarter) {
+    }
+
+    private record DeltaKey(int clubId, Kind kind, LocalDate quarter) {
+    }
+
+    private static final Comparator<DeltaKey> DELTA_ORDER = Comparator.comparingInt(DeltaKey::clubId)
+            .thenComparing(DeltaKey::kind)
+            .thenComparing(DeltaKey::quarter);
+
+    // committed readings not merged into metric_sketch yet; guarded by itself
+    private static final Map<DeltaKey, KllSketch> deltas = new HashMap<>();
+    private static ScheduledExecutorService flusher;
+
+    private final Map<Key, KllSketch> pending = new HashMap<>();
+
+    /** Adds one health_metric row. */
+    void add(LocalDate recordedDate, Double weight, Double bodyFatPct, Integer heartRate) {
+        LocalDate quarter = quarterStart(recordedDate);
+        if (weight != null) {
+            sketch(Kind.WEIGHT, quarter).update(weight);
+        }
+        if (bodyFatPct != null) {
+            sketch(Kind.BODY_FAT, quarter).update(bodyFatPct);
+        }
+        if (heartRate != null) {
+            sketch(Kind.HEART_RATE, quarter).update(heartRate);
+        }
+    }
+
+    private KllSketch sketch(Kind kind, LocalDate quarter) {
+        return pending.computeIfAbsent(new Key(kind, quarter), k -> new KllSketch());
+    }
+
+    /** Hands the added readings over once the session's transaction commits. */
+    void flush(Session session) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        int clubId = ShardContext.current();
+        Map<Key, KllSketch> readings = new HashMap<>(pending);
+        pending.clear();
+        session.getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    readings.forEach((k, sketch) ->
+                            addDelta(new DeltaKey(clubId, k.kind(), k.quarter()), sketch));
+                    start();
+                }
+            }
+        });
+    }
+
+    private static void addDelta(DeltaKey key, KllSketch sketch) {
+        synchronized (deltas) {
+            KllSketch delta = deltas.get(key);
+            if (delta == null) {
+                deltas.put(key, sketch);
+            } else {
+                delta.merge(sketch);
+            }
+        }
+    }
+
+    /** Starts the background merge / rebuild task (once per process). */
+    static synchronized void start() {
+        if (flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metric-sketch-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(MetricSketches::runScheduled, FLUSH_MS, FLUSH_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void runScheduled() {
+        try {
+            flushPending();
+            for (int clubId : HibernateUtil.getClubIds()) {
+                ShardContext.run(clubId, () -> {
+                    refreshChanges(Kind.WEIGHT_CHANGE, false);
+                    refreshChanges(Kind.BODY_FAT_CHANGE, false);
+                });
+            }
+        } catch (RuntimeException e) {
+            // keep the schedule alive; the deltas are retried next time
+            System.out.println("Metric sketches: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Merges the committed readings into metric_sketch now; called on
+     * shutdown (HibernateUtil.shutdown) so they are not lost.
+     */
+    static void flushPending() {
+        Map<DeltaKey, KllSketch> batch = new TreeMap<>(DELTA_ORDER);
+        synchronized (deltas) {
+            batch.putAll(deltas);
+            deltas.clear();
+        }
+        // one short transaction per sketch row: rows are few, and hot
+        batch.forEach((key, delta) -> {
+            try {
+                ShardContext.run(key.clubId(), () -> TX.execute(session -> {
+                    mergeInto(session, key.kind(), key.quarter(), delta);
+                    return null;
+                }));
+            } catch (RuntimeException e) {
+                System.out.println("Metric sketches: could not store " + key + ": " + e.getMessage());
+                addDelta(key, delta);
+            }
+        });
+    }
+
+    private static void mergeInto(Session session, Kind kind, LocalDate quarter, KllSketch delta) {
+        MetricSketch row = session.get(MetricSketch.class, new MetricSketchId(kind.name(), quarter),
+                LockMode.PESSIMISTIC_WRITE);
+        if (row == null) {
+            // first sketch of this quarter: the scan already sees the committed delta
+            KllSketch sketch = scanReadings(session, kind, quarter);
+            session.persist(new MetricSketch(kind.name(), quarter, sketch.getN(), sketch.toBytes()));
+            return;
+        }
+        KllSketch sketch = KllSketch.fromBytes(row.getSketch());
+        sketch.merge(delta);
+        row.setN(sketch.getN());
+        row.setSketch(sketch.toBytes());
+        row.setUpdatedAt(LocalDateTime.now());
+    }
+
+    private static KllSketch scanReadings(Session session, Kind kind, LocalDate quarter) {
+        // column comes from the Kind enum, safe to inline
+        return scan(session,
+                "select " + kind.getColumn() + "::float8 from health_metric " +
+                        "where recorded_date >= ? and recorded_date < ? and " + kind.getColumn() + " is not null",
+                quarter, 1);
+    }
+
+    /**
+     * Rebuilds the current quarter's change sketch of kind in the current
+     * club when it is missing or older than CHANGE_REFRESH_MINUTES (always
+     * when force is set).
+     */
+    static void refreshChanges(Kind kind, boolean force) {
+        LocalDate quarter = quarterStart(LocalDate.now());
+        TX.execute(session -> {
+            MetricSketchId id = new MetricSketchId(kind.name(), quarter);
+            MetricSketch row = session.get(MetricSketch.class, id, LockMode.PESSIMISTIC_WRITE);
+            if (!force && row != null && row.getUpdatedAt()
+                    .isAfter(LocalDateTime.now().minusMinutes(CHANGE_REFRESH_MINUTES))) {
+                return null;
+            }
+            String column = kind.getColumn();
+            String readings = "select distinct on (member_id) member_id, metric_id, " + column + "::float8 as v " +
+                    "from health_metric " +
+                    "where recorded_date >= ? and recorded_date < ? and " + column + " is not null ";
+            KllSketch sketch = scan(session,
+                    "select l.v - f.v from " +
+                            "(" + readings + "order by member_id, recorded_date, metric_id) f " +
+                            "join (" + readings + "order by member_id, recorded_date desc, metric_id desc) l " +
+                            "using (member_id) " +
+                            "where l.metric_id <> f.metric_id",
+                    quarter, 2);
+            if (row == null) {
+                session.persist(new MetricSketch(kind.name(), quarter, sketch.getN(), sketch.toBytes()));
+            } else {
+                row.setN(sketch.getN());
+                row.setSketch(sketch.toBytes());
+                row.setUpdatedAt(LocalDateTime.now());
+            }
+            return null;
+        });
+    }
+
+    // streams one double column; the statement takes `ranges` (quarter start, next quarter start) pairs
+    private static KllSketch scan(Session session, String sql, LocalDate quarter, int ranges) {
+        KllSketch sketch = new KllSketch();
+        session.doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (int i = 0; i < ranges; i++) {
+                    ps.setObject(2 * i + 1, quarter);
+                    ps.setObject(2 * i + 2, quarter.plusMonths(3));
+                }
+                ps.setFetchSize(10_000);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        sketch.update(rs.getDouble(1));
+                    }
+                }
+            }
+        });
+        return sketch;
+    }
+
+    /** Stored sketches of the current club for quarter, by kind (missing kinds left out). */
+    static Map<Kind, KllSketch> load(Session session, LocalDate quarter) {
+        List<MetricSketch> rows = session.createQuery(
+                        "from MetricSketch s where s.id.periodStart = :quarter", MetricSketch.class)
+                .setParameter("quarter", quarter)
+                .getResultList();
+        Map<Kind, KllSketch> sketches = new TreeMap<>();
+        List<String> unknown = new ArrayList<>();
+        for (MetricSketch row : rows) {
+            try {
+                sketches.put(Kind.valueOf(row.getId().getMetric()), KllSketch.fromBytes(row.getSketch()));
+            } catch (IllegalArgumentException e) {
+                unknown.add(row.getId().getMetric());
+            }
+        }
+        if (!unknown.isEmpty()) {
+            System.out.println("Metric sketches: ignoring unreadable rows " + unknown);
+        }
+        return sketches;
+    }
+}
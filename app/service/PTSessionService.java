@@ -1,16 +1,43 @@
 package app.service;
 
+import models.AvailabilityStatus;
 import models.Member;
 import models.PTSession;
+import models.PTSessionStatus;
 import models.Trainer;
 import models.TrainerAvailability;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 public class PTSessionService {
 
+    // @Version on PTSession / TrainerAvailability catches lost updates on the
+    // same rows; SERIALIZABLE also catches two bookings of overlapping windows
+    // that touch different rows (conflict check + insert).
+    private static final TransactionTemplate BOOKING =
+            TransactionTemplate.readWrite()
+                    .withIsolation(TransactionTemplate.Isolation.SERIALIZABLE)
+                    .withTimeout(Duration.ofSeconds(10))
+                    .withMaxAttempts(5);
+    private static final TransactionTemplate TX =
+            TransactionTemplate.readWrite().withTimeout(Duration.ofSeconds(10));
+    private static final TransactionTemplate READ =
+            TransactionTemplate.replicaRead().withTimeout(Duration.ofSeconds(5));
+
+    /**
+     * PTSession with its to-one associations in the same SELECT (no per-row
+     * lookups); the list queries of the other services append their
+     * where / order by to it.
+     */
+    static final String SESSION_SELECT =
+            "select s from PTSession s " +
+                    "join fetch s.member " +
+                    "join fetch s.trainer " +
+                    "left join fetch s.room " +
+                    "left join fetch s.admin ";
+
     /**
      * M4 - PT Session Scheduling (member request)
      *
@@ -18,7 +45,7 @@ public class PTSessionService {
      * At this stage:
      *  - No room is assigned yet
      *  - No admin is assigned
-     *  - status = "PENDING"
+     *  - status = PENDING
      *
      * Validation:
      *  - member and trainer exist
@@ -35,14 +62,12 @@ public class PTSessionService {
             return null;
         }
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-
+        return BOOKING.executeForMember(memberId, session -> {
             Member member = session.get(Member.class, memberId);
             Trainer trainer = session.get(Trainer.class, trainerId);
 
             if (member == null || trainer == null) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Invalid member or trainer id.");
                 return null;
             }
@@ -52,24 +77,25 @@ public class PTSessionService {
                             "select count(a) " +
                                     "from TrainerAvailability a " +
                                     "where a.trainer.trainerId = :tid " +
-                                    "and a.status = 'ACTIVE' " +
+                                    "and a.status = :active " +
                                     "and a.startTime <= :start " +
                                     "and a.endTime >= :end",
                             Long.class)
                     .setParameter("tid", trainerId)
+                    .setParameter("active", AvailabilityStatus.ACTIVE)
                     .setParameter("start", start)
                     .setParameter("end", end)
                     .uniqueResult();
 
             if (covering == null || covering == 0) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Trainer is not available in this time window.");
                 return null;
             }
 
             // 2) Check trainer does not already have a session in this window
             if (trainerHasSessionConflict(session, trainerId, start, end)) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Trainer has another session in this time window.");
                 return null;
             }
@@ -78,19 +104,20 @@ public class PTSessionService {
             TrainerAvailability slot = session.createQuery(
                             "from TrainerAvailability a " +
                                     "where a.trainer.trainerId = :tid " +
-                                    "and a.status = 'ACTIVE' " +
+                                    "and a.status = :active " +
                                     "and a.startTime <= :start " +
                                     "and a.endTime >= :end " +
                                     "order by a.startTime",
                             TrainerAvailability.class)
                     .setParameter("tid", trainerId)
+                    .setParameter("active", AvailabilityStatus.ACTIVE)
                     .setParameter("start", start)
                     .setParameter("end", end)
                     .setMaxResults(1)
                     .uniqueResult();
 
             if (slot == null) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("No matching availability slot found to book.");
                 return null;
             }
@@ -103,16 +130,15 @@ public class PTSessionService {
             pt.setAdmin(null);
             pt.setStartTime(start);
             pt.setEndTime(end);
-            pt.setStatus("PENDING");
+            pt.setStatus(PTSessionStatus.PENDING);
 
             // 5) Consume the slot so it no longer appears as ACTIVE
-            slot.setStatus("BOOKED");
+            slot.setStatus(AvailabilityStatus.BOOKED);
             session.merge(slot);
 
             session.persist(pt);
-            tx.commit();
             return pt;
-        }
+        });
     }
 
     /**
@@ -125,7 +151,7 @@ public class PTSessionService {
      *  - Validates trainer conflicts for the new window (excluding this session)
      *  - Frees the old BOOKED slot (if any)
      *  - Marks the chosen slot as BOOKED
-     *  - Clears room/admin and sets status back to "PENDING"
+     *  - Clears room/admin and sets status back to PENDING
      */
     public PTSession rescheduleSession(long sessionId,
                                        long availabilityId,
@@ -137,18 +163,16 @@ public class PTSessionService {
             return null;
         }
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-
+        return BOOKING.execute(session -> {
             PTSession pt = session.get(PTSession.class, sessionId);
             if (pt == null) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Session not found: " + sessionId);
                 return null;
             }
 
             if (pt.getTrainer() == null) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Session has no trainer assigned; cannot reschedule.");
                 return null;
             }
@@ -162,23 +186,23 @@ public class PTSessionService {
             if (newSlot == null ||
                     newSlot.getTrainer() == null ||
                     newSlot.getTrainer().getTrainerId() != trainerId) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Invalid availability selection for this trainer.");
                 return null;
             }
 
             // Check newSlot is ACTIVE and covers the new window
-            if (!"ACTIVE".equalsIgnoreCase(newSlot.getStatus()) ||
+            if (newSlot.getStatus() != AvailabilityStatus.ACTIVE ||
                     newSlot.getStartTime().isAfter(newStart) ||
                     newSlot.getEndTime().isBefore(newEnd)) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Selected availability does not cover the requested time window.");
                 return null;
             }
 
             // trainer conflicts, excluding this session
             if (trainerHasSessionConflictExcluding(session, trainerId, newStart, newEnd, sessionId)) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Trainer has another session in this time window.");
                 return null;
             }
@@ -187,18 +211,19 @@ public class PTSessionService {
             TrainerAvailability oldSlot = session.createQuery(
                             "from TrainerAvailability a " +
                                     "where a.trainer.trainerId = :tid " +
-                                    "and a.status = 'BOOKED' " +
+                                    "and a.status = :booked " +
                                     "and a.startTime <= :oldStart " +
                                     "and a.endTime >= :oldEnd",
                             TrainerAvailability.class)
                     .setParameter("tid", trainerId)
+                    .setParameter("booked", AvailabilityStatus.BOOKED)
                     .setParameter("oldStart", oldStart)
                     .setParameter("oldEnd", oldEnd)
                     .setMaxResults(1)
                     .uniqueResult();
 
             if (oldSlot != null) {
-                oldSlot.setStatus("ACTIVE");
+                oldSlot.setStatus(AvailabilityStatus.ACTIVE);
                 session.merge(oldSlot);
             }
 
@@ -207,16 +232,16 @@ public class PTSessionService {
             pt.setEndTime(newEnd);
             pt.setRoom(null);
             pt.setAdmin(null);
-            pt.setStatus("PENDING");
+            pt.setStatus(PTSessionStatus.PENDING);
 
             // mark chosen slot as BOOKED
-            newSlot.setStatus("BOOKED");
+            newSlot.setStatus(AvailabilityStatus.BOOKED);
             session.merge(newSlot);
 
             session.merge(pt);
-            tx.commit();
+            MemberWrites.afterCommit(session, pt.getMember().getMemberId());
             return pt;
-        }
+        });
     }
 
     /**
@@ -227,23 +252,21 @@ public class PTSessionService {
      *  - session exists
      *  - session belongs to the given member
      * Result:
-     *  - status = 'CANCELLED'
+     *  - status = CANCELLED
      *  - any matching BOOKED availability slot is freed back to ACTIVE
      */
     public PTSession cancelSessionAsMember(long memberId, long sessionId) {
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-
+        return TX.executeForMember(memberId, session -> {
             PTSession pt = session.get(PTSession.class, sessionId);
             if (pt == null) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Session not found: " + sessionId);
                 return null;
             }
 
             if (pt.getMember() == null || !pt.getMember().getMemberId().equals(memberId)) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("This session does not belong to member " + memberId);
                 return null;
             }
@@ -253,28 +276,36 @@ public class PTSessionService {
                 TrainerAvailability slot = session.createQuery(
                                 "from TrainerAvailability a " +
                                         "where a.trainer.trainerId = :tid " +
-                                        "and a.status = 'BOOKED' " +
+                                        "and a.status = :booked " +
                                         "and a.startTime <= :start " +
                                         "and a.endTime >= :end",
                                 TrainerAvailability.class)
                         .setParameter("tid", pt.getTrainer().getTrainerId())
+                        .setParameter("booked", AvailabilityStatus.BOOKED)
                         .setParameter("start", pt.getStartTime())
                         .setParameter("end", pt.getEndTime())
                         .setMaxResults(1)
                         .uniqueResult();
 
                 if (slot != null) {
-                    slot.setStatus("ACTIVE");
+                    slot.setStatus(AvailabilityStatus.ACTIVE);
                     session.merge(slot);
                 }
             }
 
-            pt.setStatus("CANCELLED");
+            pt.setStatus(PTSessionStatus.CANCELLED);
             session.merge(pt);
 
-            tx.commit();
             return pt;
-        }
+        });
+    }
+
+    /**
+     * M4 helper – load a session as seen by this member (reads their own
+     * latest writes). Returns null if it does not exist.
+     */
+    public PTSession getSessionForMember(long memberId, long sessionId) {
+        return READ.executeForMember(memberId, session -> session.get(PTSession.class, sessionId));
     }
 
     // ---------- helper methods ----------
@@ -286,11 +317,12 @@ public class PTSessionService {
         Long count = session.createQuery(
                         "select count(s) " +
                                 "from PTSession s " +
-                                "where s.status <> 'CANCELLED' " +
+                                "where s.status <> :cancelled " +
                                 "and s.trainer.trainerId = :tid " +
                                 "and :start < s.endTime " +
                                 "and :end > s.startTime",
                         Long.class)
+                .setParameter("cancelled", PTSessionStatus.CANCELLED)
                 .setParameter("tid", trainerId)
                 .setParameter("start", start)
                 .setParameter("end", end)
@@ -307,12 +339,13 @@ public class PTSessionService {
         Long count = session.createQuery(
                         "select count(s) " +
                                 "from PTSession s " +
-                                "where s.status <> 'CANCELLED' " +
+                                "where s.status <> :cancelled " +
                                 "and s.trainer.trainerId = :tid " +
                                 "and s.sessionId <> :sid " +
                                 "and :start < s.endTime " +
                                 "and :end > s.startTime",
                         Long.class)
+                .setParameter("cancelled", PTSessionStatus.CANCELLED)
                 .setParameter("tid", trainerId)
                 .setParameter("sid", excludedSessionId)
                 .setParameter("start", start)
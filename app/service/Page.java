@@ -0,0 +1,66 @@
+package app.service;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list.
+ *
+ * Keyset ("seek") paging: the next page is asked for with the LAST item of
+ * this page as cursor, and the query continues strictly after that item's
+ * sort key (plus its id as tie-breaker). Unlike OFFSET, every page costs the
+ * same index range scan however deep the member is into their history, and
+ * rows inserted meanwhile do not shift pages.
+ *
+ *   Page<HealthMetric> page = memberService.getMetricsPage(id, null, 20);
+ *   while (page.hasNext()) {
+ *       page = memberService.getMetricsPage(id, page.last(), 20);
+ *   }
+ */
+public class Page<T> {
+
+    public static final int DEFAULT_SIZE = 20;
+
+    /** Rows the JDBC driver fetches per round trip when a large result is scanned in one go. */
+    public static final int STREAM_FETCH_SIZE = 500;
+
+    private final List<T> items;
+    private final boolean hasNext;
+
+    private Page(List<T> items, boolean hasNext) {
+        this.items = List.copyOf(items);
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * Builds a page from a query run with setMaxResults(pageSize + 1): the
+     * extra row only tells whether another page exists.
+     */
+    static <T> Page<T> of(List<T> rows, int pageSize) {
+        boolean more = rows.size() > pageSize;
+        return new Page<>(more ? rows.subList(0, pageSize) : rows, more);
+    }
+
+    static int checkSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be >= 1");
+        }
+        return pageSize;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    /** Cursor for the next page (null on an empty page). */
+    public T last() {
+        return (items.isEmpty() ? null : items.get(items.size() - 1));
+    }
+}
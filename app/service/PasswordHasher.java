@@ -0,0 +1,171 @@
+package app.service;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Password hashing for Account: PBKDF2-HMAC-SHA256 with a random 16-byte
+ * salt, stored as "pbkdf2-sha256$iterations$salt$hash" (Base64), so the
+ * iteration count can be raised later without breaking stored hashes.
+ *
+ * One hash costs a few hundred ms of CPU on purpose. All hashing runs on a
+ * small fixed pool (THREADS workers, QUEUE waiting) instead of the caller's
+ * thread, so a burst of logins cannot take every core (or, with virtual
+ * threads, every carrier) from the booking and logging paths. When the
+ * queue is full the call fails at once with RejectedExecutionException
+ * rather than piling up.
+ *
+ * "plain$password" is what migration 012 stores for passwords that were
+ * kept in plain text before; it still verifies, and needsRehash() tells
+ * AccountService to replace it on the next successful login.
+ *
+ * Settings (system properties):
+ *   hfc.auth.pbkdf2Iterations   default 600000
+ *   hfc.auth.hashThreads        default half the cores (at least 1)
+ *   hfc.auth.hashQueue          default 64
+ */
+final class PasswordHasher {
+
+    static final int ITERATIONS = Integer.getInteger("hfc.auth.pbkdf2Iterations", 600_000);
+    private static final int THREADS = Integer.getInteger("hfc.auth.hashThreads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int QUEUE = Integer.getInteger("hfc.auth.hashQueue", 64);
+
+    private static final String PBKDF2 = "pbkdf2-sha256";
+    private static final String LEGACY_PLAIN = "plain";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final ThreadPoolExecutor POOL = newPool();
+
+    // verified against when the email is unknown, so that case takes as long as a wrong password
+    private static volatile String dummyHash;
+
+    private PasswordHasher() {
+    }
+
+    private static ThreadPoolExecutor newPool() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.NORM_PRIORITY - 1);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.prestartAllCoreThreads();
+        return pool;
+    }
+
+    /** New salted hash of password (on the hashing pool). */
+    static String hash(String password) {
+        return onPool(() -> hashNow(password));
+    }
+
+    /** Whether password matches stored (on the hashing pool); false for an unreadable stored value. */
+    static boolean verify(String password, String stored) {
+        return onPool(() -> verifyNow(password, stored));
+    }
+
+    /** Spends the time of one verification; used when there is no account to check. */
+    static void verifyNothing(String password) {
+        String dummy = dummyHash;
+        if (dummy == null) {
+            dummy = hash("");
+            dummyHash = dummy;
+        }
+        verify(password, dummy);
+    }
+
+    /** Whether stored should be replaced by a fresh hash (legacy format or fewer iterations). */
+    static boolean needsRehash(String stored) {
+        String[] parts = stored.split("\\$", -1);
+        if (parts.length != 4 || !parts[0].equals(PBKDF2)) {
+            return true;
+        }
+        try {
+            return Integer.parseInt(parts[1]) < ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static String hashNow(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] key = pbkdf2(password, salt, ITERATIONS);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PBKDF2 + "$" + ITERATIONS + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(key);
+    }
+
+    private static boolean verifyNow(String password, String stored) {
+        if (stored.startsWith(LEGACY_PLAIN + "$")) {
+            return MessageDigest.isEqual(
+                    stored.substring(LEGACY_PLAIN.length() + 1).getBytes(StandardCharsets.UTF_8),
+                    password.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$", -1);
+        if (parts.length != 4 || !parts[0].equals(PBKDF2)) {
+            System.out.println("Unknown password hash format.");
+            return false;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(pbkdf2(password, salt, iterations), expected);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unreadable password hash: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA256 is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static <T> T onPool(Callable<T> work) {
+        Future<T> future;
+        try {
+            future = POOL.submit(work);
+        } catch (RejectedExecutionException e) {
+            throw new RejectedExecutionException("Too many logins in progress, try again shortly");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
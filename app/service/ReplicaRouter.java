@@ -0,0 +1,127 @@
+package app.service;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses the SessionFactory for query-only work.
+ *
+ * Reads go to the replica (HibernateUtil.getReplicaSessionFactory()) unless:
+ *  - no replica is configured,
+ *  - the replica is more than MAX_LAG_MS behind the primary (or unreachable),
+ *  - the read is for a member who wrote recently (read-your-writes): for
+ *    READ_YOUR_WRITES_MS after a write, that member's reads stay on the
+ *    primary so e.g. a freshly booked session shows up immediately.
+ *
+ * Replica lag is probed at most once per LAG_CHECK_INTERVAL_MS; between
+ * probes the last value is reused. Everything is per club (ShardContext):
+ * each club has its own replica, lag and member ids.
+ */
+public final class ReplicaRouter {
+
+    /** Replica is skipped above this lag. -Dhfc.replica.maxLagMs, default 2000. */
+    private static final long MAX_LAG_MS = Long.getLong("hfc.replica.maxLagMs", 2000L);
+
+    private static final long LAG_CHECK_INTERVAL_MS = 1000L;
+
+    /**
+     * A write is visible on the replica once replay catches up; the replica is
+     * only used while lag <= MAX_LAG_MS, and that lag may be up to one check
+     * interval old, so this window covers the worst case.
+     */
+    private static final long READ_YOUR_WRITES_MS = MAX_LAG_MS + LAG_CHECK_INTERVAL_MS;
+
+    private static final String LAG_SQL =
+            "select case " +
+                    "when not pg_is_in_recovery() then 0 " +
+                    "when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0 " +
+                    "else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000, 0) " +
+                    "end";
+
+    // member ids are only unique within a club
+    private record MemberKey(int clubId, long memberId) {
+    }
+
+    private static final class LagState {
+        final AtomicLong nextCheckAt = new AtomicLong();
+        volatile long lagMs = Long.MAX_VALUE;   // unknown until first probe
+    }
+
+    // (club, member) -> time (ms) of that member's last committed write
+    private static final ConcurrentHashMap<MemberKey, Long> lastWriteByMember = new ConcurrentHashMap<>();
+
+    // clubId -> lag of that club's replica
+    private static final ConcurrentHashMap<Integer, LagState> lagByClub = new ConcurrentHashMap<>();
+
+    private ReplicaRouter() {
+    }
+
+    /** SessionFactory for a read that is not tied to a member. */
+    public static SessionFactory readFactory() {
+        return replicaIfHealthy();
+    }
+
+    /** SessionFactory for a read of this member's data (read-your-writes). */
+    public static SessionFactory readFactoryForMember(long memberId) {
+        MemberKey key = new MemberKey(ShardContext.current(), memberId);
+        Long lastWrite = lastWriteByMember.get(key);
+        if (lastWrite != null) {
+            if (System.currentTimeMillis() - lastWrite < READ_YOUR_WRITES_MS) {
+                return HibernateUtil.getSessionFactory();
+            }
+            lastWriteByMember.remove(key, lastWrite);
+        }
+        return replicaIfHealthy();
+    }
+
+    /** Called after a transaction that changed this member's data has committed. */
+    public static void recordWrite(long memberId) {
+        if (HibernateUtil.getReplicaSessionFactory() != null) {
+            lastWriteByMember.put(new MemberKey(ShardContext.current(), memberId), System.currentTimeMillis());
+        }
+    }
+
+    /** Last measured lag of the current club's replica in ms (Long.MAX_VALUE if unknown or unreachable). */
+    public static long lastReplicaLagMs() {
+        LagState state = lagByClub.get(ShardContext.current());
+        return (state != null ? state.lagMs : Long.MAX_VALUE);
+    }
+
+    // ---------- helper methods ----------
+
+    private static SessionFactory replicaIfHealthy() {
+        SessionFactory replica = HibernateUtil.getReplicaSessionFactory();
+        if (replica == null) {
+            return HibernateUtil.getSessionFactory();
+        }
+        LagState state = lagByClub.computeIfAbsent(ShardContext.current(), id -> new LagState());
+        refreshLagIfDue(replica, state);
+        return (state.lagMs <= MAX_LAG_MS ? replica : HibernateUtil.getSessionFactory());
+    }
+
+    private static void refreshLagIfDue(SessionFactory replica, LagState state) {
+        long now = System.currentTimeMillis();
+        long due = state.nextCheckAt.get();
+        // only the thread that wins the CAS probes; the others keep the last value
+        if (now < due || !state.nextCheckAt.compareAndSet(due, now + LAG_CHECK_INTERVAL_MS)) {
+            return;
+        }
+        try (Session session = replica.openSession()) {
+            state.lagMs = session.doReturningWork(connection -> {
+                try (Statement st = connection.createStatement();
+                     ResultSet rs = st.executeQuery(LAG_SQL)) {
+                    return rs.next() ? (long) rs.getDouble(1) : Long.MAX_VALUE;
+                }
+            });
+        } catch (RuntimeException e) {
+            state.lagMs = Long.MAX_VALUE;
+            System.out.println("Replica lag check failed for club " + ShardContext.current()
+                    + ", reading from primary: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package app.service;
+
+import models.Account;
+import models.AccountRole;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logged-in sessions of the HTTP front end, kept in memory.
+ *
+ * login() checks the password once (AccountService) and hands out a random
+ * token mapped to a Principal: who the caller is (account, role, person id,
+ * club) and, for admins, the rooms they manage. resolve() answers "who am
+ * I" and every authorization check from that snapshot, with no database
+ * access.
+ *
+ * A token expires IDLE after its last use, and MAX_AGE after login
+ * whatever its use. Expired tokens are refused when presented and
+ * removed by a background sweep every minute. Tokens live in this process
+ * only: a restart logs everyone out.
+ *
+ * A password change revokes the person's tokens (MemberService.updateProfile),
+ * and resetting a club drops all of that club's tokens, whose ids would
+ * otherwise point at new rows.
+ *
+ * Settings (system properties):
+ *   hfc.session.idleMinutes    default 30
+ *   hfc.session.maxHours       default 12
+ */
+public class SessionTokens {
+
+    private static final Duration IDLE = Duration.ofMinutes(Long.getLong("hfc.session.idleMinutes", 30L));
+    private static final Duration MAX_AGE = Duration.ofHours(Long.getLong("hfc.session.maxHours", 12L));
+    private static final long SWEEP_SECONDS = 60;
+
+    private static final int TOKEN_BYTES = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final TransactionTemplate READ =
+            TransactionTemplate.readOnly().withTimeout(Duration.ofSeconds(5));
+
+    /** What a token stands for; taken at login and not refreshed. */
+    public record Principal(int clubId,
+                            long accountId,
+                            AccountRole role,
+                            long personId,
+                            Set<Long> managedRoomIds,
+                            Instant issuedAt) {
+
+        public boolean isMember(long memberId) {
+            return role == AccountRole.MEMBER && personId == memberId;
+        }
+
+        public boolean isTrainer(long trainerId) {
+            return role == AccountRole.TRAINER && personId == trainerId;
+        }
+
+        public boolean isAdmin() {
+            return role == AccountRole.ADMIN;
+        }
+
+        public boolean isAdmin(long adminId) {
+            return isAdmin() && personId == adminId;
+        }
+
+        public boolean managesRoom(long roomId) {
+            return managedRoomIds.contains(roomId);
+        }
+    }
+
+    /** A token just handed out and the principal it stands for. */
+    public record Login(String token, Principal principal, Instant expiresAt) {
+    }
+
+    private static final class Entry {
+        final Principal principal;
+        final Instant hardExpiry;
+        volatile Instant lastUsed;
+
+        Entry(Principal principal) {
+            this.principal = principal;
+            this.hardExpiry = principal.issuedAt().plus(MAX_AGE);
+            this.lastUsed = principal.issuedAt();
+        }
+
+        Instant expiresAt() {
+            Instant idle = lastUsed.plus(IDLE);
+            return idle.isBefore(hardExpiry) ? idle : hardExpiry;
+        }
+
+        boolean isExpired(Instant now) {
+            return !now.isBefore(expiresAt());
+        }
+    }
+
+    private static final Map<String, Entry> tokens = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService sweeper;
+
+    private final AccountService accountService;
+
+    public SessionTokens() {
+        this(new AccountService());
+    }
+
+    public SessionTokens(AccountService accountService) {
+        this.accountService = accountService;
+    }
+
+    /**
+     * Checks email / password against the current club's accounts and opens
+     * a session; null when they do not match. Throws
+     * RejectedExecutionException when too many logins are being checked.
+     */
+    public Login login(String email, String password) {
+        Account account = accountService.authenticate(email, password);
+        if (account == null) {
+            return null;
+        }
+        Set<Long> rooms = (account.getRole() == AccountRole.ADMIN
+                ? Set.copyOf(READ.execute(session -> session.createQuery(
+                                "select m.room.roomId from Manage m where m.admin.adminId = :aid", Long.class)
+                        .setParameter("aid", account.getPersonId())
+                        .getResultList()))
+                : Set.of());
+
+        Principal principal = new Principal(ShardContext.current(), account.getAccountId(), account.getRole(),
+                account.getPersonId(), rooms, Instant.now());
+        Entry entry = new Entry(principal);
+        String token = newToken();
+        tokens.put(token, entry);
+        start();
+        return new Login(token, principal, entry.expiresAt());
+    }
+
+    /** The principal of a live token (and its idle timer restarted), or null. */
+    public Principal resolve(String token) {
+        if (token == null) {
+            return null;
+        }
+        Entry entry = tokens.get(token);
+        if (entry == null) {
+            return null;
+        }
+        Instant now = Instant.now();
+        if (entry.isExpired(now)) {
+            tokens.remove(token, entry);
+            return null;
+        }
+        entry.lastUsed = now;
+        return entry.principal;
+    }
+
+    /** Ends the session of token; false when it was not live. */
+    public boolean logout(String token) {
+        return token != null && tokens.remove(token) != null;
+    }
+
+    /** Ends every session of one person of the current club (e.g. after a password change). */
+    static void revoke(AccountRole role, long personId) {
+        int clubId = ShardContext.current();
+        tokens.values().removeIf(e -> e.principal.clubId() == clubId
+                && e.principal.role() == role
+                && e.principal.personId() == personId);
+    }
+
+    /** Ends every session of the current club (its tables were emptied, e.g. by DatabaseResetService). */
+    static void forgetClub() {
+        int clubId = ShardContext.current();
+        tokens.values().removeIf(e -> e.principal.clubId() == clubId);
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static synchronized void start() {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-token-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(SessionTokens::sweep, SWEEP_SECONDS, SWEEP_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static void sweep() {
+        Instant now = Instant.now();
+        tokens.values().removeIf(e -> e.isExpired(now));
+    }
+}
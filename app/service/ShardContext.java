@@ -0,0 +1,60 @@
+package app.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Club (shard) the current thread is working for.
+ *
+ * HibernateUtil.getSessionFactory() returns the SessionFactory of this club,
+ * so services route every call to the right database without passing the
+ * club id around. The console sets it once at login; code that works on
+ * several clubs (seeding, reset, cross-club reports) uses call()/run(),
+ * which restore the previous club afterwards.
+ *
+ * When nothing is set, HibernateUtil.DEFAULT_CLUB_ID is used.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        Integer clubId = CURRENT.get();
+        return (clubId != null ? clubId : HibernateUtil.DEFAULT_CLUB_ID);
+    }
+
+    public static void set(int clubId) {
+        if (!HibernateUtil.getClubIds().contains(clubId)) {
+            throw new IllegalArgumentException("Unknown club id: " + clubId);
+        }
+        CURRENT.set(clubId);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /** Runs work with clubId as the current club, then restores the previous one. */
+    public static <T> T call(int clubId, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        set(clubId);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public static void run(int clubId, Runnable work) {
+        call(clubId, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package app.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Scatter-gather over all clubs: runs the same work once per club, in
+ * parallel, with ShardContext set to that club, and collects the results.
+ *
+ * A club that fails or does not answer within TIMEOUT_MS is reported and
+ * left out, so one unreachable database does not block a cross-club report.
+ */
+public final class ShardScatter {
+
+    /** Per-call deadline for all clubs. -Dhfc.scatter.timeoutMs, default 15000. */
+    private static final long TIMEOUT_MS = Long.getLong("hfc.scatter.timeoutMs", 15000L);
+
+    // one thread per club: each task holds one connection of its own club's pool
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(
+            HibernateUtil.getClubIds().size(), daemonThreads());
+
+    private ShardScatter() {
+    }
+
+    /**
+     * Runs work for every club; result map is keyed by club id, in
+     * configuration order, and only contains the clubs that answered.
+     */
+    public static <T> Map<Integer, T> onAllClubs(Supplier<T> work) {
+        List<Integer> clubIds = new ArrayList<>(HibernateUtil.getClubIds());
+        List<Callable<T>> tasks = new ArrayList<>(clubIds.size());
+        for (int clubId : clubIds) {
+            tasks.add(() -> ShardContext.call(clubId, work));
+        }
+
+        List<Future<T>> futures;
+        try {
+            // unfinished tasks are cancelled when the deadline passes
+            futures = POOL.invokeAll(tasks, TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying clubs", e);
+        }
+
+        Map<Integer, T> results = new LinkedHashMap<>();
+        for (int i = 0; i < clubIds.size(); i++) {
+            int clubId = clubIds.get(i);
+            try {
+                results.put(clubId, futures.get(i).get());
+            } catch (CancellationException e) {
+                System.out.println("Club " + clubId + " did not answer within " + TIMEOUT_MS + " ms; skipped.");
+            } catch (ExecutionException e) {
+                System.out.println("Club " + clubId + " failed; skipped: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while querying clubs", e);
+            }
+        }
+        return results;
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "shard-scatter-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
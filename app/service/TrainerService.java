@@ -1,16 +1,27 @@
 package app.service;
 
+import models.AvailabilityStatus;
 import models.PTSession;
+import models.PTSessionStatus;
 import models.Trainer;
 import models.TrainerAvailability;
-import org.hibernate.Session;
-import org.hibernate.Transaction;
+import org.hibernate.query.Query;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
 public class TrainerService {
 
+    // overlap check + insert must not interleave with another addAvailability
+    private static final TransactionTemplate TX =
+            TransactionTemplate.readWrite()
+                    .withIsolation(TransactionTemplate.Isolation.SERIALIZABLE)
+                    .withTimeout(Duration.ofSeconds(10))
+                    .withMaxAttempts(5);
+    private static final TransactionTemplate READ =
+            TransactionTemplate.replicaRead().withTimeout(Duration.ofSeconds(5));
+
     /**
      * T1 - Set Availability
      * Adds a new availability interval if it does not overlap
@@ -19,19 +30,17 @@ public class TrainerService {
     public TrainerAvailability addAvailability(long trainerId,
                                                LocalDateTime start,
                                                LocalDateTime end,
-                                               String status) {
+                                               AvailabilityStatus status) {
 
         if (!end.isAfter(start)) {
             System.out.println("End time must be after start time.");
             return null;
         }
 
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-
+        return TX.execute(session -> {
             Trainer trainer = session.get(Trainer.class, trainerId);
             if (trainer == null) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Trainer not found: " + trainerId);
                 return null;
             }
@@ -50,7 +59,7 @@ public class TrainerService {
                     .uniqueResult();
 
             if (overlapCount != null && overlapCount > 0) {
-                tx.rollback();
+                session.getTransaction().setRollbackOnly();
                 System.out.println("Availability overlaps with existing slots.");
                 return null;
             }
@@ -59,12 +68,11 @@ public class TrainerService {
             availability.setTrainer(trainer);
             availability.setStartTime(start);
             availability.setEndTime(end);
-            availability.setStatus(status != null ? status : "ACTIVE");
+            availability.setStatus(status != null ? status : AvailabilityStatus.ACTIVE);
 
             session.persist(availability);
-            tx.commit();
             return availability;
-        }
+        });
     }
 
     /**
@@ -72,16 +80,15 @@ public class TrainerService {
      * Returns upcoming PT sessions for this trainer .
      */
     public List<PTSession> getScheduleForTrainer(long trainerId) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            return session.createQuery(
-                            "from PTSession s " +
-                                    "where s.trainer.trainerId = :tid " +
-                                    "and s.status <> 'CANCELLED' " +
-                                    "order by s.startTime",
-                            PTSession.class)
-                    .setParameter("tid", trainerId)
-                    .getResultList();
-        }
+        return READ.execute(session -> session.createQuery(
+                        "from PTSession s " +
+                                "where s.trainer.trainerId = :tid " +
+                                "and s.status <> :cancelled " +
+                                "order by s.startTime",
+                        PTSession.class)
+                .setParameter("tid", trainerId)
+                .setParameter("cancelled", PTSessionStatus.CANCELLED)
+                .getResultList());
     }
 
     /**
@@ -89,15 +96,81 @@ public class TrainerService {
      * Used by the Member UI so users can pick an availability slot by ID.
      */
     public List<TrainerAvailability> getAllActiveAvailabilities() {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            return session.createQuery(
-                            "from TrainerAvailability a " +
-                                    "where a.status = 'ACTIVE' " +
-                                    "order by a.trainer.fullName, a.startTime",
+        return READ.execute(session -> session.createQuery(
+                        "from TrainerAvailability a " +
+                                "where a.status = :active " +
+                                "order by a.trainer.fullName, a.startTime",
+                        TrainerAvailability.class)
+                .setParameter("active", AvailabilityStatus.ACTIVE)
+                .getResultList());
+    }
+
+    /**
+     * Helper for M4 – load one availability slot by id (null if it does not exist).
+     */
+    public TrainerAvailability getAvailability(long availabilityId) {
+        return READ.execute(session -> session.get(TrainerAvailability.class, availabilityId));
+    }
+
+    // ---------- keyset pages (T2, M4) ----------
+
+    /**
+     * T2 – one page of a trainer's (non-cancelled) sessions, by start time.
+     * after = last session of the previous page, null for the first page.
+     */
+    public Page<PTSession> getSchedulePage(long trainerId, PTSession after, int pageSize) {
+        Page.checkSize(pageSize);
+        return READ.execute(session -> {
+            Query<PTSession> q = session.createQuery(
+                            PTSessionService.SESSION_SELECT +
+                                    "where s.trainer.trainerId = :tid " +
+                                    "and s.status <> :cancelled " +
+                                    (after != null ? "and (s.startTime, s.sessionId) > (:afterStart, :afterId) " : "") +
+                                    "order by s.startTime, s.sessionId",
+                            PTSession.class)
+                    .setParameter("tid", trainerId)
+                    .setParameter("cancelled", PTSessionStatus.CANCELLED)
+                    .setMaxResults(pageSize + 1);
+            if (after != null) {
+                q.setParameter("afterStart", after.getStartTime())
+                        .setParameter("afterId", after.getSessionId());
+            }
+            return Page.of(q.getResultList(), pageSize);
+        });
+    }
+
+    /**
+     * M4 helper – one page of ACTIVE availabilities, by trainer name then
+     * start time. trainerId = null lists all trainers.
+     * after = last slot of the previous page, null for the first page.
+     */
+    public Page<TrainerAvailability> getActiveAvailabilitiesPage(Long trainerId,
+                                                                 TrainerAvailability after,
+                                                                 int pageSize) {
+        Page.checkSize(pageSize);
+        return READ.execute(session -> {
+            Query<TrainerAvailability> q = session.createQuery(
+                            "select a from TrainerAvailability a " +
+                                    "join fetch a.trainer t " +
+                                    "where a.status = :active " +
+                                    (trainerId != null ? "and t.trainerId = :tid " : "") +
+                                    (after != null
+                                            ? "and (t.fullName, a.startTime, a.availabilityId) > (:afterName, :afterStart, :afterId) "
+                                            : "") +
+                                    "order by t.fullName, a.startTime, a.availabilityId",
                             TrainerAvailability.class)
-                    .getResultList();
-        }
+                    .setParameter("active", AvailabilityStatus.ACTIVE)
+                    .setMaxResults(pageSize + 1);
+            if (trainerId != null) {
+                q.setParameter("tid", trainerId);
+            }
+            if (after != null) {
+                q.setParameter("afterName", after.getTrainer().getFullName())
+                        .setParameter("afterStart", after.getStartTime())
+                        .setParameter("afterId", after.getAvailabilityId());
+            }
+            return Page.of(q.getResultList(), pageSize);
+        });
     }
 
 }
-
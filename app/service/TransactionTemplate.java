@@ -0,0 +1,261 @@
+package app.service;
+
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.FlushMode;
+import org.hibernate.JDBCException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StaleStateException;
+import org.hibernate.Transaction;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Runs a unit of work in its own Session + Transaction.
+ *
+ * Options (each "with..." call returns a new, immutable template):
+ *  - read-only: read-only Session (no snapshots kept for dirty checking),
+ *    FlushMode.MANUAL and a READ ONLY database transaction
+ *  - replica: read-only work routed through ReplicaRouter (replica when
+ *    configured and caught up, primary otherwise)
+ *  - statement timeout: SET LOCAL statement_timeout for this transaction
+ *  - isolation level: SET TRANSACTION ISOLATION LEVEL ...
+ *  - retries: the work is re-run when the commit loses an optimistic-lock
+ *    race (@Version mismatch) or the database reports a serialization
+ *    failure / deadlock (SQLSTATE 40001 / 40P01), with capped exponential
+ *    backoff and jitter.
+ *
+ * Transaction settings are issued as SQL at the start of the transaction
+ * (PostgreSQL resets them at commit/rollback), so nothing leaks into the
+ * pooled JDBC connection.
+ *
+ * Usage:
+ *   private static final TransactionTemplate TX = TransactionTemplate.readWrite();
+ *
+ *   return TX.execute(session -> {
+ *       PTSession pt = session.get(PTSession.class, id);
+ *       if (pt == null) {
+ *           session.getTransaction().setRollbackOnly();
+ *           return null;
+ *       }
+ *       ...
+ *   });
+ *
+ * executeForMember(memberId, work) ties the work to one member: on a
+ * replica template the member reads their own writes, on a read-write
+ * template the commit is recorded for that member (MemberWrites: read-your-
+ * writes routing and dashboard cache invalidation).
+ *
+ * The work is re-run from scratch in a fresh Session on every attempt,
+ * so it must not keep entities from a previous attempt. Marking the
+ * transaction rollback-only replaces the manual tx.rollback() calls:
+ * the template rolls back instead of committing.
+ */
+public class TransactionTemplate {
+
+    public enum Isolation {
+        READ_COMMITTED("READ COMMITTED"),
+        REPEATABLE_READ("REPEATABLE READ"),
+        SERIALIZABLE("SERIALIZABLE");
+
+        private final String sql;
+
+        Isolation(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MS = 20;
+    private static final long MAX_BACKOFF_MS = 200;
+
+    private final boolean readOnly;
+    private final boolean replica;
+    private final Duration timeout;      // null = server default
+    private final Isolation isolation;   // null = server default (READ COMMITTED)
+    private final int maxAttempts;
+
+    public TransactionTemplate() {
+        this(false, false, null, null, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    private TransactionTemplate(boolean readOnly,
+                                boolean replica,
+                                Duration timeout,
+                                Isolation isolation,
+                                int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be >= 1");
+        }
+        if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.readOnly = readOnly;
+        this.replica = replica;
+        this.timeout = timeout;
+        this.isolation = isolation;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public static TransactionTemplate readWrite() {
+        return new TransactionTemplate();
+    }
+
+    public static TransactionTemplate readOnly() {
+        return new TransactionTemplate(true, false, null, null, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /** Read-only template whose work runs on the read replica when possible. */
+    public static TransactionTemplate replicaRead() {
+        return new TransactionTemplate(true, true, null, null, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    public TransactionTemplate withTimeout(Duration timeout) {
+        return new TransactionTemplate(readOnly, replica, timeout, isolation, maxAttempts);
+    }
+
+    public TransactionTemplate withIsolation(Isolation isolation) {
+        return new TransactionTemplate(readOnly, replica, timeout, isolation, maxAttempts);
+    }
+
+    public TransactionTemplate withMaxAttempts(int maxAttempts) {
+        return new TransactionTemplate(readOnly, replica, timeout, isolation, maxAttempts);
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public <T> T execute(Function<Session, T> work) {
+        return run(null, work);
+    }
+
+    public <T> T executeForMember(long memberId, Function<Session, T> work) {
+        return run(memberId, work);
+    }
+
+    private <T> T run(Long memberId, Function<Session, T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return executeOnce(memberId, work);
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                System.out.println("Concurrent update detected, retrying (attempt "
+                        + (attempt + 1) + " of " + maxAttempts + ")...");
+                backoff(attempt);
+            }
+        }
+    }
+
+    private <T> T executeOnce(Long memberId, Function<Session, T> work) {
+        try (Session session = sessionFactoryFor(memberId).openSession()) {
+            if (readOnly) {
+                session.setDefaultReadOnly(true);
+                session.setHibernateFlushMode(FlushMode.MANUAL);
+            }
+            Transaction tx = session.beginTransaction();
+            try {
+                applyTransactionSettings(session);
+                T result = work.apply(session);
+                if (tx.getRollbackOnly()) {
+                    tx.rollback();
+                } else {
+                    tx.commit();
+                    if (memberId != null && !readOnly) {
+                        MemberWrites.committed(memberId);
+                    }
+                }
+                return result;
+            } catch (RuntimeException e) {
+                if (tx.getStatus().canRollback()) {
+                    tx.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    // ---------- helper methods ----------
+
+    private SessionFactory sessionFactoryFor(Long memberId) {
+        if (!replica) {
+            return HibernateUtil.getSessionFactory();
+        }
+        return (memberId != null
+                ? ReplicaRouter.readFactoryForMember(memberId)
+                : ReplicaRouter.readFactory());
+    }
+
+    /** Builds the per-transaction SET statements; null when there is nothing to set. */
+    String transactionSettingsSql() {
+        StringBuilder sql = new StringBuilder();
+        if (isolation != null || readOnly) {
+            sql.append("SET TRANSACTION ");
+            if (isolation != null) {
+                sql.append("ISOLATION LEVEL ").append(isolation.sql);
+                if (readOnly) {
+                    sql.append(", ");
+                }
+            }
+            if (readOnly) {
+                sql.append("READ ONLY");
+            }
+        }
+        if (timeout != null) {
+            if (sql.length() > 0) {
+                sql.append("; ");
+            }
+            sql.append("SET LOCAL statement_timeout = ").append(timeout.toMillis());
+        }
+        return (sql.length() > 0 ? sql.toString() : null);
+    }
+
+    private void applyTransactionSettings(Session session) {
+        String sql = transactionSettingsSql();
+        if (sql == null) {
+            return;
+        }
+        session.doWork(connection -> {
+            try (Statement st = connection.createStatement()) {
+                st.execute(sql);
+            }
+        });
+    }
+
+    static boolean isRetryable(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockException || t instanceof StaleStateException) {
+                return true;
+            }
+            String sqlState = null;
+            if (t instanceof JDBCException jdbc) {
+                sqlState = jdbc.getSQLState();
+            } else if (t instanceof SQLException sqlEx) {
+                sqlState = sqlEx.getSQLState();
+            }
+            // 40001 serialization_failure, 40P01 deadlock_detected
+            if ("40001".equals(sqlState) || "40P01".equals(sqlState)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Exponential backoff with full jitter, capped at MAX_BACKOFF_MS. */
+    private static void backoff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << (attempt - 1));
+        long sleepMs = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying transaction", ie);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+-- ===== BENCHMARK 001: hot-path indexes =====
+-- Compares plans and latency of the service queries before and after
+-- the hot-path indexes (migrations 001 and 002) at 1M-row scale.
+--
+-- Run against a SCRATCH database whose schema was created by the app
+-- (hbm2ddl) and that has no migration applied yet:
+--
+--   createdb hfc_bench
+--   (start the app once against hfc_bench so Hibernate creates the tables)
+--   psql -d hfc_bench -f benchmarks/001_hot_path_indexes_bench.sql > bench_output.txt
+--
+-- The script truncates every table. Never point it at a real database.
+
+\set ON_ERROR_STOP on
+\timing on
+
+TRUNCATE TABLE pt_session, health_metric, fitness_goal, trainer_availability,
+    manage, equipment, room, trainer, member, admin
+RESTART IDENTITY CASCADE;
+
+-- ===== DATA: 1M rows per hot table =====
+-- 10k members, 200 trainers, 50 rooms,
+-- 1M health_metric rows (100 per member),
+-- 1M trainer_availability rows (5000 per trainer),
+-- 1M pt_session rows.
+
+INSERT INTO admin (full_name, email, status)
+SELECT 'Admin ' || g, 'admin' || g || '@bench.local', 0
+FROM generate_series(1, 10) g;
+
+INSERT INTO member (full_name, email, status, join_date)
+SELECT 'Member ' || g, 'member' || g || '@bench.local', 0, current_date
+FROM generate_series(1, 10000) g;
+
+INSERT INTO trainer (full_name, email, status, hire_date)
+SELECT 'Trainer ' || g, 'trainer' || g || '@bench.local', 0, current_date
+FROM generate_series(1, 200) g;
+
+INSERT INTO room (room_type, capacity, status)
+SELECT 'PT_ROOM', 1, 0
+FROM generate_series(1, 50) g;
+
+INSERT INTO health_metric (member_id, recorded_date, weight, height, heart_rate, body_fat_pct)
+SELECT 1 + (g % 10000),
+       current_date - (g / 10000),
+       60 + (g % 40),
+       1.75,
+       55 + (g % 30),
+       15 + (g % 15)
+FROM generate_series(0, 999999) g;
+
+INSERT INTO trainer_availability (trainer_id, start_time, end_time, status)
+SELECT 1 + (g % 200),
+       timestamp '2025-01-01 06:00' + (g / 200) * interval '1 hour',
+       timestamp '2025-01-01 07:00' + (g / 200) * interval '1 hour',
+       CASE WHEN g % 10 = 0 THEN 0 ELSE 1 END          -- ACTIVE / BOOKED
+FROM generate_series(0, 999999) g;
+
+INSERT INTO pt_session (member_id, trainer_id, room_id, admin_id, start_time, end_time, status)
+SELECT 1 + (g % 10000),
+       1 + (g % 200),
+       CASE WHEN g % 5 = 0 THEN NULL ELSE 1 + (g % 50) END,
+       CASE WHEN g % 5 = 0 THEN NULL ELSE 1 + (g % 10) END,
+       timestamp '2025-01-01 06:00' + (g / 50) * interval '1 hour',
+       timestamp '2025-01-01 07:00' + (g / 50) * interval '1 hour',
+       CASE g % 20
+           WHEN 0 THEN 0           -- PENDING
+           WHEN 1 THEN 1           -- RESCHEDULED
+           WHEN 2 THEN 3           -- CANCELLED
+           ELSE 2                  -- VALIDATED
+       END
+FROM generate_series(0, 999999) g;
+
+ANALYZE;
+
+\echo '######## BEFORE hot-path indexes ########'
+\i benchmarks/001_hot_path_indexes_queries.sql
+
+\echo '######## APPLYING migrations 001, 002 ########'
+\i migrations/001_hot_path_indexes.sql
+\i migrations/002_status_codes.sql
+ANALYZE;
+
+SELECT indexrelname, pg_size_pretty(pg_relation_size(indexrelid)) AS size
+FROM pg_stat_user_indexes
+WHERE indexrelname LIKE 'idx_%'
+ORDER BY indexrelname;
+
+\echo '######## AFTER hot-path indexes ########'
+\i benchmarks/001_hot_path_indexes_queries.sql
@@ -0,0 +1,56 @@
+-- ===== BENCHMARK 001 queries =====
+-- Included twice by 001_hot_path_indexes_bench.sql (before / after).
+-- Each query runs through EXPLAIN (ANALYZE, BUFFERS) twice: the first
+-- run warms the cache, the second one is the number to report.
+-- Status literals are the enum codes (0 ACTIVE / 1 BOOKED slots,
+-- 0 PENDING / 1 RESCHEDULED / 3 CANCELLED sessions).
+
+\echo '--- Q1 covering ACTIVE availability (requestSession) ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FROM trainer_availability
+WHERE trainer_id = 42 AND status = 0
+  AND start_time <= timestamp '2025-06-01 10:00' AND end_time >= timestamp '2025-06-01 11:00';
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FROM trainer_availability
+WHERE trainer_id = 42 AND status = 0
+  AND start_time <= timestamp '2025-06-01 10:00' AND end_time >= timestamp '2025-06-01 11:00';
+
+\echo '--- Q2 BOOKED slot lookup (cancel / reschedule) ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM trainer_availability
+WHERE trainer_id = 42 AND status = 1
+  AND start_time <= timestamp '2025-06-01 10:00' AND end_time >= timestamp '2025-06-01 11:00'
+LIMIT 1;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM trainer_availability
+WHERE trainer_id = 42 AND status = 1
+  AND start_time <= timestamp '2025-06-01 10:00' AND end_time >= timestamp '2025-06-01 11:00'
+LIMIT 1;
+
+\echo '--- Q3 room conflict check (assignRoomToSession) ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FROM pt_session
+WHERE status <> 3 AND room_id = 7 AND session_id <> 1
+  AND timestamp '2025-06-01 10:00' < end_time AND timestamp '2025-06-01 11:00' > start_time;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*) FROM pt_session
+WHERE status <> 3 AND room_id = 7 AND session_id <> 1
+  AND timestamp '2025-06-01 10:00' < end_time AND timestamp '2025-06-01 11:00' > start_time;
+
+\echo '--- Q4 health history (getMetricsForMember) ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM health_metric WHERE member_id = 4242 ORDER BY recorded_date DESC;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM health_metric WHERE member_id = 4242 ORDER BY recorded_date DESC;
+
+\echo '--- Q5 admin pending list ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM pt_session WHERE status IN (0, 1) ORDER BY start_time LIMIT 50;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM pt_session WHERE status IN (0, 1) ORDER BY start_time LIMIT 50;
+
+\echo '--- Q6 member sessions (getSessionsForMember) ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM pt_session WHERE member_id = 4242 ORDER BY start_time;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM pt_session WHERE member_id = 4242 ORDER BY start_time;
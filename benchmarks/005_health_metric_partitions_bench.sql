@@ -0,0 +1,50 @@
+-- ===== BENCHMARK 005: monthly health_metric partitions =====
+-- Compares plans and latency of the health history queries before and
+-- after migration 005 with 2M health_metric rows spread over two years.
+--
+-- Run against a SCRATCH database whose schema was created by the app
+-- (hbm2ddl) and that has migrations 001-004 applied:
+--
+--   createdb hfc_bench
+--   (start the app once against hfc_bench so Hibernate creates the tables)
+--   psql -d hfc_bench -f benchmarks/005_health_metric_partitions_bench.sql > bench_output.txt
+--
+-- The script truncates every table. Never point it at a real database.
+
+\set ON_ERROR_STOP on
+\timing on
+
+TRUNCATE TABLE pt_session, health_metric, fitness_goal, trainer_availability,
+    manage, equipment, room, trainer, member, admin
+RESTART IDENTITY CASCADE;
+
+-- ===== DATA: 10k members, 200 readings each over 730 days =====
+
+INSERT INTO member (full_name, email, status, join_date, club_id)
+SELECT 'Member ' || g, 'member' || g || '@bench.local', 0, current_date - 730, 1
+FROM generate_series(1, 10000) g;
+
+INSERT INTO health_metric (member_id, recorded_date, weight, height, heart_rate, body_fat_pct)
+SELECT 1 + (g % 10000),
+       current_date - ((g / 10000) * 730 / 200),
+       60 + (g % 40),
+       1.75,
+       55 + (g % 30),
+       15 + (g % 15)
+FROM generate_series(0, 1999999) g;
+
+ANALYZE;
+
+\echo '######## BEFORE partitioning ########'
+\i benchmarks/005_health_metric_partitions_queries.sql
+
+\echo '######## APPLYING migration 005 ########'
+\i migrations/005_health_metric_partitions.sql
+
+SELECT c.relname, pg_size_pretty(pg_total_relation_size(c.oid)) AS size
+FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+WHERE i.inhparent = 'health_metric'::regclass
+ORDER BY c.relname;
+
+\echo '######## AFTER partitioning ########'
+\i benchmarks/005_health_metric_partitions_queries.sql
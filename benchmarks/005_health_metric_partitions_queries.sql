@@ -0,0 +1,34 @@
+-- ===== BENCHMARK 005 queries =====
+-- Included twice by 005_health_metric_partitions_bench.sql (before / after).
+-- Each query runs through EXPLAIN (ANALYZE, BUFFERS) twice: the first
+-- run warms the cache, the second one is the number to report.
+
+\echo '--- Q1 last three months of one member (getMetricsForMember with from) ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM health_metric
+WHERE member_id = 4242 AND recorded_date >= current_date - 90
+ORDER BY recorded_date DESC, metric_id DESC;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM health_metric
+WHERE member_id = 4242 AND recorded_date >= current_date - 90
+ORDER BY recorded_date DESC, metric_id DESC;
+
+\echo '--- Q2 first history page of one member (getMetricsPage) ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM health_metric
+WHERE member_id = 4242
+ORDER BY recorded_date DESC, metric_id DESC LIMIT 21;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM health_metric
+WHERE member_id = 4242
+ORDER BY recorded_date DESC, metric_id DESC LIMIT 21;
+
+\echo '--- Q3 one month across all members ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*), avg(weight) FROM health_metric
+WHERE recorded_date >= date_trunc('month', current_date - 365)::date
+  AND recorded_date < (date_trunc('month', current_date - 365) + interval '1 month')::date;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(*), avg(weight) FROM health_metric
+WHERE recorded_date >= date_trunc('month', current_date - 365)::date
+  AND recorded_date < (date_trunc('month', current_date - 365) + interval '1 month')::date;
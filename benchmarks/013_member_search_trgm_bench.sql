@@ -0,0 +1,57 @@
+-- ===== BENCHMARK 013: trigram indexes for the member search =====
+-- Compares plans and latency of AdminService.searchMembers before and
+-- after migration 013 with 1M members.
+--
+-- Run against a SCRATCH database whose schema was created by the app
+-- (hbm2ddl) and that has migrations 001-012 applied:
+--
+--   createdb hfc_bench
+--   (start the app once against hfc_bench so Hibernate creates the tables)
+--   psql -d hfc_bench -f benchmarks/013_member_search_trgm_bench.sql > bench_output.txt
+--
+-- The script truncates member and every table referencing it. Never point
+-- it at a real database.
+
+\set ON_ERROR_STOP on
+\timing on
+
+TRUNCATE TABLE member RESTART IDENTITY CASCADE;
+
+-- ===== DATA: 1M members =====
+-- Names combine 40 first and 50 last names (2000 distinct full names,
+-- 500 members each); emails are unique.
+
+INSERT INTO member (full_name, email, status, join_date, club_id, next_goal_seq)
+SELECT f.name || ' ' || l.name,
+       lower(f.name) || '.' || lower(l.name) || g || '@bench.local',
+       0, current_date, 1, 0
+FROM generate_series(0, 999999) g
+JOIN (SELECT row_number() OVER () - 1 AS i, name FROM unnest(ARRAY[
+        'Anna', 'John', 'Maria', 'David', 'Sarah', 'Michael', 'Laura', 'James', 'Emma', 'Robert',
+        'Olivia', 'William', 'Sophia', 'Thomas', 'Chloe', 'Daniel', 'Lucy', 'Matthew', 'Grace', 'Joseph',
+        'Hannah', 'Andrew', 'Ella', 'Peter', 'Mia', 'Samuel', 'Zoe', 'Benjamin', 'Julia', 'Lucas',
+        'Nora', 'Henry', 'Alice', 'Jack', 'Ava', 'Leo', 'Ruby', 'Oscar', 'Ivy', 'Noah']) AS name) f
+  ON f.i = g % 40
+JOIN (SELECT row_number() OVER () - 1 AS i, name FROM unnest(ARRAY[
+        'Smith', 'Johnson', 'Williams', 'Brown', 'Jones', 'Garcia', 'Miller', 'Davis', 'Rodriguez', 'Martinez',
+        'Hernandez', 'Lopez', 'Gonzalez', 'Wilson', 'Anderson', 'Thomas', 'Taylor', 'Moore', 'Jackson', 'Martin',
+        'Lee', 'Perez', 'Thompson', 'White', 'Harris', 'Sanchez', 'Clark', 'Ramirez', 'Lewis', 'Robinson',
+        'Walker', 'Young', 'Allen', 'King', 'Wright', 'Scott', 'Torres', 'Nguyen', 'Hill', 'Flores',
+        'Green', 'Adams', 'Nelson', 'Baker', 'Hall', 'Rivera', 'Campbell', 'Mitchell', 'Carter', 'Kowalski']) AS name) l
+  ON l.i = (g / 40) % 50;
+
+ANALYZE member;
+
+\echo '######## BEFORE trigram indexes ########'
+\i benchmarks/013_member_search_trgm_queries.sql
+
+\echo '######## APPLYING migration 013 ########'
+\i migrations/013_member_search_trgm.sql
+
+SELECT indexrelname, pg_size_pretty(pg_relation_size(indexrelid)) AS size
+FROM pg_stat_user_indexes
+WHERE indexrelname LIKE 'idx_member_%'
+ORDER BY indexrelname;
+
+\echo '######## AFTER trigram indexes ########'
+\i benchmarks/013_member_search_trgm_queries.sql
@@ -0,0 +1,125 @@
+-- ===== BENCHMARK 013 queries =====
+-- Included twice by 013_member_search_trgm_bench.sql (before / after).
+-- Each query runs through EXPLAIN (ANALYZE, BUFFERS) twice: the first
+-- run warms the cache, the second one is the number to report.
+-- Q2-Q4 are the statements AdminService.searchMembers sends (limit 20);
+-- Q1 is the substring half of Q3 / Q4 alone. Before migration 013 the
+-- pg_trgm extension may be missing, so Q3 / Q4 / Q6 only run after it.
+--
+-- Q5 / Q6 are the autocomplete (suggestMembers, limit 10) cases that reach
+-- the database. Q5, a short prefix nobody has, only runs until the
+-- in-memory index is built: no index serves it, so it reads every member,
+-- which is why suggestMembers never sends it afterwards. Q6, a 3-character
+-- prefix nobody has (a misspelling), is the fuzzy query it still sends and
+-- is the one to hold to the 20 ms keystroke budget.
+
+\echo '--- Q1 rare email fragment (searchMembers "kowalski12345") ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM member
+WHERE lower(full_name) LIKE '%kowalski12345%' ESCAPE '!'
+   OR lower(email) LIKE '%kowalski12345%' ESCAPE '!'
+ORDER BY member_id
+LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM member
+WHERE lower(full_name) LIKE '%kowalski12345%' ESCAPE '!'
+   OR lower(email) LIKE '%kowalski12345%' ESCAPE '!'
+ORDER BY member_id
+LIMIT 20;
+
+\echo '--- Q2 short prefix (searchMembers "an", no trigram) ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM member
+WHERE lower(full_name) LIKE 'an%' ESCAPE '!'
+   OR lower(full_name) LIKE '% an%' ESCAPE '!'
+   OR lower(email) LIKE 'an%' ESCAPE '!'
+ORDER BY member_id
+LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM member
+WHERE lower(full_name) LIKE 'an%' ESCAPE '!'
+   OR lower(full_name) LIKE '% an%' ESCAPE '!'
+   OR lower(email) LIKE 'an%' ESCAPE '!'
+ORDER BY member_id
+LIMIT 20;
+
+\echo '--- Q5 rare short prefix (suggestMembers "zq" before the index is built) ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM member
+WHERE lower(full_name) LIKE 'zq%' ESCAPE '!'
+   OR lower(full_name) LIKE '% zq%' ESCAPE '!'
+   OR lower(email) LIKE 'zq%' ESCAPE '!'
+ORDER BY member_id
+LIMIT 10;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM member
+WHERE lower(full_name) LIKE 'zq%' ESCAPE '!'
+   OR lower(full_name) LIKE '% zq%' ESCAPE '!'
+   OR lower(email) LIKE 'zq%' ESCAPE '!'
+ORDER BY member_id
+LIMIT 10;
+
+SELECT count(*) = 0 AS skip_fuzzy FROM pg_extension WHERE extname = 'pg_trgm' \gset
+\if :skip_fuzzy
+\echo '--- Q3 / Q4 / Q6 skipped: pg_trgm not installed yet ---'
+\else
+\echo '--- Q3 misspelled name (searchMembers "kowalsky 12345") ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM member
+WHERE lower(full_name) LIKE '%kowalsky 12345%' ESCAPE '!'
+   OR lower(email) LIKE '%kowalsky 12345%' ESCAPE '!'
+   OR 'kowalsky 12345' <% lower(full_name)
+   OR 'kowalsky 12345' <% lower(email)
+ORDER BY greatest(word_similarity('kowalsky 12345', lower(full_name)),
+                  word_similarity('kowalsky 12345', lower(email))) DESC, member_id
+LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM member
+WHERE lower(full_name) LIKE '%kowalsky 12345%' ESCAPE '!'
+   OR lower(email) LIKE '%kowalsky 12345%' ESCAPE '!'
+   OR 'kowalsky 12345' <% lower(full_name)
+   OR 'kowalsky 12345' <% lower(email)
+ORDER BY greatest(word_similarity('kowalsky 12345', lower(full_name)),
+                  word_similarity('kowalsky 12345', lower(email))) DESC, member_id
+LIMIT 20;
+
+\echo '--- Q4 exact email (searchMembers "noah.kowalski999999@bench.local") ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM member
+WHERE lower(full_name) LIKE '%noah.kowalski999999@bench.local%' ESCAPE '!'
+   OR lower(email) LIKE '%noah.kowalski999999@bench.local%' ESCAPE '!'
+   OR 'noah.kowalski999999@bench.local' <% lower(full_name)
+   OR 'noah.kowalski999999@bench.local' <% lower(email)
+ORDER BY greatest(word_similarity('noah.kowalski999999@bench.local', lower(full_name)),
+                  word_similarity('noah.kowalski999999@bench.local', lower(email))) DESC, member_id
+LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM member
+WHERE lower(full_name) LIKE '%noah.kowalski999999@bench.local%' ESCAPE '!'
+   OR lower(email) LIKE '%noah.kowalski999999@bench.local%' ESCAPE '!'
+   OR 'noah.kowalski999999@bench.local' <% lower(full_name)
+   OR 'noah.kowalski999999@bench.local' <% lower(email)
+ORDER BY greatest(word_similarity('noah.kowalski999999@bench.local', lower(full_name)),
+                  word_similarity('noah.kowalski999999@bench.local', lower(email))) DESC, member_id
+LIMIT 20;
+
+\echo '--- Q6 3-character misspelling (suggestMembers "kwo", no prefix hit) ---'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM member
+WHERE lower(full_name) LIKE '%kwo%' ESCAPE '!'
+   OR lower(email) LIKE '%kwo%' ESCAPE '!'
+   OR 'kwo' <% lower(full_name)
+   OR 'kwo' <% lower(email)
+ORDER BY greatest(word_similarity('kwo', lower(full_name)),
+                  word_similarity('kwo', lower(email))) DESC, member_id
+LIMIT 10;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM member
+WHERE lower(full_name) LIKE '%kwo%' ESCAPE '!'
+   OR lower(email) LIKE '%kwo%' ESCAPE '!'
+   OR 'kwo' <% lower(full_name)
+   OR 'kwo' <% lower(email)
+ORDER BY greatest(word_similarity('kwo', lower(full_name)),
+                  word_similarity('kwo', lower(email))) DESC, member_id
+LIMIT 10;
+\endif
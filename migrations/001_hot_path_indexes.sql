@@ -0,0 +1,42 @@
+-- ===== MIGRATION 001: hot-path indexes =====
+-- Indexes backing the queries issued by the service layer.
+-- Run with psql outside of a transaction block: CREATE INDEX CONCURRENTLY
+-- does not block writers but cannot run inside BEGIN/COMMIT.
+--
+--   psql -d health_and_fitness_club -f migrations/001_hot_path_indexes.sql
+
+-- ===== INDEX: idx_trainer_availability_trainer_status_time =====
+-- PTSessionService.rescheduleSession / cancelSessionAsMember look up the
+-- BOOKED slot of a trainer covering [start, end].
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_trainer_availability_trainer_status_time
+ON trainer_availability (trainer_id, status, start_time, end_time);
+
+-- ===== INDEX: idx_trainer_availability_active =====
+-- PTSessionService.requestSession covering check (status = 'ACTIVE'),
+-- and TrainerService.getAllActiveAvailabilities. Only the bookable slots
+-- are indexed, so the index stays small as old slots become BOOKED.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_trainer_availability_active
+ON trainer_availability (trainer_id, start_time, end_time)
+WHERE status = 'ACTIVE';
+
+-- ===== INDEX: idx_pt_session_room_start_time_live =====
+-- AdminService.assignRoomToSession room double-booking check.
+-- Cancelled sessions never take part in conflicts, so they are left out.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pt_session_room_start_time_live
+ON pt_session (room_id, start_time)
+WHERE status <> 'CANCELLED';
+
+-- ===== INDEX: idx_pt_session_status_start_time =====
+-- Admin pending list (status in ('PENDING', 'RESCHEDULED') order by start_time).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pt_session_status_start_time
+ON pt_session (status, start_time);
+
+-- ===== INDEX: idx_pt_session_member_start_time =====
+-- MemberService.getSessionsForMember (member_id = ? order by start_time).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pt_session_member_start_time
+ON pt_session (member_id, start_time);
+
+-- ===== INDEX: idx_health_metric_member_recorded_date =====
+-- MemberService.getMetricsForMember (member_id = ? order by recorded_date desc).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_health_metric_member_recorded_date
+ON health_metric (member_id, recorded_date DESC);
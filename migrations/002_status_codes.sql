@@ -0,0 +1,247 @@
+-- ===== MIGRATION 002: enum-coded status columns =====
+-- Converts every free-form varchar status column to the smallint codes
+-- written by the JPA converters (see models/*Status.java and CodedEnum).
+-- Databases created by the current code already have smallint columns;
+-- each conversion is skipped when the column is no longer a varchar.
+--
+-- The tables are rewritten, so run it in a maintenance window:
+--
+--   psql -d health_and_fitness_club -f migrations/002_status_codes.sql
+
+\set ON_ERROR_STOP on
+
+BEGIN;
+
+-- ===== PREFLIGHT: refuse to run on unknown status values =====
+-- Values are compared case-insensitively; legacy spellings found in old
+-- seed data (BROKEN, UNDER_REPAIR, AVAILABLE slots) are mapped below.
+
+DO $$
+DECLARE
+    bad text;
+BEGIN
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'pt_session' AND column_name = 'status') = 'character varying' THEN
+        SELECT string_agg(DISTINCT status, ', ') INTO bad FROM pt_session
+        WHERE upper(trim(status)) NOT IN ('PENDING', 'RESCHEDULED', 'VALIDATED', 'CANCELLED', 'COMPLETED');
+        IF bad IS NOT NULL THEN
+            RAISE EXCEPTION 'pt_session.status has unknown values: %', bad;
+        END IF;
+    END IF;
+
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'trainer_availability' AND column_name = 'status') = 'character varying' THEN
+        SELECT string_agg(DISTINCT status, ', ') INTO bad FROM trainer_availability
+        WHERE upper(trim(status)) NOT IN ('ACTIVE', 'AVAILABLE', 'BOOKED', 'BLOCKED');
+        IF bad IS NOT NULL THEN
+            RAISE EXCEPTION 'trainer_availability.status has unknown values: %', bad;
+        END IF;
+    END IF;
+
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'equipment' AND column_name = 'status') = 'character varying' THEN
+        SELECT string_agg(DISTINCT status, ', ') INTO bad FROM equipment
+        WHERE upper(trim(status)) NOT IN ('OK', 'OUT_OF_SERVICE', 'BROKEN', 'UNDER_MAINTENANCE', 'UNDER_REPAIR');
+        IF bad IS NOT NULL THEN
+            RAISE EXCEPTION 'equipment.status has unknown values: %', bad;
+        END IF;
+    END IF;
+
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'room' AND column_name = 'status') = 'character varying' THEN
+        SELECT string_agg(DISTINCT status, ', ') INTO bad FROM room
+        WHERE upper(trim(status)) NOT IN ('AVAILABLE', 'MAINTENANCE', 'CLOSED');
+        IF bad IS NOT NULL THEN
+            RAISE EXCEPTION 'room.status has unknown values: %', bad;
+        END IF;
+    END IF;
+
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'fitness_goal' AND column_name = 'status') = 'character varying' THEN
+        SELECT string_agg(DISTINCT status, ', ') INTO bad FROM fitness_goal
+        WHERE upper(trim(status)) NOT IN ('ACTIVE', 'COMPLETED', 'CANCELLED', 'EXPIRED');
+        IF bad IS NOT NULL THEN
+            RAISE EXCEPTION 'fitness_goal.status has unknown values: %', bad;
+        END IF;
+    END IF;
+END
+$$;
+
+-- ===== DEPENDENTS: objects that embed the old text literals =====
+-- Migration 001 created the two partial indexes with text predicates
+-- (status = 'ACTIVE', status <> 'CANCELLED'); they are replaced by the
+-- coded ones at the end of this script. On a database whose status
+-- columns were already smallint, those two statements of 001 failed and
+-- the indexes do not exist yet.
+
+DROP VIEW IF EXISTS trainer_schedule_view;
+-- PostgreSQL cannot change the type of a column a trigger is defined on
+DROP TRIGGER IF EXISTS trg_equipment_room_status ON equipment;
+DROP INDEX IF EXISTS idx_trainer_availability_active;
+DROP INDEX IF EXISTS idx_pt_session_room_start_time_live;
+
+-- ===== CONVERSIONS =====
+
+DO $$
+BEGIN
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'pt_session' AND column_name = 'status') = 'character varying' THEN
+        ALTER TABLE pt_session ALTER COLUMN status TYPE smallint USING
+            CASE upper(trim(status))
+                WHEN 'PENDING'     THEN 0
+                WHEN 'RESCHEDULED' THEN 1
+                WHEN 'VALIDATED'   THEN 2
+                WHEN 'CANCELLED'   THEN 3
+                WHEN 'COMPLETED'   THEN 4
+            END;
+    END IF;
+
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'trainer_availability' AND column_name = 'status') = 'character varying' THEN
+        ALTER TABLE trainer_availability ALTER COLUMN status TYPE smallint USING
+            CASE upper(trim(status))
+                WHEN 'ACTIVE'    THEN 0
+                WHEN 'AVAILABLE' THEN 0
+                WHEN 'BOOKED'    THEN 1
+                WHEN 'BLOCKED'   THEN 2
+            END;
+    END IF;
+
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'equipment' AND column_name = 'status') = 'character varying' THEN
+        ALTER TABLE equipment ALTER COLUMN status TYPE smallint USING
+            CASE upper(trim(status))
+                WHEN 'OK'                THEN 0
+                WHEN 'OUT_OF_SERVICE'    THEN 1
+                WHEN 'BROKEN'            THEN 1
+                WHEN 'UNDER_MAINTENANCE' THEN 2
+                WHEN 'UNDER_REPAIR'      THEN 2
+            END;
+    END IF;
+
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'room' AND column_name = 'status') = 'character varying' THEN
+        ALTER TABLE room ALTER COLUMN status TYPE smallint USING
+            CASE upper(trim(status))
+                WHEN 'AVAILABLE'   THEN 0
+                WHEN 'MAINTENANCE' THEN 1
+                WHEN 'CLOSED'      THEN 2
+            END;
+    END IF;
+
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'fitness_goal' AND column_name = 'status') = 'character varying' THEN
+        ALTER TABLE fitness_goal ALTER COLUMN status TYPE smallint USING
+            CASE upper(trim(status))
+                WHEN 'ACTIVE'    THEN 0
+                WHEN 'COMPLETED' THEN 1
+                WHEN 'CANCELLED' THEN 2
+                WHEN 'EXPIRED'   THEN 3
+            END;
+    END IF;
+
+    -- member / trainer / admin: AccountStatus, anything but ACTIVE is INACTIVE
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'member' AND column_name = 'status') = 'character varying' THEN
+        ALTER TABLE member ALTER COLUMN status TYPE smallint USING
+            CASE WHEN upper(trim(status)) = 'ACTIVE' THEN 0 ELSE 1 END;
+    END IF;
+
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'trainer' AND column_name = 'status') = 'character varying' THEN
+        ALTER TABLE trainer ALTER COLUMN status TYPE smallint USING
+            CASE WHEN upper(trim(status)) = 'ACTIVE' THEN 0 ELSE 1 END;
+    END IF;
+
+    IF (SELECT data_type FROM information_schema.columns
+        WHERE table_name = 'admin' AND column_name = 'status') = 'character varying' THEN
+        ALTER TABLE admin ALTER COLUMN status TYPE smallint USING
+            CASE WHEN upper(trim(status)) = 'ACTIVE' THEN 0 ELSE 1 END;
+    END IF;
+END
+$$;
+
+-- ===== DEPENDENTS: recreate with codes =====
+
+CREATE OR REPLACE VIEW trainer_schedule_view AS
+SELECT
+    s.session_id,
+    s.trainer_id,
+    t.full_name AS trainer_name,
+    s.member_id,
+    m.full_name AS member_name,
+    s.room_id,
+    r.room_type,
+    s.start_time,
+    s.end_time,
+    s.status
+FROM pt_session AS s
+JOIN trainer AS t
+    ON s.trainer_id = t.trainer_id
+JOIN member AS m
+    ON s.member_id = m.member_id
+LEFT JOIN room AS r
+    ON s.room_id = r.room_id
+WHERE s.status <> 3;  -- PTSessionStatus.CANCELLED
+
+CREATE OR REPLACE FUNCTION update_room_status_from_equipment()
+RETURNS trigger AS
+$$
+DECLARE
+    broken_count integer;
+BEGIN
+    IF TG_OP = 'UPDATE' AND NEW.status = OLD.status THEN
+        RETURN NEW;
+    END IF;
+
+    SELECT COUNT(*)
+    INTO broken_count
+    FROM equipment
+    WHERE room_id = NEW.room_id
+      AND status <> 0;      -- EquipmentStatus.OK
+
+    IF broken_count > 0 THEN
+        UPDATE room
+        SET status = 1      -- RoomStatus.MAINTENANCE
+        WHERE room_id = NEW.room_id;
+    ELSE
+        UPDATE room
+        SET status = 0      -- RoomStatus.AVAILABLE
+        WHERE room_id = NEW.room_id;
+    END IF;
+
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_equipment_room_status
+AFTER INSERT OR UPDATE OF status
+ON equipment
+FOR EACH ROW
+EXECUTE FUNCTION update_room_status_from_equipment();
+
+-- ===== INDEX: idx_trainer_availability_active =====
+-- PTSessionService.requestSession covering check and
+-- TrainerService.getAllActiveAvailabilities. Only bookable slots are
+-- indexed, so the index stays small as old slots become BOOKED.
+CREATE INDEX IF NOT EXISTS idx_trainer_availability_active
+ON trainer_availability (trainer_id, start_time, end_time)
+WHERE status = 0;           -- AvailabilityStatus.ACTIVE
+
+-- ===== INDEX: idx_pt_session_room_start_time_live =====
+-- AdminService.assignRoomToSession room double-booking check.
+-- Cancelled sessions never take part in conflicts, so they are left out.
+CREATE INDEX IF NOT EXISTS idx_pt_session_room_start_time_live
+ON pt_session (room_id, start_time)
+WHERE status <> 3;          -- PTSessionStatus.CANCELLED
+
+COMMIT;
+
+ANALYZE pt_session;
+ANALYZE trainer_availability;
+ANALYZE equipment;
+ANALYZE room;
+ANALYZE fitness_goal;
+ANALYZE member;
+ANALYZE trainer;
+ANALYZE admin;
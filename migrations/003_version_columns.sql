@@ -0,0 +1,15 @@
+-- ===== MIGRATION 003: optimistic-lock version columns =====
+-- Adds the @Version column of PTSession, TrainerAvailability and Equipment.
+-- Existing rows start at version 0. ADD COLUMN with a constant default
+-- does not rewrite the table (PostgreSQL 11+).
+--
+--   psql -d health_and_fitness_club -f migrations/003_version_columns.sql
+
+ALTER TABLE pt_session
+    ADD COLUMN IF NOT EXISTS version integer NOT NULL DEFAULT 0;
+
+ALTER TABLE trainer_availability
+    ADD COLUMN IF NOT EXISTS version integer NOT NULL DEFAULT 0;
+
+ALTER TABLE equipment
+    ADD COLUMN IF NOT EXISTS version integer NOT NULL DEFAULT 0;
@@ -0,0 +1,23 @@
+-- ===== MIGRATION 004: club (location) id for sharding =====
+-- Adds club_id to member, trainer, room and admin. Each club lives in its own
+-- database (see hfc.shards in the README); an existing single database
+-- becomes club 1, so existing rows get club_id = 1.
+--
+-- For a new club database, create it, start the app once with hfc.shards
+-- listing it (Hibernate creates the tables, club_id included) and run the
+-- migrations against it as well; the DEFAULT below only matters for rows
+-- that predate this migration.
+--
+--   psql -d health_and_fitness_club -f migrations/004_club_id.sql
+
+ALTER TABLE member
+    ADD COLUMN IF NOT EXISTS club_id integer NOT NULL DEFAULT 1;
+
+ALTER TABLE trainer
+    ADD COLUMN IF NOT EXISTS club_id integer NOT NULL DEFAULT 1;
+
+ALTER TABLE room
+    ADD COLUMN IF NOT EXISTS club_id integer NOT NULL DEFAULT 1;
+
+ALTER TABLE admin
+    ADD COLUMN IF NOT EXISTS club_id integer NOT NULL DEFAULT 1;
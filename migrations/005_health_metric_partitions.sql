@@ -0,0 +1,145 @@
+-- ===== MIGRATION 005: monthly partitions for health_metric =====
+-- health_metric is append-only and the fastest-growing table. This turns it
+-- into a table RANGE-partitioned by recorded_date, one partition per month
+-- (health_metric_YYYY_MM), and copies the existing rows over.
+--
+-- Queries that bound recorded_date only touch the matching partitions, and
+-- an old month can be detached and archived without touching the others
+-- (see the end of this file and HealthMetricPartitions).
+--
+-- Requires PostgreSQL 14+ (DETACH PARTITION ... CONCURRENTLY). The copy
+-- holds an exclusive lock on health_metric, so run it in a maintenance window:
+--
+--   psql -d health_and_fitness_club -f migrations/005_health_metric_partitions.sql
+--
+-- Skipped when health_metric is already partitioned.
+
+\set ON_ERROR_STOP on
+
+BEGIN;
+
+-- ===== FUNCTION: health_metric_ensure_partition =====
+-- Creates the partition of the month containing p_day if it is missing and
+-- returns its name. The table is created detached and then ATTACHed, which
+-- only takes a SHARE UPDATE EXCLUSIVE lock on health_metric (reads and
+-- inserts keep running); the CHECK constraint lets ATTACH skip its scan.
+-- Called by the app before inserting into a month it has not seen yet.
+
+CREATE OR REPLACE FUNCTION health_metric_ensure_partition(p_day date)
+RETURNS text AS
+$$
+DECLARE
+    lo   date := date_trunc('month', p_day)::date;
+    hi   date := (date_trunc('month', p_day) + interval '1 month')::date;
+    part text := 'health_metric_' || to_char(lo, 'YYYY_MM');
+BEGIN
+    IF to_regclass(part) IS NOT NULL THEN
+        RETURN part;
+    END IF;
+
+    -- concurrent callers for the same month: the second one finds the table
+    PERFORM pg_advisory_xact_lock(hashtext('health_metric_partitions'));
+    IF to_regclass(part) IS NOT NULL THEN
+        RETURN part;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE health_metric INCLUDING DEFAULTS)', part);
+    EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I CHECK (recorded_date >= %L AND recorded_date < %L)',
+                   part, part || '_bounds', lo, hi);
+    EXECUTE format('ALTER TABLE health_metric ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   part, lo, hi);
+    EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', part, part || '_bounds');
+    RETURN part;
+END;
+$$ LANGUAGE plpgsql;
+
+-- ===== FUNCTION: health_metric_ensure_partitions =====
+-- Makes sure the current month and the next p_months_ahead months exist.
+-- Returns how many months were checked.
+
+CREATE OR REPLACE FUNCTION health_metric_ensure_partitions(p_months_ahead integer)
+RETURNS integer AS
+$$
+DECLARE
+    i integer;
+BEGIN
+    FOR i IN 0 .. p_months_ahead LOOP
+        PERFORM health_metric_ensure_partition((current_date + make_interval(months => i))::date);
+    END LOOP;
+    RETURN p_months_ahead + 1;
+END;
+$$ LANGUAGE plpgsql;
+
+-- ===== CONVERSION: copy into the partitioned table =====
+
+DO $$
+DECLARE
+    m date;
+BEGIN
+    IF (SELECT c.relkind FROM pg_class c
+        WHERE c.oid = to_regclass('health_metric')) = 'p' THEN
+        RAISE NOTICE 'health_metric is already partitioned, skipping conversion';
+        RETURN;
+    END IF;
+
+    ALTER TABLE health_metric RENAME TO health_metric_unpartitioned;
+    ALTER TABLE health_metric_unpartitioned RENAME CONSTRAINT health_metric_pkey TO health_metric_unpartitioned_pkey;
+    ALTER INDEX IF EXISTS idx_health_metric_member_recorded_date
+        RENAME TO idx_health_metric_unpartitioned_member_recorded_date;
+
+    -- the primary key of a partitioned table must contain the partition key;
+    -- metric_id alone stays unique because it comes from one sequence.
+    -- hbm2ddl made the old metric_id an identity column, whose sequence
+    -- (health_metric_metric_id_seq) belongs to the old table and is dropped
+    -- with it, so the new table gets a sequence of its own
+    CREATE SEQUENCE health_metric_id_seq AS bigint;
+
+    CREATE TABLE health_metric (
+        metric_id     bigint           NOT NULL DEFAULT nextval('health_metric_id_seq'),
+        member_id     bigint           NOT NULL REFERENCES member (member_id),
+        recorded_date date             NOT NULL,
+        height        double precision,
+        weight        double precision,
+        heart_rate    integer,
+        body_fat_pct  double precision,
+        CONSTRAINT health_metric_pkey PRIMARY KEY (metric_id, recorded_date)
+    ) PARTITION BY RANGE (recorded_date);
+
+    ALTER SEQUENCE health_metric_id_seq OWNED BY health_metric.metric_id;
+
+    -- partitioned index: created on every partition, present and future
+    CREATE INDEX idx_health_metric_member_recorded_date
+        ON health_metric (member_id, recorded_date DESC);
+
+    FOR m IN SELECT DISTINCT date_trunc('month', recorded_date)::date
+             FROM health_metric_unpartitioned LOOP
+        PERFORM health_metric_ensure_partition(m);
+    END LOOP;
+    PERFORM health_metric_ensure_partitions(3);
+
+    INSERT INTO health_metric (metric_id, member_id, recorded_date, height, weight, heart_rate, body_fat_pct)
+    SELECT metric_id, member_id, recorded_date, height, weight, heart_rate, body_fat_pct
+    FROM health_metric_unpartitioned;
+
+    PERFORM setval('health_metric_id_seq',
+                   COALESCE((SELECT max(metric_id) FROM health_metric), 0) + 1, false);
+
+    DROP TABLE health_metric_unpartitioned;
+END
+$$;
+
+COMMIT;
+
+ANALYZE health_metric;
+
+-- ===== ARCHIVING AN OLD MONTH =====
+-- DETACH ... CONCURRENTLY never blocks readers or writers of the other
+-- months (it cannot run inside BEGIN/COMMIT). The detached table is a plain
+-- table again and can be dumped and dropped at leisure:
+--
+--   ALTER TABLE health_metric DETACH PARTITION health_metric_2024_01 CONCURRENTLY;
+--   pg_dump -d health_and_fitness_club -t health_metric_2024_01 -Fc -f health_metric_2024_01.dump
+--   DROP TABLE health_metric_2024_01;
+--
+-- HealthMetricPartitions.detachPartitionsBefore(cutoff) does the first step
+-- for every month older than cutoff.
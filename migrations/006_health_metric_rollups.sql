@@ -0,0 +1,70 @@
+-- ===== MIGRATION 006: backfill the health metric rollups =====
+-- health_metric_weekly / health_metric_monthly (WeeklyMetricRollup,
+-- MonthlyMetricRollup) are created by the app and kept up to date as
+-- readings are inserted. This rebuilds them from the existing health_metric
+-- rows, for databases that already had readings before the rollups existed.
+--
+-- health_metric is locked against inserts (SHARE) while the rollups are
+-- rebuilt so no reading is counted twice or missed; reads keep working.
+--
+-- Safe to re-run, also after retention (HealthMetricRetention) removed raw
+-- months: a period is only (re)computed from the raw rows when they hold at
+-- least as many readings as its rollup already counts. Periods whose raw
+-- rows are gone, or partly gone (the week around a retention cutoff), keep
+-- their rollup as it is.
+--
+--   psql -d health_and_fitness_club -f migrations/006_health_metric_rollups.sql
+
+\set ON_ERROR_STOP on
+
+BEGIN;
+
+LOCK TABLE health_metric IN SHARE MODE;
+
+-- date_trunc('week', ...) starts ISO weeks on Monday, like MetricRollups
+INSERT INTO health_metric_weekly (member_id, period_start, readings,
+        weight_n, weight_min, weight_max, weight_sum,
+        body_fat_n, body_fat_min, body_fat_max, body_fat_sum,
+        heart_rate_n, heart_rate_min, heart_rate_max, heart_rate_sum)
+SELECT member_id, date_trunc('week', recorded_date)::date, count(*),
+       count(weight), min(weight), max(weight), COALESCE(sum(weight), 0),
+       count(body_fat_pct), min(body_fat_pct), max(body_fat_pct), COALESCE(sum(body_fat_pct), 0),
+       count(heart_rate), min(heart_rate), max(heart_rate), COALESCE(sum(heart_rate), 0)
+FROM health_metric
+GROUP BY member_id, date_trunc('week', recorded_date)
+ON CONFLICT (member_id, period_start) DO UPDATE
+SET readings = EXCLUDED.readings,
+    weight_n = EXCLUDED.weight_n, weight_min = EXCLUDED.weight_min,
+    weight_max = EXCLUDED.weight_max, weight_sum = EXCLUDED.weight_sum,
+    body_fat_n = EXCLUDED.body_fat_n, body_fat_min = EXCLUDED.body_fat_min,
+    body_fat_max = EXCLUDED.body_fat_max, body_fat_sum = EXCLUDED.body_fat_sum,
+    heart_rate_n = EXCLUDED.heart_rate_n, heart_rate_min = EXCLUDED.heart_rate_min,
+    heart_rate_max = EXCLUDED.heart_rate_max, heart_rate_sum = EXCLUDED.heart_rate_sum
+-- never replace a rollup with fewer readings than it already accounts for
+WHERE health_metric_weekly.readings <= EXCLUDED.readings;
+
+INSERT INTO health_metric_monthly (member_id, period_start, readings,
+        weight_n, weight_min, weight_max, weight_sum,
+        body_fat_n, body_fat_min, body_fat_max, body_fat_sum,
+        heart_rate_n, heart_rate_min, heart_rate_max, heart_rate_sum)
+SELECT member_id, date_trunc('month', recorded_date)::date, count(*),
+       count(weight), min(weight), max(weight), COALESCE(sum(weight), 0),
+       count(body_fat_pct), min(body_fat_pct), max(body_fat_pct), COALESCE(sum(body_fat_pct), 0),
+       count(heart_rate), min(heart_rate), max(heart_rate), COALESCE(sum(heart_rate), 0)
+FROM health_metric
+GROUP BY member_id, date_trunc('month', recorded_date)
+ON CONFLICT (member_id, period_start) DO UPDATE
+SET readings = EXCLUDED.readings,
+    weight_n = EXCLUDED.weight_n, weight_min = EXCLUDED.weight_min,
+    weight_max = EXCLUDED.weight_max, weight_sum = EXCLUDED.weight_sum,
+    body_fat_n = EXCLUDED.body_fat_n, body_fat_min = EXCLUDED.body_fat_min,
+    body_fat_max = EXCLUDED.body_fat_max, body_fat_sum = EXCLUDED.body_fat_sum,
+    heart_rate_n = EXCLUDED.heart_rate_n, heart_rate_min = EXCLUDED.heart_rate_min,
+    heart_rate_max = EXCLUDED.heart_rate_max, heart_rate_sum = EXCLUDED.heart_rate_sum
+-- never replace a rollup with fewer readings than it already accounts for
+WHERE health_metric_monthly.readings <= EXCLUDED.readings;
+
+COMMIT;
+
+ANALYZE health_metric_weekly;
+ANALYZE health_metric_monthly;
@@ -0,0 +1,23 @@
+-- ===== MIGRATION 007: index for chunked retention deletes =====
+-- HealthMetricRetention deletes raw readings older than the retention
+-- window in (recorded_date, metric_id) order, a few thousand rows per
+-- transaction. On an unpartitioned health_metric this index lets each chunk
+-- seek to where the previous one stopped instead of scanning the table.
+--
+-- A partitioned health_metric (migration 005) does not need it: whole
+-- months are detached and dropped instead of deleted row by row.
+--
+-- Run with psql outside of a transaction block (CREATE INDEX CONCURRENTLY):
+--
+--   psql -d health_and_fitness_club -f migrations/007_health_metric_retention_index.sql
+
+SELECT c.relkind = 'p' AS health_metric_partitioned
+FROM pg_class c
+WHERE c.oid = 'health_metric'::regclass \gset
+
+\if :health_metric_partitioned
+\echo 'health_metric is partitioned, index not needed'
+\else
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_health_metric_recorded_date_id
+ON health_metric (recorded_date, metric_id);
+\endif
@@ -0,0 +1,18 @@
+-- ===== MIGRATION 008: index for batch goal evaluation =====
+-- GoalEvaluator walks the ACTIVE goals in (member_id, goal_seq) order to cut
+-- them into chunks, and each chunk reads its key range of ACTIVE goals.
+-- Finished goals (COMPLETED / CANCELLED / EXPIRED) pile up over the years
+-- and are never evaluated again, so the index only keeps the ACTIVE ones.
+--
+-- Status codes are those of migration 002 (ACTIVE = 0).
+--
+-- Run with psql outside of a transaction block (CREATE INDEX CONCURRENTLY):
+--
+--   psql -d health_and_fitness_club -f migrations/008_fitness_goal_active_index.sql
+
+-- ===== INDEX: idx_fitness_goal_active =====
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_fitness_goal_active
+ON fitness_goal (member_id, goal_seq)
+WHERE status = 0;
+
+ANALYZE fitness_goal;
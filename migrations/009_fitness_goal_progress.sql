@@ -0,0 +1,21 @@
+-- ===== MIGRATION 009: stored fitness goal progress =====
+-- Adds the columns in which GoalTracker keeps each ACTIVE goal's progress
+-- current on every health_metric insert: the baseline measurement (first
+-- on/after start_date), the latest measurement, the resulting progress in
+-- percent and when it was last evaluated. The dashboard reads them instead
+-- of looking both measurements up in health_metric on every load.
+--
+-- The columns start out NULL; ADD COLUMN without a default does not rewrite
+-- the table. Goals with last_evaluated NULL are filled from health_metric by
+-- the next goal evaluation run (admin menu 6, GoalEvaluator), in chunks:
+--
+--   psql -d health_and_fitness_club -f migrations/009_fitness_goal_progress.sql
+--   then: Admin Menu -> 6) Evaluate fitness goals (once per club)
+
+ALTER TABLE fitness_goal
+    ADD COLUMN IF NOT EXISTS baseline_value double precision,
+    ADD COLUMN IF NOT EXISTS baseline_date  date,
+    ADD COLUMN IF NOT EXISTS latest_value   double precision,
+    ADD COLUMN IF NOT EXISTS latest_date    date,
+    ADD COLUMN IF NOT EXISTS progress       double precision,
+    ADD COLUMN IF NOT EXISTS last_evaluated timestamp;
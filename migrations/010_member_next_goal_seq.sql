@@ -0,0 +1,31 @@
+-- ===== MIGRATION 010: per-member goal sequence counter =====
+-- MemberService.addFitnessGoal used to pick the next goal_seq with
+-- SELECT max(goal_seq) + 1, so two concurrent adds for the same member
+-- could pick the same value and the second failed on the primary key.
+-- It now bumps member.next_goal_seq with UPDATE ... RETURNING; this adds
+-- the counter and starts it at each member's highest existing goal_seq.
+--
+-- ADD COLUMN with a constant default does not rewrite the table
+-- (PostgreSQL 11+); the UPDATE touches members that have goals.
+--
+--   psql -d health_and_fitness_club -f migrations/010_member_next_goal_seq.sql
+
+\set ON_ERROR_STOP on
+
+BEGIN;
+
+ALTER TABLE member
+    ADD COLUMN IF NOT EXISTS next_goal_seq integer NOT NULL DEFAULT 0;
+
+-- no goals may be added while the counters are set
+LOCK TABLE fitness_goal IN SHARE MODE;
+
+UPDATE member m
+SET next_goal_seq = g.max_seq
+FROM (SELECT member_id, max(goal_seq) AS max_seq
+      FROM fitness_goal
+      GROUP BY member_id) g
+WHERE g.member_id = m.member_id
+  AND m.next_goal_seq < g.max_seq;
+
+COMMIT;
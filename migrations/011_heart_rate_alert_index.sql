@@ -0,0 +1,15 @@
+-- ===== MIGRATION 011: index for a member's heart rate alerts =====
+-- heart_rate_alert (HeartRateAlert) is created by the app and only grows.
+-- The member screen and GET /members/{memberId}/heart-rate-alerts read a
+-- member's latest alerts (order by alert_id desc limit 20); without this
+-- index every call scans the whole table.
+--
+-- Run with psql outside of a transaction block (CREATE INDEX CONCURRENTLY):
+--
+--   psql -d health_and_fitness_club -f migrations/011_heart_rate_alert_index.sql
+
+-- ===== INDEX: idx_heart_rate_alert_member =====
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_heart_rate_alert_member
+ON heart_rate_alert (member_id, alert_id);
+
+ANALYZE heart_rate_alert;
@@ -0,0 +1,90 @@
+-- ===== MIGRATION 012: unified login accounts =====
+-- Logins used to compare the typed password with member / trainer /
+-- admin.password_hash (which held the plain password), with one query per
+-- role. They now look up one account row by lower(email), which also tells
+-- the role, and check a PBKDF2 hash (AccountService, PasswordHasher).
+--
+-- This creates account (if the app has not yet), its unique indexes, copies
+-- every member, trainer and admin into it and drops the old password_hash
+-- columns. Copied passwords are stored as 'plain$<password>'; the app
+-- replaces each with a PBKDF2 hash at that person's next login.
+--
+-- An email now identifies one person across all roles, in any case. When
+-- two people share one, the first copied keeps it (admins, then trainers,
+-- then members); the others are listed at the end and cannot log in until
+-- their email is changed.
+--
+-- Safe to re-run: tables whose password_hash is gone are skipped.
+--
+--   psql -d health_and_fitness_club -f migrations/012_account.sql
+
+\set ON_ERROR_STOP on
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS account (
+    account_id    bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email         varchar(255) NOT NULL,
+    role          smallint     NOT NULL,
+    person_id     bigint       NOT NULL,
+    password_hash varchar(255) NOT NULL,
+    created_at    timestamp(6) NOT NULL,
+    updated_at    timestamp(6) NOT NULL
+);
+
+-- ===== INDEX: ux_account_email (the login lookup) =====
+CREATE UNIQUE INDEX IF NOT EXISTS ux_account_email ON account (lower(email));
+
+-- ===== INDEX: ux_account_person (account of a member / trainer / admin) =====
+CREATE UNIQUE INDEX IF NOT EXISTS ux_account_person ON account (role, person_id);
+
+-- no sign-ups or profile changes while the accounts are copied
+LOCK TABLE admin, trainer, member IN SHARE MODE;
+
+-- role codes are those of AccountRole: MEMBER = 0, TRAINER = 1, ADMIN = 2
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'admin' AND column_name = 'password_hash') THEN
+        INSERT INTO account (email, role, person_id, password_hash, created_at, updated_at)
+        SELECT email, 2, admin_id, 'plain$' || password_hash, now(), now()
+        FROM admin
+        ORDER BY admin_id
+        ON CONFLICT DO NOTHING;
+        ALTER TABLE admin DROP COLUMN password_hash;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'trainer' AND column_name = 'password_hash') THEN
+        INSERT INTO account (email, role, person_id, password_hash, created_at, updated_at)
+        SELECT email, 1, trainer_id, 'plain$' || password_hash, now(), now()
+        FROM trainer
+        ORDER BY trainer_id
+        ON CONFLICT DO NOTHING;
+        ALTER TABLE trainer DROP COLUMN password_hash;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'member' AND column_name = 'password_hash') THEN
+        INSERT INTO account (email, role, person_id, password_hash, created_at, updated_at)
+        SELECT email, 0, member_id, 'plain$' || password_hash, now(), now()
+        FROM member
+        ORDER BY member_id
+        ON CONFLICT DO NOTHING;
+        ALTER TABLE member DROP COLUMN password_hash;
+    END IF;
+END $$;
+
+COMMIT;
+
+ANALYZE account;
+
+-- people left without an account (email taken by someone else)
+SELECT 'admin' AS role, x.admin_id AS id, x.email FROM admin x
+WHERE NOT EXISTS (SELECT 1 FROM account a WHERE a.role = 2 AND a.person_id = x.admin_id)
+UNION ALL
+SELECT 'trainer', x.trainer_id, x.email FROM trainer x
+WHERE NOT EXISTS (SELECT 1 FROM account a WHERE a.role = 1 AND a.person_id = x.trainer_id)
+UNION ALL
+SELECT 'member', x.member_id, x.email FROM member x
+WHERE NOT EXISTS (SELECT 1 FROM account a WHERE a.role = 0 AND a.person_id = x.member_id);
@@ -0,0 +1,28 @@
+-- ===== MIGRATION 013: trigram indexes for the admin member search =====
+-- Admins find members by typing part of a name or email (admin menu
+-- "Find member", GET /admins/{adminId}/members?q=...). AdminService
+-- matches lower(full_name) / lower(email) with LIKE '%text%' and the
+-- pg_trgm word-similarity operator (<%) for misspellings; with these GIN
+-- indexes both are answered from the trigram index instead of reading
+-- every member row.
+--
+-- pg_trgm ships with PostgreSQL (contrib); creating the extension needs a
+-- role allowed to do so (database owner on PostgreSQL 13+).
+--
+-- Run with psql outside of a transaction block (CREATE INDEX CONCURRENTLY):
+--
+--   psql -d health_and_fitness_club -f migrations/013_member_search_trgm.sql
+
+\set ON_ERROR_STOP on
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- ===== INDEX: idx_member_full_name_trgm =====
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_member_full_name_trgm
+ON member USING gin (lower(full_name) gin_trgm_ops);
+
+-- ===== INDEX: idx_member_email_trgm =====
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_member_email_trgm
+ON member USING gin (lower(email) gin_trgm_ops);
+
+ANALYZE member;
@@ -0,0 +1,116 @@
+package models;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Account entity
+ * -----------------------------
+ * Maps to table: account
+ * PK: account_id (auto-generated)
+ * Columns: email, role, person_id, password_hash, created_at, updated_at
+ * Unique: lower(email), (role, person_id) (migrations/012)
+ *
+ * Login identity of a member, trainer or admin: one row per person, so a
+ * login resolves the role and the credentials with one indexed lookup on
+ * lower(email). person_id is the member_id / trainer_id / admin_id of the
+ * role. password_hash is "pbkdf2-sha256$iterations$salt$hash" (see
+ * app.service.PasswordHasher); never the password itself.
+ */
+@Entity
+@Table(name = "account")
+public class Account {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Column(name = "email", nullable = false)
+    private String email;
+
+    @Convert(converter = AccountRole.JpaConverter.class)
+    @Column(name = "role", nullable = false)
+    private AccountRole role;
+
+    @Column(name = "person_id", nullable = false)
+    private long personId;
+
+    @Column(name = "password_hash", nullable = false)
+    private String passwordHash;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // ---- Constructors ----
+
+    public Account() {
+        // required by JPA
+    }
+
+    public Account(String email, AccountRole role, long personId, String passwordHash) {
+        this.email = email;
+        this.role = role;
+        this.personId = personId;
+        this.passwordHash = passwordHash;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    // ---- Getters & Setters ----
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public AccountRole getRole() {
+        return role;
+    }
+
+    public long getPersonId() {
+        return personId;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    public void setPasswordHash(String passwordHash) {
+        this.passwordHash = passwordHash;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    // ---- Utility ----
+
+    @Override
+    public String toString() {
+        return "Account{" +
+                "accountId=" + accountId +
+                ", email='" + email + '\'' +
+                ", role=" + role +
+                ", personId=" + personId +
+                '}';
+    }
+}
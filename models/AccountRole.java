@@ -0,0 +1,35 @@
+package models;
+
+import jakarta.persistence.Converter;
+
+/**
+ * Role of an Account: which table its person_id points to
+ * (member, trainer or admin). Stored as a smallint code (see CodedEnum).
+ */
+public enum AccountRole implements CodedEnum {
+    MEMBER(0),
+    TRAINER(1),
+    ADMIN(2);
+
+    private final short code;
+
+    AccountRole(int code) {
+        this.code = (short) code;
+    }
+
+    @Override
+    public short getCode() {
+        return code;
+    }
+
+    public static AccountRole parse(String value) {
+        return CodedEnum.parse(AccountRole.class, value);
+    }
+
+    @Converter
+    public static class JpaConverter extends CodedEnumConverter<AccountRole> {
+        public JpaConverter() {
+            super(AccountRole.class);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package models;
+
+import jakarta.persistence.Converter;
+
+/**
+ * Status of a Member, Trainer or Admin account.
+ * Stored as a smallint code (see CodedEnum).
+ */
+public enum AccountStatus implements CodedEnum {
+    ACTIVE(0),
+    INACTIVE(1);
+
+    private final short code;
+
+    AccountStatus(int code) {
+        this.code = (short) code;
+    }
+
+    @Override
+    public short getCode() {
+        return code;
+    }
+
+    public static AccountStatus parse(String value) {
+        return CodedEnum.parse(AccountStatus.class, value);
+    }
+
+    @Converter
+    public static class JpaConverter extends CodedEnumConverter<AccountStatus> {
+        public JpaConverter() {
+            super(AccountStatus.class);
+        }
+    }
+}
@@ -7,7 +7,8 @@ import jakarta.persistence.*;
  * -----------------------------
  * Maps to table: admin
  * PK: admin_id (auto-generated)
- * Columns: full_name, password_hash, email, status
+ * Columns: full_name, email, status, club_id
+ * Login email and password hash: Account (role ADMIN, person_id)
  */
 @Entity
 @Table(name = "admin")
@@ -21,14 +22,16 @@ public class Admin {
     @Column(name = "full_name", nullable = false)
     private String fullName;
 
-    @Column(name = "password_hash", nullable = false)
-    private String passwordHash;
-
     @Column(name = "email", nullable = false, unique = true)
     private String email;
 
+    @Convert(converter = AccountStatus.JpaConverter.class)
     @Column(name = "status", nullable = false)
-    private String status;   // e.g. 'ACTIVE', 'INACTIVE'
+    private AccountStatus status;
+
+    // club (location) this row belongs to; also selects the shard database
+    @Column(name = "club_id", nullable = false)
+    private Integer clubId;
 
     // ---- Constructors ----
 
@@ -37,11 +40,9 @@ public class Admin {
     }
 
     public Admin(String fullName,
-                 String passwordHash,
                  String email,
-                 String status) {
+                 AccountStatus status) {
         this.fullName = fullName;
-        this.passwordHash = passwordHash;
         this.email = email;
         this.status = status;
     }
@@ -64,14 +65,6 @@ public class Admin {
         this.fullName = fullName;
     }
 
-    public String getPasswordHash() {
-        return passwordHash;
-    }
-
-    public void setPasswordHash(String passwordHash) {
-        this.passwordHash = passwordHash;
-    }
-
     public String getEmail() {
         return email;
     }
@@ -80,14 +73,22 @@ public class Admin {
         this.email = email;
     }
 
-    public String getStatus() {
+    public AccountStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(AccountStatus status) {
         this.status = status;
     }
 
+    public Integer getClubId() {
+        return clubId;
+    }
+
+    public void setClubId(Integer clubId) {
+        this.clubId = clubId;
+    }
+
     // ---- Utility ----
 
     @Override
@@ -96,7 +97,7 @@ public class Admin {
                 "adminId=" + adminId +
                 ", fullName='" + fullName + '\'' +
                 ", email='" + email + '\'' +
-                ", status='" + status + '\'' +
+                ", status=" + status +
                 '}';
     }
 }
@@ -0,0 +1,36 @@
+package models;
+
+import jakarta.persistence.Converter;
+
+/**
+ * Status of a TrainerAvailability slot: ACTIVE slots can be booked,
+ * BOOKED slots are consumed by a PTSession.
+ * Stored as a smallint code (see CodedEnum).
+ */
+public enum AvailabilityStatus implements CodedEnum {
+    ACTIVE(0),
+    BOOKED(1),
+    BLOCKED(2);
+
+    private final short code;
+
+    AvailabilityStatus(int code) {
+        this.code = (short) code;
+    }
+
+    @Override
+    public short getCode() {
+        return code;
+    }
+
+    public static AvailabilityStatus parse(String value) {
+        return CodedEnum.parse(AvailabilityStatus.class, value);
+    }
+
+    @Converter
+    public static class JpaConverter extends CodedEnumConverter<AvailabilityStatus> {
+        public JpaConverter() {
+            super(AvailabilityStatus.class);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package models;
+
+/**
+ * Enum persisted as a small integer code instead of its name.
+ * -----------------------------------------------------------
+ * The code is what ends up in the status columns (smallint), so it is
+ * part of the schema: never renumber or reuse the code of an existing
+ * constant, only append new ones.
+ */
+public interface CodedEnum {
+
+    short getCode();
+
+    /**
+     * Case-insensitive lookup by constant name (for console / API input).
+     * Returns null for blank or unknown values.
+     */
+    static <E extends Enum<E>> E parse(Class<E> type, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String name = value.trim().toUpperCase();
+        for (E e : type.getEnumConstants()) {
+            if (e.name().equals(name)) {
+                return e;
+            }
+        }
+        return null;
+    }
+}
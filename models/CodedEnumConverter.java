@@ -0,0 +1,47 @@
+package models;
+
+import jakarta.persistence.AttributeConverter;
+
+import java.lang.reflect.Array;
+
+/**
+ * Base JPA converter mapping a CodedEnum to its smallint code.
+ * Each status enum exposes a concrete subclass (JpaConverter) that is
+ * referenced from the entity with @Convert.
+ */
+public abstract class CodedEnumConverter<E extends Enum<E> & CodedEnum>
+        implements AttributeConverter<E, Short> {
+
+    private final Class<E> type;
+    private final E[] byCode;   // index = code
+
+    @SuppressWarnings("unchecked")
+    protected CodedEnumConverter(Class<E> type) {
+        this.type = type;
+        int maxCode = 0;
+        for (E e : type.getEnumConstants()) {
+            maxCode = Math.max(maxCode, e.getCode());
+        }
+        this.byCode = (E[]) Array.newInstance(type, maxCode + 1);
+        for (E e : type.getEnumConstants()) {
+            byCode[e.getCode()] = e;
+        }
+    }
+
+    @Override
+    public Short convertToDatabaseColumn(E attribute) {
+        return (attribute != null ? attribute.getCode() : null);
+    }
+
+    @Override
+    public E convertToEntityAttribute(Short code) {
+        if (code == null) {
+            return null;
+        }
+        if (code < 0 || code >= byCode.length || byCode[code] == null) {
+            throw new IllegalArgumentException(
+                    "Unknown " + type.getSimpleName() + " code: " + code);
+        }
+        return byCode[code];
+    }
+}
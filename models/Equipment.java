@@ -7,7 +7,7 @@ import jakarta.persistence.*;
  * -----------------------------
  * Maps to table: equipment
  * PK: equipment_id (auto-generated)
- * Columns: name, category, status, room_id (FK -> room)
+ * Columns: name, category, status, version (optimistic lock), room_id (FK -> room)
  */
 @Entity
 @Table(name = "equipment")
@@ -28,8 +28,13 @@ public class Equipment {
     @Column(name = "category", nullable = false)
     private String category;    // e.g. 'CARDIO', 'STRENGTH'
 
+    @Convert(converter = EquipmentStatus.JpaConverter.class)
     @Column(name = "status", nullable = false)
-    private String status;      // e.g. 'OK', 'BROKEN', 'UNDER_REPAIR'
+    private EquipmentStatus status;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;   // optimistic lock, bumped on every update
 
     // ---- Constructors ----
 
@@ -40,7 +45,7 @@ public class Equipment {
     public Equipment(Room room,
                      String name,
                      String category,
-                     String status) {
+                     EquipmentStatus status) {
         this.room = room;
         this.name = name;
         this.category = category;
@@ -81,14 +86,18 @@ public class Equipment {
         this.category = category;
     }
 
-    public String getStatus() {
+    public EquipmentStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(EquipmentStatus status) {
         this.status = status;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
     // ---- Utility ----
 
     @Override
@@ -97,7 +106,7 @@ public class Equipment {
                 "equipmentId=" + equipmentId +
                 ", name='" + name + '\'' +
                 ", category='" + category + '\'' +
-                ", status='" + status + '\'' +
+                ", status=" + status +
                 ", roomId=" + (room != null ? room.getRoomId() : null) +
                 '}';
     }
@@ -0,0 +1,35 @@
+package models;
+
+import jakarta.persistence.Converter;
+
+/**
+ * Maintenance status of a piece of Equipment.
+ * Stored as a smallint code (see CodedEnum).
+ */
+public enum EquipmentStatus implements CodedEnum {
+    OK(0),
+    OUT_OF_SERVICE(1),
+    UNDER_MAINTENANCE(2);
+
+    private final short code;
+
+    EquipmentStatus(int code) {
+        this.code = (short) code;
+    }
+
+    @Override
+    public short getCode() {
+        return code;
+    }
+
+    public static EquipmentStatus parse(String value) {
+        return CodedEnum.parse(EquipmentStatus.class, value);
+    }
+
+    @Converter
+    public static class JpaConverter extends CodedEnumConverter<EquipmentStatus> {
+        public JpaConverter() {
+            super(EquipmentStatus.class);
+        }
+    }
+}
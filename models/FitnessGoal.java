@@ -2,6 +2,7 @@ package models;
 
 import jakarta.persistence.*;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 /**
  * FitnessGoal entity (weak entity of Member)
@@ -9,7 +10,10 @@ import java.time.LocalDate;
  * Maps to table: fitness_goal
  * PK: (member_id, goal_seq) via FitnessGoalId
  * FK: member_id -> member.member_id
- * Columns: goal_type, target_value, start_date, target_date, status
+ * Columns: goal_type, target_value, start_date, target_date, status,
+ *          baseline_value, baseline_date, latest_value, latest_date,
+ *          progress, last_evaluated (tracked measurement, kept current by the
+ *          service layer on every health_metric insert; see GoalTracker)
  */
 @Entity
 @Table(name = "fitness_goal")
@@ -35,8 +39,27 @@ public class FitnessGoal {
     @Column(name = "target_date")
     private LocalDate targetDate;
 
+    @Convert(converter = GoalStatus.JpaConverter.class)
     @Column(name = "status", nullable = false)
-    private String status;         // e.g. 'ACTIVE', 'COMPLETED', 'CANCELLED'
+    private GoalStatus status;
+
+    @Column(name = "baseline_value")
+    private Double baselineValue;  // first measurement on/after start_date
+
+    @Column(name = "baseline_date")
+    private LocalDate baselineDate;
+
+    @Column(name = "latest_value")
+    private Double latestValue;    // latest measurement
+
+    @Column(name = "latest_date")
+    private LocalDate latestDate;
+
+    @Column(name = "progress")
+    private Double progress;       // percent 0..100, null until measured
+
+    @Column(name = "last_evaluated")
+    private LocalDateTime lastEvaluated;
 
     // ---- Constructors ----
 
@@ -50,7 +73,7 @@ public class FitnessGoal {
                        Double targetValue,
                        LocalDate startDate,
                        LocalDate targetDate,
-                       String status) {
+                       GoalStatus status) {
         this.member = member;
         this.id = new FitnessGoalId(member.getMemberId(), goalSeq);
         this.goalType = goalType;
@@ -110,14 +133,62 @@ public class FitnessGoal {
         this.targetDate = targetDate;
     }
 
-    public String getStatus() {
+    public GoalStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(GoalStatus status) {
         this.status = status;
     }
 
+    public Double getBaselineValue() {
+        return baselineValue;
+    }
+
+    public void setBaselineValue(Double baselineValue) {
+        this.baselineValue = baselineValue;
+    }
+
+    public LocalDate getBaselineDate() {
+        return baselineDate;
+    }
+
+    public void setBaselineDate(LocalDate baselineDate) {
+        this.baselineDate = baselineDate;
+    }
+
+    public Double getLatestValue() {
+        return latestValue;
+    }
+
+    public void setLatestValue(Double latestValue) {
+        this.latestValue = latestValue;
+    }
+
+    public LocalDate getLatestDate() {
+        return latestDate;
+    }
+
+    public void setLatestDate(LocalDate latestDate) {
+        this.latestDate = latestDate;
+    }
+
+    public Double getProgress() {
+        return progress;
+    }
+
+    public void setProgress(Double progress) {
+        this.progress = progress;
+    }
+
+    public LocalDateTime getLastEvaluated() {
+        return lastEvaluated;
+    }
+
+    public void setLastEvaluated(LocalDateTime lastEvaluated) {
+        this.lastEvaluated = lastEvaluated;
+    }
+
     // ---- Utility ----
 
     public Long getMemberId() {
@@ -135,7 +206,8 @@ public class FitnessGoal {
                 ", goalSeq=" + getGoalSeq() +
                 ", goalType='" + goalType + '\'' +
                 ", targetValue=" + targetValue +
-                ", status='" + status + '\'' +
+                ", status=" + status +
+                ", progress=" + progress +
                 '}';
     }
 }
@@ -0,0 +1,36 @@
+package models;
+
+import jakarta.persistence.Converter;
+
+/**
+ * Status of a FitnessGoal.
+ * Stored as a smallint code (see CodedEnum).
+ */
+public enum GoalStatus implements CodedEnum {
+    ACTIVE(0),
+    COMPLETED(1),
+    CANCELLED(2),
+    EXPIRED(3);
+
+    private final short code;
+
+    GoalStatus(int code) {
+        this.code = (short) code;
+    }
+
+    @Override
+    public short getCode() {
+        return code;
+    }
+
+    public static GoalStatus parse(String value) {
+        return CodedEnum.parse(GoalStatus.class, value);
+    }
+
+    @Converter
+    public static class JpaConverter extends CodedEnumConverter<GoalStatus> {
+        public JpaConverter() {
+            super(GoalStatus.class);
+        }
+    }
+}
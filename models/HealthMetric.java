@@ -10,6 +10,7 @@ import java.time.LocalDate;
  * PK: metric_id (auto-generated)
  * FK: member_id (-> member.member_id)
  * Columns: recorded_date, height, weight, heart_rate, body_fat_pct
+ * Partitioned by month on recorded_date (migrations/005), append-only
  */
 @Entity
 @Table(name = "health_metric")
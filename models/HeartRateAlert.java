@@ -0,0 +1,144 @@
+package models;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * HeartRateAlert entity
+ * -----------------------------
+ * Maps to table: heart_rate_alert
+ * PK: alert_id (auto-generated)
+ * Columns: member_id, kind, recorded_date, heart_rate, expected, std_dev,
+ *          z_score, created_at
+ *
+ * An abnormal resting heart rate flagged by app.service.HeartRateMonitor,
+ * inserted in the same transaction as the reading. expected / std_dev are
+ * the member's usual level and spread at the time; z_score is how many
+ * spreads the reading (SPIKE) or the recent level (TREND) is away from it.
+ */
+@Entity
+@Table(name = "heart_rate_alert")
+public class HeartRateAlert {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "alert_id")
+    private Long alertId;
+
+    @Column(name = "member_id", nullable = false)
+    private long memberId;
+
+    @Convert(converter = HeartRateAlertKind.JpaConverter.class)
+    @Column(name = "kind", nullable = false)
+    private HeartRateAlertKind kind;
+
+    @Column(name = "recorded_date", nullable = false)
+    private LocalDate recordedDate;
+
+    @Column(name = "heart_rate", nullable = false)
+    private int heartRate;
+
+    @Column(name = "expected", nullable = false)
+    private double expected;
+
+    @Column(name = "std_dev", nullable = false)
+    private double stdDev;
+
+    @Column(name = "z_score", nullable = false)
+    private double zScore;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // ---- Constructors ----
+
+    public HeartRateAlert() {
+        // required by JPA
+    }
+
+    // ---- Getters & Setters ----
+
+    public Long getAlertId() {
+        return alertId;
+    }
+
+    public long getMemberId() {
+        return memberId;
+    }
+
+    public void setMemberId(long memberId) {
+        this.memberId = memberId;
+    }
+
+    public HeartRateAlertKind getKind() {
+        return kind;
+    }
+
+    public void setKind(HeartRateAlertKind kind) {
+        this.kind = kind;
+    }
+
+    public LocalDate getRecordedDate() {
+        return recordedDate;
+    }
+
+    public void setRecordedDate(LocalDate recordedDate) {
+        this.recordedDate = recordedDate;
+    }
+
+    public int getHeartRate() {
+        return heartRate;
+    }
+
+    public void setHeartRate(int heartRate) {
+        this.heartRate = heartRate;
+    }
+
+    public double getExpected() {
+        return expected;
+    }
+
+    public void setExpected(double expected) {
+        this.expected = expected;
+    }
+
+    public double getStdDev() {
+        return stdDev;
+    }
+
+    public void setStdDev(double stdDev) {
+        this.stdDev = stdDev;
+    }
+
+    public double getZScore() {
+        return zScore;
+    }
+
+    public void setZScore(double zScore) {
+        this.zScore = zScore;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    // ---- Utility ----
+
+    @Override
+    public String toString() {
+        return "HeartRateAlert{" +
+                "alertId=" + alertId +
+                ", memberId=" + memberId +
+                ", kind=" + kind +
+                ", recordedDate=" + recordedDate +
+                ", heartRate=" + heartRate +
+                ", expected=" + expected +
+                ", zScore=" + zScore +
+                '}';
+    }
+}
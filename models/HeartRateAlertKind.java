@@ -0,0 +1,36 @@
+package models;
+
+import jakarta.persistence.Converter;
+
+/**
+ * What a HeartRateAlert flags.
+ * Stored as a smallint code (see CodedEnum).
+ *  SPIKE - one reading far outside the member's usual range
+ *  TREND - the member's recent readings drifted away from their usual level
+ */
+public enum HeartRateAlertKind implements CodedEnum {
+    SPIKE(0),
+    TREND(1);
+
+    private final short code;
+
+    HeartRateAlertKind(int code) {
+        this.code = (short) code;
+    }
+
+    @Override
+    public short getCode() {
+        return code;
+    }
+
+    public static HeartRateAlertKind parse(String value) {
+        return CodedEnum.parse(HeartRateAlertKind.class, value);
+    }
+
+    @Converter
+    public static class JpaConverter extends CodedEnumConverter<HeartRateAlertKind> {
+        public JpaConverter() {
+            super(HeartRateAlertKind.class);
+        }
+    }
+}
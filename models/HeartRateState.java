@@ -0,0 +1,103 @@
+package models;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * HeartRateState entity
+ * -----------------------------
+ * Maps to table: heart_rate_state
+ * PK: member_id
+ * Columns: mean, variance, recent_mean, readings, last_date, trending,
+ *          updated_at
+ *
+ * Snapshot of app.service.HeartRateMonitor's in-memory state for one
+ * member: the exponentially weighted mean / variance of their heart rate,
+ * a faster-moving recent mean, how many readings it has seen and the date
+ * of the last one. Written in batches by the monitor and read back when it
+ * starts, so a restart does not reset the detector.
+ */
+@Entity
+@Table(name = "heart_rate_state")
+public class HeartRateState {
+
+    @Id
+    @Column(name = "member_id")
+    private long memberId;
+
+    @Column(name = "mean", nullable = false)
+    private double mean;
+
+    @Column(name = "variance", nullable = false)
+    private double variance;
+
+    @Column(name = "recent_mean", nullable = false)
+    private double recentMean;
+
+    @Column(name = "readings", nullable = false)
+    private int readings;
+
+    @Column(name = "last_date", nullable = false)
+    private LocalDate lastDate;
+
+    @Column(name = "trending", nullable = false)
+    private boolean trending;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // ---- Constructors ----
+
+    public HeartRateState() {
+        // required by JPA
+    }
+
+    // ---- Getters & Setters ----
+
+    public long getMemberId() {
+        return memberId;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getVariance() {
+        return variance;
+    }
+
+    public double getRecentMean() {
+        return recentMean;
+    }
+
+    public int getReadings() {
+        return readings;
+    }
+
+    public LocalDate getLastDate() {
+        return lastDate;
+    }
+
+    public boolean isTrending() {
+        return trending;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    // ---- Utility ----
+
+    @Override
+    public String toString() {
+        return "HeartRateState{" +
+                "memberId=" + memberId +
+                ", mean=" + mean +
+                ", variance=" + variance +
+                ", recentMean=" + recentMean +
+                ", readings=" + readings +
+                ", lastDate=" + lastDate +
+                '}';
+    }
+}
@@ -0,0 +1,65 @@
+package models;
+
+import jakarta.persistence.*;
+
+/**
+ * IngestCheckpoint entity
+ * -----------------------------
+ * Maps to table: metric_ingest_checkpoint
+ * PK: journal_id (random id of the write-behind journal of one app instance)
+ * Columns: last_seq
+ *
+ * Highest journal sequence number whose reading is stored in this club's
+ * database. Updated in the same transaction as the readings, so replaying
+ * the journal after a crash never inserts a reading twice.
+ */
+@Entity
+@Table(name = "metric_ingest_checkpoint")
+public class IngestCheckpoint {
+
+    @Id
+    @Column(name = "journal_id", length = 255)
+    private String journalId;
+
+    @Column(name = "last_seq", nullable = false)
+    private long lastSeq;
+
+    // ---- Constructors ----
+
+    public IngestCheckpoint() {
+        // required by JPA
+    }
+
+    public IngestCheckpoint(String journalId, long lastSeq) {
+        this.journalId = journalId;
+        this.lastSeq = lastSeq;
+    }
+
+    // ---- Getters & Setters ----
+
+    public String getJournalId() {
+        return journalId;
+    }
+
+    public void setJournalId(String journalId) {
+        this.journalId = journalId;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public void setLastSeq(long lastSeq) {
+        this.lastSeq = lastSeq;
+    }
+
+    // ---- Utility ----
+
+    @Override
+    public String toString() {
+        return "IngestCheckpoint{" +
+                "journalId='" + journalId + '\'' +
+                ", lastSeq=" + lastSeq +
+                '}';
+    }
+}
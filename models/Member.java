@@ -8,8 +8,10 @@ import java.time.LocalDate;
  * -----------------------------
  * Maps to table: member
  * PK: member_id (auto-generated)
- * Other columns: full_name, password_hash, date_of_birth,
- *                gender, join_date, email, status
+ * Other columns: full_name, date_of_birth,
+ *                gender, join_date, email, status, club_id,
+ *                next_goal_seq (last goal_seq handed out to this member)
+ * Login email and password hash: Account (role MEMBER, person_id)
  */
 @Entity
 @Table(name = "member")
@@ -23,9 +25,6 @@ public class Member {
     @Column(name = "full_name", nullable = false)
     private String fullName;
 
-    @Column(name = "password_hash", nullable = false)
-    private String passwordHash;
-
     @Column(name = "date_of_birth")
     private LocalDate dateOfBirth;
 
@@ -38,8 +37,18 @@ public class Member {
     @Column(name = "email", nullable = false, unique = true)
     private String email;
 
+    @Convert(converter = AccountStatus.JpaConverter.class)
     @Column(name = "status", nullable = false)
-    private String status;   // e.g. 'ACTIVE', 'INACTIVE'
+    private AccountStatus status;
+
+    // club (location) this row belongs to; also selects the shard database
+    @Column(name = "club_id", nullable = false)
+    private Integer clubId;
+
+    // only ever bumped in SQL (MemberService.addFitnessGoal); never written back from here,
+    // so saving a profile cannot undo a concurrent increment
+    @Column(name = "next_goal_seq", nullable = false, updatable = false)
+    private int nextGoalSeq;
 
     // ---- Constructors ----
 
@@ -48,14 +57,12 @@ public class Member {
     }
 
     public Member(String fullName,
-                  String passwordHash,
                   LocalDate dateOfBirth,
                   String gender,
                   LocalDate joinDate,
                   String email,
-                  String status) {
+                  AccountStatus status) {
         this.fullName = fullName;
-        this.passwordHash = passwordHash;
         this.dateOfBirth = dateOfBirth;
         this.gender = gender;
         this.joinDate = joinDate;
@@ -81,14 +88,6 @@ public class Member {
         this.fullName = fullName;
     }
 
-    public String getPasswordHash() {
-        return passwordHash;
-    }
-
-    public void setPasswordHash(String passwordHash) {
-        this.passwordHash = passwordHash;
-    }
-
     public LocalDate getDateOfBirth() {
         return dateOfBirth;
     }
@@ -121,14 +120,26 @@ public class Member {
         this.email = email;
     }
 
-    public String getStatus() {
+    public AccountStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(AccountStatus status) {
         this.status = status;
     }
 
+    public Integer getClubId() {
+        return clubId;
+    }
+
+    public void setClubId(Integer clubId) {
+        this.clubId = clubId;
+    }
+
+    public int getNextGoalSeq() {
+        return nextGoalSeq;
+    }
+
     // ---- Utility ----
 
     @Override
@@ -137,7 +148,7 @@ public class Member {
                 "memberId=" + memberId +
                 ", fullName='" + fullName + '\'' +
                 ", email='" + email + '\'' +
-                ", status='" + status + '\'' +
+                ", status=" + status +
                 '}';
     }
 }
@@ -0,0 +1,127 @@
+package models;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Pre-aggregated health metrics of one member over one period
+ * -----------------------------------------------------------
+ * Mapped superclass of WeeklyMetricRollup and MonthlyMetricRollup.
+ * PK: (member_id, period_start) via MetricRollupId
+ * Columns: readings, and count / min / max / sum of weight, body_fat_pct
+ * and heart_rate over the period's health_metric rows.
+ *
+ * Averages are sum / count, so a row can be updated incrementally with one
+ * upsert per new reading (see app.service.MetricRollups). Counts are per
+ * column because every metric column of a reading is optional.
+ */
+@MappedSuperclass
+public abstract class MetricRollup {
+
+    @EmbeddedId
+    private MetricRollupId id;
+
+    @Column(name = "readings", nullable = false)
+    private int readings;
+
+    @Column(name = "weight_n", nullable = false)
+    private int weightCount;
+
+    @Column(name = "weight_min")
+    private Double weightMin;
+
+    @Column(name = "weight_max")
+    private Double weightMax;
+
+    @Column(name = "weight_sum", nullable = false)
+    private double weightSum;
+
+    @Column(name = "body_fat_n", nullable = false)
+    private int bodyFatCount;
+
+    @Column(name = "body_fat_min")
+    private Double bodyFatMin;
+
+    @Column(name = "body_fat_max")
+    private Double bodyFatMax;
+
+    @Column(name = "body_fat_sum", nullable = false)
+    private double bodyFatSum;
+
+    @Column(name = "heart_rate_n", nullable = false)
+    private int heartRateCount;
+
+    @Column(name = "heart_rate_min")
+    private Integer heartRateMin;
+
+    @Column(name = "heart_rate_max")
+    private Integer heartRateMax;
+
+    @Column(name = "heart_rate_sum", nullable = false)
+    private long heartRateSum;
+
+    // ---- Getters ----
+    // rollups are written with native upserts only, hence no setters
+
+    public MetricRollupId getId() {
+        return id;
+    }
+
+    public LocalDate getPeriodStart() {
+        return (id != null ? id.getPeriodStart() : null);
+    }
+
+    public int getReadings() {
+        return readings;
+    }
+
+    public Double getWeightMin() {
+        return weightMin;
+    }
+
+    public Double getWeightMax() {
+        return weightMax;
+    }
+
+    public Double getWeightAvg() {
+        return (weightCount > 0 ? weightSum / weightCount : null);
+    }
+
+    public Double getBodyFatMin() {
+        return bodyFatMin;
+    }
+
+    public Double getBodyFatMax() {
+        return bodyFatMax;
+    }
+
+    public Double getBodyFatAvg() {
+        return (bodyFatCount > 0 ? bodyFatSum / bodyFatCount : null);
+    }
+
+    public Integer getHeartRateMin() {
+        return heartRateMin;
+    }
+
+    public Integer getHeartRateMax() {
+        return heartRateMax;
+    }
+
+    public Double getHeartRateAvg() {
+        return (heartRateCount > 0 ? (double) heartRateSum / heartRateCount : null);
+    }
+
+    // ---- Utility ----
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                "memberId=" + (id != null ? id.getMemberId() : null) +
+                ", periodStart=" + getPeriodStart() +
+                ", readings=" + readings +
+                ", weightAvg=" + getWeightAvg() +
+                ", bodyFatAvg=" + getBodyFatAvg() +
+                ", heartRateAvg=" + getHeartRateAvg() +
+                '}';
+    }
+}
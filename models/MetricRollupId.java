@@ -0,0 +1,62 @@
+package models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Composite primary key for the health metric rollups
+ * ---------------------------------------------------
+ * PK columns: member_id, period_start
+ */
+@Embeddable
+public class MetricRollupId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "member_id")
+    private Long memberId;
+
+    @Column(name = "period_start")
+    private LocalDate periodStart;
+
+    public MetricRollupId() {
+        // required by JPA
+    }
+
+    public MetricRollupId(Long memberId, LocalDate periodStart) {
+        this.memberId = memberId;
+        this.periodStart = periodStart;
+    }
+
+    public Long getMemberId() {
+        return memberId;
+    }
+
+    public void setMemberId(Long memberId) {
+        this.memberId = memberId;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MetricRollupId that)) return false;
+        return Objects.equals(memberId, that.memberId) &&
+                Objects.equals(periodStart, that.periodStart);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(memberId, periodStart);
+    }
+}
@@ -0,0 +1,93 @@
+package models;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * MetricSketch entity
+ * -----------------------------
+ * Maps to table: metric_sketch
+ * PK: (metric, period_start) via MetricSketchId
+ * Columns: n, sketch, updated_at
+ *
+ * Serialized quantile sketch (app.service.KllSketch, about 2 KB) of one
+ * metric over one quarter of the club, e.g. every weight logged in it or
+ * every member's weight change over it; n is the number of values it
+ * summarises. Maintained by app.service.MetricSketches.
+ */
+@Entity
+@Table(name = "metric_sketch")
+public class MetricSketch {
+
+    @EmbeddedId
+    private MetricSketchId id;
+
+    @Column(name = "n", nullable = false)
+    private long n;
+
+    @Column(name = "sketch", nullable = false)
+    private byte[] sketch;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // ---- Constructors ----
+
+    public MetricSketch() {
+        // required by JPA
+    }
+
+    public MetricSketch(String metric, LocalDate periodStart, long n, byte[] sketch) {
+        this.id = new MetricSketchId(metric, periodStart);
+        this.n = n;
+        this.sketch = sketch;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // ---- Getters & Setters ----
+
+    public MetricSketchId getId() {
+        return id;
+    }
+
+    public void setId(MetricSketchId id) {
+        this.id = id;
+    }
+
+    public long getN() {
+        return n;
+    }
+
+    public void setN(long n) {
+        this.n = n;
+    }
+
+    public byte[] getSketch() {
+        return sketch;
+    }
+
+    public void setSketch(byte[] sketch) {
+        this.sketch = sketch;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    // ---- Utility ----
+
+    @Override
+    public String toString() {
+        return "MetricSketch{" +
+                "metric='" + (id != null ? id.getMetric() : null) + '\'' +
+                ", periodStart=" + (id != null ? id.getPeriodStart() : null) +
+                ", n=" + n +
+                ", bytes=" + (sketch != null ? sketch.length : 0) +
+                '}';
+    }
+}
@@ -0,0 +1,62 @@
+package models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Composite primary key for MetricSketch
+ * --------------------------------------
+ * PK columns: metric, period_start
+ */
+@Embeddable
+public class MetricSketchId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "metric", length = 32)
+    private String metric;
+
+    @Column(name = "period_start")
+    private LocalDate periodStart;
+
+    public MetricSketchId() {
+        // required by JPA
+    }
+
+    public MetricSketchId(String metric, LocalDate periodStart) {
+        this.metric = metric;
+        this.periodStart = periodStart;
+    }
+
+    public String getMetric() {
+        return metric;
+    }
+
+    public void setMetric(String metric) {
+        this.metric = metric;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MetricSketchId that)) return false;
+        return Objects.equals(metric, that.metric) &&
+                Objects.equals(periodStart, that.periodStart);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(metric, periodStart);
+    }
+}
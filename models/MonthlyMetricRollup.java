@@ -0,0 +1,19 @@
+package models;
+
+import jakarta.persistence.*;
+
+/**
+ * MonthlyMetricRollup entity
+ * -----------------------------
+ * Maps to table: health_metric_monthly
+ * Health metric aggregates of a member over one calendar month (period_start = its first day).
+ * Columns: see MetricRollup
+ */
+@Entity
+@Table(name = "health_metric_monthly")
+public class MonthlyMetricRollup extends MetricRollup {
+
+    public MonthlyMetricRollup() {
+        // required by JPA
+    }
+}
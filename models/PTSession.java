@@ -14,7 +14,7 @@ import java.time.LocalDateTime;
  *   room_id   -> room.room_id
  *   admin_id  -> admin.admin_id
  *   status example: status examples: "PENDING", "VALIDATED", "CANCELLED", "COMPLETED";
- * Columns: start_time, end_time, status
+ * Columns: start_time, end_time, status, version (optimistic lock)
  */
 @Entity
 @Table(name = "pt_session")
@@ -48,8 +48,13 @@ public class PTSession {
     @Column(name = "end_time", nullable = false)
     private LocalDateTime endTime;
 
+    @Convert(converter = PTSessionStatus.JpaConverter.class)
     @Column(name = "status", nullable = false)
-    private String status; // e.g. 'BOOKED', 'CANCELLED', 'COMPLETED'
+    private PTSessionStatus status;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;   // optimistic lock, bumped on every update
 
     // ---- Constructors ----
 
@@ -63,7 +68,7 @@ public class PTSession {
                      Admin admin,
                      LocalDateTime startTime,
                      LocalDateTime endTime,
-                     String status) {
+                     PTSessionStatus status) {
         this.member = member;
         this.trainer = trainer;
         this.room = room;
@@ -131,14 +136,18 @@ public class PTSession {
         this.endTime = endTime;
     }
 
-    public String getStatus() {
+    public PTSessionStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(PTSessionStatus status) {
         this.status = status;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
     // ---- Utility ----
 
     @Override
@@ -151,7 +160,7 @@ public class PTSession {
                 ", adminId=" + (admin != null ? admin.getAdminId() : null) +
                 ", startTime=" + startTime +
                 ", endTime=" + endTime +
-                ", status='" + status + '\'' +
+                ", status=" + status +
                 '}';
     }
 }
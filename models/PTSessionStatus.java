@@ -0,0 +1,38 @@
+package models;
+
+import jakarta.persistence.Converter;
+
+/**
+ * Lifecycle of a PTSession: requested (PENDING / RESCHEDULED),
+ * validated by an admin (room assigned), then CANCELLED or COMPLETED.
+ * Stored as a smallint code (see CodedEnum).
+ */
+public enum PTSessionStatus implements CodedEnum {
+    PENDING(0),
+    RESCHEDULED(1),
+    VALIDATED(2),
+    CANCELLED(3),
+    COMPLETED(4);
+
+    private final short code;
+
+    PTSessionStatus(int code) {
+        this.code = (short) code;
+    }
+
+    @Override
+    public short getCode() {
+        return code;
+    }
+
+    public static PTSessionStatus parse(String value) {
+        return CodedEnum.parse(PTSessionStatus.class, value);
+    }
+
+    @Converter
+    public static class JpaConverter extends CodedEnumConverter<PTSessionStatus> {
+        public JpaConverter() {
+            super(PTSessionStatus.class);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package models;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * RetentionCheckpoint entity
+ * -----------------------------
+ * Maps to table: retention_checkpoint
+ * PK: job_name
+ * Columns: cutoff, last_recorded_date, last_metric_id, deleted_rows, updated_at
+ *
+ * Progress of a chunked retention run (app.service.HealthMetricRetention):
+ * the sort key of the last row deleted for the current cutoff, committed
+ * with every chunk, so an interrupted run resumes where it stopped.
+ */
+@Entity
+@Table(name = "retention_checkpoint")
+public class RetentionCheckpoint {
+
+    @Id
+    @Column(name = "job_name", length = 100)
+    private String jobName;
+
+    @Column(name = "cutoff", nullable = false)
+    private LocalDate cutoff;
+
+    @Column(name = "last_recorded_date")
+    private LocalDate lastRecordedDate;
+
+    @Column(name = "last_metric_id")
+    private Long lastMetricId;
+
+    @Column(name = "deleted_rows", nullable = false)
+    private long deletedRows;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // ---- Constructors ----
+
+    public RetentionCheckpoint() {
+        // required by JPA
+    }
+
+    public RetentionCheckpoint(String jobName, LocalDate cutoff) {
+        this.jobName = jobName;
+        this.cutoff = cutoff;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // ---- Getters & Setters ----
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public LocalDate getCutoff() {
+        return cutoff;
+    }
+
+    public void setCutoff(LocalDate cutoff) {
+        this.cutoff = cutoff;
+    }
+
+    public LocalDate getLastRecordedDate() {
+        return lastRecordedDate;
+    }
+
+    public void setLastRecordedDate(LocalDate lastRecordedDate) {
+        this.lastRecordedDate = lastRecordedDate;
+    }
+
+    public Long getLastMetricId() {
+        return lastMetricId;
+    }
+
+    public void setLastMetricId(Long lastMetricId) {
+        this.lastMetricId = lastMetricId;
+    }
+
+    public long getDeletedRows() {
+        return deletedRows;
+    }
+
+    public void setDeletedRows(long deletedRows) {
+        this.deletedRows = deletedRows;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    // ---- Utility ----
+
+    @Override
+    public String toString() {
+        return "RetentionCheckpoint{" +
+                "jobName='" + jobName + '\'' +
+                ", cutoff=" + cutoff +
+                ", lastRecordedDate=" + lastRecordedDate +
+                ", lastMetricId=" + lastMetricId +
+                ", deletedRows=" + deletedRows +
+                ", updatedAt=" + updatedAt +
+                '}';
+    }
+}
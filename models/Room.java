@@ -7,7 +7,7 @@ import jakarta.persistence.*;
  * -----------------------------
  * Maps to table: room
  * PK: room_id (auto-generated)
- * Columns: room_type, capacity, status
+ * Columns: room_type, capacity, status, club_id
  */
 @Entity
 @Table(name = "room")
@@ -24,8 +24,13 @@ public class Room {
     @Column(name = "capacity", nullable = false)
     private Integer capacity;
 
+    @Convert(converter = RoomStatus.JpaConverter.class)
     @Column(name = "status", nullable = false)
-    private String status;      // e.g. 'AVAILABLE', 'MAINTENANCE', 'CLOSED'
+    private RoomStatus status;
+
+    // club (location) this row belongs to; also selects the shard database
+    @Column(name = "club_id", nullable = false)
+    private Integer clubId;
 
     // ---- Constructors ----
 
@@ -33,7 +38,7 @@ public class Room {
         // required by JPA
     }
 
-    public Room(String roomType, Integer capacity, String status) {
+    public Room(String roomType, Integer capacity, RoomStatus status) {
         this.roomType = roomType;
         this.capacity = capacity;
         this.status = status;
@@ -65,14 +70,22 @@ public class Room {
         this.capacity = capacity;
     }
 
-    public String getStatus() {
+    public RoomStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(RoomStatus status) {
         this.status = status;
     }
 
+    public Integer getClubId() {
+        return clubId;
+    }
+
+    public void setClubId(Integer clubId) {
+        this.clubId = clubId;
+    }
+
     // ---- Utility ----
 
     @Override
@@ -81,7 +94,7 @@ public class Room {
                 "roomId=" + roomId +
                 ", roomType='" + roomType + '\'' +
                 ", capacity=" + capacity +
-                ", status='" + status + '\'' +
+                ", status=" + status +
                 '}';
     }
 }
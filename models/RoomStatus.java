@@ -0,0 +1,35 @@
+package models;
+
+import jakarta.persistence.Converter;
+
+/**
+ * Status of a Room (kept in sync with its equipment by trg_equipment_room_status).
+ * Stored as a smallint code (see CodedEnum).
+ */
+public enum RoomStatus implements CodedEnum {
+    AVAILABLE(0),
+    MAINTENANCE(1),
+    CLOSED(2);
+
+    private final short code;
+
+    RoomStatus(int code) {
+        this.code = (short) code;
+    }
+
+    @Override
+    public short getCode() {
+        return code;
+    }
+
+    public static RoomStatus parse(String value) {
+        return CodedEnum.parse(RoomStatus.class, value);
+    }
+
+    @Converter
+    public static class JpaConverter extends CodedEnumConverter<RoomStatus> {
+        public JpaConverter() {
+            super(RoomStatus.class);
+        }
+    }
+}
@@ -8,7 +8,8 @@ import java.time.LocalDate;
  * -----------------------------
  * Maps to table: trainer
  * PK: trainer_id (auto-generated)
- * Columns: full_name, password_hash, hire_date, email, status
+ * Columns: full_name, hire_date, email, status, club_id
+ * Login email and password hash: Account (role TRAINER, person_id)
  */
 @Entity
 @Table(name = "trainer")
@@ -22,17 +23,19 @@ public class Trainer {
     @Column(name = "full_name", nullable = false)
     private String fullName;
 
-    @Column(name = "password_hash", nullable = false)
-    private String passwordHash;
-
     @Column(name = "hire_date")
     private LocalDate hireDate;
 
     @Column(name = "email", nullable = false, unique = true)
     private String email;
 
+    @Convert(converter = AccountStatus.JpaConverter.class)
     @Column(name = "status", nullable = false)
-    private String status;   // e.g. 'ACTIVE', 'INACTIVE'
+    private AccountStatus status;
+
+    // club (location) this row belongs to; also selects the shard database
+    @Column(name = "club_id", nullable = false)
+    private Integer clubId;
 
     // ---- Constructors ----
 
@@ -41,12 +44,10 @@ public class Trainer {
     }
 
     public Trainer(String fullName,
-                   String passwordHash,
                    LocalDate hireDate,
                    String email,
-                   String status) {
+                   AccountStatus status) {
         this.fullName = fullName;
-        this.passwordHash = passwordHash;
         this.hireDate = hireDate;
         this.email = email;
         this.status = status;
@@ -70,14 +71,6 @@ public class Trainer {
         this.fullName = fullName;
     }
 
-    public String getPasswordHash() {
-        return passwordHash;
-    }
-
-    public void setPasswordHash(String passwordHash) {
-        this.passwordHash = passwordHash;
-    }
-
     public LocalDate getHireDate() {
         return hireDate;
     }
@@ -94,14 +87,22 @@ public class Trainer {
         this.email = email;
     }
 
-    public String getStatus() {
+    public AccountStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(AccountStatus status) {
         this.status = status;
     }
 
+    public Integer getClubId() {
+        return clubId;
+    }
+
+    public void setClubId(Integer clubId) {
+        this.clubId = clubId;
+    }
+
     // ---- Utility ----
 
     @Override
@@ -110,7 +111,7 @@ public class Trainer {
                 "trainerId=" + trainerId +
                 ", fullName='" + fullName + '\'' +
                 ", email='" + email + '\'' +
-                ", status='" + status + '\'' +
+                ", status=" + status +
                 '}';
     }
 }
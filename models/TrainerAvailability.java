@@ -9,7 +9,7 @@ import java.time.LocalDateTime;
  * Maps to table: trainer_availability
  * PK: availability_id (auto-generated)
  * FK: trainer_id -> trainer.trainer_id
- * Columns: start_time, end_time, status
+ * Columns: start_time, end_time, status, version (optimistic lock)
  */
 @Entity
 @Table(name = "trainer_availability")
@@ -30,8 +30,13 @@ public class TrainerAvailability {
     @Column(name = "end_time", nullable = false)
     private LocalDateTime endTime;
 
+    @Convert(converter = AvailabilityStatus.JpaConverter.class)
     @Column(name = "status", nullable = false)
-    private String status;   // e.g. 'AVAILABLE', 'BLOCKED'
+    private AvailabilityStatus status;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;   // optimistic lock, bumped on every update
 
     // ---- Constructors ----
 
@@ -42,7 +47,7 @@ public class TrainerAvailability {
     public TrainerAvailability(Trainer trainer,
                                LocalDateTime startTime,
                                LocalDateTime endTime,
-                               String status) {
+                               AvailabilityStatus status) {
         this.trainer = trainer;
         this.startTime = startTime;
         this.endTime = endTime;
@@ -83,14 +88,18 @@ public class TrainerAvailability {
         this.endTime = endTime;
     }
 
-    public String getStatus() {
+    public AvailabilityStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(AvailabilityStatus status) {
         this.status = status;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
     // ---- Utility ----
 
     @Override
@@ -100,7 +109,7 @@ public class TrainerAvailability {
                 ", trainerId=" + (trainer != null ? trainer.getTrainerId() : null) +
                 ", startTime=" + startTime +
                 ", endTime=" + endTime +
-                ", status='" + status + '\'' +
+                ", status=" + status +
                 '}';
     }
 }
@@ -0,0 +1,19 @@
+package models;
+
+import jakarta.persistence.*;
+
+/**
+ * WeeklyMetricRollup entity
+ * -----------------------------
+ * Maps to table: health_metric_weekly
+ * Health metric aggregates of a member over one ISO week (period_start = its Monday).
+ * Columns: see MetricRollup
+ */
+@Entity
+@Table(name = "health_metric_weekly")
+public class WeeklyMetricRollup extends MetricRollup {
+
+    public WeeklyMetricRollup() {
+        // required by JPA
+    }
+}
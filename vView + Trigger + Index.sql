@@ -1,3 +1,8 @@
+-- Status columns hold smallint codes (see the enums in models/):
+--   PTSessionStatus : 0 PENDING, 1 RESCHEDULED, 2 VALIDATED, 3 CANCELLED, 4 COMPLETED
+--   EquipmentStatus : 0 OK, 1 OUT_OF_SERVICE, 2 UNDER_MAINTENANCE
+--   RoomStatus      : 0 AVAILABLE, 1 MAINTENANCE, 2 CLOSED
+
 -- ===== VIEW: trainer_schedule_view =====
 -- Shows non-cancelled PT sessions with trainer, member, and room info.
 
@@ -20,7 +25,7 @@ JOIN member AS m
     ON s.member_id = m.member_id
 LEFT JOIN room AS r
     ON s.room_id = r.room_id
-WHERE s.status <> 'CANCELLED';
+WHERE s.status <> 3;  -- PTSessionStatus.CANCELLED
 -- ===== TRIGGER FUNCTION: update_room_status_from_equipment =====
 
 CREATE OR REPLACE FUNCTION update_room_status_from_equipment()
@@ -34,22 +39,22 @@ BEGIN
         RETURN NEW;
     END IF;
 
-    -- Count equipment in the same room that are not OK
+    -- Count equipment in the same room that are not OK (EquipmentStatus.OK = 0)
     SELECT COUNT(*)
     INTO broken_count
     FROM equipment
     WHERE room_id = NEW.room_id
-      AND status <> 'OK';
+      AND status <> 0;
 
     IF broken_count > 0 THEN
-        -- At least one problematic equipment -> room in MAINTENANCE
+        -- At least one problematic equipment -> room in MAINTENANCE (RoomStatus = 1)
         UPDATE room
-        SET status = 'MAINTENANCE'
+        SET status = 1
         WHERE room_id = NEW.room_id;
     ELSE
-        -- All equipment OK -> room available
+        -- All equipment OK -> room available (RoomStatus = 0)
         UPDATE room
-        SET status = 'AVAILABLE'
+        SET status = 0
         WHERE room_id = NEW.room_id;
     END IF;
 